@@ -0,0 +1,25 @@
+package com.gojek.beast.backoff;
+
+import lombok.AllArgsConstructor;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff delays drawn at random between the base delay and three times the previous delay, capped at the maximum delay.
+ * Retries of failures that happened together spread out instead of coming back in lockstep.
+ */
+@AllArgsConstructor
+public class DecorrelatedJitterBackOff {
+    private static final int GROWTH_FACTOR = 3;
+
+    private final long baseDelayMs;
+    private final long maximumDelayMs;
+
+    /**
+     * @param previousDelayMs delay before the previous attempt, 0 before the first retry
+     */
+    public long nextDelayMs(long previousDelayMs) {
+        long upperBound = Math.max(baseDelayMs, previousDelayMs * GROWTH_FACTOR);
+        return Math.min(maximumDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, upperBound + 1));
+    }
+}
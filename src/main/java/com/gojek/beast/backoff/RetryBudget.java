@@ -0,0 +1,45 @@
+package com.gojek.beast.backoff;
+
+import com.gojek.beast.stats.Stats;
+
+/**
+ * Caps retries at a share of the pushes of the process. Every first push deposits the ratio into the budget,
+ * every retry withdraws one, and retries are refused once the budget runs out.
+ * The budget starts at, and never grows beyond, minRetries so that retries are possible on little traffic.
+ * Metrics are prefixed with the name of the budget, retry by default.
+ */
+public class RetryBudget {
+    private final Stats statsClient = Stats.client();
+    private final String name;
+    private final double ratio;
+    private final double maxBalance;
+    private double balance;
+
+    public RetryBudget(double ratio, int minRetries) {
+        this("retry", ratio, minRetries);
+    }
+
+    public RetryBudget(String name, double ratio, int minRetries) {
+        this.name = name;
+        this.ratio = ratio;
+        this.maxBalance = Math.max(1, minRetries);
+        this.balance = maxBalance;
+    }
+
+    public synchronized void deposit(int pushes) {
+        balance = Math.min(maxBalance, balance + pushes * ratio);
+    }
+
+    /**
+     * @return false, withdrawing nothing, when the budget can't cover all the retries
+     */
+    public synchronized boolean tryWithdraw(int retries) {
+        if (balance < retries) {
+            statsClient.increment(name + ".budget.exhausted");
+            return false;
+        }
+        balance -= retries;
+        statsClient.gauge(name + ".budget.balance", (long) balance);
+        return true;
+    }
+}
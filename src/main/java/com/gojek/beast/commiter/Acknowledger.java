@@ -8,5 +8,10 @@ import java.util.Map;
 public interface Acknowledger {
     boolean acknowledge(Map<TopicPartition, OffsetAndMetadata> offsets);
 
+    /**
+     * Marks the batch as taken by a sink that acknowledges it once written, later on.
+     */
+    void defer(Map<TopicPartition, OffsetAndMetadata> offsets);
+
     void close(String reason);
 }
@@ -1,6 +1,7 @@
 package com.gojek.beast.commiter;
 
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
 
 import java.util.Map;
@@ -8,6 +9,9 @@ import java.util.Map;
 public interface KafkaCommitter {
     void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets);
 
+    // Hands the offsets over to be committed by the polling thread, the callback is invoked on that thread
+    void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback);
+
     // Use wakeup to throw exception and consumer handles it and closes the loop
     void wakeup(String reason);
 }
@@ -1,30 +1,32 @@
 package com.gojek.beast.commiter;
 
-import com.gojek.beast.stats.Stats;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 @Slf4j
 @AllArgsConstructor
 public class OffsetAcknowledger implements Acknowledger {
-    private final Stats statsClient = Stats.client();
-    private Set<Map<TopicPartition, OffsetAndMetadata>> partitionOffsetAck;
+    // one tracker per consumer, a batch is registered with the tracker of the consumer it was polled by
+    private final List<OffsetTracker> offsetTrackers;
 
     @Override
     public boolean acknowledge(Map<TopicPartition, OffsetAndMetadata> offsets) {
-        boolean status = partitionOffsetAck.add(offsets);
-        statsClient.gauge("queue.elements,name=ack", partitionOffsetAck.size());
+        boolean status = offsetTrackers.stream().anyMatch(offsetTracker -> offsetTracker.acknowledge(offsets));
         log.debug("Acknowledged by bq sink: {} status: {}", offsets, status);
         return status;
     }
 
+    @Override
+    public void defer(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsetTrackers.forEach(offsetTracker -> offsetTracker.defer(offsets));
+    }
+
     @Override
     public void close(String reason) {
-        partitionOffsetAck.clear();
     }
 }
@@ -1,47 +1,38 @@
 package com.gojek.beast.commiter;
 
+import com.gojek.beast.Clock;
 import lombok.Getter;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
-import org.apache.kafka.common.TopicPartition;
-
-import java.time.Instant;
-import java.util.Map;
-import java.util.Set;
 
 public class OffsetState {
     @Getter
     private final long acknowledgeTimeoutMs;
     @Getter
     private final long offsetBatchDuration;
+    private final Clock clock;
     private boolean start;
-    private Instant lastCommittedTime;
-    private Set<Map<TopicPartition, OffsetAndMetadata>> partitionOffsetAck;
+    private long lastCommittedTime;
+
+    public OffsetState(long acknowledgeTimeoutMs, long offsetBatchDuration) {
+        this(acknowledgeTimeoutMs, offsetBatchDuration, new Clock());
+    }
 
-    public OffsetState(Set<Map<TopicPartition, OffsetAndMetadata>> partitionOffsetAck, long acknowledgeTimeoutMs, long offsetBatchDuration) {
-        this.partitionOffsetAck = partitionOffsetAck;
+    public OffsetState(long acknowledgeTimeoutMs, long offsetBatchDuration, Clock clock) {
         this.acknowledgeTimeoutMs = acknowledgeTimeoutMs;
         this.offsetBatchDuration = offsetBatchDuration;
-        lastCommittedTime = Instant.now();
+        this.clock = clock;
+        lastCommittedTime = clock.currentEpochMillis();
     }
 
-    public boolean shouldCloseConsumer(Map<TopicPartition, OffsetAndMetadata> currentOffset) {
+    public boolean shouldCloseConsumer() {
         if (!start) {
             return false;
         }
-        boolean ackTimedOut = (Instant.now().toEpochMilli() - lastCommittedTime.toEpochMilli()) > acknowledgeTimeoutMs;
+        boolean ackTimedOut = (clock.currentEpochMillis() - lastCommittedTime) > acknowledgeTimeoutMs;
         return ackTimedOut;
     }
 
-    public int partitionOffsetAckSize() {
-        return partitionOffsetAck.size();
-    }
-
-    public boolean removeFromOffsetAck(Map<TopicPartition, OffsetAndMetadata> commitOffset) {
-        return partitionOffsetAck.remove(commitOffset);
-    }
-
     public void resetOffset() {
-        lastCommittedTime = Instant.now();
+        lastCommittedTime = clock.currentEpochMillis();
     }
 
     public void startTimer() {
@@ -0,0 +1,211 @@
+package com.gojek.beast.commiter;
+
+import com.gojek.beast.models.OffsetMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offsets of the batches of a consumer, from registration until they are committable.
+ * Each partition advances its own committable offset as its batches get acknowledged, in any order.
+ */
+public class OffsetTracker {
+    private static final AtomicLong EPOCHS = new AtomicLong();
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final int capacity;
+    private volatile boolean signalled;
+    private volatile Thread waiter;
+
+    /**
+     * @param capacity batches per partition registered and not yet committable, rounded up to a power of two
+     */
+    public OffsetTracker(int capacity) {
+        this.capacity = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Registers the batch, stamping its offsets. To be called by a single thread, before the batch can be acknowledged.
+     *
+     * @return false when a partition of the batch has no room left
+     */
+    public boolean register(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        Map<PartitionOffsets, OffsetMetadata> registrations = new HashMap<>();
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            PartitionOffsets partitionOffsets = partitions.computeIfAbsent(entry.getKey(), tp -> new PartitionOffsets(EPOCHS.incrementAndGet(), capacity));
+            if (!partitionOffsets.hasRoom()) {
+                return false;
+            }
+            registrations.put(partitionOffsets, (OffsetMetadata) entry.getValue());
+        }
+        registrations.forEach(PartitionOffsets::register);
+        return true;
+    }
+
+    /**
+     * Takes back the batch last registered, one that was never handed over for acknowledging. To be called by the registering thread.
+     */
+    public void unregister(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            PartitionOffsets partitionOffsets = partitions.get(entry.getKey());
+            if (partitionOffsets != null && entry.getValue() instanceof OffsetMetadata) {
+                partitionOffsets.unregister((OffsetMetadata) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return false when the batch isn't registered here, or is already acknowledged
+     */
+    public boolean acknowledge(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        boolean acknowledged = false;
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            PartitionOffsets partitionOffsets = partitions.get(entry.getKey());
+            if (partitionOffsets != null && entry.getValue() instanceof OffsetMetadata) {
+                acknowledged |= partitionOffsets.acknowledge((OffsetMetadata) entry.getValue());
+            }
+        }
+        if (acknowledged) {
+            signal();
+        }
+        return acknowledged;
+    }
+
+    /**
+     * Marks the batch as taken by a sink that writes it later on, its acknowledgement being expected to take as long as the write.
+     */
+    public void defer(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+            PartitionOffsets partitionOffsets = partitions.get(entry.getKey());
+            if (partitionOffsets != null && entry.getValue() instanceof OffsetMetadata) {
+                partitionOffsets.defer((OffsetMetadata) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return number of batches the committable offsets moved past
+     */
+    public int advance() {
+        int advanced = 0;
+        for (PartitionOffsets partitionOffsets : partitions.values()) {
+            advanced += partitionOffsets.advance(Collections.emptySet());
+        }
+        return advanced;
+    }
+
+    public Map<TopicPartition, OffsetAndMetadata> takeCommittableOffsets() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        partitions.forEach((topicPartition, partitionOffsets) -> {
+            long offset = partitionOffsets.takeCommittableOffset();
+            if (offset >= 0) {
+                offsets.put(topicPartition, new OffsetMetadata(offset));
+            }
+        });
+        return offsets;
+    }
+
+    public boolean hasUnacknowledged() {
+        return partitions.values().stream().anyMatch(PartitionOffsets::hasUnacknowledged);
+    }
+
+    /**
+     * Whether every partition with unacknowledged batches is held back by a deferred one.
+     */
+    public boolean isWaitingOnDeferred() {
+        boolean waiting = false;
+        for (PartitionOffsets partitionOffsets : partitions.values()) {
+            if (partitionOffsets.hasUnacknowledged()) {
+                if (!partitionOffsets.isHeadDeferred()) {
+                    return false;
+                }
+                waiting = true;
+            }
+        }
+        return waiting;
+    }
+
+    public int size() {
+        return partitions.values().stream().mapToInt(PartitionOffsets::size).sum();
+    }
+
+    /**
+     * Occupancy of the fullest partition.
+     */
+    public double getOccupancy() {
+        return partitions.values().stream().mapToDouble(PartitionOffsets::getOccupancy).max().orElse(0);
+    }
+
+    /**
+     * Parks the calling thread until an acknowledgement arrives or the timeout elapses.
+     */
+    public void awaitAcknowledgement(long timeout, TimeUnit timeoutUnit) {
+        waiter = Thread.currentThread();
+        if (!signalled) {
+            LockSupport.parkNanos(this, timeoutUnit.toNanos(timeout));
+        }
+        waiter = null;
+        signalled = false;
+    }
+
+    /**
+     * Whether all batches of the partitions, other than the excluded ones, are acknowledged.
+     */
+    public boolean isAcknowledged(Collection<TopicPartition> topicPartitions, Collection<Map<TopicPartition, OffsetAndMetadata>> excludedOffsets) {
+        for (TopicPartition topicPartition : topicPartitions) {
+            PartitionOffsets partitionOffsets = partitions.get(topicPartition);
+            if (partitionOffsets != null && !partitionOffsets.isAcknowledged(sequences(partitionOffsets, topicPartition, excludedOffsets))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops tracking the partitions, returning their offsets committable up to the first unacknowledged or excluded batch.
+     * Offsets already taken are returned as well, as their commit may not have been made before the partitions are let go.
+     */
+    public Map<TopicPartition, OffsetAndMetadata> revoke(Collection<TopicPartition> topicPartitions, Collection<Map<TopicPartition, OffsetAndMetadata>> excludedOffsets) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition topicPartition : topicPartitions) {
+            PartitionOffsets partitionOffsets = partitions.remove(topicPartition);
+            if (partitionOffsets == null) {
+                continue;
+            }
+            partitionOffsets.advance(sequences(partitionOffsets, topicPartition, excludedOffsets));
+            long offset = partitionOffsets.getCommittableOffset();
+            if (offset >= 0) {
+                offsets.put(topicPartition, new OffsetMetadata(offset));
+            }
+        }
+        return offsets;
+    }
+
+    private void signal() {
+        signalled = true;
+        Thread thread = waiter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static Set<Long> sequences(PartitionOffsets partitionOffsets, TopicPartition topicPartition, Collection<Map<TopicPartition, OffsetAndMetadata>> offsets) {
+        Set<Long> sequences = new HashSet<>();
+        for (Map<TopicPartition, OffsetAndMetadata> offset : offsets) {
+            OffsetAndMetadata partitionOffset = offset.get(topicPartition);
+            if (partitionOffset instanceof OffsetMetadata && ((OffsetMetadata) partitionOffset).getTrackerEpoch() == partitionOffsets.getEpoch()) {
+                sequences.add(((OffsetMetadata) partitionOffset).getTrackerSequence());
+            }
+        }
+        return sequences;
+    }
+}
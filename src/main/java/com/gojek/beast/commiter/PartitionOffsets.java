@@ -0,0 +1,151 @@
+package com.gojek.beast.commiter;
+
+import com.gojek.beast.models.OffsetMetadata;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ring of the batches registered for a partition, in offset order, advancing the committable offset over the acknowledged prefix.
+ * Batches are registered by a single thread, the consumer's, and acknowledged lock free from any thread.
+ */
+final class PartitionOffsets {
+    private final long epoch;
+    private final int mask;
+    private final long[] endOffsets;
+    // sequence + 1 of the batch last acknowledged in each slot, never decreasing
+    private final AtomicLongArray acknowledged;
+    // sequence + 1 of the batch last taken by a sink writing it later on, in each slot
+    private final AtomicLongArray deferred;
+    private volatile long tail;
+    private volatile long head;
+    private long committableOffset = -1;
+    private long takenOffset = -1;
+
+    PartitionOffsets(long epoch, int capacity) {
+        this.epoch = epoch;
+        this.mask = capacity - 1;
+        this.endOffsets = new long[capacity];
+        this.acknowledged = new AtomicLongArray(capacity);
+        this.deferred = new AtomicLongArray(capacity);
+    }
+
+    boolean hasRoom() {
+        return tail - head < endOffsets.length;
+    }
+
+    void register(OffsetMetadata offset) {
+        long sequence = tail;
+        endOffsets[slot(sequence)] = offset.offset();
+        offset.stamp(epoch, sequence);
+        tail = sequence + 1;
+    }
+
+    // only the last batch, its slot is free again as nothing can acknowledge it
+    void unregister(OffsetMetadata offset) {
+        long sequence = offset.getTrackerSequence();
+        if (offset.getTrackerEpoch() == epoch && sequence == tail - 1 && sequence >= head) {
+            tail = sequence;
+        }
+    }
+
+    boolean acknowledge(OffsetMetadata offset) {
+        long sequence = offset.getTrackerSequence();
+        if (offset.getTrackerEpoch() != epoch || sequence < 0 || sequence >= tail) {
+            return false;
+        }
+        int slot = slot(sequence);
+        while (true) {
+            long current = acknowledged.get(slot);
+            if (current >= sequence + 1) {
+                // already acknowledged, or committed and the slot taken by a later batch
+                return false;
+            }
+            if (acknowledged.compareAndSet(slot, current, sequence + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void defer(OffsetMetadata offset) {
+        long sequence = offset.getTrackerSequence();
+        if (offset.getTrackerEpoch() == epoch && sequence >= 0 && sequence < tail) {
+            deferred.set(slot(sequence), sequence + 1);
+        }
+    }
+
+    /**
+     * Whether the batch the committable offset stops at, if any, is deferred.
+     */
+    boolean isHeadDeferred() {
+        long sequence = head;
+        return sequence < tail && deferred.get(slot(sequence)) == sequence + 1;
+    }
+
+    /**
+     * Moves past the acknowledged batches at the head, stopping at the first unacknowledged or excluded one.
+     */
+    synchronized int advance(Set<Long> excludedSequences) {
+        long sequence = head;
+        long end = tail;
+        int advanced = 0;
+        while (sequence < end && isAcknowledged(sequence) && !excludedSequences.contains(sequence)) {
+            committableOffset = endOffsets[slot(sequence)];
+            sequence++;
+            advanced++;
+        }
+        head = sequence;
+        return advanced;
+    }
+
+    /**
+     * Committable offset not yet taken, or -1.
+     */
+    synchronized long takeCommittableOffset() {
+        if (committableOffset <= takenOffset) {
+            return -1;
+        }
+        takenOffset = committableOffset;
+        return committableOffset;
+    }
+
+    /**
+     * Committable offset, taken or not, or -1.
+     */
+    synchronized long getCommittableOffset() {
+        return committableOffset;
+    }
+
+    boolean hasUnacknowledged() {
+        return head < tail;
+    }
+
+    boolean isAcknowledged(Set<Long> excludedSequences) {
+        for (long sequence = head; sequence < tail; sequence++) {
+            if (!isAcknowledged(sequence) && !excludedSequences.contains(sequence)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    int size() {
+        return (int) (tail - head);
+    }
+
+    double getOccupancy() {
+        return (double) size() / endOffsets.length;
+    }
+
+    private boolean isAcknowledged(long sequence) {
+        return acknowledged.get(slot(sequence)) == sequence + 1;
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence & mask);
+    }
+}
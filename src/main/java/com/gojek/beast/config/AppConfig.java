@@ -2,19 +2,45 @@ package com.gojek.beast.config;
 
 import org.aeonbits.owner.Config;
 
+import java.util.Map;
+
 public interface AppConfig extends Config {
     @Key("CONSUMER_POLL_TIMEOUT_MS")
     @DefaultValue("9223372036854775807")
     Long getConsumerPollTimeoutMs();
 
+    @Key("CONSUMER_PAUSED_POLL_TIMEOUT_MS")
+    @DefaultValue("100")
+    Long getConsumerPausedPollTimeoutMs();
+
+    @Key("ENABLE_CONSUMER_BACKPRESSURE")
+    @DefaultValue("true")
+    Boolean isConsumerBackpressureEnabled();
+
+    @Key("QUEUE_HIGH_WATERMARK")
+    @DefaultValue("0.8")
+    Double getQueueHighWatermark();
+
+    @Key("QUEUE_LOW_WATERMARK")
+    @DefaultValue("0.5")
+    Double getQueueLowWatermark();
+
     @Key("READ_QUEUE_CAPACITY")
     @DefaultValue("20")
     Integer getReadQueueCapacity();
 
+    @Key("READ_QUEUE_CAPACITY_BYTES")
+    @DefaultValue("0")
+    Long getReadQueueCapacityBytes();
+
     @Key("COMMIT_QUEUE_CAPACITY")
     @DefaultValue("200")
     Integer getCommitQueueCapacity();
 
+    @Key("REBALANCE_FLUSH_TIMEOUT_MS")
+    @DefaultValue("10000")
+    Long getRebalanceFlushTimeoutMs();
+
     @Key("BQ_WORKER_POLL_TIMEOUT_MS")
     @DefaultValue("50")
     Long getBqWorkerPollTimeoutMs();
@@ -23,6 +49,52 @@ public interface AppConfig extends Config {
     @DefaultValue("5")
     Integer getBqWorkerPoolSize();
 
+    @Key("BQ_MAX_INFLIGHT_REQUESTS")
+    @DefaultValue("1")
+    Integer getBqMaxInflightRequests();
+
+    @Key("ENABLE_BQ_WORKER_COALESCING")
+    @DefaultValue("false")
+    Boolean isBqWorkerCoalescingEnabled();
+
+    @Key("BQ_WORKER_COALESCE_MAX_ROWS")
+    @DefaultValue("500")
+    Long getBqWorkerCoalesceMaxRows();
+
+    @Key("BQ_WORKER_COALESCE_MAX_BYTES")
+    @DefaultValue("5000000")
+    Long getBqWorkerCoalesceMaxBytes();
+
+    @Key("BQ_WORKER_COALESCE_LINGER_MS")
+    @DefaultValue("100")
+    Long getBqWorkerCoalesceLingerMs();
+
+    @Key("CONVERTER_POOL_SIZE")
+    @DefaultValue("0")
+    Integer getConverterPoolSize();
+
+    @Key("CONVERTER_QUEUE_CAPACITY")
+    @DefaultValue("4")
+    Integer getConverterQueueCapacity();
+
+    @Key("KAFKA_CONSUMER_COUNT")
+    @DefaultValue("1")
+    Integer getKafkaConsumerCount();
+
+    @Key("ENABLE_BACKFILL")
+    @DefaultValue("false")
+    Boolean isBackfillEnabled();
+
+    @Key("BACKFILL_START_TIMESTAMP_MS")
+    @DefaultValue("-1")
+    Long getBackfillStartTimestampMs();
+
+    @Key("BACKFILL_START_OFFSETS")
+    @DefaultValue("")
+    @Separator(LabelMapConverter.ELEMENT_SEPARATOR)
+    @ConverterClass(LabelMapConverter.class)
+    Map<String, String> getBackfillStartOffsets();
+
     @Key("KAFKA_CONSUMER_CONFIG_PREFIX")
     @DefaultValue("KAFKA_CONSUMER")
     String getKafkaConfigPrefix();
@@ -63,6 +135,10 @@ public interface AppConfig extends Config {
     @Key("MAX_BQ_PUSH_ATTEMPTS")
     Integer getMaxPushAttempts();
 
+    @DefaultValue("false")
+    @Key("ENABLE_ASYNC_OFFSET_COMMIT")
+    Boolean isAsyncOffsetCommitEnabled();
+
     @DefaultValue("false")
     @Key("ENABLE_GCS_ERROR_SINK")
     Boolean isGCSErrorSinkEnabled();
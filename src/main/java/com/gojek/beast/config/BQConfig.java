@@ -1,5 +1,6 @@
 package com.gojek.beast.config;
 
+import com.gojek.beast.sink.bq.load.LoadFileFormat;
 import org.aeonbits.owner.Config;
 
 import java.util.Map;
@@ -46,6 +47,89 @@ public interface BQConfig extends Config {
     @Key("BQ_CLIENT_CONNECT_TIMEOUT")
     String getBqClientConnectTimeout();
 
+    @DefaultValue("200")
+    @Key("BQ_HTTP_MAX_CONNECTIONS")
+    Integer getBqHttpMaxConnections();
+
+    @DefaultValue("100")
+    @Key("BQ_HTTP_MAX_CONNECTIONS_PER_ROUTE")
+    Integer getBqHttpMaxConnectionsPerRoute();
+
+    @DefaultValue("60000")
+    @Key("BQ_HTTP_KEEP_ALIVE_MS")
+    Long getBqHttpKeepAliveMs();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_INSERT_GZIP")
+    Boolean isBqInsertGzipEnabled();
+
+    @DefaultValue("1024")
+    @Key("BQ_INSERT_GZIP_MIN_BYTES")
+    Long getBqInsertGzipMinBytes();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_STREAMING_JSON_INSERT")
+    Boolean isBqStreamingJsonInsertEnabled();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_STORAGE_WRITE_API")
+    Boolean isBqStorageWriteApiEnabled();
+
+    @DefaultValue("60000")
+    @Key("BQ_WRITE_APPEND_TIMEOUT_MS")
+    Long getBqWriteAppendTimeoutMs();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_LOAD_JOB_SINK")
+    Boolean isBqLoadJobSinkEnabled();
+
+    @DefaultValue("AVRO")
+    @Key("BQ_LOAD_FILE_FORMAT")
+    LoadFileFormat getBqLoadFileFormat();
+
+    @DefaultValue("/tmp/beast-load")
+    @Key("BQ_LOAD_FILE_DIRECTORY")
+    String getBqLoadFileDirectory();
+
+    @DefaultValue("134217728")
+    @Key("BQ_LOAD_FILE_MAX_BYTES")
+    Long getBqLoadFileMaxBytes();
+
+    @DefaultValue("300000")
+    @Key("BQ_LOAD_FILE_MAX_AGE_MS")
+    Long getBqLoadFileMaxAgeMs();
+
+    @Key("BQ_LOAD_GCS_BUCKET")
+    String getBqLoadGcsBucket();
+
+    @DefaultValue("beast-load")
+    @Key("BQ_LOAD_GCS_PATH_PREFIX")
+    String getBqLoadGcsPathPrefix();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_HYBRID_SINK")
+    Boolean isBqHybridSinkEnabled();
+
+    @DefaultValue("1000000")
+    @Key("BQ_HYBRID_LOAD_LAG_RECORDS")
+    Long getBqHybridLoadLagRecords();
+
+    @DefaultValue("10000")
+    @Key("BQ_HYBRID_STREAM_LAG_RECORDS")
+    Long getBqHybridStreamLagRecords();
+
+    @DefaultValue("0.9")
+    @Key("BQ_HYBRID_LOAD_QUEUE_OCCUPANCY")
+    Double getBqHybridLoadQueueOccupancy();
+
+    @DefaultValue("0.1")
+    @Key("BQ_HYBRID_STREAM_QUEUE_OCCUPANCY")
+    Double getBqHybridStreamQueueOccupancy();
+
+    @DefaultValue("10000")
+    @Key("BQ_HYBRID_CHECK_INTERVAL_MS")
+    Long getBqHybridCheckIntervalMs();
+
     @DefaultValue("-1")
     @Key("BQ_TABLE_PARTITION_EXPIRY_MILLIS")
     Long getBQTablePartitionExpiryMillis();
@@ -53,4 +137,68 @@ public interface BQConfig extends Config {
     @DefaultValue("US")
     @Key("BQ_DATASET_LOCATION")
     String getBQDatasetLocation();
+
+    @DefaultValue("500")
+    @Key("BQ_INSERT_MAX_ROWS")
+    Integer getBQInsertMaxRows();
+
+    @DefaultValue("9000000")
+    @Key("BQ_INSERT_MAX_BYTES")
+    Long getBQInsertMaxBytes();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_ROW_VALIDATION")
+    Boolean isBQRowValidationEnabled();
+
+    @DefaultValue("1825")
+    @Key("BQ_ROW_VALIDATION_MAX_PAST_DAYS")
+    Long getBQRowValidationMaxPastDays();
+
+    @DefaultValue("366")
+    @Key("BQ_ROW_VALIDATION_MAX_FUTURE_DAYS")
+    Long getBQRowValidationMaxFutureDays();
+
+    @DefaultValue("10000000")
+    @Key("BQ_ROW_VALIDATION_MAX_BYTES")
+    Long getBQRowValidationMaxBytes();
+
+    @DefaultValue("true")
+    @Key("ENABLE_BQ_ADAPTIVE_LIMITER")
+    Boolean isBQAdaptiveLimiterEnabled();
+
+    @DefaultValue("1")
+    @Key("BQ_LIMITER_MIN_INFLIGHT_REQUESTS")
+    Integer getBQLimiterMinInflightRequests();
+
+    @DefaultValue("0.5")
+    @Key("BQ_LIMITER_BACKOFF_RATIO")
+    Double getBQLimiterBackoffRatio();
+
+    @DefaultValue("5000")
+    @Key("BQ_LIMITER_TARGET_LATENCY_MS")
+    Long getBQLimiterTargetLatencyMs();
+
+    @DefaultValue("0")
+    @Key("BQ_LIMITER_MAX_ROWS_PER_SECOND")
+    Double getBQLimiterMaxRowsPerSecond();
+
+    @DefaultValue("false")
+    @Key("ENABLE_BQ_HEDGED_REQUESTS")
+    Boolean isBQHedgedRequestsEnabled();
+
+    @DefaultValue("0.95")
+    @Key("BQ_HEDGE_LATENCY_PERCENTILE")
+    Double getBQHedgeLatencyPercentile();
+
+    @DefaultValue("100")
+    @Key("BQ_HEDGE_MIN_DELAY_MS")
+    Long getBQHedgeMinDelayMs();
+
+    @DefaultValue("0.05")
+    @Key("BQ_HEDGE_BUDGET_RATIO")
+    Double getBQHedgeBudgetRatio();
+
+    @DefaultValue("10")
+    @Key("BQ_HEDGE_BUDGET_MIN_HEDGES")
+    Integer getBQHedgeBudgetMinHedges();
 }
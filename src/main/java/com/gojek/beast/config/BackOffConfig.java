@@ -14,4 +14,16 @@ public interface BackOffConfig extends Config {
     @Key("EXPONENTIAL_BACKOFF_RATE")
     @DefaultValue("2")
     Integer getExponentialBackoffRate();
+
+    @Key("ENABLE_SCHEDULED_RETRIES")
+    @DefaultValue("false")
+    Boolean isScheduledRetriesEnabled();
+
+    @Key("RETRY_BUDGET_RATIO")
+    @DefaultValue("0.1")
+    Double getRetryBudgetRatio();
+
+    @Key("RETRY_BUDGET_MIN_RETRIES")
+    @DefaultValue("10")
+    Integer getRetryBudgetMinRetries();
 }
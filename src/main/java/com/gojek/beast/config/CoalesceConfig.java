@@ -0,0 +1,19 @@
+package com.gojek.beast.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the batches a BQ worker merges into one push: up to maxRows rows and maxBytes estimated bytes,
+ * waiting up to linger for batches to merge.
+ */
+@AllArgsConstructor
+@Data
+public class CoalesceConfig {
+    private final long maxRows;
+    private final long maxBytes;
+    private final long linger;
+    private final TimeUnit lingerUnit = TimeUnit.MILLISECONDS;
+}
@@ -1,22 +1,47 @@
 package com.gojek.beast.config;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.apache.kafka.clients.consumer.ConsumerConfig.CLIENT_ID_CONFIG;
+
 public class KafkaConfig extends com.gojek.de.Config {
+    // beast settings sharing the kafka consumer prefix, not to be passed on to the consumer
+    private static final Set<String> NON_CONSUMER_CONFIGS = new HashSet<>(Arrays.asList("KAFKA_CONSUMER_COUNT", "KAFKA_CONSUMER_CONFIG_PREFIX"));
     private final String kafkaPrefix;
     private final String kafkaPrefixRegex;
+    private final Map<String, String> properties;
     private Map<String, Object> consumerConfigs;
 
     public KafkaConfig(String configPrefix, String... fileConfigPaths) {
         super(fileConfigPaths);
         kafkaPrefix = configPrefix + "_";
         kafkaPrefixRegex = "^" + kafkaPrefix + ".*";
+        properties = null;
+    }
+
+    /**
+     * Consumer configs of the given properties, as those of a pipeline, instead of the environment.
+     */
+    public KafkaConfig(String configPrefix, Map<String, String> properties) {
+        kafkaPrefix = configPrefix + "_";
+        kafkaPrefixRegex = "^" + kafkaPrefix + ".*";
+        this.properties = properties;
     }
 
     private Map<String, Object> build() {
+        if (properties != null) {
+            return properties.entrySet().stream()
+                    .filter(e -> e.getKey().matches(kafkaPrefixRegex) && !NON_CONSUMER_CONFIGS.contains(e.getKey()))
+                    .collect(Collectors.toMap(e -> removePrefix(e.getKey()), e -> (Object) e.getValue()));
+        }
         return getMatching(kafkaPrefixRegex)
                 .entrySet().stream()
+                .filter(e -> !NON_CONSUMER_CONFIGS.contains(e.getKey()))
                 .collect(Collectors.toMap(e -> removePrefix(e.getKey()), e -> get(e.getKey())));
     }
 
@@ -28,6 +53,17 @@ public class KafkaConfig extends com.gojek.de.Config {
         return consumerConfigs;
     }
 
+    /**
+     * Configs of one of several consumers of a process, their client ids being made unique by the suffix for their metrics to be registered.
+     */
+    public Map<String, Object> get(AppConfig appConfig, String clientIdSuffix) {
+        Map<String, Object> consumerConfig = new HashMap<>(get(appConfig));
+        if (consumerConfig.containsKey(CLIENT_ID_CONFIG)) {
+            consumerConfig.put(CLIENT_ID_CONFIG, consumerConfig.get(CLIENT_ID_CONFIG) + clientIdSuffix);
+        }
+        return consumerConfig;
+    }
+
     private String removePrefix(String varName) {
         String[] names = varName.replaceAll(kafkaPrefix, "").toLowerCase().split("_");
         return String.join(".", names);
@@ -0,0 +1,20 @@
+package com.gojek.beast.config;
+
+import com.gojek.beast.sink.bq.load.LoadFileFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * Rolling files of a load job sink: written to directory in the given format, sealed and loaded
+ * once they reach maxBytes or have been open for maxAgeMs.
+ */
+@AllArgsConstructor
+@Data
+public class LoadFileConfig {
+    private final File directory;
+    private final LoadFileFormat format;
+    private final long maxBytes;
+    private final long maxAgeMs;
+}
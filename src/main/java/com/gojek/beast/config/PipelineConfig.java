@@ -0,0 +1,111 @@
+package com.gojek.beast.config;
+
+import com.gojek.beast.models.ConfigurationException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.aeonbits.owner.ConfigFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The configs of one of the pipelines of a process, each consuming its topics into its table.
+ * Pipelines are listed under PIPELINES in the properties file of PIPELINES_CONFIG_FILE. Its keys prefixed with the name of a pipeline
+ * and a dot are that pipeline's own, overriding its unprefixed keys, shared by all pipelines, which in turn override the environment.
+ */
+@AllArgsConstructor
+@Getter
+public class PipelineConfig {
+    public static final String PIPELINES_CONFIG_FILE = "PIPELINES_CONFIG_FILE";
+    private static final String PIPELINES = "PIPELINES";
+    private final String name;
+    private final Map<String, String> properties;
+    private final AppConfig appConfig;
+    private final BackOffConfig backOffConfig;
+    private final StencilConfig stencilConfig;
+    private final BQConfig bqConfig;
+    private final ProtoMappingConfig protoMappingConfig;
+
+    public static PipelineConfig create(String name, Map<String, String> properties) {
+        return new PipelineConfig(name, properties, ConfigFactory.create(AppConfig.class, properties), ConfigFactory.create(BackOffConfig.class, properties),
+                ConfigFactory.create(StencilConfig.class, properties), ConfigFactory.create(BQConfig.class, properties),
+                ConfigFactory.create(ProtoMappingConfig.class, properties));
+    }
+
+    /**
+     * @return the pipelines of the file of PIPELINES_CONFIG_FILE, or without it, the one unnamed pipeline of the environment
+     */
+    public static List<PipelineConfig> load(Map<String, String> env) throws IOException {
+        String file = env.get(PIPELINES_CONFIG_FILE);
+        if (file == null || file.isEmpty()) {
+            return Collections.singletonList(create("", env));
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return load(properties, env);
+    }
+
+    static List<PipelineConfig> load(Properties file, Map<String, String> env) {
+        List<String> names = Arrays.stream(file.getProperty(PIPELINES, "").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+        if (names.isEmpty()) {
+            throw new ConfigurationException("No pipelines listed under " + PIPELINES + " of " + PIPELINES_CONFIG_FILE);
+        }
+        Map<String, Map<String, String>> pipelineProperties = new LinkedHashMap<>();
+        for (String name : names) {
+            if (pipelineProperties.put(name, new HashMap<>(env)) != null) {
+                throw new ConfigurationException("Pipeline " + name + " listed more than once under " + PIPELINES);
+            }
+        }
+        // the shared keys go first, for the keys of a pipeline to override them whatever their order in the file
+        for (String key : file.stringPropertyNames()) {
+            if (!key.contains(".") && !key.equals(PIPELINES)) {
+                pipelineProperties.values().forEach(properties -> properties.put(key, file.getProperty(key)));
+            }
+        }
+        for (String key : file.stringPropertyNames()) {
+            int separator = key.indexOf('.');
+            if (separator < 0) {
+                continue;
+            }
+            Map<String, String> properties = pipelineProperties.get(key.substring(0, separator));
+            if (properties == null) {
+                throw new ConfigurationException("Key " + key + " of a pipeline not listed under " + PIPELINES);
+            }
+            properties.put(key.substring(separator + 1), file.getProperty(key));
+        }
+        List<PipelineConfig> pipelines = new ArrayList<>();
+        Set<String> consumerGroups = new HashSet<>();
+        for (Map.Entry<String, Map<String, String>> pipeline : pipelineProperties.entrySet()) {
+            PipelineConfig config = create(pipeline.getKey(), Collections.unmodifiableMap(pipeline.getValue()));
+            // the consumers of a pipeline would otherwise get partitions of the topics of another
+            if (!consumerGroups.add(config.getConsumerGroupId())) {
+                throw new ConfigurationException("Pipeline " + pipeline.getKey() + " shares its consumer group " + config.getConsumerGroupId() + " with another");
+            }
+            pipelines.add(config);
+        }
+        return pipelines;
+    }
+
+    public String getConsumerGroupId() {
+        return properties.get(appConfig.getKafkaConfigPrefix() + "_GROUP_ID");
+    }
+}
@@ -14,4 +14,8 @@ public interface ProtoMappingConfig extends Mutable {
     @DefaultValue("true")
     @Key("FAIL_ON_UNKNOWN_FIELDS")
     Boolean getFailOnUnknownFields();
+
+    @DefaultValue("false")
+    @Key("ENABLE_PROTO_WIRE_DECODER")
+    Boolean isProtoWireDecoderEnabled();
 }
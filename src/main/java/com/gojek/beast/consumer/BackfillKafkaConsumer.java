@@ -0,0 +1,94 @@
+package com.gojek.beast.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads its partitions of a backfill from their start offsets up to their end offsets, each partition being paused once read that far.
+ * Partitions are assigned rather than subscribed to, and offsets are reported to the backfill progress instead of being committed,
+ * leaving the offsets of the consumer group alone.
+ */
+@Slf4j
+public class BackfillKafkaConsumer extends KafkaConsumer {
+    private final org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> consumer;
+    private final Map<TopicPartition, Long> endOffsets;
+    private final Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+    private final Set<TopicPartition> readToEnd = new HashSet<>();
+    private final BackfillProgress progress;
+
+    public BackfillKafkaConsumer(org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> consumer, List<TopicPartition> partitions, BackfillPlan plan,
+                                 BackfillProgress progress) {
+        super(consumer);
+        this.consumer = consumer;
+        this.endOffsets = plan.getEndOffsets();
+        this.progress = progress;
+        consumer.assign(partitions);
+        for (TopicPartition partition : partitions) {
+            long startOffset = plan.getStartOffsets().get(partition);
+            log.info("Backfilling partition {} from offset {} up to {}", partition, startOffset, endOffsets.get(partition));
+            consumer.seek(partition, startOffset);
+            nextOffsets.put(partition, startOffset);
+        }
+        pauseReadToEnd();
+    }
+
+    @Override
+    public ConsumerRecords<byte[], byte[]> poll(long timeout) throws WakeupException {
+        ConsumerRecords<byte[], byte[]> records = super.poll(timeout);
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> recordsToEnd = new HashMap<>();
+        for (TopicPartition partition : records.partitions()) {
+            long endOffset = endOffsets.get(partition);
+            List<ConsumerRecord<byte[], byte[]>> partitionRecords = records.records(partition).stream()
+                    .filter(record -> record.offset() < endOffset)
+                    .collect(Collectors.toList());
+            if (!partitionRecords.isEmpty()) {
+                recordsToEnd.put(partition, partitionRecords);
+                nextOffsets.put(partition, partitionRecords.get(partitionRecords.size() - 1).offset() + 1);
+            }
+        }
+        pauseReadToEnd();
+        return new ConsumerRecords<>(recordsToEnd);
+    }
+
+    // partitions read to the end stay paused, they're not resumed with the others once the queues drain
+    @Override
+    public void resume() {
+        super.resume();
+        pauseReadToEnd();
+    }
+
+    @Override
+    public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        progress.written(offsets);
+    }
+
+    @Override
+    public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+        progress.written(offsets);
+        callback.onComplete(offsets, null);
+    }
+
+    private void pauseReadToEnd() {
+        synchronized (consumer) {
+            for (TopicPartition partition : consumer.assignment()) {
+                if (!readToEnd.contains(partition) && consumer.position(partition) >= endOffsets.get(partition)) {
+                    readToEnd.add(partition);
+                    progress.readToEnd(partition, nextOffsets.get(partition));
+                }
+            }
+            consumer.pause(new HashSet<>(readToEnd));
+        }
+    }
+}
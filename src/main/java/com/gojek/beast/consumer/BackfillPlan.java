@@ -0,0 +1,89 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.models.ConfigurationException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The offsets of the partitions of the topics to backfill, read from their start offsets up to the end offsets they had when planned.
+ */
+@AllArgsConstructor
+@Getter
+public class BackfillPlan {
+    private final List<TopicPartition> partitions;
+    private final Map<TopicPartition, Long> startOffsets;
+    private final Map<TopicPartition, Long> endOffsets;
+
+    /**
+     * Partitions start at their first offsets, or with startTimestampMs set, at the first offsets at or after it.
+     * Start offsets, keyed by partition as in {@code topic-0}, take precedence over both.
+     */
+    public static BackfillPlan create(Consumer<?, ?> consumer, Pattern topics, long startTimestampMs, Map<String, String> partitionStartOffsets) {
+        List<TopicPartition> partitions = consumer.listTopics().entrySet().stream()
+                .filter(topic -> topics.matcher(topic.getKey()).matches())
+                .flatMap(topic -> topic.getValue().stream())
+                .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                .sorted(Comparator.comparing(TopicPartition::topic).thenComparing(TopicPartition::partition))
+                .collect(Collectors.toList());
+        if (partitions.isEmpty()) {
+            throw new ConfigurationException("No partitions to backfill of topics matching " + topics);
+        }
+        Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> startOffsets = new HashMap<>(beginningOffsets);
+        if (startTimestampMs >= 0) {
+            Map<TopicPartition, Long> timestamps = partitions.stream().collect(Collectors.toMap(partition -> partition, partition -> startTimestampMs));
+            for (Map.Entry<TopicPartition, OffsetAndTimestamp> offset : consumer.offsetsForTimes(timestamps).entrySet()) {
+                // partitions without messages since the timestamp have nothing to backfill
+                startOffsets.put(offset.getKey(), offset.getValue() == null ? endOffsets.get(offset.getKey()) : offset.getValue().offset());
+            }
+        }
+        for (Map.Entry<String, String> offset : partitionStartOffsets.entrySet()) {
+            TopicPartition partition = toTopicPartition(offset.getKey());
+            if (!startOffsets.containsKey(partition)) {
+                throw new ConfigurationException("Start offset given for partition " + offset.getKey() + " which isn't one to backfill");
+            }
+            try {
+                long startOffset = Long.parseLong(offset.getValue());
+                startOffsets.put(partition, Math.min(endOffsets.get(partition), Math.max(beginningOffsets.get(partition), startOffset)));
+            } catch (NumberFormatException e) {
+                throw new ConfigurationException("Invalid backfill start offset " + offset.getValue() + " of partition " + offset.getKey());
+            }
+        }
+        return new BackfillPlan(partitions, startOffsets, endOffsets);
+    }
+
+    /**
+     * @return the partitions of one of count consumers, spread over them round robin
+     */
+    public List<TopicPartition> partitionsOf(int consumer, int count) {
+        List<TopicPartition> assigned = new ArrayList<>();
+        for (int i = consumer; i < partitions.size(); i += count) {
+            assigned.add(partitions.get(i));
+        }
+        return assigned;
+    }
+
+    private static TopicPartition toTopicPartition(String partition) {
+        int separator = partition.lastIndexOf('-');
+        if (separator <= 0) {
+            throw new ConfigurationException("Invalid backfill partition " + partition + ", expected topic-partition");
+        }
+        try {
+            return new TopicPartition(partition.substring(0, separator), Integer.parseInt(partition.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            throw new ConfigurationException("Invalid backfill partition " + partition + ", expected topic-partition");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.stats.Stats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offsets written of the partitions of a backfill, across its consumers. A partition is done once its rows are written up to its end offset,
+ * or up to its last record before it, once read that far, as there may be no records at the offsets right before it.
+ * Once all partitions are done, the backfill is completed.
+ */
+@Slf4j
+public class BackfillProgress {
+    private static final int PERCENT = 100;
+    private final Stats statsClient = Stats.client();
+    private final Map<TopicPartition, Long> startOffsets;
+    private final Map<TopicPartition, Long> endOffsets;
+    private final Map<TopicPartition, Long> writtenOffsets;
+    private final Runnable onCompleted;
+    private boolean completed;
+
+    public BackfillProgress(BackfillPlan plan, Runnable onCompleted) {
+        this.startOffsets = plan.getStartOffsets();
+        this.endOffsets = new HashMap<>(plan.getEndOffsets());
+        this.writtenOffsets = new HashMap<>(startOffsets);
+        this.onCompleted = onCompleted;
+    }
+
+    /**
+     * The partition was read up to its end offset, nextOffset being the one after its last record read.
+     */
+    public synchronized void readToEnd(TopicPartition partition, long nextOffset) {
+        log.info("Backfill read partition {} up to offset {}", partition, nextOffset);
+        endOffsets.put(partition, Math.min(endOffsets.get(partition), nextOffset));
+        report(partition);
+        completeIfDone();
+    }
+
+    /**
+     * Rows are written up to the offsets, as they'd otherwise be committed.
+     */
+    public synchronized void written(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        offsets.forEach((partition, offset) -> {
+            writtenOffsets.merge(partition, offset.offset(), Math::max);
+            report(partition);
+        });
+        completeIfDone();
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    private void report(TopicPartition partition) {
+        long start = startOffsets.get(partition);
+        long end = endOffsets.get(partition);
+        long written = writtenOffsets.get(partition);
+        String tags = ",topic=" + partition.topic() + ",partition=" + partition.partition();
+        statsClient.gauge("backfill.partition.remaining" + tags, Math.max(0, end - written));
+        statsClient.gauge("backfill.partition.progress" + tags, end <= start ? PERCENT : Math.min(PERCENT, (written - start) * PERCENT / (end - start)));
+        log.info("Backfill of partition {} written up to offset {} of {}", partition, written, end);
+    }
+
+    private void completeIfDone() {
+        if (completed || !endOffsets.entrySet().stream().allMatch(end -> writtenOffsets.get(end.getKey()) >= end.getValue())) {
+            return;
+        }
+        completed = true;
+        log.info("Backfill completed, all {} partitions written up to their end offsets", endOffsets.size());
+        statsClient.increment("backfill.completed");
+        onCompleted.run();
+    }
+}
@@ -0,0 +1,42 @@
+package com.gojek.beast.consumer;
+
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * How far behind the pipeline is, over backlogs measured in units of their own, each with its own watermarks.
+ * It's high once any backlog reaches its high watermark, and low only once all of them are down to their low watermarks.
+ */
+public class BacklogWatermark {
+    private final List<Backlog> backlogs = new ArrayList<>();
+
+    public BacklogWatermark add(String name, DoubleSupplier level, double highWatermark, double lowWatermark) {
+        backlogs.add(new Backlog(name, level, highWatermark, lowWatermark));
+        return this;
+    }
+
+    public boolean isHigh() {
+        return backlogs.stream().anyMatch(backlog -> backlog.level.getAsDouble() >= backlog.highWatermark);
+    }
+
+    public boolean isLow() {
+        return backlogs.stream().allMatch(backlog -> backlog.level.getAsDouble() <= backlog.lowWatermark);
+    }
+
+    @Override
+    public String toString() {
+        return backlogs.stream().map(backlog -> backlog.name + "=" + backlog.level.getAsDouble()).collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    @AllArgsConstructor
+    private static final class Backlog {
+        private final String name;
+        private final DoubleSupplier level;
+        private final double highWatermark;
+        private final double lowWatermark;
+    }
+}
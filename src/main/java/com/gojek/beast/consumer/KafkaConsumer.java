@@ -1,32 +1,110 @@
 package com.gojek.beast.consumer;
 
 import com.gojek.beast.commiter.KafkaCommitter;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class KafkaConsumer implements KafkaCommitter {
+    private static final String FETCH_MANAGER_METRICS = "consumer-fetch-manager-metrics";
+    private static final String RECORDS_LAG_MAX = "records-lag-max";
     private final org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> kafkaConsumer;
+    private final Queue<PendingCommit> pendingCommits;
+    private final AtomicBoolean wakeupRequested;
+    private final AtomicBoolean commitWakeup;
     @Getter
     private volatile boolean closed;
+    @Getter
+    private volatile boolean paused;
 
     public KafkaConsumer(org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> kafkaConsumer) {
         this.kafkaConsumer = kafkaConsumer;
+        this.pendingCommits = new ConcurrentLinkedQueue<>();
+        this.wakeupRequested = new AtomicBoolean(false);
+        this.commitWakeup = new AtomicBoolean(false);
         this.closed = false;
     }
 
+    /**
+     * Polls for records, committing the offsets handed over by {@link #commitAsync} before each poll.
+     * A poll woken up only for pending commits is resumed, any other wakeup is thrown.
+     */
     public ConsumerRecords<byte[], byte[]> poll(long timeout) throws WakeupException {
         synchronized (kafkaConsumer) {
-            return kafkaConsumer.poll(timeout);
+            while (true) {
+                commitPending();
+                if (paused) {
+                    // partitions assigned on a rebalance come without the pause
+                    kafkaConsumer.pause(kafkaConsumer.assignment());
+                }
+                try {
+                    return kafkaConsumer.poll(timeout);
+                } catch (WakeupException e) {
+                    if (closed || wakeupRequested.getAndSet(false) || !commitWakeup.getAndSet(false)) {
+                        throw e;
+                    }
+                    log.debug("kafka.consumer.wakeup::reason: pending commits");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops fetching from the assigned partitions, polls go on to keep the group membership alive.
+     */
+    public void pause() {
+        synchronized (kafkaConsumer) {
+            paused = true;
+            kafkaConsumer.pause(kafkaConsumer.assignment());
+        }
+    }
+
+    public void resume() {
+        synchronized (kafkaConsumer) {
+            paused = false;
+            kafkaConsumer.resume(kafkaConsumer.paused());
         }
     }
 
+    /**
+     * Rewinds the partitions to the given offsets, for their records to be polled again.
+     */
+    public void seek(Map<TopicPartition, Long> offsets) {
+        synchronized (kafkaConsumer) {
+            offsets.forEach(kafkaConsumer::seek);
+        }
+    }
+
+    /**
+     * @return the largest lag, in records, of the assigned partitions over the recent fetches, 0 until anything is fetched
+     */
+    public double getRecordsLagMax() {
+        for (Map.Entry<MetricName, ? extends Metric> metric : kafkaConsumer.metrics().entrySet()) {
+            MetricName name = metric.getKey();
+            // the lag of the consumer as a whole, rather than of one of its partitions
+            if (RECORDS_LAG_MAX.equals(name.name()) && FETCH_MANAGER_METRICS.equals(name.group()) && !name.tags().containsKey("partition")) {
+                double lag = ((Number) metric.getValue().metricValue()).doubleValue();
+                return lag > 0 ? lag : 0;
+            }
+        }
+        return 0;
+    }
+
     @Override
     public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
         log.debug("Committing offsets {}", offsets);
@@ -35,9 +113,17 @@ public class KafkaConsumer implements KafkaCommitter {
         }
     }
 
+    @Override
+    public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+        pendingCommits.add(new PendingCommit(offsets, callback));
+        commitWakeup.set(true);
+        kafkaConsumer.wakeup();
+    }
+
     @Override
     public void wakeup(String reason) {
         log.debug("kafka.consumer.wakeup::reason: {}", reason);
+        wakeupRequested.set(true);
         kafkaConsumer.wakeup();
     }
 
@@ -49,8 +135,52 @@ public class KafkaConsumer implements KafkaCommitter {
         closed = true;
         kafkaConsumer.wakeup();
         synchronized (kafkaConsumer) {
+            commitPendingSync();
             kafkaConsumer.close();
         }
     }
 
+    private void commitPending() {
+        for (PendingCommit commit = pendingCommits.poll(); commit != null; commit = pendingCommits.poll()) {
+            // offsets of revoked partitions are committed by the rebalance listener
+            Set<TopicPartition> assignment = kafkaConsumer.assignment();
+            Map<TopicPartition, OffsetAndMetadata> offsets = commit.getOffsets().entrySet().stream()
+                    .filter(e -> assignment.contains(e.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (offsets.size() < commit.getOffsets().size()) {
+                log.info("Skipping commit of offsets of unassigned partitions {}", commit.getOffsets());
+            }
+            log.debug("Committing offsets {}", offsets);
+            kafkaConsumer.commitAsync(offsets, commit.getCallback());
+        }
+    }
+
+    private void commitPendingSync() {
+        for (PendingCommit commit = pendingCommits.poll(); commit != null; commit = pendingCommits.poll()) {
+            log.debug("Committing offsets {} on close", commit.getOffsets());
+            RuntimeException exception = null;
+            try {
+                commitSyncAfterWakeup(commit.getOffsets());
+            } catch (RuntimeException e) {
+                exception = e;
+            }
+            commit.getCallback().onComplete(commit.getOffsets(), exception);
+        }
+    }
+
+    private void commitSyncAfterWakeup(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        try {
+            kafkaConsumer.commitSync(offsets);
+        } catch (WakeupException e) {
+            // the wakeup of close is still pending when the consumer wasn't polling
+            kafkaConsumer.commitSync(offsets);
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class PendingCommit {
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+        private final OffsetCommitCallback callback;
+    }
 }
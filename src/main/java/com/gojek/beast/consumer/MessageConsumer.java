@@ -2,6 +2,7 @@ package com.gojek.beast.consumer;
 
 import com.gojek.beast.converter.ConsumerRecordConverter;
 import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.QueueFullStatus;
 import com.gojek.beast.models.Record;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
@@ -11,10 +12,13 @@ import com.gojek.beast.stats.Stats;
 import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 
@@ -25,21 +29,46 @@ public class MessageConsumer {
     private final Sink sink;
     private final ProtoUpdateListener protoUpdateListener;
     private final long timeoutMillis;
+    private final ParallelConverter parallelConverter;
+    private final QueueWatermark queueWatermark;
+    private final long pausedTimeoutMillis;
     private final Stats statsClient = Stats.client();
+    private Instant pausedTime;
 
     public MessageConsumer(KafkaConsumer kafkaConsumer, Sink sink, ProtoUpdateListener protoUpdateListener, long timeoutMillis) {
+        this(kafkaConsumer, sink, protoUpdateListener, timeoutMillis, null);
+    }
+
+    public MessageConsumer(KafkaConsumer kafkaConsumer, Sink sink, ProtoUpdateListener protoUpdateListener, long timeoutMillis, ParallelConverter parallelConverter) {
+        this(kafkaConsumer, sink, protoUpdateListener, timeoutMillis, parallelConverter, null, timeoutMillis);
+    }
+
+    /**
+     * With a parallel converter, polled batches are handed over to it instead of being converted and pushed to the sink here.
+     * With a queue watermark, the consumer is paused while the queues are above the high watermark, polling every pausedTimeoutMillis,
+     * and resumed once they drain below the low watermark.
+     * A batch turned down by a full queue is polled again, the consumer being paused meanwhile, until the next poll without a queue watermark.
+     */
+    public MessageConsumer(KafkaConsumer kafkaConsumer, Sink sink, ProtoUpdateListener protoUpdateListener, long timeoutMillis, ParallelConverter parallelConverter,
+                           QueueWatermark queueWatermark, long pausedTimeoutMillis) {
         this.kafkaConsumer = kafkaConsumer;
         this.sink = sink;
         this.protoUpdateListener = protoUpdateListener;
         this.timeoutMillis = timeoutMillis;
+        this.parallelConverter = parallelConverter;
+        this.queueWatermark = queueWatermark;
+        this.pausedTimeoutMillis = pausedTimeoutMillis;
     }
 
     public Status consume() throws WakeupException {
         if (isClosed()) {
             return new FailureStatus(new RuntimeException("Message consumer was closed"));
         }
+        if (queueWatermark != null || kafkaConsumer.isPaused()) {
+            applyBackpressure();
+        }
         Instant startTime = Instant.now();
-        ConsumerRecords<byte[], byte[]> messages = kafkaConsumer.poll(timeoutMillis);
+        ConsumerRecords<byte[], byte[]> messages = kafkaConsumer.poll(kafkaConsumer.isPaused() ? pausedTimeoutMillis : timeoutMillis);
         statsClient.count("kafka.consumer.poll.messages", messages.count());
         statsClient.timeIt("kafka.consumer.consumption.time", startTime);
         if (messages.isEmpty()) {
@@ -49,8 +78,30 @@ public class MessageConsumer {
         return pushToSink(messages);
     }
 
+    private void applyBackpressure() {
+        if (!kafkaConsumer.isPaused() && queueWatermark.isHigh()) {
+            log.info("Pausing consumer, queue occupancy {} is above the high watermark", queueWatermark.getOccupancy());
+            pause();
+        } else if (kafkaConsumer.isPaused() && (queueWatermark == null || queueWatermark.isLow())) {
+            log.info("Resuming consumer, queue occupancy {} is below the low watermark", queueWatermark == null ? 0 : queueWatermark.getOccupancy());
+            kafkaConsumer.resume();
+            statsClient.timeIt("kafka.consumer.paused.time", pausedTime);
+        }
+        statsClient.gauge("kafka.consumer.paused", kafkaConsumer.isPaused() ? 1 : 0);
+        statsClient.gauge("kafka.consumer.paused.ms", kafkaConsumer.isPaused() ? Instant.now().toEpochMilli() - pausedTime.toEpochMilli() : 0);
+    }
+
+    private void pause() {
+        kafkaConsumer.pause();
+        pausedTime = Instant.now();
+        statsClient.increment("kafka.consumer.pauses");
+    }
+
     private Status pushToSink(ConsumerRecords<byte[], byte[]> messages) {
         Instant pollTime = Instant.now();
+        if (parallelConverter != null) {
+            return parallelConverter.submit(messages, pollTime);
+        }
         List<Record> records;
         try {
             final Instant deSerTime = Instant.now();
@@ -63,10 +114,32 @@ public class MessageConsumer {
             log.error("Error while converting messages: {}", failure.toString());
             return failure;
         }
-        return sink.push(new Records(records, pollTime));
+        Status status = sink.push(new Records(records, pollTime));
+        if (status instanceof QueueFullStatus) {
+            return rewind(messages, status);
+        }
+        return status;
+    }
+
+    // the batch is neither queued nor registered, it's polled again once the queues drain
+    private Status rewind(ConsumerRecords<byte[], byte[]> messages, Status status) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        for (TopicPartition partition : messages.partitions()) {
+            offsets.put(partition, messages.records(partition).get(0).offset());
+        }
+        kafkaConsumer.seek(offsets);
+        log.info("Pausing consumer to poll {} messages again: {}", messages.count(), status);
+        statsClient.increment("kafka.consumer.rewinds");
+        if (!kafkaConsumer.isPaused()) {
+            pause();
+        }
+        return SUCCESS_STATUS;
     }
 
     public void close() {
+        if (parallelConverter != null) {
+            parallelConverter.close();
+        }
         kafkaConsumer.close();
         log.info("Successfully stopped message consumer");
     }
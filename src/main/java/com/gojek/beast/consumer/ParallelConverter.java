@@ -0,0 +1,106 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.converter.ConsumerRecordConverter;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.protomapping.ProtoUpdateListener;
+import com.gojek.beast.stats.Stats;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+
+/**
+ * Converts polled batches on a pool of threads, one task per partition of the batch.
+ * <p>
+ * Each batch is reassembled into a single {@link Records} and handed over in poll order through the converted queue,
+ * so offsets to commit are the same as when converting on the consumer thread.
+ */
+@Slf4j
+public class ParallelConverter {
+    private final ProtoUpdateListener protoUpdateListener;
+    private final ExecutorService executor;
+    private final BlockingQueue<Future<Records>> convertedQueue;
+    private final QueueConfig config;
+    private final Stats statsClient = Stats.client();
+    private volatile boolean closed;
+
+    public ParallelConverter(ProtoUpdateListener protoUpdateListener, ExecutorService executor, BlockingQueue<Future<Records>> convertedQueue, QueueConfig config) {
+        this.protoUpdateListener = protoUpdateListener;
+        this.executor = executor;
+        this.convertedQueue = convertedQueue;
+        this.config = config;
+    }
+
+    /**
+     * Schedules the conversion of the batch, blocks only while the converted queue is full.
+     */
+    public Status submit(ConsumerRecords<byte[], byte[]> messages, Instant polledTime) {
+        try {
+            Future<Records> records = convert(messages, polledTime);
+            while (!convertedQueue.offer(records, config.getTimeout(), config.getTimeoutUnit())) {
+                if (closed) {
+                    return new FailureStatus(new RuntimeException("Parallel converter was closed"));
+                }
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            log.error("Exception::Failed to schedule conversion of messages: {}", e.getMessage());
+            return new FailureStatus(e);
+        }
+        statsClient.gauge("queue.elements,name=" + config.getName(), convertedQueue.size());
+        return SUCCESS_STATUS;
+    }
+
+    private Future<Records> convert(ConsumerRecords<byte[], byte[]> messages, Instant polledTime) {
+        final Instant deSerTime = Instant.now();
+        // same converter for all partitions of a batch, even if the mapping is updated meanwhile
+        ConsumerRecordConverter recordConverter = protoUpdateListener.getProtoParser();
+        List<CompletableFuture<List<Record>>> partitions = new ArrayList<>(messages.partitions().size());
+        for (TopicPartition partition : messages.partitions()) {
+            List<ConsumerRecord<byte[], byte[]>> partitionMessages = messages.records(partition);
+            partitions.add(CompletableFuture.supplyAsync(() -> convert(recordConverter, partitionMessages), executor));
+        }
+        return CompletableFuture.allOf(partitions.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<Record> records = new ArrayList<>(messages.count());
+            partitions.forEach(partition -> records.addAll(partition.join()));
+            statsClient.timeIt("kafkaConsumer.batch.deserialization.time", deSerTime);
+            return new Records(records, polledTime);
+        });
+    }
+
+    private List<Record> convert(ConsumerRecordConverter recordConverter, List<ConsumerRecord<byte[], byte[]>> messages) {
+        try {
+            return recordConverter.convert(messages);
+        } catch (InvalidProtocolBufferException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        executor.shutdownNow();
+        log.info("Successfully stopped parallel converter");
+    }
+}
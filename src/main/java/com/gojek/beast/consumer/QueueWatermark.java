@@ -0,0 +1,55 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.util.ByteBoundedBlockingQueue;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Occupancy of the queues a consumer pushes to, the fullest of them being the one to slow down for.
+ * Occupancies range from 0 for empty to 1 for full.
+ */
+@AllArgsConstructor
+public class QueueWatermark {
+    private final List<DoubleSupplier> occupancies;
+    private final double highWatermark;
+    private final double lowWatermark;
+
+    public double getOccupancy() {
+        double occupancy = 0;
+        for (DoubleSupplier queueOccupancy : occupancies) {
+            occupancy = Math.max(occupancy, queueOccupancy.getAsDouble());
+        }
+        return occupancy;
+    }
+
+    public boolean isHigh() {
+        return getOccupancy() >= highWatermark;
+    }
+
+    public boolean isLow() {
+        return getOccupancy() <= lowWatermark;
+    }
+
+    public static double occupancy(BlockingQueue<?> queue) {
+        if (queue instanceof ByteBoundedBlockingQueue) {
+            return ((ByteBoundedBlockingQueue<?>) queue).getOccupancy();
+        }
+        int size = queue.size();
+        int capacity = size + queue.remainingCapacity();
+        return capacity == 0 ? 1 : (double) size / capacity;
+    }
+
+    /**
+     * Occupancy counting the batches its producers may still push past their check of the watermark, one each,
+     * so that they pause before any of them finds the queue full.
+     */
+    public static double occupancy(BlockingQueue<?> queue, int producers) {
+        int size = queue.size();
+        int capacity = size + queue.remainingCapacity();
+        double reserved = capacity == 0 ? 1 : Math.min(1, (double) (size + producers) / capacity);
+        return Math.max(reserved, occupancy(queue));
+    }
+}
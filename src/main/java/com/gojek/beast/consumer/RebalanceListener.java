@@ -1,21 +1,136 @@
 package com.gojek.beast.consumer;
 
+import com.gojek.beast.commiter.OffsetTracker;
+import com.gojek.beast.models.Records;
 import com.gojek.beast.stats.Stats;
+import com.gojek.beast.worker.RetryScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
 
+import java.time.Instant;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+/**
+ * On revocation, hands the consumed data of the revoked partitions over to their next owner without duplicating it in BQ.
+ * Batches still queued for BQ, or waiting for their retry, are dropped, in-flight ones are waited on for up to flushTimeoutMs,
+ * and the acknowledged offsets are committed before the partitions are let go.
+ */
+@Slf4j
 public class RebalanceListener implements ConsumerRebalanceListener {
+    private static final long ACK_WAIT_MS = 10;
     private final Stats statsClient = Stats.client();
+    private final Consumer<?, ?> consumer;
+    private final BlockingQueue<Records> readQueue;
+    private final OffsetTracker offsetTracker;
+    private final long flushTimeoutMs;
+    private final RetryScheduler retryScheduler;
+
+    public RebalanceListener(Consumer<?, ?> consumer, BlockingQueue<Records> readQueue, OffsetTracker offsetTracker, long flushTimeoutMs) {
+        this(consumer, readQueue, offsetTracker, flushTimeoutMs, null);
+    }
+
+    /**
+     * @param retryScheduler scheduler of the failed batches of the BQ workers, none when null
+     */
+    public RebalanceListener(Consumer<?, ?> consumer, BlockingQueue<Records> readQueue, OffsetTracker offsetTracker, long flushTimeoutMs, RetryScheduler retryScheduler) {
+        this.consumer = consumer;
+        this.readQueue = readQueue;
+        this.offsetTracker = offsetTracker;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.retryScheduler = retryScheduler;
+    }
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
         statsClient.increment("rebalancer.partitions.revoked");
+        if (partitions.isEmpty()) {
+            return;
+        }
+        Instant start = Instant.now();
+        Set<Map<TopicPartition, OffsetAndMetadata>> purgedOffsets = purge(partitions);
+        try {
+            awaitInFlight(partitions, purgedOffsets);
+            commit(offsetTracker.revoke(partitions, purgedOffsets));
+        } catch (InterruptedException e) {
+            log.error("Interrupted while flushing revoked partitions {}", partitions);
+            Thread.currentThread().interrupt();
+        }
+        statsClient.timeIt("rebalancer.revoke.flush.time", start);
     }
 
     @Override
     public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
         statsClient.increment("rebalancer.partitions.assigned");
     }
+
+    // batches only of revoked partitions, the ones with partitions still assigned are left to be inserted
+    private Set<Map<TopicPartition, OffsetAndMetadata>> purge(Collection<TopicPartition> partitions) {
+        Set<Map<TopicPartition, OffsetAndMetadata>> purgedOffsets = new HashSet<>();
+        AtomicLong purgedRows = new AtomicLong();
+        Predicate<Records> revoked = records -> {
+            Map<TopicPartition, OffsetAndMetadata> offsets = records.getPartitionsCommitOffset();
+            if (offsets.isEmpty() || !partitions.containsAll(offsets.keySet())) {
+                return false;
+            }
+            purgedOffsets.add(offsets);
+            purgedRows.addAndGet(records.size());
+            return true;
+        };
+        readQueue.removeIf(revoked);
+        if (retryScheduler != null) {
+            // the predicate records the offsets of the batches it matches
+            retryScheduler.purge(revoked);
+        }
+        statsClient.count("rebalancer.purged.batches", purgedOffsets.size());
+        statsClient.count("rebalancer.purged.rows", purgedRows.get());
+        log.info("Dropped {} queued rows of revoked partitions {}", purgedRows.get(), partitions);
+        return purgedOffsets;
+    }
+
+    private void awaitInFlight(Collection<TopicPartition> partitions, Set<Map<TopicPartition, OffsetAndMetadata>> purgedOffsets) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + flushTimeoutMs;
+        while (!offsetTracker.isAcknowledged(partitions, purgedOffsets)) {
+            if (System.currentTimeMillis() >= deadline) {
+                statsClient.increment("rebalancer.revoke.flush.timeouts");
+                log.warn("In-flight batches of revoked partitions not acknowledged in {} ms", flushTimeoutMs);
+                return;
+            }
+            Thread.sleep(ACK_WAIT_MS);
+        }
+    }
+
+    private void commit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            // called from within poll, on the polling thread
+            commitSyncAfterWakeup(offsets);
+            statsClient.count("rebalancer.committed.partitions", offsets.size());
+            log.info("Committed offsets {} of revoked partitions", offsets);
+        } catch (RuntimeException e) {
+            statsClient.increment("rebalancer.commit.failures,exception=" + e.getClass().getName());
+            log.error("Failed to commit offsets {} of revoked partitions: {}", offsets, e.getMessage());
+        }
+    }
+
+    private void commitSyncAfterWakeup(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        try {
+            consumer.commitSync(offsets);
+        } catch (WakeupException e) {
+            // a wakeup for the committer's offsets, made while the revoked partitions were flushed
+            statsClient.increment("rebalancer.commit.wakeups");
+            consumer.commitSync(offsets);
+        }
+    }
 }
@@ -16,7 +16,6 @@ import com.gojek.de.stencil.parser.Parser;
 import com.google.api.client.util.DateTime;
 import com.google.common.collect.ImmutableMap;
 import com.google.protobuf.InvalidProtocolBufferException;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 
@@ -26,16 +25,33 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-@AllArgsConstructor
 @Slf4j
 public class ConsumerRecordConverter implements Converter {
-    private final RowMapper rowMapper;
-    private final Parser parser;
+    private final RowDecoder rowDecoder;
     private final Clock clock;
     private final AppConfig appConfig;
-    private final Stats statsClient = Stats.client();
+    private final Stats statsClient;
     private final ErrorWriter errorWriter;
 
+    /**
+     * @param statsClient client of the pipeline, as converters are rebuilt on the thread refreshing the schema
+     */
+    public ConsumerRecordConverter(RowDecoder rowDecoder, Clock clock, AppConfig appConfig, ErrorWriter errorWriter, Stats statsClient) {
+        this.rowDecoder = rowDecoder;
+        this.clock = clock;
+        this.appConfig = appConfig;
+        this.errorWriter = errorWriter;
+        this.statsClient = statsClient;
+    }
+
+    public ConsumerRecordConverter(RowDecoder rowDecoder, Clock clock, AppConfig appConfig, ErrorWriter errorWriter) {
+        this(rowDecoder, clock, appConfig, errorWriter, Stats.client());
+    }
+
+    public ConsumerRecordConverter(RowMapper rowMapper, Parser parser, Clock clock, AppConfig appConfig, ErrorWriter errorWriter) {
+        this(new DynamicMessageRowDecoder(rowMapper, parser), clock, appConfig, errorWriter);
+    }
+
     public List<Record> convert(final Iterable<ConsumerRecord<byte[], byte[]>> messages) throws InvalidProtocolBufferException {
         ArrayList<Record> validRecords = new ArrayList<>();
         ArrayList<Record> invalidRecords = new ArrayList<>();
@@ -65,7 +81,7 @@ public class ConsumerRecordConverter implements Converter {
     private Map<String, Object> mapToColumns(ConsumerRecord<byte[], byte[]> message) throws InvalidProtocolBufferException {
         Map<String, Object> columns = Collections.emptyMap();
         try {
-            columns = rowMapper.map(parser.parse(message.value()));
+            columns = rowDecoder.decode(message.value());
         } catch (InvalidProtocolBufferException e) {
             log.info("failed to deserialize message: {} at offset: {}, partition: {}", UnknownProtoFields.toString(message.value()),
                     message.offset(), message.partition());
@@ -0,0 +1,21 @@
+package com.gojek.beast.converter;
+
+import com.gojek.de.stencil.parser.Parser;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.AllArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Parses the whole message with stencil and maps the resulting {@link com.google.protobuf.DynamicMessage}.
+ */
+@AllArgsConstructor
+public class DynamicMessageRowDecoder implements RowDecoder {
+    private final RowMapper rowMapper;
+    private final Parser parser;
+
+    @Override
+    public Map<String, Object> decode(byte[] message) throws InvalidProtocolBufferException {
+        return rowMapper.map(parser.parse(message));
+    }
+}
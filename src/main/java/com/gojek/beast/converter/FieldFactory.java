@@ -10,24 +10,39 @@ import com.gojek.beast.converter.fields.TimestampField;
 import com.google.protobuf.Descriptors;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.BiFunction;
 
 public class FieldFactory {
 
+    private static final List<BiFunction<Descriptors.FieldDescriptor, Object, ProtoField>> FIELD_CONVERTERS = Arrays.asList(
+            TimestampField::new,
+            EnumField::new,
+            ByteField::new,
+            StructField::new,
+            NestedField::new
+    );
+
     public static ProtoField getField(Descriptors.FieldDescriptor descriptor, Object fieldValue) {
-        List<ProtoField> protoFields = Arrays.asList(
-                new TimestampField(descriptor, fieldValue),
-                new EnumField(descriptor, fieldValue),
-                new ByteField(descriptor, fieldValue),
-                new StructField(descriptor, fieldValue),
-                new NestedField(descriptor, fieldValue)
-        );
-        Optional<ProtoField> first = protoFields
+        return getFieldConverter(descriptor, fieldValue).apply(descriptor, fieldValue);
+    }
+
+    /**
+     * Resolves the converter of a field from its descriptor alone, so it can be looked up once per schema.
+     */
+    public static BiFunction<Descriptors.FieldDescriptor, Object, ProtoField> getFieldConverter(Descriptors.FieldDescriptor descriptor) {
+        // repeated fields are read as lists from a message, which decides between nested and default fields
+        Object sampleValue = descriptor.isRepeated() ? Collections.emptyList() : null;
+        return getFieldConverter(descriptor, sampleValue);
+    }
+
+    private static BiFunction<Descriptors.FieldDescriptor, Object, ProtoField> getFieldConverter(Descriptors.FieldDescriptor descriptor, Object fieldValue) {
+        return FIELD_CONVERTERS
                 .stream()
-                .filter(ProtoField::matches)
-                .findFirst();
-        return first.orElseGet(() -> new DefaultProtoField(descriptor, fieldValue));
+                .filter(converter -> converter.apply(descriptor, fieldValue).matches())
+                .findFirst()
+                .orElse(DefaultProtoField::new);
     }
 
 }
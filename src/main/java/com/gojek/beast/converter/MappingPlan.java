@@ -0,0 +1,146 @@
+package com.gojek.beast.converter;
+
+import com.gojek.beast.config.ColumnMapping;
+import com.gojek.beast.config.Constants.Config;
+import com.gojek.beast.converter.fields.DefaultProtoField;
+import com.gojek.beast.converter.fields.NestedField;
+import com.gojek.beast.converter.fields.ProtoField;
+import com.gojek.beast.models.ConfigurationException;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * {@link ColumnMapping} compiled against a proto descriptor.
+ * <p>
+ * Field indexes are parsed, field descriptors looked up and converters resolved once per schema,
+ * instead of once for every field of every message.
+ */
+@Getter
+public final class MappingPlan {
+    private static final int MAX_INDEXED_FIELD_NUMBER = 1 << 12;
+
+    private final Descriptors.Descriptor descriptor;
+    private final List<FieldMapping> fields;
+    private final int mappingSize;
+    private final FieldMapping[] fieldsByNumber;
+    private final Map<Integer, FieldMapping> sparseFieldsByNumber;
+
+    private MappingPlan(Descriptors.Descriptor descriptor, List<FieldMapping> fields, int mappingSize) {
+        this.descriptor = descriptor;
+        this.fields = fields;
+        this.mappingSize = mappingSize;
+        int maxFieldNumber = fields.stream().mapToInt(field -> field.getDescriptor().getNumber()).max().orElse(0);
+        if (maxFieldNumber <= MAX_INDEXED_FIELD_NUMBER) {
+            this.fieldsByNumber = new FieldMapping[maxFieldNumber + 1];
+            this.sparseFieldsByNumber = Collections.emptyMap();
+            fields.forEach(field -> fieldsByNumber[field.getDescriptor().getNumber()] = field);
+        } else {
+            this.fieldsByNumber = new FieldMapping[0];
+            this.sparseFieldsByNumber = new HashMap<>();
+            fields.forEach(field -> sparseFieldsByNumber.put(field.getDescriptor().getNumber(), field));
+        }
+    }
+
+    public static MappingPlan compile(ColumnMapping columnMapping, Descriptors.Descriptor descriptor) {
+        List<FieldMapping> fields = new ArrayList<>();
+        if (columnMapping == null) {
+            return new MappingPlan(descriptor, fields, 0);
+        }
+        columnMapping.forEach((key, value) -> {
+            String column = key.toString();
+            if (column.equals(Config.RECORD_NAME)) {
+                return;
+            }
+            Descriptors.FieldDescriptor fieldDescriptor = descriptor.findFieldByNumber(Integer.valueOf(column));
+            if (fieldDescriptor != null) {
+                fields.add(new FieldMapping(fields.size(), fieldDescriptor, value));
+            }
+        });
+        return new MappingPlan(descriptor, fields, columnMapping.size());
+    }
+
+    public boolean isCompiledFor(Descriptors.Descriptor messageDescriptor) {
+        return descriptor == messageDescriptor;
+    }
+
+    public boolean isEmpty() {
+        return mappingSize == 0;
+    }
+
+    /**
+     * Mapped field with the given proto field number, or null when the field is not mapped.
+     */
+    public FieldMapping getFieldMapping(int fieldNumber) {
+        if (fieldNumber < fieldsByNumber.length) {
+            return fieldsByNumber[fieldNumber];
+        }
+        return sparseFieldsByNumber.isEmpty() ? null : sparseFieldsByNumber.get(fieldNumber);
+    }
+
+    @Getter
+    public static final class FieldMapping {
+        private final int index;
+        private final Descriptors.FieldDescriptor descriptor;
+        private final String columnName;
+        private final BiFunction<Descriptors.FieldDescriptor, Object, ProtoField> converter;
+        private final String nestedColumnName;
+        private final MappingPlan nestedPlan;
+        private final boolean nestedMessage;
+
+        private FieldMapping(int index, Descriptors.FieldDescriptor descriptor, Object mappingValue) {
+            this.index = index;
+            this.descriptor = descriptor;
+            this.columnName = mappingValue.toString();
+            this.converter = FieldFactory.getFieldConverter(descriptor);
+            ProtoField sample = convert(descriptor.isRepeated() ? Collections.emptyList() : null);
+            // messages which are mapped column by column, as opposed to timestamps and structs
+            this.nestedMessage = descriptor.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE
+                    && (sample instanceof NestedField || sample instanceof DefaultProtoField);
+            if (mappingValue instanceof ColumnMapping && descriptor.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+                ColumnMapping nestedMapping = (ColumnMapping) mappingValue;
+                Object recordName = nestedMapping.get(Config.RECORD_NAME);
+                this.nestedColumnName = recordName == null ? null : recordName.toString();
+                this.nestedPlan = compile(nestedMapping, descriptor.getMessageType());
+            } else {
+                this.nestedColumnName = null;
+                this.nestedPlan = null;
+            }
+        }
+
+        public ProtoField convert(Object fieldValue) {
+            return converter.apply(descriptor, fieldValue);
+        }
+
+        /**
+         * Same as checking for an empty string representation of the value, without printing messages as text.
+         */
+        public boolean isEmpty(Object fieldValue) {
+            if (descriptor.isRepeated()) {
+                return false;
+            }
+            switch (descriptor.getJavaType()) {
+                case STRING:
+                    return ((String) fieldValue).isEmpty();
+                case MESSAGE:
+                    return ((Message) fieldValue).getSerializedSize() == 0;
+                default:
+                    return false;
+            }
+        }
+
+        public MappingPlan getNestedPlan() {
+            if (nestedPlan == null || nestedColumnName == null) {
+                throw new ConfigurationException(String.format("Nested mapping with %s is not configured for field %s", Config.RECORD_NAME, descriptor.getFullName()));
+            }
+            return nestedPlan;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.gojek.beast.converter;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import java.util.Map;
+
+/**
+ * Decodes a serialised proto message into the mapped BQ columns.
+ */
+public interface RowDecoder {
+    Map<String, Object> decode(byte[] message) throws InvalidProtocolBufferException;
+}
@@ -1,7 +1,7 @@
 package com.gojek.beast.converter;
 
 import com.gojek.beast.config.ColumnMapping;
-import com.gojek.beast.config.Constants.Config;
+import com.gojek.beast.converter.MappingPlan.FieldMapping;
 import com.gojek.beast.converter.fields.NestedField;
 import com.gojek.beast.converter.fields.ProtoField;
 import com.gojek.beast.exception.UnknownProtoFieldFoundException;
@@ -10,7 +10,6 @@ import com.gojek.beast.protomapping.UnknownProtoFields;
 import com.gojek.beast.stats.Stats;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -19,26 +18,61 @@ import java.util.List;
 import java.util.Map;
 
 @Slf4j
-@AllArgsConstructor
 public class RowMapper {
 
     private final ColumnMapping mapping;
     private final boolean failOnUnknownFields;
-    private final Stats statsClient = Stats.client();
+    private final Stats statsClient;
+    private volatile MappingPlan plan;
+
+    public RowMapper(ColumnMapping mapping, boolean failOnUnknownFields, Stats statsClient) {
+        this.mapping = mapping;
+        this.failOnUnknownFields = failOnUnknownFields;
+        this.statsClient = statsClient;
+    }
+
+    public RowMapper(ColumnMapping mapping, boolean failOnUnknownFields) {
+        this(mapping, failOnUnknownFields, Stats.client());
+    }
 
     public RowMapper(ColumnMapping mappings) {
         this(mappings, false);
     }
 
     public Map<String, Object> map(DynamicMessage message) {
+        requireMapping();
+        if (message == null) {
+            return new HashMap<>();
+        }
+        return getMappings(message, getPlan(message.getDescriptorForType()));
+    }
+
+    /**
+     * The plan is compiled on first use and again only when messages arrive with a different descriptor,
+     * e.g. after stencil refreshed the schema. A mapping change creates a new row mapper altogether.
+     */
+    public MappingPlan getPlan(Descriptors.Descriptor descriptor) {
+        requireMapping();
+        MappingPlan current = plan;
+        if (current == null || !current.isCompiledFor(descriptor)) {
+            current = MappingPlan.compile(mapping, descriptor);
+            plan = current;
+        }
+        return current;
+    }
+
+    boolean isFailOnUnknownFields() {
+        return failOnUnknownFields;
+    }
+
+    private void requireMapping() {
         if (mapping == null) {
             throw new ConfigurationException("BQ_PROTO_COLUMN_MAPPING is not configured");
         }
-        return getMappings(message, mapping);
     }
 
-    private Map<String, Object> getMappings(DynamicMessage message, ColumnMapping columnMapping) {
-        if (message == null || columnMapping == null || columnMapping.isEmpty()) {
+    private Map<String, Object> getMappings(DynamicMessage message, MappingPlan mappingPlan) {
+        if (message == null || mappingPlan.isEmpty()) {
             return new HashMap<>();
         }
         if (failOnUnknownFields && message.getUnknownFields().asMap().size() > 0) {
@@ -47,47 +81,37 @@ public class RowMapper {
             String serializedMessage = UnknownProtoFields.toString(message.toByteArray());
             throw new UnknownProtoFieldFoundException(serializedUnknownFields, serializedMessage);
         }
-        Descriptors.Descriptor descriptorForType = message.getDescriptorForType();
-
-        Map<String, Object> row = new HashMap<>(columnMapping.size());
-        columnMapping.forEach((key, value) -> {
-            String columnName = value.toString();
-            String column = key.toString();
-            if (column.equals(Config.RECORD_NAME)) {
-                return;
+
+        Map<String, Object> row = new HashMap<>(mappingPlan.getMappingSize());
+        for (FieldMapping fieldMapping : mappingPlan.getFields()) {
+            Object field = message.getField(fieldMapping.getDescriptor());
+            if (fieldMapping.isEmpty(field)) {
+                continue;
             }
-            Integer protoIndex = Integer.valueOf(column);
-            Descriptors.FieldDescriptor fieldDesc = descriptorForType.findFieldByNumber(protoIndex);
-            if (fieldDesc != null && !message.getField(fieldDesc).toString().isEmpty()) {
-                Object field = message.getField(fieldDesc);
-                ProtoField protoField = FieldFactory.getField(fieldDesc, field);
-                Object fieldValue = protoField.getValue();
-
-                if (fieldValue instanceof List) {
-                    addRepeatedFields(row, (String) key, value, (List<Object>) fieldValue);
-                    return;
-                }
+            ProtoField protoField = fieldMapping.convert(field);
+            Object fieldValue = protoField.getValue();
 
-                if (protoField.getClass().getName().equals(NestedField.class.getName())) {
-                    try {
-                        columnName = getNestedColumnName((ColumnMapping) value);
-                        fieldValue = getMappings((DynamicMessage) field, (ColumnMapping) value);
-                    } catch (Exception e) {
-                        log.error("Exception::Handling nested field failure: {}", e.getMessage());
-                        throw e;
-                    }
+            if (fieldValue instanceof List) {
+                addRepeatedFields(row, fieldMapping, (List<Object>) fieldValue);
+                continue;
+            }
+
+            String columnName = fieldMapping.getColumnName();
+            if (protoField instanceof NestedField) {
+                try {
+                    fieldValue = getMappings((DynamicMessage) field, fieldMapping.getNestedPlan());
+                    columnName = fieldMapping.getNestedColumnName();
+                } catch (Exception e) {
+                    log.error("Exception::Handling nested field failure: {}", e.getMessage());
+                    throw e;
                 }
-                row.put(columnName, fieldValue);
             }
-        });
+            row.put(columnName, fieldValue);
+        }
         return row;
     }
 
-    private String getNestedColumnName(ColumnMapping value) {
-        return value.get(Config.RECORD_NAME).toString();
-    }
-
-    private void addRepeatedFields(Map<String, Object> row, String key, Object value, List<Object> fieldValue) {
+    private void addRepeatedFields(Map<String, Object> row, FieldMapping fieldMapping, List<Object> fieldValue) {
         if (fieldValue.isEmpty()) {
             return;
         }
@@ -95,12 +119,11 @@ public class RowMapper {
         String columnName = null;
         for (Object f : fieldValue) {
             if (f instanceof DynamicMessage) {
-                ColumnMapping nestedMappings = (ColumnMapping) value;
-                repeatedNestedFields.add(getMappings((DynamicMessage) f, nestedMappings));
-                columnName = getNestedColumnName(nestedMappings);
+                repeatedNestedFields.add(getMappings((DynamicMessage) f, fieldMapping.getNestedPlan()));
+                columnName = fieldMapping.getNestedColumnName();
             } else {
                 repeatedNestedFields.add(f);
-                columnName = (String) value;
+                columnName = fieldMapping.getColumnName();
             }
         }
         row.put(columnName, repeatedNestedFields);
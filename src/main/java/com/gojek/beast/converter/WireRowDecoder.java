@@ -0,0 +1,271 @@
+package com.gojek.beast.converter;
+
+import com.gojek.beast.converter.MappingPlan.FieldMapping;
+import com.gojek.beast.exception.UnknownProtoFieldFoundException;
+import com.gojek.beast.models.ConfigurationException;
+import com.gojek.beast.protomapping.UnknownProtoFields;
+import com.gojek.beast.stats.Stats;
+import com.gojek.de.stencil.parser.Parser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Reads the mapped fields straight off the wire, without building a {@link DynamicMessage} of the whole payload.
+ * <p>
+ * Unmapped tags are skipped, and only mapped nested messages are descended into. Timestamps and structs are
+ * small and still parsed into messages, so that the existing field converters apply. The rows produced are the
+ * same as the ones of {@link DynamicMessageRowDecoder}, including default values of absent scalar fields.
+ * Proto2 groups are not supported.
+ * <p>
+ * The descriptor is resolved through the parser once, and again only when a message fails to decode with it,
+ * parsing that message so that a parser refreshing its schema on demand does so the same way for both decoders.
+ * A schema update of the table builds a new decoder altogether.
+ */
+public class WireRowDecoder implements RowDecoder {
+    private static final byte[] EMPTY_MESSAGE = new byte[0];
+
+    private final RowMapper rowMapper;
+    private final Parser parser;
+    private final Stats statsClient;
+    private volatile Descriptors.Descriptor descriptor;
+
+    public WireRowDecoder(RowMapper rowMapper, Parser parser, Stats statsClient) {
+        this.rowMapper = rowMapper;
+        this.parser = parser;
+        this.statsClient = statsClient;
+    }
+
+    public WireRowDecoder(RowMapper rowMapper, Parser parser) {
+        this(rowMapper, parser, Stats.client());
+    }
+
+    @Override
+    public Map<String, Object> decode(byte[] message) throws InvalidProtocolBufferException {
+        Descriptors.Descriptor current = descriptor;
+        if (current == null) {
+            current = parser.parse(EMPTY_MESSAGE).getDescriptorForType();
+            descriptor = current;
+        }
+        try {
+            return decode(message, current);
+        } catch (InvalidProtocolBufferException | UnknownProtoFieldFoundException e) {
+            // the schema may have changed since the descriptor was resolved
+            Descriptors.Descriptor resolved = parser.parse(message).getDescriptorForType();
+            if (resolved == current) {
+                throw e;
+            }
+            descriptor = resolved;
+            return decode(message, resolved);
+        }
+    }
+
+    private Map<String, Object> decode(byte[] message, Descriptors.Descriptor messageDescriptor) throws InvalidProtocolBufferException {
+        MappingPlan plan = rowMapper.getPlan(messageDescriptor);
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(message);
+            input.enableAliasing(true);
+            return readRow(input, plan, () -> message);
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+    }
+
+    private Map<String, Object> readRow(CodedInputStream input, MappingPlan plan, Supplier<byte[]> message) throws IOException {
+        if (plan.isEmpty()) {
+            return new HashMap<>();
+        }
+        Object[] values = new Object[plan.getFields().size()];
+        Set<Integer> unknownFields = null;
+        int tag = input.readTag();
+        while (tag != 0) {
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            FieldMapping fieldMapping = plan.getFieldMapping(fieldNumber);
+            boolean known;
+            if (fieldMapping == null) {
+                known = !rowMapper.isFailOnUnknownFields() || plan.getDescriptor().findFieldByNumber(fieldNumber) != null;
+                input.skipField(tag);
+            } else {
+                known = readField(input, tag, fieldMapping, values);
+            }
+            if (!known && rowMapper.isFailOnUnknownFields()) {
+                unknownFields = unknownFields == null ? new TreeSet<>() : unknownFields;
+                unknownFields.add(fieldNumber);
+            }
+            tag = input.readTag();
+        }
+        if (unknownFields != null) {
+            statsClient.increment("kafka.protobuf.unknownfields.errors");
+            throw new UnknownProtoFieldFoundException(unknownFields.toString(), UnknownProtoFields.toString(message.get()));
+        }
+        return toRow(plan, values);
+    }
+
+    /**
+     * Reads a mapped field into its slot. Returns false when the value doesn't fit the mapped field,
+     * which a message parser would have kept as an unknown field.
+     */
+    private boolean readField(CodedInputStream input, int tag, FieldMapping fieldMapping, Object[] values) throws IOException {
+        Descriptors.FieldDescriptor descriptor = fieldMapping.getDescriptor();
+        if (descriptor.getType() == Descriptors.FieldDescriptor.Type.GROUP) {
+            throw new ConfigurationException(String.format("Group field %s can't be mapped by the wire decoder", descriptor.getFullName()));
+        }
+        int wireType = WireFormat.getTagWireType(tag);
+        boolean packed = descriptor.isPackable() && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+        if (!packed && wireType != descriptor.getLiteType().getWireType()) {
+            input.skipField(tag);
+            return false;
+        }
+        if (!descriptor.isRepeated()) {
+            Object value = readValue(input, descriptor);
+            if (value == null) {
+                return false;
+            }
+            Object previous = values[fieldMapping.getIndex()];
+            // occurrences of a singular message are merged, which is the same as concatenating them, the last one of any other field wins
+            boolean merged = descriptor.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE && previous != null;
+            values[fieldMapping.getIndex()] = merged ? ((ByteString) previous).concat((ByteString) value) : value;
+            return true;
+        }
+        List<Object> repeated = (List<Object>) values[fieldMapping.getIndex()];
+        if (repeated == null) {
+            repeated = new ArrayList<>();
+            values[fieldMapping.getIndex()] = repeated;
+        }
+        if (!packed) {
+            Object value = readValue(input, descriptor);
+            if (value != null) {
+                repeated.add(value);
+            }
+            return value != null;
+        }
+        boolean readAll = true;
+        int limit = input.pushLimit(input.readRawVarint32());
+        while (input.getBytesUntilLimit() > 0) {
+            Object value = readValue(input, descriptor);
+            if (value != null) {
+                repeated.add(value);
+            }
+            readAll = readAll && value != null;
+        }
+        input.popLimit(limit);
+        return readAll;
+    }
+
+    /**
+     * Value as held by a {@link DynamicMessage}, messages are kept serialised until the row is built.
+     */
+    private Object readValue(CodedInputStream input, Descriptors.FieldDescriptor descriptor) throws IOException {
+        switch (descriptor.getType()) {
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case INT64:
+                return input.readInt64();
+            case UINT64:
+                return input.readUInt64();
+            case INT32:
+                return input.readInt32();
+            case FIXED64:
+                return input.readFixed64();
+            case FIXED32:
+                return input.readFixed32();
+            case BOOL:
+                return input.readBool();
+            case STRING:
+                return input.readString();
+            case BYTES:
+            case MESSAGE:
+                return input.readBytes();
+            case UINT32:
+                return input.readUInt32();
+            case ENUM:
+                return descriptor.getEnumType().findValueByNumber(input.readEnum());
+            case SFIXED32:
+                return input.readSFixed32();
+            case SFIXED64:
+                return input.readSFixed64();
+            case SINT32:
+                return input.readSInt32();
+            case SINT64:
+                return input.readSInt64();
+            default:
+                return null;
+        }
+    }
+
+    private Map<String, Object> toRow(MappingPlan plan, Object[] values) throws IOException {
+        Map<String, Object> row = new HashMap<>(plan.getMappingSize());
+        for (FieldMapping fieldMapping : plan.getFields()) {
+            Descriptors.FieldDescriptor descriptor = fieldMapping.getDescriptor();
+            Object value = values[fieldMapping.getIndex()];
+            if (descriptor.isRepeated()) {
+                addRepeatedField(row, fieldMapping, (List<Object>) value);
+            } else if (descriptor.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+                addMessageField(row, fieldMapping, (ByteString) value);
+            } else {
+                value = value == null ? descriptor.getDefaultValue() : value;
+                if (!fieldMapping.isEmpty(value)) {
+                    row.put(fieldMapping.getColumnName(), fieldMapping.convert(value).getValue());
+                }
+            }
+        }
+        return row;
+    }
+
+    private void addMessageField(Map<String, Object> row, FieldMapping fieldMapping, ByteString value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (fieldMapping.isNestedMessage()) {
+            row.put(fieldMapping.getNestedColumnName(), readNestedRow(fieldMapping, value));
+            return;
+        }
+        DynamicMessage message = DynamicMessage.parseFrom(fieldMapping.getDescriptor().getMessageType(), value);
+        row.put(fieldMapping.getColumnName(), fieldMapping.convert(message).getValue());
+    }
+
+    private void addRepeatedField(Map<String, Object> row, FieldMapping fieldMapping, List<Object> values) throws IOException {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        if (fieldMapping.isNestedMessage()) {
+            List<Object> nestedRows = new ArrayList<>(values.size());
+            for (Object value : values) {
+                nestedRows.add(readNestedRow(fieldMapping, (ByteString) value));
+            }
+            row.put(fieldMapping.getNestedColumnName(), nestedRows);
+            return;
+        }
+        if (fieldMapping.getDescriptor().getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE) {
+            List<Object> messages = new ArrayList<>(values.size());
+            for (Object value : values) {
+                messages.add(DynamicMessage.parseFrom(fieldMapping.getDescriptor().getMessageType(), (ByteString) value));
+            }
+            values = messages;
+        }
+        row.put(fieldMapping.getColumnName(), new ArrayList<>((List<Object>) fieldMapping.convert(values).getValue()));
+    }
+
+    private Map<String, Object> readNestedRow(FieldMapping fieldMapping, ByteString value) throws IOException {
+        MappingPlan nestedPlan = fieldMapping.getNestedPlan();
+        CodedInputStream input = value.newCodedInput();
+        input.enableAliasing(true);
+        return readRow(input, nestedPlan, value::toByteArray);
+    }
+}
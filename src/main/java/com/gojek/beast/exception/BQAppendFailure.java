@@ -0,0 +1,7 @@
+package com.gojek.beast.exception;
+
+public class BQAppendFailure extends RuntimeException {
+    public BQAppendFailure(String message, Throwable rootCause) {
+        super(message, rootCause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.gojek.beast.exception;
+
+public class BQLoadJobFailure extends RuntimeException {
+    public BQLoadJobFailure(String message, Throwable rootCause) {
+        super(message, rootCause);
+    }
+}
@@ -0,0 +1,10 @@
+package com.gojek.beast.exception;
+
+/**
+ * Thrown for a column value the streaming JSON writer of insertAll requests can't write.
+ */
+public class UnsupportedColumnValueException extends RuntimeException {
+    public UnsupportedColumnValueException(Class<?> valueClass) {
+        super(String.format("column values of %s can't be written as JSON", valueClass.getName()));
+    }
+}
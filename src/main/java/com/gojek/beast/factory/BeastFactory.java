@@ -2,95 +2,126 @@ package com.gojek.beast.factory;
 
 import com.gojek.beast.Clock;
 import com.gojek.beast.backoff.BackOff;
+import com.gojek.beast.backoff.BackOffProvider;
+import com.gojek.beast.backoff.DecorrelatedJitterBackOff;
 import com.gojek.beast.backoff.ExponentialBackOffProvider;
+import com.gojek.beast.backoff.RetryBudget;
 import com.gojek.beast.commiter.Acknowledger;
 import com.gojek.beast.commiter.OffsetAcknowledger;
 import com.gojek.beast.commiter.OffsetState;
+import com.gojek.beast.commiter.OffsetTracker;
 import com.gojek.beast.config.AppConfig;
 import com.gojek.beast.config.BQConfig;
 import com.gojek.beast.config.BackOffConfig;
+import com.gojek.beast.config.CoalesceConfig;
 import com.gojek.beast.config.ConfigStore;
 import com.gojek.beast.config.KafkaConfig;
-import com.gojek.beast.config.ProtoMappingConfig;
+import com.gojek.beast.config.LoadFileConfig;
+import com.gojek.beast.config.PipelineConfig;
 import com.gojek.beast.config.QueueConfig;
-import com.gojek.beast.config.StencilConfig;
+import com.gojek.beast.consumer.BackfillKafkaConsumer;
+import com.gojek.beast.consumer.BackfillPlan;
+import com.gojek.beast.consumer.BackfillProgress;
+import com.gojek.beast.consumer.BacklogWatermark;
 import com.gojek.beast.consumer.KafkaConsumer;
 import com.gojek.beast.consumer.MessageConsumer;
+import com.gojek.beast.consumer.ParallelConverter;
+import com.gojek.beast.consumer.QueueWatermark;
 import com.gojek.beast.consumer.RebalanceListener;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.protomapping.Converter;
 import com.gojek.beast.protomapping.Parser;
 import com.gojek.beast.protomapping.ProtoUpdateListener;
-import com.gojek.beast.sink.MultiSink;
-import com.gojek.beast.sink.OffsetMapQueueSink;
+import com.gojek.beast.sink.OffsetTrackerSink;
 import com.gojek.beast.sink.RecordsQueueSink;
 import com.gojek.beast.sink.RetrySink;
 import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.AdaptiveInsertLimiter;
 import com.gojek.beast.sink.bq.BQRowWithInsertId;
 import com.gojek.beast.sink.bq.BQRowWithoutId;
 import com.gojek.beast.sink.bq.BqSink;
+import com.gojek.beast.sink.bq.GzipInsertAllTransportOptions;
+import com.gojek.beast.sink.bq.HybridSink;
+import com.gojek.beast.sink.bq.InsertHedger;
+import com.gojek.beast.sink.bq.JsonInsertAllClient;
+import com.gojek.beast.sink.bq.RowValidator;
 import com.gojek.beast.sink.bq.handler.BQResponseParser;
 import com.gojek.beast.sink.bq.handler.BQRow;
+import com.gojek.beast.sink.bq.load.GcsFileStager;
+import com.gojek.beast.sink.bq.load.LoadJobSink;
+import com.gojek.beast.sink.bq.write.WriteApiSink;
 import com.gojek.beast.sink.dlq.DefaultLogWriter;
 import com.gojek.beast.sink.dlq.ErrorWriter;
 import com.gojek.beast.sink.dlq.gcs.GCSErrorWriter;
-import com.gojek.beast.stats.Stats;
+import com.gojek.beast.util.ByteBoundedBlockingQueue;
+import com.gojek.beast.worker.AsyncBqQueueWorker;
 import com.gojek.beast.worker.BqQueueWorker;
 import com.gojek.beast.worker.ConsumerWorker;
+import com.gojek.beast.worker.ConverterQueueWorker;
 import com.gojek.beast.worker.OffsetCommitWorker;
+import com.gojek.beast.worker.RetryScheduler;
 import com.gojek.beast.worker.Worker;
 import com.gojek.beast.worker.WorkerState;
+import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
-import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.cloud.TransportOptions;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.http.HttpTransportOptions;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 
+import static org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG;
+
 @Slf4j
 public class BeastFactory {
+    private static final String BIGQUERY_SCOPE = "https://www.googleapis.com/auth/bigquery";
+    private final String pipelineName;
+    private final Map<String, String> properties;
     private final BackOffConfig backOffConfig;
     private final WorkerState workerState;
+    private final SharedResources sharedResources;
     private final ProtoUpdateListener protoUpdateListener;
     private AppConfig appConfig;
-    private KafkaConsumer kafkaConsumer;
-    private OffsetCommitWorker committer;
-    private Set<Map<TopicPartition, OffsetAndMetadata>> partitionsAck;
     private BlockingQueue<Records> readQueue;
-    private MultiSink multiSink;
-    private MessageConsumer messageConsumer;
-    private LinkedBlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue;
+    private List<ConsumerPipeline> consumerPipelines;
+    private RetryScheduler retryScheduler;
     private BQConfig bqConfig;
 
-    public BeastFactory(AppConfig appConfig, BackOffConfig backOffConfig, StencilConfig stencilConfig, BQConfig bqConfig, ProtoMappingConfig protoMappingConfig, WorkerState workerState) throws IOException {
-        this.appConfig = appConfig;
-        this.bqConfig = bqConfig;
-        this.partitionsAck = Collections.synchronizedSet(new CopyOnWriteArraySet<>());
-        this.readQueue = new LinkedBlockingQueue<>(appConfig.getReadQueueCapacity());
-        this.commitQueue = new LinkedBlockingQueue<>(appConfig.getCommitQueueCapacity());
-        this.backOffConfig = backOffConfig;
+    /**
+     * Builds the workers of one of the pipelines of the process, on the resources it shares with the others.
+     */
+    public BeastFactory(PipelineConfig pipeline, WorkerState workerState, SharedResources sharedResources) throws IOException {
+        this.pipelineName = pipeline.getName();
+        this.properties = pipeline.getProperties();
+        this.appConfig = pipeline.getAppConfig();
+        this.bqConfig = pipeline.getBqConfig();
+        this.sharedResources = sharedResources;
+        this.readQueue = createQueue(appConfig.getReadQueueCapacity(), appConfig.getReadQueueCapacityBytes(), Records::getEstimatedSize);
+        this.backOffConfig = pipeline.getBackOffConfig();
         this.workerState = workerState;
-        this.protoUpdateListener = new ProtoUpdateListener(new ConfigStore(appConfig, stencilConfig, protoMappingConfig, bqConfig),
-                new Converter(), new Parser(), getBigQueryInstance(), createOOBErrorWriter());
+        this.protoUpdateListener = new ProtoUpdateListener(new ConfigStore(appConfig, pipeline.getStencilConfig(), pipeline.getProtoMappingConfig(), bqConfig),
+                new Converter(), new Parser(), getBigQueryInstance(), createOOBErrorWriter(), sharedResources::getStencilClient);
     }
 
     public List<Worker> createBqWorkers() throws IOException {
@@ -98,25 +129,162 @@ public class BeastFactory {
         List<Worker> threads = new ArrayList<>(bqWorkerPoolSize);
         Acknowledger acknowledger = createAcknowledger();
         log.info("BQ Row InsertId is: {}", (bqConfig.isBQRowInsertIdEnabled()) ? "Enabled" : "Disabled");
+        int maxInflightRequests = appConfig.getBqMaxInflightRequests();
+        if (maxInflightRequests > 1 && (bqConfig.isBqStorageWriteApiEnabled() || bqConfig.isBqLoadJobSinkEnabled() || bqConfig.isBqHybridSinkEnabled())) {
+            // write stream and load file sinks take one push at a time, more requests in flight would only wait on each other
+            log.warn("BQ_MAX_INFLIGHT_REQUESTS of {} is only applied to streaming inserts, BQ workers keep one request in flight each", maxInflightRequests);
+            maxInflightRequests = 1;
+        }
+        log.info("BQ workers keep up to {} insert requests in flight each", maxInflightRequests);
+        CoalesceConfig coalesceConfig = null;
+        if (appConfig.isBqWorkerCoalescingEnabled()) {
+            coalesceConfig = new CoalesceConfig(appConfig.getBqWorkerCoalesceMaxRows(), appConfig.getBqWorkerCoalesceMaxBytes(), appConfig.getBqWorkerCoalesceLingerMs());
+            log.info("BQ workers coalesce batches up to {}", coalesceConfig);
+        }
+        AdaptiveInsertLimiter insertLimiter = null;
+        if (bqConfig.isBQAdaptiveLimiterEnabled()) {
+            // starts at, and never grows beyond, the requests the workers can keep in flight
+            insertLimiter = new AdaptiveInsertLimiter(bqConfig.getBQLimiterMinInflightRequests(), bqWorkerPoolSize * maxInflightRequests,
+                    bqConfig.getBQLimiterBackoffRatio(), bqConfig.getBQLimiterTargetLatencyMs(), bqConfig.getBQLimiterMaxRowsPerSecond());
+        }
+        InsertHedger insertHedger = createInsertHedger();
+        JsonInsertAllClient jsonInsertAllClient = createJsonInsertAllClient();
+        if (bqConfig.isBqStorageWriteApiEnabled() && backOffConfig.isScheduledRetriesEnabled()) {
+            log.info("BQ write stream appends are retried by their worker, scheduled retries are only applied to the other sinks");
+        }
         for (int i = 0; i < bqWorkerPoolSize; i++) {
-            Worker bqQueueWorker = new BqQueueWorker("bq-worker-" + i, createBigQuerySink(), new QueueConfig(appConfig.getBqWorkerPollTimeoutMs()), acknowledger, readQueue, workerState);
+            QueueConfig queueConfig = new QueueConfig(appConfig.getBqWorkerPollTimeoutMs());
+            BqQueueWorker bqQueueWorker = maxInflightRequests > 1
+                    ? new AsyncBqQueueWorker(workerName("bq-worker-" + i), createBigQuerySink(insertLimiter, insertHedger, jsonInsertAllClient), queueConfig, acknowledger, readQueue, workerState, maxInflightRequests)
+                    : new BqQueueWorker(workerName("bq-worker-" + i), createBigQuerySink(insertLimiter, insertHedger, jsonInsertAllClient), queueConfig, acknowledger, readQueue, workerState);
+            bqQueueWorker.setCoalesceConfig(coalesceConfig);
+            bqQueueWorker.setRetryScheduler(getRetryScheduler());
             threads.add(bqQueueWorker);
         }
         return threads;
     }
 
-    private Sink createBigQuerySink() throws IOException {
+    // shared by the BQ workers, and by the rebalance listeners dropping the retries of revoked partitions
+    private RetryScheduler getRetryScheduler() {
+        // a scheduled retry could go to the stream of another worker, which then can't deduplicate the append
+        if (retryScheduler == null && backOffConfig.isScheduledRetriesEnabled() && !bqConfig.isBqStorageWriteApiEnabled()) {
+            retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(backOffConfig.getExponentialBackoffInitialTimeInMs(), backOffConfig.getExponentialBackoffMaximumTimeInMs()),
+                    new RetryBudget(backOffConfig.getRetryBudgetRatio(), backOffConfig.getRetryBudgetMinRetries()), appConfig.getMaxPushAttempts());
+        }
+        return retryScheduler;
+    }
+
+    private InsertHedger createInsertHedger() {
+        if (!bqConfig.isBQHedgedRequestsEnabled()) {
+            return null;
+        }
+        if (!bqConfig.isBQRowInsertIdEnabled()) {
+            // without insertIds the rows of both requests would be inserted twice
+            log.warn("BQ hedged requests are disabled as BQ row insertIds are disabled");
+            return null;
+        }
+        return new InsertHedger(sharedResources.getHedgeExecutor(), bqConfig.getBQHedgeLatencyPercentile(), bqConfig.getBQHedgeMinDelayMs(),
+                new RetryBudget("bq.sink.hedge", bqConfig.getBQHedgeBudgetRatio(), bqConfig.getBQHedgeBudgetMinHedges()));
+    }
+
+    private JsonInsertAllClient createJsonInsertAllClient() throws IOException {
+        if (!bqConfig.isBqStreamingJsonInsertEnabled()) {
+            return null;
+        }
+        GoogleCredentials credentials = getGoogleCredentials().createScoped(Collections.singletonList(BIGQUERY_SCOPE));
+        return new JsonInsertAllClient(sharedResources.getHttpTransportFactory().create(), new HttpCredentialsAdapter(credentials),
+                TableId.of(bqConfig.getGCPProject(), bqConfig.getDataset(), bqConfig.getTable()), bqConfig.isBQRowInsertIdEnabled(),
+                Integer.parseInt(bqConfig.getBqClientConnectTimeout()), Integer.parseInt(bqConfig.getBqClientReadTimeout()));
+    }
+
+    private Sink createBigQuerySink(AdaptiveInsertLimiter insertLimiter, InsertHedger insertHedger, JsonInsertAllClient jsonInsertAllClient) throws IOException {
+        if (bqConfig.isBqStorageWriteApiEnabled()) {
+            return createWriteApiSink();
+        }
+        if (bqConfig.isBqLoadJobSinkEnabled()) {
+            return withRetries(createLoadJobSink());
+        }
+        if (bqConfig.isBqHybridSinkEnabled()) {
+            return new HybridSink(createStreamingSink(insertLimiter, insertHedger, jsonInsertAllClient), createLoadJobSink(), createBacklogWatermark(),
+                    bqConfig.getBqHybridCheckIntervalMs(), new Clock());
+        }
+        return createStreamingSink(insertLimiter, insertHedger, jsonInsertAllClient);
+    }
+
+    private Sink createStreamingSink(AdaptiveInsertLimiter insertLimiter, InsertHedger insertHedger, JsonInsertAllClient jsonInsertAllClient) throws IOException {
         BigQuery bq = getBigQueryInstance();
         BQResponseParser responseParser = new BQResponseParser();
         BQRow recordInserter = new BQRowWithInsertId();
         if (!bqConfig.isBQRowInsertIdEnabled()) {
             recordInserter = new BQRowWithoutId();
         }
-        Sink bqSink = new BqSink(bq, TableId.of(bqConfig.getDataset(), bqConfig.getTable()), responseParser,
-                recordInserter, createOOBErrorWriter());
-        return new RetrySink(bqSink, new ExponentialBackOffProvider(backOffConfig.getExponentialBackoffInitialTimeInMs(),
-                backOffConfig.getExponentialBackoffMaximumTimeInMs(), backOffConfig.getExponentialBackoffRate(), new BackOff()),
-                appConfig.getMaxPushAttempts());
+        BqSink bqSink = new BqSink(bq, TableId.of(bqConfig.getDataset(), bqConfig.getTable()), responseParser,
+                recordInserter, createOOBErrorWriter(), bqConfig.getBQInsertMaxRows(), bqConfig.getBQInsertMaxBytes());
+        bqSink.setInsertLimiter(insertLimiter);
+        bqSink.setInsertHedger(insertHedger);
+        bqSink.setJsonInsertAllClient(jsonInsertAllClient);
+        if (bqConfig.isBQRowValidationEnabled()) {
+            bqSink.setRowValidator(createRowValidator());
+        }
+        if (backOffConfig.isScheduledRetriesEnabled()) {
+            // failed batches are retried by the workers' retry scheduler, the sink resends failed rows once, right away
+            return bqSink;
+        }
+        BackOffProvider backOffProvider = new ExponentialBackOffProvider(backOffConfig.getExponentialBackoffInitialTimeInMs(),
+                backOffConfig.getExponentialBackoffMaximumTimeInMs(), backOffConfig.getExponentialBackoffRate(), new BackOff());
+        bqSink.setRowRetryBackOff(backOffProvider);
+        bqSink.setMaxRowRetryAttempts(appConfig.getMaxPushAttempts());
+        return new RetrySink(bqSink, backOffProvider, appConfig.getMaxPushAttempts());
+    }
+
+    // a stream per worker, over the channels of one client, always retried by its worker for appends to be written exactly once
+    private Sink createWriteApiSink() throws IOException {
+        return retrying(new WriteApiSink(sharedResources.getBigQueryWriteClient(bqConfig.getGoogleCredentials()), TableName.of(bqConfig.getGCPProject(), bqConfig.getDataset(), bqConfig.getTable()),
+                protoUpdateListener::getMappingPlan, appConfig.getBqMetadataNamespace(), new Clock(), bqConfig.getBqWriteAppendTimeoutMs()));
+    }
+
+    private RowValidator createRowValidator() {
+        return new RowValidator(protoUpdateListener::getBqSchema, bqConfig.isBQTablePartitioningEnabled() ? bqConfig.getBQTablePartitionKey() : null,
+                bqConfig.getBQRowValidationMaxPastDays(), bqConfig.getBQRowValidationMaxFutureDays(), bqConfig.getBQRowValidationMaxBytes(), new Clock());
+    }
+
+    // rolling files of each worker, staged to GCS and loaded with load jobs, sealed early when the fullest commit queue fills up
+    private LoadJobSink createLoadJobSink() throws IOException {
+        File directory = new File(bqConfig.getBqLoadFileDirectory());
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create directory of BQ load files " + directory);
+        }
+        LoadFileConfig fileConfig = new LoadFileConfig(directory, bqConfig.getBqLoadFileFormat(), bqConfig.getBqLoadFileMaxBytes(), bqConfig.getBqLoadFileMaxAgeMs());
+        LoadJobSink loadJobSink = new LoadJobSink(getBigQueryInstance(), TableId.of(bqConfig.getDataset(), bqConfig.getTable()), protoUpdateListener::getBqSchema,
+                fileConfig, new GcsFileStager(getGCStorageInstance(), bqConfig.getBqLoadGcsBucket(), bqConfig.getBqLoadGcsPathPrefix()), new Clock(), createOOBErrorWriter());
+        // always validated, one row BQ rejects failing the load job of the whole file
+        loadJobSink.setRowValidator(createRowValidator());
+        List<ConsumerPipeline> pipelines = getConsumerPipelines();
+        loadJobSink.setCommitOccupancy(() -> pipelines.stream().mapToDouble(pipeline -> pipeline.getOffsetTracker().getOccupancy()).max().orElse(0));
+        return loadJobSink;
+    }
+
+    // behind once the read queue fills up or the consumers lag, with the lag of the furthest behind consumer
+    private BacklogWatermark createBacklogWatermark() {
+        List<ConsumerPipeline> pipelines = getConsumerPipelines();
+        return new BacklogWatermark()
+                .add("read_queue_occupancy", () -> QueueWatermark.occupancy(readQueue),
+                        bqConfig.getBqHybridLoadQueueOccupancy(), bqConfig.getBqHybridStreamQueueOccupancy())
+                .add("records_lag", () -> pipelines.stream().mapToDouble(pipeline -> pipeline.getKafkaConsumer().getRecordsLagMax()).max().orElse(0),
+                        bqConfig.getBqHybridLoadLagRecords(), bqConfig.getBqHybridStreamLagRecords());
+    }
+
+    private Sink withRetries(Sink sink) {
+        if (backOffConfig.isScheduledRetriesEnabled()) {
+            return sink;
+        }
+        return retrying(sink);
+    }
+
+    private Sink retrying(Sink sink) {
+        BackOffProvider backOffProvider = new ExponentialBackOffProvider(backOffConfig.getExponentialBackoffInitialTimeInMs(),
+                backOffConfig.getExponentialBackoffMaximumTimeInMs(), backOffConfig.getExponentialBackoffRate(), new BackOff());
+        return new RetrySink(sink, backOffProvider, appConfig.getMaxPushAttempts());
     }
 
     private ErrorWriter createOOBErrorWriter() throws IOException {
@@ -131,10 +299,15 @@ public class BeastFactory {
     }
 
     private BigQuery getBigQueryInstance() throws IOException {
-        final TransportOptions transportOptions = BigQueryOptions.getDefaultHttpTransportOptions().toBuilder()
+        // the clients of all pipelines share the connection pool of one transport
+        final HttpTransportOptions.Builder transportOptionsBuilder = BigQueryOptions.getDefaultHttpTransportOptions().toBuilder()
+                .setHttpTransportFactory(sharedResources.getHttpTransportFactory())
                 .setConnectTimeout(Integer.parseInt(bqConfig.getBqClientConnectTimeout()))
-                .setReadTimeout(Integer.parseInt(bqConfig.getBqClientReadTimeout()))
-                .build();
+                .setReadTimeout(Integer.parseInt(bqConfig.getBqClientReadTimeout()));
+        // insertAll bodies are then only gzipped by the transport, from its minimum size on
+        final TransportOptions transportOptions = bqConfig.isBqInsertGzipEnabled()
+                ? new GzipInsertAllTransportOptions(transportOptionsBuilder)
+                : transportOptionsBuilder.build();
         return BigQueryOptions.newBuilder()
                 .setTransportOptions(transportOptions)
                 .setCredentials(getGoogleCredentials())
@@ -150,59 +323,140 @@ public class BeastFactory {
     }
 
     private GoogleCredentials getGoogleCredentials() throws IOException {
-        GoogleCredentials credentials = null;
-        File credentialsPath = new File(bqConfig.getGoogleCredentials());
-        try (FileInputStream serviceAccountStream = new FileInputStream(credentialsPath)) {
-            credentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw e;
+        return sharedResources.getCredentials(bqConfig.getGoogleCredentials());
+    }
+
+    public List<Worker> createOffsetCommitters() {
+        List<Worker> committers = new ArrayList<>();
+        for (ConsumerPipeline pipeline : getConsumerPipelines()) {
+            OffsetCommitWorker committer = new OffsetCommitWorker(workerName(pipeline.workerName("committer")), new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "commit"),
+                    pipeline.getKafkaConsumer(), new OffsetState(appConfig.getOffsetAckTimeoutMs(), appConfig.getOffsetBatchDuration()), pipeline.getOffsetTracker(), workerState, new Clock());
+            committer.setAsyncCommitEnabled(appConfig.isAsyncOffsetCommitEnabled());
+            committers.add(committer);
         }
-        return credentials;
+        return committers;
     }
 
-    public OffsetCommitWorker createOffsetCommitter() {
-        if (committer != null) {
-            return committer;
+    public List<Worker> createConsumerWorkers() {
+        List<Worker> consumers = new ArrayList<>();
+        int consumerCount = getConsumerPipelines().size();
+        for (ConsumerPipeline pipeline : getConsumerPipelines()) {
+            QueueWatermark queueWatermark = null;
+            if (appConfig.isConsumerBackpressureEnabled()) {
+                // the read queue is shared by all consumers, the converted queue is the consumer's own
+                List<DoubleSupplier> occupancies = new ArrayList<>();
+                occupancies.add(() -> QueueWatermark.occupancy(readQueue, consumerCount));
+                occupancies.add(pipeline.getOffsetTracker()::getOccupancy);
+                if (pipeline.getConvertedQueue() != null) {
+                    occupancies.add(() -> QueueWatermark.occupancy(pipeline.getConvertedQueue(), 1));
+                }
+                queueWatermark = new QueueWatermark(occupancies, appConfig.getQueueHighWatermark(), appConfig.getQueueLowWatermark());
+            }
+            MessageConsumer messageConsumer = new MessageConsumer(pipeline.getKafkaConsumer(), pipeline.getSink(), protoUpdateListener,
+                    appConfig.getConsumerPollTimeoutMs(), pipeline.getParallelConverter(), queueWatermark, appConfig.getConsumerPausedPollTimeoutMs());
+            consumers.add(new ConsumerWorker(workerName(pipeline.workerName("consumer")), messageConsumer, workerState));
         }
-        OffsetState offsetState = new OffsetState(partitionsAck, appConfig.getOffsetAckTimeoutMs(), appConfig.getOffsetBatchDuration());
-        committer = new OffsetCommitWorker("committer", new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "commit"), createKafkaConsumer(), offsetState, commitQueue, workerState, new Clock());
-        return committer;
+        return consumers;
     }
 
-    private MultiSink createMultiSink() {
-        if (multiSink != null) {
-            return multiSink;
+    public List<Worker> createConverterWorkers() {
+        List<Worker> converterWorkers = new ArrayList<>();
+        for (ConsumerPipeline pipeline : getConsumerPipelines()) {
+            if (pipeline.getParallelConverter() != null) {
+                converterWorkers.add(new ConverterQueueWorker(workerName(pipeline.workerName("converter-queue")), pipeline.getSink(),
+                        new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "converted"), pipeline.getConvertedQueue(), pipeline.getParallelConverter(), workerState));
+            }
         }
-        RecordsQueueSink readQueueSink = new RecordsQueueSink(readQueue, new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "read"));
-        OffsetMapQueueSink committerQueueSink = new OffsetMapQueueSink(commitQueue, new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "commit"));
-        multiSink = new MultiSink(Arrays.asList(readQueueSink, committerQueueSink));
-        return multiSink;
+        return converterWorkers;
     }
 
-    private MessageConsumer createMessageConsumer() {
-        if (messageConsumer != null) return messageConsumer;
-        messageConsumer = new MessageConsumer(createKafkaConsumer(), createMultiSink(), protoUpdateListener, appConfig.getConsumerPollTimeoutMs());
-        return messageConsumer;
+    /**
+     * Consumers of the same group, each with its own commit queue and committer.
+     * They share the read queue, and so the BQ workers and the partition acknowledgements.
+     * A backfill assigns its partitions to them instead, and stops the workers once all of them are written up to their end offsets.
+     */
+    private List<ConsumerPipeline> getConsumerPipelines() {
+        if (consumerPipelines != null) {
+            return consumerPipelines;
+        }
+        int consumerCount = appConfig.getKafkaConsumerCount();
+        BackfillPlan backfillPlan = null;
+        BackfillProgress backfillProgress = null;
+        if (appConfig.isBackfillEnabled()) {
+            backfillPlan = createBackfillPlan();
+            // the partitions are spread over the consumers, none of them left without any
+            consumerCount = Math.min(consumerCount, backfillPlan.getPartitions().size());
+            backfillProgress = new BackfillProgress(backfillPlan, workerState::closeWorker);
+        }
+        log.info("Consuming with {} kafka consumers", consumerCount);
+        consumerPipelines = new ArrayList<>(consumerCount);
+        for (int i = 0; i < consumerCount; i++) {
+            String suffix = consumerCount > 1 ? "-" + i : "";
+            OffsetTracker offsetTracker = new OffsetTracker(appConfig.getCommitQueueCapacity());
+            Sink sink = new OffsetTrackerSink(offsetTracker, new RecordsQueueSink(readQueue, new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "read")));
+            BlockingQueue<Future<Records>> convertedQueue = null;
+            ParallelConverter parallelConverter = null;
+            if (appConfig.getConverterPoolSize() > 0) {
+                convertedQueue = new LinkedBlockingQueue<>(appConfig.getConverterQueueCapacity());
+                parallelConverter = new ParallelConverter(protoUpdateListener, sharedResources.getConverterExecutor(appConfig.getConverterPoolSize()), convertedQueue,
+                        new QueueConfig(appConfig.getBqWorkerPollTimeoutMs(), "converted"));
+            }
+            KafkaConsumer kafkaConsumer = backfillPlan == null
+                    ? createKafkaConsumer(suffix, offsetTracker)
+                    : createBackfillConsumer(suffix, backfillPlan.partitionsOf(i, consumerCount), backfillPlan, backfillProgress);
+            consumerPipelines.add(new ConsumerPipeline(suffix, kafkaConsumer, offsetTracker, sink, convertedQueue, parallelConverter));
+        }
+        return consumerPipelines;
     }
 
-    private Acknowledger createAcknowledger() {
-        return new OffsetAcknowledger(partitionsAck);
+    // worker threads of a named pipeline are prefixed with its name
+    private String workerName(String name) {
+        return pipelineName.isEmpty() ? name : pipelineName + "-" + name;
     }
 
-    private KafkaConsumer createKafkaConsumer() {
-        if (kafkaConsumer != null) {
-            return kafkaConsumer;
+    // queues are bounded by bytes as well when a byte capacity is configured
+    private static <E> BlockingQueue<E> createQueue(int capacity, long capacityBytes, ToLongFunction<? super E> weigher) {
+        if (capacityBytes > 0) {
+            return new ByteBoundedBlockingQueue<>(capacity, capacityBytes, weigher);
         }
-        Map<String, Object> consumerConfig = new KafkaConfig(appConfig.getKafkaConfigPrefix()).get(appConfig);
-        org.apache.kafka.clients.consumer.KafkaConsumer consumer = new org.apache.kafka.clients.consumer.KafkaConsumer(consumerConfig);
-        consumer.subscribe(Pattern.compile(appConfig.getKafkaTopic()), new RebalanceListener());
-        kafkaConsumer = new KafkaConsumer(consumer);
-        return kafkaConsumer;
+        return new LinkedBlockingQueue<>(capacity);
     }
 
-    public Worker createConsumerWorker() {
-        return new ConsumerWorker("consumer", createMessageConsumer(), workerState);
+    private Acknowledger createAcknowledger() {
+        return new OffsetAcknowledger(getConsumerPipelines().stream().map(ConsumerPipeline::getOffsetTracker).collect(Collectors.toList()));
+    }
+
+    private KafkaConsumer createKafkaConsumer(String clientIdSuffix, OffsetTracker offsetTracker) {
+        org.apache.kafka.clients.consumer.KafkaConsumer consumer = new org.apache.kafka.clients.consumer.KafkaConsumer(createConsumerConfig(clientIdSuffix));
+        consumer.subscribe(Pattern.compile(appConfig.getKafkaTopic()),
+                new RebalanceListener(consumer, readQueue, offsetTracker, appConfig.getRebalanceFlushTimeoutMs(), getRetryScheduler()));
+        return new KafkaConsumer(consumer);
+    }
+
+    private KafkaConsumer createBackfillConsumer(String clientIdSuffix, List<TopicPartition> partitions, BackfillPlan plan, BackfillProgress progress) {
+        org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> consumer = new org.apache.kafka.clients.consumer.KafkaConsumer<>(createBackfillConsumerConfig(clientIdSuffix));
+        return new BackfillKafkaConsumer(consumer, partitions, plan, progress);
+    }
+
+    private Map<String, Object> createConsumerConfig(String clientIdSuffix) {
+        String pipelineSuffix = pipelineName.isEmpty() ? "" : "-" + pipelineName;
+        return new KafkaConfig(appConfig.getKafkaConfigPrefix(), properties).get(appConfig, pipelineSuffix + clientIdSuffix);
+    }
+
+    // backfills never commit, the offsets of the consumer group are left as they are
+    private Map<String, Object> createBackfillConsumerConfig(String clientIdSuffix) {
+        Map<String, Object> consumerConfig = createConsumerConfig(clientIdSuffix);
+        consumerConfig.put(ENABLE_AUTO_COMMIT_CONFIG, false);
+        return consumerConfig;
+    }
+
+    // planned with a consumer of its own, the end offsets being the ones at startup
+    private BackfillPlan createBackfillPlan() {
+        try (org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> consumer = new org.apache.kafka.clients.consumer.KafkaConsumer<>(createBackfillConsumerConfig("-backfill"))) {
+            BackfillPlan plan = BackfillPlan.create(consumer, Pattern.compile(appConfig.getKafkaTopic()), appConfig.getBackfillStartTimestampMs(), appConfig.getBackfillStartOffsets());
+            log.info("Backfilling {} partitions from offsets {} up to {}", plan.getPartitions().size(), plan.getStartOffsets(), plan.getEndOffsets());
+            return plan;
+        }
     }
 
     public void close() throws IOException {
@@ -210,6 +464,20 @@ public class BeastFactory {
         readQueue.clear();
         workerState.closeWorker();
         protoUpdateListener.close();
-        Stats.stop();
+    }
+
+    @AllArgsConstructor
+    @Getter
+    private static final class ConsumerPipeline {
+        private final String nameSuffix;
+        private final KafkaConsumer kafkaConsumer;
+        private final OffsetTracker offsetTracker;
+        private final Sink sink;
+        private final BlockingQueue<Future<Records>> convertedQueue;
+        private final ParallelConverter parallelConverter;
+
+        private String workerName(String name) {
+            return name + nameSuffix;
+        }
     }
 }
@@ -0,0 +1,119 @@
+package com.gojek.beast.factory;
+
+import com.gojek.beast.config.BQConfig;
+import com.gojek.beast.sink.bq.GzipInsertAllInterceptor;
+import com.gojek.beast.sink.bq.PooledHttpTransportFactory;
+import com.gojek.beast.stats.Stats;
+import com.gojek.de.stencil.StencilClientFactory;
+import com.gojek.de.stencil.client.StencilClient;
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteSettings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpRequestInterceptor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resources the pipelines of a process share: the HTTP transport of their BQ clients, the credentials and Storage Write API client
+ * of each credentials file, the Stencil client of each URL, and the converter and hedge thread pools.
+ * The transport and the Stencil clients are configured by the environment, as they're set up once for all pipelines.
+ */
+@Slf4j
+public class SharedResources {
+    private static final String BIGQUERY_SCOPE = "https://www.googleapis.com/auth/bigquery";
+    @Getter
+    private final PooledHttpTransportFactory httpTransportFactory;
+    private final Map<String, GoogleCredentials> credentials = new HashMap<>();
+    private final Map<String, BigQueryWriteClient> bigQueryWriteClients = new HashMap<>();
+    private final Map<String, StencilClient> stencilClients = new HashMap<>();
+    private ExecutorService converterExecutor;
+    private ExecutorService hedgeExecutor;
+
+    public SharedResources(BQConfig bqConfig) {
+        List<HttpRequestInterceptor> requestInterceptors = new ArrayList<>();
+        if (bqConfig.isBqInsertGzipEnabled()) {
+            requestInterceptors.add(new GzipInsertAllInterceptor(bqConfig.getBqInsertGzipMinBytes()));
+        }
+        this.httpTransportFactory = new PooledHttpTransportFactory(bqConfig.getBqHttpMaxConnections(), bqConfig.getBqHttpMaxConnectionsPerRoute(),
+                bqConfig.getBqHttpKeepAliveMs(), requestInterceptors);
+    }
+
+    public synchronized GoogleCredentials getCredentials(String path) throws IOException {
+        GoogleCredentials pathCredentials = credentials.get(path);
+        if (pathCredentials != null) {
+            return pathCredentials;
+        }
+        try (FileInputStream serviceAccountStream = new FileInputStream(new File(path))) {
+            pathCredentials = ServiceAccountCredentials.fromStream(serviceAccountStream);
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw e;
+        }
+        credentials.put(path, pathCredentials);
+        return pathCredentials;
+    }
+
+    // the streams of all pipelines go over the channels of one client
+    public synchronized BigQueryWriteClient getBigQueryWriteClient(String credentialsPath) throws IOException {
+        BigQueryWriteClient client = bigQueryWriteClients.get(credentialsPath);
+        if (client == null) {
+            GoogleCredentials scopedCredentials = getCredentials(credentialsPath).createScoped(Collections.singletonList(BIGQUERY_SCOPE));
+            client = BigQueryWriteClient.create(BigQueryWriteSettings.newBuilder()
+                    .setCredentialsProvider(FixedCredentialsProvider.create(scopedCredentials))
+                    .build());
+            bigQueryWriteClients.put(credentialsPath, client);
+        }
+        return client;
+    }
+
+    /**
+     * One descriptor cache per URL, for pipelines without automatic schema updates, which listen to updates with clients of their own.
+     */
+    public synchronized StencilClient getStencilClient(String url) {
+        return stencilClients.computeIfAbsent(url, stencilUrl -> StencilClientFactory.getClient(stencilUrl, System.getenv(), Stats.client().getStatsDClient()));
+    }
+
+    // sized by the first pipeline converting messages in parallel
+    public synchronized ExecutorService getConverterExecutor(int poolSize) {
+        if (converterExecutor == null) {
+            log.info("Converting messages on {} threads", poolSize);
+            converterExecutor = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setNameFormat("converter-%d").setDaemon(true).build());
+        }
+        return converterExecutor;
+    }
+
+    public synchronized ExecutorService getHedgeExecutor() {
+        if (hedgeExecutor == null) {
+            hedgeExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("bq-hedge-%d").setDaemon(true).build());
+        }
+        return hedgeExecutor;
+    }
+
+    public synchronized void close() throws IOException {
+        log.debug("Closing shared resources");
+        for (StencilClient stencilClient : stencilClients.values()) {
+            stencilClient.close();
+        }
+        bigQueryWriteClients.values().forEach(BigQueryWriteClient::close);
+        if (converterExecutor != null) {
+            converterExecutor.shutdown();
+        }
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdown();
+        }
+    }
+}
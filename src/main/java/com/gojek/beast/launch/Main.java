@@ -1,11 +1,10 @@
 package com.gojek.beast.launch;
 
-import com.gojek.beast.config.AppConfig;
-import com.gojek.beast.config.BackOffConfig;
-import com.gojek.beast.config.ProtoMappingConfig;
-import com.gojek.beast.config.StencilConfig;
 import com.gojek.beast.config.BQConfig;
+import com.gojek.beast.config.PipelineConfig;
 import com.gojek.beast.factory.BeastFactory;
+import com.gojek.beast.factory.SharedResources;
+import com.gojek.beast.models.ConfigurationException;
 import com.gojek.beast.stats.Stats;
 import com.gojek.beast.worker.Worker;
 import com.gojek.beast.worker.WorkerState;
@@ -13,37 +12,62 @@ import lombok.extern.slf4j.Slf4j;
 import org.aeonbits.owner.ConfigFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
 public class Main {
     public static void main(String[] args) throws IOException, InterruptedException {
-        AppConfig appConfig = ConfigFactory.create(AppConfig.class, System.getenv());
-        ProtoMappingConfig protoMappingConfig = ConfigFactory.create(ProtoMappingConfig.class, System.getenv());
-        BackOffConfig backOffConfig = ConfigFactory.create(BackOffConfig.class, System.getenv());
-        StencilConfig stencilConfig = ConfigFactory.create(StencilConfig.class, System.getenv());
-        BQConfig bqConfig = ConfigFactory.create(BQConfig.class, System.getenv());
+        List<PipelineConfig> pipelines = PipelineConfig.load(System.getenv());
+        // the workers of all pipelines stop together, for the process to be restarted as a whole
         WorkerState workerState = new WorkerState();
         Stats statsClient = Stats.client();
 
-        BeastFactory beastFactory = null;
+        SharedResources sharedResources = new SharedResources(ConfigFactory.create(BQConfig.class, System.getenv()));
+        List<BeastFactory> beastFactories = new ArrayList<>();
         try {
-            beastFactory = new BeastFactory(appConfig, backOffConfig, stencilConfig, bqConfig, protoMappingConfig, workerState);
-
-            Worker consumerThread = beastFactory.createConsumerWorker();
-            consumerThread.start();
-
-            List<Worker> workers = beastFactory.createBqWorkers();
+            if (pipelines.size() > 1 && pipelines.stream().anyMatch(pipeline -> pipeline.getAppConfig().isBackfillEnabled())) {
+                // a completed backfill stops the workers of the process
+                throw new ConfigurationException("Backfills run as the only pipeline of a process");
+            }
+            List<Worker> consumerWorkers = new ArrayList<>();
+            List<Worker> converterWorkers = new ArrayList<>();
+            List<Worker> workers = new ArrayList<>();
+            List<Worker> committerWorkers = new ArrayList<>();
+            for (PipelineConfig pipeline : pipelines) {
+                if (!pipeline.getName().isEmpty()) {
+                    log.info("Starting pipeline {} of topics {} into table {}", pipeline.getName(), pipeline.getAppConfig().getKafkaTopic(), pipeline.getBqConfig().getTable());
+                    Stats.enterPipeline(pipeline.getName(), pipeline.getProperties());
+                }
+                try {
+                    BeastFactory beastFactory = new BeastFactory(pipeline, workerState, sharedResources);
+                    beastFactories.add(beastFactory);
+                    consumerWorkers.addAll(beastFactory.createConsumerWorkers());
+                    converterWorkers.addAll(beastFactory.createConverterWorkers());
+                    workers.addAll(beastFactory.createBqWorkers());
+                    committerWorkers.addAll(beastFactory.createOffsetCommitters());
+                } finally {
+                    Stats.exitPipeline();
+                }
+            }
+            consumerWorkers.forEach(Thread::start);
+            converterWorkers.forEach(Thread::start);
             workers.forEach(Thread::start);
-
-            Worker committerThread = beastFactory.createOffsetCommitter();
-            committerThread.start();
+            committerWorkers.forEach(Thread::start);
 
             addShutDownHooks(workerState);
-            consumerThread.join();
-            log.debug("Joined on consumer thread");
-            committerThread.join();
-            log.debug("Joined on committer thread");
+            for (Worker worker : consumerWorkers) {
+                worker.join();
+                log.debug("Joined on consumer {} thread", worker.getName());
+            }
+            for (Worker worker : committerWorkers) {
+                worker.join();
+                log.debug("Joined on committer {} thread", worker.getName());
+            }
+            for (Worker worker : converterWorkers) {
+                worker.join();
+                log.debug("Joined on converter worker {} thread", worker.getName());
+            }
             for (Worker worker : workers) {
                 worker.join();
                 log.debug("Joined on worker {} thread", worker.getName());
@@ -57,9 +81,11 @@ public class Main {
             }
             throw e;
         } finally {
-            if (beastFactory != null) {
+            for (BeastFactory beastFactory : beastFactories) {
                 beastFactory.close();
             }
+            sharedResources.close();
+            Stats.stop();
         }
         log.info("Beast process completed");
     }
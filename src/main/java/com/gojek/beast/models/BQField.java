@@ -18,7 +18,7 @@ public class BQField {
     private Field.Mode mode;
     private LegacySQLTypeName type;
     private List<Field> subFields;
-    private Stats statsClient = Stats.client();
+    private final Stats statsClient;
 
     private static final Map<DescriptorProtos.FieldDescriptorProto.Label, Field.Mode> FIELD_LABEL_TO_BQ_MODE_MAP = new HashMap<DescriptorProtos.FieldDescriptorProto.Label, Field.Mode>() {{
         put(DescriptorProtos.FieldDescriptorProto.Label.LABEL_OPTIONAL, Field.Mode.NULLABLE);
@@ -54,6 +54,11 @@ public class BQField {
     }};
 
     public BQField(ProtoField protoField) {
+        this(protoField, Stats.client());
+    }
+
+    public BQField(ProtoField protoField, Stats statsClient) {
+        this.statsClient = statsClient;
         this.name = protoField.getName();
         this.mode = FIELD_LABEL_TO_BQ_MODE_MAP.get(protoField.getLabel());
         this.type = getType(protoField);
@@ -0,0 +1,32 @@
+package com.gojek.beast.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Status of a push whose records were taken by the sink but are written later on,
+ * the outcome of the write completes the given future.
+ */
+@AllArgsConstructor
+public class DeferredStatus implements Status {
+    @Getter
+    private final CompletableFuture<Status> completion;
+
+    @Override
+    public boolean isSuccess() {
+        return true;
+    }
+
+    @Override
+    public Optional<Exception> getException() {
+        return Optional.empty();
+    }
+
+    @Override
+    public String toString() {
+        return "DeferredStatus{done=" + completion.isDone() + '}';
+    }
+}
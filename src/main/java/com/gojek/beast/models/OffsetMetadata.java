@@ -1,13 +1,24 @@
 package com.gojek.beast.models;
 
+import lombok.Getter;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 
 public class OffsetMetadata extends OffsetAndMetadata implements Comparable<OffsetMetadata> {
+    // position of the batch in its partition's offset tracker, stamped on registration
+    @Getter
+    private volatile long trackerEpoch = -1;
+    @Getter
+    private volatile long trackerSequence = -1;
 
     public OffsetMetadata(long offset) {
         super(offset);
     }
 
+    public void stamp(long epoch, long sequence) {
+        this.trackerSequence = sequence;
+        this.trackerEpoch = epoch;
+    }
+
     @Override
     public int compareTo(OffsetMetadata o) {
         return Long.compare(this.offset(), o.offset());
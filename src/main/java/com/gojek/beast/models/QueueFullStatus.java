@@ -0,0 +1,11 @@
+package com.gojek.beast.models;
+
+/**
+ * Status of a push turned down as the queue was full, the records being neither queued nor registered for committing.
+ * The batch is to be pushed again once the queue drains.
+ */
+public class QueueFullStatus extends FailureStatus {
+    public QueueFullStatus(String message) {
+        super(new RuntimeException(message));
+    }
+}
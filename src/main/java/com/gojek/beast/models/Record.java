@@ -5,12 +5,24 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
+import com.google.protobuf.ByteString;
+
+import java.util.Collection;
 import java.util.Map;
 
 @AllArgsConstructor
 @Builder
 @Getter
 public class Record {
+    private static final int RECORD_OVERHEAD_BYTES = 64;
+    private static final int ENTRY_OVERHEAD_BYTES = 48;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int REFERENCE_BYTES = 8;
+    private static final int BOXED_VALUE_BYTES = 16;
+    private static final int JSON_VALUE_OVERHEAD_BYTES = 4;
+    private static final int JSON_SCALAR_BYTES = 32;
+    private static final int BASE64_GROUP_BYTES = 3;
+    private static final int BASE64_GROUP_CHARS = 4;
     @Setter
     private OffsetInfo offsetInfo;
     private Map<String, Object> columns;
@@ -32,4 +44,75 @@ public class Record {
     public long getSize() {
         return (key == null ? 0 : key.length) + (value == null ? 0 : value.length);
     }
+
+    /**
+     * Rough heap footprint of the record, the raw key and value along with the converted columns.
+     */
+    public long getEstimatedSize() {
+        return RECORD_OVERHEAD_BYTES + getSize() + estimateSize(columns);
+    }
+
+    /**
+     * Rough size of the columns as the JSON of a BQ row, the raw key and value left out.
+     */
+    public long getJsonSize() {
+        return jsonSize(columns);
+    }
+
+    // strings along with a few bytes of quotes and separators for each value, bytes being base64 encoded
+    private static long jsonSize(Object value) {
+        if (value instanceof String) {
+            return ((String) value).length() + JSON_VALUE_OVERHEAD_BYTES;
+        }
+        if (value instanceof byte[] || value instanceof ByteString) {
+            long bytes = value instanceof byte[] ? ((byte[]) value).length : ((ByteString) value).size();
+            return (bytes + BASE64_GROUP_BYTES - 1) / BASE64_GROUP_BYTES * BASE64_GROUP_CHARS + JSON_VALUE_OVERHEAD_BYTES;
+        }
+        if (value instanceof Map) {
+            long size = JSON_VALUE_OVERHEAD_BYTES;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += jsonSize(String.valueOf(entry.getKey())) + jsonSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = JSON_VALUE_OVERHEAD_BYTES;
+            for (Object element : (Collection<?>) value) {
+                size += jsonSize(element);
+            }
+            return size;
+        }
+        // numbers, booleans and timestamps
+        return JSON_SCALAR_BYTES;
+    }
+
+    private static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return STRING_OVERHEAD_BYTES + 2L * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof ByteString) {
+            return ((ByteString) value).size();
+        }
+        if (value instanceof Map) {
+            long size = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += ENTRY_OVERHEAD_BYTES + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 0;
+            for (Object element : (Collection<?>) value) {
+                size += REFERENCE_BYTES + estimateSize(element);
+            }
+            return size;
+        }
+        return BOXED_VALUE_BYTES;
+    }
 }
@@ -18,6 +18,7 @@ public class Records implements Iterable<Record> {
     private final Instant polledTime; // time when this batch were fetched or created
     private Map<TopicPartition, OffsetAndMetadata> partitionsCommitOffset = new HashMap<>();
     private Map<Integer, Long> recordCountByPartition = new HashMap<>();
+    private long estimatedSize = -1;
 
     public Records(List<Record> records) {
         this(records, Instant.now());
@@ -49,6 +50,14 @@ public class Records implements Iterable<Record> {
         return records.stream().mapToLong(Record::getSize).sum();
     }
 
+    // cached, as byte bounded queues weigh the batch on the way in and out
+    public long getEstimatedSize() {
+        if (estimatedSize < 0) {
+            estimatedSize = records.stream().mapToLong(Record::getEstimatedSize).sum();
+        }
+        return estimatedSize;
+    }
+
     public Map<Integer, Long> getRecordCountByPartition() {
         if (recordCountByPartition.isEmpty()) {
             records.forEach(r -> recordCountByPartition.merge(r.getPartition(), 1L, Long::sum));
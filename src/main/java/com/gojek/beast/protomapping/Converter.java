@@ -7,6 +7,7 @@ import com.gojek.beast.config.Constants;
 import com.gojek.beast.exception.BQSchemaMappingException;
 import com.gojek.beast.models.BQField;
 import com.gojek.beast.models.ProtoField;
+import com.gojek.beast.stats.Stats;
 import com.google.cloud.bigquery.Field;
 
 
@@ -16,6 +17,8 @@ import java.util.List;
 
 public class Converter {
     private ObjectMapper objectMapper;
+    // taken while the pipeline is built, schemas being generated again on the thread refreshing them
+    private final Stats statsClient = Stats.client();
 
     public Converter() {
         objectMapper = new ObjectMapper();
@@ -50,7 +53,7 @@ public class Converter {
         }
         List<Field> schemaFields = new ArrayList<>();
         for (ProtoField field : protoField.getFields()) {
-            BQField bqField = new BQField(field);
+            BQField bqField = new BQField(field, statsClient);
             if (field.isNested()) {
                 List<Field> fields = generateBigquerySchema(field);
                 bqField.setSubFields(fields);
@@ -7,13 +7,18 @@ import com.gojek.beast.config.ConfigStore;
 import com.gojek.beast.config.ProtoMappingConfig;
 import com.gojek.beast.config.StencilConfig;
 import com.gojek.beast.converter.ConsumerRecordConverter;
+import com.gojek.beast.converter.DynamicMessageRowDecoder;
+import com.gojek.beast.converter.MappingPlan;
+import com.gojek.beast.converter.RowDecoder;
 import com.gojek.beast.converter.RowMapper;
+import com.gojek.beast.converter.WireRowDecoder;
 import com.gojek.beast.exception.BQDatasetLocationChangedException;
 import com.gojek.beast.exception.BQPartitionKeyNotSpecified;
 import com.gojek.beast.exception.BQSchemaMappingException;
 import com.gojek.beast.exception.BQTableUpdateFailure;
 import com.gojek.beast.exception.ProtoNotFoundException;
 import com.gojek.beast.models.BQField;
+import com.gojek.beast.models.ConfigurationException;
 import com.gojek.beast.models.ProtoField;
 import com.gojek.beast.models.ProtoFieldFactory;
 import com.gojek.beast.sink.bq.BQClient;
@@ -30,30 +35,43 @@ import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.Field;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.InvalidProtocolBufferException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateListener {
+    private static final byte[] EMPTY_MESSAGE = new byte[0];
     private final String proto;
     private final ProtoMappingConfig protoMappingConfig;
     private final StencilConfig stencilConfig;
     private final AppConfig appConfig;
     private ConsumerRecordConverter recordConverter;
+    private volatile com.gojek.de.stencil.parser.Parser protoParser;
+    private volatile RowMapper rowMapper;
+    private ProtoField schemaProtoField;
+    private List<Field> bqSchema;
     private StencilClient stencilClient;
+    private boolean sharedStencilClient;
     private Converter protoMappingConverter;
     private Parser protoMappingParser;
     private BQClient bqClient;
     private ProtoFieldFactory protoFieldFactory;
-    private Stats statsClient = Stats.client();
+    // taken while the pipeline is built, the parser and converters being rebuilt on the thread refreshing the schema
+    private final Stats statsClient = Stats.client();
     private ErrorWriter errorWriter;
 
-    public ProtoUpdateListener(ConfigStore configStore, Converter protoMappingConverter, Parser protoMappingParser, BigQuery bqInstance, ErrorWriter errorWriter) throws IOException {
+    /**
+     * Without automatic schema updates, the Stencil client of the URL comes from stencilClients, shared with other listeners and left open on close.
+     */
+    public ProtoUpdateListener(ConfigStore configStore, Converter protoMappingConverter, Parser protoMappingParser, BigQuery bqInstance, ErrorWriter errorWriter,
+                               Function<String, StencilClient> stencilClients) throws IOException {
         super(configStore.getStencilConfig().getProtoSchema());
         this.proto = configStore.getStencilConfig().getProtoSchema();
         this.protoMappingConfig = configStore.getProtoMappingConfig();
@@ -64,7 +82,7 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
         this.protoFieldFactory = new ProtoFieldFactory();
         this.bqClient = new BQClient(bqInstance, configStore.getBqConfig());
         this.errorWriter = errorWriter;
-        this.createStencilClient();
+        this.createStencilClient(stencilClients);
         this.setProtoParser(getProtoMapping());
     }
 
@@ -82,7 +100,7 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
         this.protoFieldFactory = protoFieldFactory;
     }
 
-    private void createStencilClient() {
+    private void createStencilClient(Function<String, StencilClient> stencilClients) {
         try {
             if (protoMappingConfig.isAutoSchemaUpdateEnabled()) {
                 stencilClient = StencilClientFactory.getClient(stencilConfig.getStencilUrl(), System.getenv(), Stats.client().getStatsDClient(), this);
@@ -90,7 +108,8 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
                 log.info("updating bq table at startup for proto schema {}", getProto());
                 onProtoUpdate(stencilConfig.getStencilUrl(), stencilClient.getAllDescriptorAndTypeName());
             } else {
-                stencilClient = StencilClientFactory.getClient(stencilConfig.getStencilUrl(), System.getenv(), Stats.client().getStatsDClient());
+                stencilClient = stencilClients.apply(stencilConfig.getStencilUrl());
+                sharedStencilClient = true;
             }
         } catch (RuntimeException e) {
             emitStencilExceptionMetrics(e);
@@ -121,6 +140,7 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
         List<Field> bqSchemaFields = protoMappingConverter.generateBigquerySchema(protoField);
         addMetadataFields(bqSchemaFields);
         bqClient.upsertTable(bqSchemaFields);
+        setBqSchema(protoField, bqSchemaFields);
         protoMappingConfig.setProperty("PROTO_COLUMN_MAPPING", protoMappingString);
         setProtoParser(protoMappingConfig.getProtoColumnMapping());
     }
@@ -145,6 +165,7 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
     private ColumnMapping getProtoMapping() throws IOException {
         ProtoField protoField = new ProtoField();
         protoField = protoMappingParser.parseFields(protoField, proto, stencilClient.getAll(), stencilClient.getTypeNameToPackageNameMap());
+        setBqSchema(protoField, null);
         String protoMapping = protoMappingConverter.generateColumnMappings(protoField.getFields());
         protoMappingConfig.setProperty("PROTO_COLUMN_MAPPING", protoMapping);
         return protoMappingConfig.getProtoColumnMapping();
@@ -154,22 +175,57 @@ public class ProtoUpdateListener extends com.gojek.de.stencil.cache.ProtoUpdateL
         return recordConverter;
     }
 
+    /**
+     * BQ schema of the proto along with the metadata columns, as the table is created with.
+     */
+    public synchronized List<Field> getBqSchema() {
+        if (bqSchema == null) {
+            List<Field> fields = protoMappingConverter.generateBigquerySchema(schemaProtoField);
+            addMetadataFields(fields);
+            bqSchema = fields;
+        }
+        return bqSchema;
+    }
+
+    // derived from the proto field on demand, unless already known
+    private synchronized void setBqSchema(ProtoField field, List<Field> schema) {
+        schemaProtoField = field;
+        bqSchema = schema == null ? null : new ArrayList<>(schema);
+    }
+
+    /**
+     * Column mapping compiled against the current descriptor of the proto, for sinks which map the proto bytes themselves.
+     */
+    public MappingPlan getMappingPlan() {
+        try {
+            return rowMapper.getPlan(protoParser.parse(EMPTY_MESSAGE).getDescriptorForType());
+        } catch (InvalidProtocolBufferException e) {
+            throw new ConfigurationException("Failed to resolve descriptor of proto " + proto + ": " + e.getMessage());
+        }
+    }
+
     private void setProtoParser(ColumnMapping columnMapping) {
+        com.gojek.de.stencil.parser.Parser parser;
         if (stencilConfig.getAutoRefreshCache()) {
             // periodic refresh
-            ProtoParser protoParser = new ProtoParser(stencilClient, proto);
-            recordConverter = new ConsumerRecordConverter(new RowMapper(columnMapping, protoMappingConfig.getFailOnUnknownFields()),
-                    protoParser, new Clock(), appConfig, errorWriter);
+            parser = new ProtoParser(stencilClient, proto);
         } else {
             // on-demand refresh
-            ProtoParserWithRefresh protoParser = new ProtoParserWithRefresh(stencilClient, proto);
-            recordConverter = new ConsumerRecordConverter(new RowMapper(columnMapping, protoMappingConfig.getFailOnUnknownFields()),
-                    protoParser, new Clock(), appConfig, errorWriter);
+            parser = new ProtoParserWithRefresh(stencilClient, proto);
         }
+        RowMapper mapper = new RowMapper(columnMapping, protoMappingConfig.getFailOnUnknownFields(), statsClient);
+        RowDecoder rowDecoder = protoMappingConfig.isProtoWireDecoderEnabled()
+                ? new WireRowDecoder(mapper, parser, statsClient)
+                : new DynamicMessageRowDecoder(mapper, parser);
+        recordConverter = new ConsumerRecordConverter(rowDecoder, new Clock(), appConfig, errorWriter, statsClient);
+        protoParser = parser;
+        rowMapper = mapper;
     }
 
     public void close() throws IOException {
-        stencilClient.close();
+        if (!sharedStencilClient) {
+            stencilClient.close();
+        }
     }
 
     private void emitStencilExceptionMetrics(RuntimeException e) {
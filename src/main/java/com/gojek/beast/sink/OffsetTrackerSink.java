@@ -0,0 +1,43 @@
+package com.gojek.beast.sink;
+
+import com.gojek.beast.commiter.OffsetTracker;
+import com.gojek.beast.models.QueueFullStatus;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.stats.Stats;
+import lombok.AllArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Registers the offsets of a batch for committing, before handing the batch over to the sink it wraps.
+ * A batch the wrapped sink turns down as its queue is full is unregistered again, so that it can be pushed once more.
+ */
+@AllArgsConstructor
+public class OffsetTrackerSink implements Sink {
+    private final Stats statsClient = Stats.client();
+    private final OffsetTracker offsetTracker;
+    private final Sink sink;
+
+    @Override
+    public Status push(Records records) {
+        Instant start = Instant.now();
+        boolean registered = offsetTracker.register(records.getPartitionsCommitOffset());
+        statsClient.gauge("committer.pending.batches", offsetTracker.size());
+        statsClient.timeIt("offsetTrackerSink.push.time", start);
+        if (!registered) {
+            statsClient.increment("offsetTrackerSink.push.failures");
+            return new QueueFullStatus("Offset tracker is full for partitions: " + records.getPartitionsCommitOffset().keySet());
+        }
+        Status status = sink.push(records);
+        if (status instanceof QueueFullStatus) {
+            offsetTracker.unregister(records.getPartitionsCommitOffset());
+        }
+        return status;
+    }
+
+    @Override
+    public void close(String reason) {
+        sink.close(reason);
+    }
+}
@@ -2,9 +2,11 @@ package com.gojek.beast.sink;
 
 import com.gojek.beast.config.QueueConfig;
 import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.QueueFullStatus;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
 import com.gojek.beast.stats.Stats;
+import com.gojek.beast.util.ByteBoundedBlockingQueue;
 import lombok.AllArgsConstructor;
 
 import java.time.Instant;
@@ -14,6 +16,7 @@ import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 
 @AllArgsConstructor
 public class RecordsQueueSink implements Sink {
+    private static final int PERCENT = 100;
     private final Stats statsClient = Stats.client();
     private final BlockingQueue<Records> recordQueue;
     private final QueueConfig config;
@@ -25,6 +28,11 @@ public class RecordsQueueSink implements Sink {
         try {
             offered = recordQueue.offer(messages, config.getTimeout(), config.getTimeoutUnit());
             statsClient.gauge("queue.elements,name=" + config.getName(), recordQueue.size());
+            if (recordQueue instanceof ByteBoundedBlockingQueue) {
+                ByteBoundedBlockingQueue<?> queue = (ByteBoundedBlockingQueue<?>) recordQueue;
+                statsClient.gauge("queue.bytes,name=" + config.getName(), queue.getBytes());
+                statsClient.gauge("queue.occupancy.percent,name=" + config.getName(), Math.round(queue.getOccupancy() * PERCENT));
+            }
         } catch (InterruptedException e) {
             return new FailureStatus(e);
         }
@@ -35,7 +43,7 @@ public class RecordsQueueSink implements Sink {
             return SUCCESS_STATUS;
         } else {
             statsClient.increment("readQueueSink.push.failures");
-            return new FailureStatus(new RuntimeException(String.format("%s queue is full with capacity: %d", config.getName(), recordQueue.size())));
+            return new QueueFullStatus(String.format("%s queue is full with capacity: %d", config.getName(), recordQueue.size()));
         }
     }
 
@@ -21,7 +21,7 @@ public class RetrySink implements Sink {
         Instant start = Instant.now();
         Status pushStatus;
 
-        RetryExecutor retryExecutor = new RetryExecutor(sink, records, maxRetryAttempts, backOffProvider);
+        RetryExecutor retryExecutor = new RetryExecutor(sink, records, maxRetryAttempts, backOffProvider, statsClient);
         pushStatus = retryExecutor.execute().status();
 
         statsClient.gauge("RetrySink.queue.push.messages", records.size());
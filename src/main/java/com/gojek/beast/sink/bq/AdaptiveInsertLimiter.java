@@ -0,0 +1,104 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.stats.Stats;
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD limit on the insertAll requests in flight against BQ, shared by all the sinks of the process.
+ * Every request completing in time without overload grows the limit by 1 / limit, i.e. about one per round of requests,
+ * a request signalling overload or exceeding the target latency cuts it by the backoff ratio.
+ * Cuts are applied at most once per target latency, so a burst of failures of the same round shrinks the limit once.
+ * When maxRowsPerSecond is positive, the rows sent per second are limited in proportion to the current limit.
+ */
+@Slf4j
+public class AdaptiveInsertLimiter {
+    private final Stats statsClient = Stats.client();
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final long targetLatencyMs;
+    private final double maxRowsPerSecond;
+    private final RateLimiter rowRateLimiter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition belowLimit = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+
+    public AdaptiveInsertLimiter(int minLimit, int maxLimit, double backoffRatio, long targetLatencyMs, double maxRowsPerSecond) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.rowRateLimiter = maxRowsPerSecond > 0 ? RateLimiter.create(maxRowsPerSecond) : null;
+        this.limit = this.maxLimit;
+        this.lastDecreaseNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+    }
+
+    /**
+     * Blocks until a request of the given rows is allowed to be sent.
+     */
+    public void acquire(int rows) {
+        if (rowRateLimiter != null && rows > 0) {
+            rowRateLimiter.acquire(rows);
+        }
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                belowLimit.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands back a permit taken with {@link #acquire(int)}, adjusting the limit on the outcome of the request.
+     */
+    public void release(long latencyMs, boolean overloaded) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (overloaded || latencyMs > targetLatencyMs) {
+                decrease(latencyMs, overloaded);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (rowRateLimiter != null) {
+                rowRateLimiter.setRate(maxRowsPerSecond * limit / maxLimit);
+            }
+            belowLimit.signalAll();
+            statsClient.gauge("bq.limiter.limit", (long) limit);
+            statsClient.gauge("bq.limiter.inflight", inFlight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(long latencyMs, boolean overloaded) {
+        long now = System.nanoTime();
+        if (now - lastDecreaseNanos < TimeUnit.MILLISECONDS.toNanos(targetLatencyMs)) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        limit = Math.max(minLimit, limit * backoffRatio);
+        statsClient.increment("bq.limiter.decreases,overloaded=" + overloaded);
+        log.info("Cut BQ insert limit to {} after a request of {} ms, overloaded: {}", (int) limit, latencyMs, overloaded);
+    }
+}
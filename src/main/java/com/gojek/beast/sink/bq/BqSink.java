@@ -1,5 +1,7 @@
 package com.gojek.beast.sink.bq;
 
+import com.gojek.beast.backoff.BackOffProvider;
+import com.gojek.beast.exception.UnsupportedColumnValueException;
 import com.gojek.beast.models.Record;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
@@ -11,85 +13,248 @@ import com.gojek.beast.sink.dlq.ErrorWriter;
 import com.gojek.beast.sink.dlq.RecordsErrorType;
 import com.gojek.beast.stats.Stats;
 import com.google.cloud.bigquery.BigQuery;
-import com.google.cloud.bigquery.InsertAllRequest;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.InsertAllResponse;
 import com.google.cloud.bigquery.TableId;
-import com.google.common.collect.ImmutableMap;
-import lombok.AllArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.google.cloud.bigquery.InsertAllRequest.Builder;
 import static com.google.cloud.bigquery.InsertAllRequest.newBuilder;
 
 @Slf4j
-@AllArgsConstructor
 public class BqSink implements Sink {
+    // error reasons BQ answers with when it can't keep up with the inserts
+    private static final Set<String> OVERLOAD_REASONS = new HashSet<>(Arrays.asList("quotaExceeded", "rateLimitExceeded", "backendError", "timeout"));
 
     private final BigQuery bigquery;
     private final TableId tableId;
     private final BQResponseParser responseParser;
     private final BQRow recordInserter;
     private final ErrorWriter errorWriter;
+    private final int maxRequestRows;
+    private final long maxRequestBytes;
+    // rows failing for retryable reasons are resent on their own, backing off before each attempt
+    @Setter
+    private BackOffProvider rowRetryBackOff = attempt -> { };
+    @Setter
+    private int maxRowRetryAttempts = 1;
+    // paces the insertAll requests of all the sinks of the process, none when not set
+    @Setter
+    private AdaptiveInsertLimiter insertLimiter;
+    // resends slow requests, only to be set when rows carry insertIds
+    @Setter
+    private InsertHedger insertHedger;
+    // writes the rows straight into the request body, the BQ client is only used for the rows it can't write
+    @Setter
+    private JsonInsertAllClient jsonInsertAllClient;
+    // rows it finds BQ would reject are not sent, they go to the error writer along with the OOB rows BQ rejects
+    @Setter
+    private RowValidator rowValidator;
 
     private final Stats statsClient = Stats.client();
 
+    public BqSink(BigQuery bigquery, TableId tableId, BQResponseParser responseParser, BQRow recordInserter, ErrorWriter errorWriter) {
+        this(bigquery, tableId, responseParser, recordInserter, errorWriter, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Records of a batch are inserted with as many insertAll requests as needed to keep each
+     * within maxRequestRows rows and maxRequestBytes bytes of the rows estimated as JSON.
+     */
+    public BqSink(BigQuery bigquery, TableId tableId, BQResponseParser responseParser, BQRow recordInserter, ErrorWriter errorWriter,
+                  int maxRequestRows, long maxRequestBytes) {
+        this.bigquery = bigquery;
+        this.tableId = tableId;
+        this.responseParser = responseParser;
+        this.recordInserter = recordInserter;
+        this.errorWriter = errorWriter;
+        this.maxRequestRows = maxRequestRows;
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
     @Override
     public Status push(Records records) {
-        InsertAllResponse response = insertIntoBQ(records.getRecords());
-        if (response.hasErrors()) {
+        List<Record> batch = records.getRecords();
+        List<Record> rows = batch;
+        Map<RecordsErrorType, List<Record>> errorRecords = new EnumMap<>(RecordsErrorType.class);
+        if (rowValidator != null) {
+            rows = rowValidator.validate(rows, errorRecords);
+        }
+        Map<Long, List<BigQueryError>> insertErrors = rows.isEmpty() ? Collections.emptyMap() : insertIntoBQ(rows);
+        if (!insertErrors.isEmpty()) {
             //parse the error records
-            BQFilteredResponse filteredResponse = responseParser.parseResponse(records.getRecords(), response);
+            BQFilteredResponse filteredResponse = responseParser.parseInsertErrors(rows, insertErrors);
 
             // if batch contains records that we can't really handle, fail whole batch
             List<Record> unhandledRecords = filteredResponse.getUnhandledRecords();
             if (!unhandledRecords.isEmpty()) {
                 log.error("Batch with records size: {} contains invalid records, marking this batch to fail", unhandledRecords.size());
                 statsClient.gauge("record.processing.failure,type=invalid," + statsClient.getBqTags(), unhandledRecords.size());
-                return new InsertStatus(false, response.getInsertErrors());
+                return new InsertStatus(false, toBatchIndices(insertErrors, rows, batch));
             }
+            List<Record> oobRecords = new ArrayList<>(filteredResponse.getOobRecords());
 
-            // retryable records
+            // retryable records, resent on their own until they go through or the attempts run out
             List<Record> retryableRecords = filteredResponse.getRetryableRecords();
-            if (!retryableRecords.isEmpty()) {
-                // try inserting valid records into bq
-                InsertAllResponse retriedResponse = insertIntoBQ(retryableRecords);
-                if (retriedResponse.hasErrors()) {
+            List<Record> insertedRows = rows;
+            int attempt = 0;
+            while (!retryableRecords.isEmpty()) {
+                if (attempt >= maxRowRetryAttempts) {
                     statsClient.gauge("record.processing.failure,type=retry," + statsClient.getBqTags(), retryableRecords.size());
-                    return new InsertStatus(false, retriedResponse.getInsertErrors());
+                    return new InsertStatus(false, toBatchIndices(insertErrors, insertedRows, batch));
                 }
+                rowRetryBackOff.backOff(attempt++);
+                statsClient.count("bq.sink.retried.rows," + statsClient.getBqTags(), retryableRecords.size());
+                insertedRows = retryableRecords;
+                insertErrors = insertIntoBQ(insertedRows);
+                if (insertErrors.isEmpty()) {
+                    break;
+                }
+                filteredResponse = responseParser.parseInsertErrors(retryableRecords, insertErrors);
+                if (!filteredResponse.getUnhandledRecords().isEmpty()) {
+                    log.error("Retried records size: {} contain invalid records, marking this batch to fail", filteredResponse.getUnhandledRecords().size());
+                    statsClient.gauge("record.processing.failure,type=invalid," + statsClient.getBqTags(), filteredResponse.getUnhandledRecords().size());
+                    return new InsertStatus(false, toBatchIndices(insertErrors, insertedRows, batch));
+                }
+                oobRecords.addAll(filteredResponse.getOobRecords());
+                retryableRecords = filteredResponse.getRetryableRecords();
             }
 
-            // DLQ sinkable records
-            List<Record> oobRecords = filteredResponse.getOobRecords();
             if (!oobRecords.isEmpty()) {
-                log.warn("Error handler parsed OOB records size {}, handoff to the writer {}", oobRecords.size(), errorWriter.getClass().getSimpleName());
-                statsClient.count("kafka.error.records.count,type=oob," + statsClient.getBqTags(), oobRecords.size());
-                final Status dlqStatus = errorWriter.writeRecords(ImmutableMap.of(RecordsErrorType.OOB, oobRecords));
-                if (!dlqStatus.isSuccess()) {
-                    log.error("Batch with records size: {} contains DLQ sinkable records but failed to sink", oobRecords.size());
-                    return dlqStatus;
-                }
+                errorRecords.computeIfAbsent(RecordsErrorType.OOB, type -> new ArrayList<>()).addAll(oobRecords);
+            }
+        }
+
+        // DLQ sinkable records, once the others are inserted
+        if (!errorRecords.isEmpty()) {
+            errorRecords.forEach((type, typeRecords) -> {
+                log.warn("Error handler parsed {} records size {}, handoff to the writer {}", type, typeRecords.size(), errorWriter.getClass().getSimpleName());
+                statsClient.count("kafka.error.records.count,type=" + type.name().toLowerCase() + "," + statsClient.getBqTags(), typeRecords.size());
+            });
+            final Status dlqStatus = errorWriter.writeRecords(errorRecords);
+            if (!dlqStatus.isSuccess()) {
+                log.error("Batch with records size: {} contains DLQ sinkable records but failed to sink", errorRecords.values().stream().mapToInt(List::size).sum());
+                return dlqStatus;
             }
         }
 
         return new InsertStatus(true, Collections.emptyMap());
     }
 
-    private InsertAllResponse insertIntoBQ(List<Record> records) {
+    // insert errors keyed by the index of their row in the batch, rather than in the rows inserted
+    private static Map<Long, List<BigQueryError>> toBatchIndices(Map<Long, List<BigQueryError>> insertErrors, List<Record> insertedRows, List<Record> batch) {
+        if (insertedRows == batch) {
+            return insertErrors;
+        }
+        Map<Record, Long> batchIndices = new IdentityHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            batchIndices.put(batch.get(i), (long) i);
+        }
+        Map<Long, List<BigQueryError>> batchErrors = new HashMap<>();
+        insertErrors.forEach((index, errors) -> batchErrors.put(batchIndices.get(insertedRows.get(index.intValue())), errors));
+        return batchErrors;
+    }
+
+    /**
+     * @return insert errors of the records, keyed by their index in records
+     */
+    private Map<Long, List<BigQueryError>> insertIntoBQ(List<Record> records) {
+        Map<Long, List<BigQueryError>> insertErrors = new HashMap<>();
+        int requestStart = 0;
+        long requestBytes = 0;
+        for (int i = 0; i < records.size(); i++) {
+            long recordBytes = records.get(i).getJsonSize();
+            int requestRows = i - requestStart;
+            if (requestRows > 0 && (requestRows >= maxRequestRows || requestBytes + recordBytes > maxRequestBytes)) {
+                insertErrors.putAll(insertRequest(records, requestStart, i));
+                requestStart = i;
+                requestBytes = 0;
+            }
+            requestBytes += recordBytes;
+        }
+        if (requestStart < records.size()) {
+            insertErrors.putAll(insertRequest(records, requestStart, records.size()));
+        }
+        return insertErrors;
+    }
+
+    private Map<Long, List<BigQueryError>> insertRequest(List<Record> records, int fromIndex, int toIndex) {
         Instant start = Instant.now();
-        Builder builder = newBuilder(tableId);
-        records.forEach((Record m) -> builder.addRow(recordInserter.of(m)));
-        InsertAllRequest rows = builder.build();
-        InsertAllResponse response = bigquery.insertAll(rows);
+        List<Record> requestRecords = records.subList(fromIndex, toIndex);
+        Map<Long, List<BigQueryError>> requestErrors = insertHedger == null
+                ? insertAll(requestRecords)
+                : insertHedger.insertAll(() -> insertAll(requestRecords));
 
-        log.info("Pushed a batch of {} records to BQ. Insert success?: {}", records.size(), !response.hasErrors());
-        statsClient.count("bq.sink.push.records", records.size());
+        log.info("Pushed a batch of {} records to BQ. Insert success?: {}", requestRecords.size(), requestErrors.isEmpty());
+        statsClient.count("bq.sink.push.records", requestRecords.size());
+        statsClient.increment("bq.sink.push.requests");
         statsClient.timeIt("bq.sink.push.time", start);
-        return response;
+        if (requestErrors.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // indices of the response are relative to the request
+        Map<Long, List<BigQueryError>> insertErrors = new HashMap<>();
+        requestErrors.forEach((index, errors) -> insertErrors.put(fromIndex + index, errors));
+        countErrorReasons(insertErrors);
+        return insertErrors;
+    }
+
+    private Map<Long, List<BigQueryError>> insertAll(List<Record> requestRecords) {
+        if (insertLimiter == null) {
+            return send(requestRecords);
+        }
+        insertLimiter.acquire(requestRecords.size());
+        long start = System.currentTimeMillis();
+        boolean overloaded = false;
+        try {
+            Map<Long, List<BigQueryError>> requestErrors = send(requestRecords);
+            overloaded = requestErrors.values().stream()
+                    .flatMap(List::stream)
+                    .anyMatch(error -> OVERLOAD_REASONS.contains(error.getReason()));
+            return requestErrors;
+        } catch (BigQueryException e) {
+            overloaded = e.isRetryable() || OVERLOAD_REASONS.contains(e.getReason());
+            throw e;
+        } finally {
+            insertLimiter.release(System.currentTimeMillis() - start, overloaded);
+        }
+    }
+
+    private Map<Long, List<BigQueryError>> send(List<Record> requestRecords) {
+        if (jsonInsertAllClient != null) {
+            try {
+                return jsonInsertAllClient.insertAll(requestRecords);
+            } catch (UnsupportedColumnValueException e) {
+                statsClient.increment("bq.sink.json.fallback");
+                log.warn("Falling back to the BQ client to insert {} records: {}", requestRecords.size(), e.getMessage());
+            }
+        }
+        Builder builder = newBuilder(tableId);
+        requestRecords.forEach((Record m) -> builder.addRow(recordInserter.of(m)));
+        InsertAllResponse response = bigquery.insertAll(builder.build());
+        return response.hasErrors() ? response.getInsertErrors() : Collections.emptyMap();
+    }
+
+    private void countErrorReasons(Map<Long, List<BigQueryError>> insertErrors) {
+        Map<String, Long> rowsByReason = insertErrors.values().stream()
+                .flatMap(errors -> errors.stream().map(error -> String.valueOf(error.getReason())).distinct())
+                .collect(Collectors.groupingBy(reason -> reason, Collectors.counting()));
+        rowsByReason.forEach((reason, rows) -> statsClient.count("bq.sink.row.errors,reason=" + reason + "," + statsClient.getBqTags(), rows));
     }
 
     @Override
@@ -0,0 +1,82 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.stats.Stats;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzips the bodies of insertAll requests of at least minBytes, smaller ones are sent as they are.
+ * Runs ahead of the interceptors of the client so that the length and encoding headers are set for the compressed body.
+ * Bodies already encoded are left as they are, BQ clients take {@link GzipInsertAllTransportOptions} for theirs not to be.
+ */
+public class GzipInsertAllInterceptor implements HttpRequestInterceptor {
+    private static final String GZIP = "gzip";
+    private static final int PERCENT = 100;
+    private final Stats statsClient = Stats.client();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final long minBytes;
+
+    public GzipInsertAllInterceptor(long minBytes) {
+        this.minBytes = minBytes;
+    }
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) throws IOException {
+        if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HTTP.CONTENT_ENCODING) || !isInsertAll(request)) {
+            return;
+        }
+        HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest) request;
+        HttpEntity entity = entityRequest.getEntity();
+        if (entity == null || entity.getContentEncoding() != null || (entity.getContentLength() >= 0 && entity.getContentLength() < minBytes)) {
+            return;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        entity.writeTo(body);
+        if (body.size() < minBytes) {
+            entityRequest.setEntity(withContentType(new ByteArrayEntity(body.toByteArray()), entity));
+            return;
+        }
+
+        long cpuStart = cpuTimeNanos();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            body.writeTo(gzip);
+        }
+        statsClient.count("bq.sink.gzip.cpu.micros", TimeUnit.NANOSECONDS.toMicros(cpuTimeNanos() - cpuStart));
+        statsClient.count("bq.sink.gzip.bytes.in", body.size());
+        statsClient.count("bq.sink.gzip.bytes.out", compressed.size());
+        statsClient.gauge("bq.sink.gzip.ratio.percent", (long) compressed.size() * PERCENT / body.size());
+
+        ByteArrayEntity gzipped = withContentType(new ByteArrayEntity(compressed.toByteArray()), entity);
+        gzipped.setContentEncoding(GZIP);
+        entityRequest.setEntity(gzipped);
+    }
+
+    private boolean isInsertAll(HttpRequest request) {
+        String path = URI.create(request.getRequestLine().getUri()).getPath();
+        return path != null && path.endsWith("/insertAll");
+    }
+
+    private ByteArrayEntity withContentType(ByteArrayEntity entity, HttpEntity original) {
+        entity.setContentType(original.getContentType());
+        return entity;
+    }
+
+    // falls back to wall clock time where the JVM doesn't measure thread cpu time
+    private long cpuTimeNanos() {
+        return threadMXBean.isCurrentThreadCpuTimeSupported() ? threadMXBean.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
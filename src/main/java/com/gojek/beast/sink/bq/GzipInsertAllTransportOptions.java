@@ -0,0 +1,42 @@
+package com.gojek.beast.sink.bq;
+
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.cloud.ServiceOptions;
+import com.google.cloud.http.HttpTransportOptions;
+
+/**
+ * Transport options of BQ clients that leave the compression of insertAll bodies to the {@link GzipInsertAllInterceptor} of the transport.
+ * The client gzips every request body it sends, so that otherwise the interceptor would only ever see compressed insertAll bodies.
+ */
+public class GzipInsertAllTransportOptions extends HttpTransportOptions {
+    private static final String INSERT_ALL_PATH = "/insertAll";
+
+    public GzipInsertAllTransportOptions(Builder builder) {
+        super(builder);
+    }
+
+    @Override
+    public HttpRequestInitializer getHttpRequestInitializer(ServiceOptions<?, ?> serviceOptions) {
+        HttpRequestInitializer initializer = super.getHttpRequestInitializer(serviceOptions);
+        return request -> {
+            initializer.initialize(request);
+            // the client sets its encoding after the initializer, it is cleared once the request is executed
+            HttpExecuteInterceptor credentials = request.getInterceptor();
+            request.setInterceptor(executed -> {
+                if (credentials != null) {
+                    credentials.intercept(executed);
+                }
+                if (isInsertAll(executed)) {
+                    executed.setEncoding(null);
+                }
+            });
+        };
+    }
+
+    private static boolean isInsertAll(HttpRequest request) {
+        String path = request.getUrl().getRawPath();
+        return path != null && path.endsWith(INSERT_ALL_PATH);
+    }
+}
@@ -0,0 +1,74 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.consumer.BacklogWatermark;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.load.LoadJobSink;
+import com.gojek.beast.stats.Stats;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams batches while the pipeline keeps up, and loads them with load jobs while it drains a backlog.
+ * It switches to loading once the backlog reaches its high watermark, and back to streaming only once it's down to its low watermark,
+ * the backlog being checked at most once per check interval.
+ * Batches are acknowledged by the sink they went to: right away when streamed, once their file is loaded when loaded,
+ * the committer waiting on loaded ones past its acknowledgement timeout.
+ */
+@Slf4j
+public class HybridSink implements Sink {
+    private final Stats statsClient = Stats.client();
+    private final Sink streamingSink;
+    private final LoadJobSink loadJobSink;
+    private final BacklogWatermark backlog;
+    private final long checkIntervalMs;
+    private final Clock clock;
+    private boolean loading;
+    private long nextCheckAt;
+
+    public HybridSink(Sink streamingSink, LoadJobSink loadJobSink, BacklogWatermark backlog, long checkIntervalMs, Clock clock) {
+        this.streamingSink = streamingSink;
+        this.loadJobSink = loadJobSink;
+        this.backlog = backlog;
+        this.checkIntervalMs = checkIntervalMs;
+        this.clock = clock;
+    }
+
+    @Override
+    public Status push(Records records) {
+        if (isLoading()) {
+            statsClient.count("bq.sink.hybrid.rows,mode=load", records.size());
+            return loadJobSink.push(records);
+        }
+        statsClient.count("bq.sink.hybrid.rows,mode=stream", records.size());
+        return streamingSink.push(records);
+    }
+
+    @Override
+    public void close(String reason) {
+        streamingSink.close(reason);
+        loadJobSink.close(reason);
+    }
+
+    private synchronized boolean isLoading() {
+        long now = clock.currentEpochMillis();
+        if (now < nextCheckAt) {
+            return loading;
+        }
+        nextCheckAt = now + checkIntervalMs;
+        if (!loading && backlog.isHigh()) {
+            log.info("Switching to load jobs, backlog {} is above its high watermark", backlog);
+            loading = true;
+            statsClient.increment("bq.sink.hybrid.switches,mode=load");
+        } else if (loading && backlog.isLow()) {
+            log.info("Switching to streaming, backlog {} is below its low watermark", backlog);
+            loading = false;
+            statsClient.increment("bq.sink.hybrid.switches,mode=stream");
+            // the rows still in the open file are loaded right away rather than once it gets old
+            loadJobSink.flush();
+        }
+        statsClient.gauge("bq.sink.hybrid.loading", loading ? 1 : 0);
+        return loading;
+    }
+}
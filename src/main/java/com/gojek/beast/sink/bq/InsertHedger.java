@@ -0,0 +1,129 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.backoff.RetryBudget;
+import com.gojek.beast.stats.Stats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second, identical insertAll request when the first hasn't returned within the given percentile
+ * of the latencies of recent requests, and takes the response of whichever succeeds first.
+ * Only safe with row insertIds, which let BQ deduplicate the rows of both requests.
+ * Hedges are paid for out of a budget filled by a share of the requests.
+ */
+@Slf4j
+public class InsertHedger {
+    private static final int LATENCY_WINDOW = 100;
+    private final Stats statsClient = Stats.client();
+    private final ExecutorService executor;
+    private final double percentile;
+    private final long minDelayMs;
+    private final RetryBudget budget;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+
+    public InsertHedger(ExecutorService executor, double percentile, long minDelayMs, RetryBudget budget) {
+        this.executor = executor;
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.budget = budget;
+    }
+
+    public <T> T insertAll(Supplier<T> insert) {
+        budget.deposit(1);
+        long hedgeDelayMs = hedgeDelayMs();
+        CompletableFuture<T> primary = timed(insert);
+        if (hedgeDelayMs < 0) {
+            return join(primary);
+        }
+        try {
+            return primary.get(hedgeDelayMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return hedge(primary, insert);
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return join(primary);
+        }
+    }
+
+    /**
+     * @return the latency at the percentile of the recent requests, -1 until there are enough of them
+     */
+    synchronized long hedgeDelayMs() {
+        if (latencyCount < LATENCY_WINDOW) {
+            return -1;
+        }
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.min(LATENCY_WINDOW - 1, Math.ceil(percentile * LATENCY_WINDOW) - 1);
+        return Math.max(minDelayMs, sorted[Math.max(0, index)]);
+    }
+
+    private synchronized void recordLatency(long latencyMs) {
+        latencies[latencyCount++ % LATENCY_WINDOW] = latencyMs;
+        if (latencyCount == 2 * LATENCY_WINDOW) {
+            latencyCount = LATENCY_WINDOW;
+        }
+    }
+
+    private <T> T hedge(CompletableFuture<T> primary, Supplier<T> insert) {
+        if (!budget.tryWithdraw(1)) {
+            statsClient.increment("bq.sink.hedge.denied");
+            return join(primary);
+        }
+        statsClient.increment("bq.sink.hedge.requests");
+        CompletableFuture<T> hedged = timed(insert);
+        CompletableFuture<T> first = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> request : Arrays.asList(primary, hedged)) {
+            request.whenComplete((response, throwable) -> {
+                if (throwable == null) {
+                    first.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    first.completeExceptionally(throwable);
+                }
+            });
+        }
+        T response = join(first);
+        // the request still running is left to finish, its rows are deduplicated by their insertIds
+        if (!primary.isDone() || primary.isCompletedExceptionally()) {
+            statsClient.increment("bq.sink.hedge.wins");
+        }
+        return response;
+    }
+
+    private <T> CompletableFuture<T> timed(Supplier<T> insert) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            T response = insert.get();
+            recordLatency(System.currentTimeMillis() - start);
+            return response;
+        }, executor);
+    }
+
+    private <T> T join(CompletableFuture<T> request) {
+        try {
+            return request.join();
+        } catch (CompletionException e) {
+            throw rethrow(e.getCause());
+        }
+    }
+
+    private RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new RuntimeException(cause);
+    }
+}
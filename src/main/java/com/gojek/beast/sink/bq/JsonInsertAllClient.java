@@ -0,0 +1,152 @@
+package com.gojek.beast.sink.bq;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.gojek.beast.exception.UnsupportedColumnValueException;
+import com.gojek.beast.models.Record;
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.TableId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends insertAll requests with the JSON of the rows written by a streaming generator straight from the columns of the records,
+ * instead of the BQ client copying the columns into rows of its own and serializing those.
+ * The body is written into a buffer reused by the requests of a thread, so that a column value that can't be written
+ * fails the request with {@link UnsupportedColumnValueException} before anything is sent.
+ */
+public class JsonInsertAllClient {
+    private static final String INSERT_ALL_URL = "https://bigquery.googleapis.com/bigquery/v2/projects/%s/datasets/%s/tables/%s/insertAll";
+    private static final String JSON_TYPE = "application/json; charset=UTF-8";
+    private static final int MAX_RETAINED_BUFFER_BYTES = 1024 * 1024;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private final ThreadLocal<RequestBuffer> buffers = ThreadLocal.withInitial(RequestBuffer::new);
+    private final HttpRequestFactory requestFactory;
+    private final GenericUrl url;
+    private final boolean withInsertIds;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    /**
+     * Negative timeouts leave the defaults of the transport.
+     */
+    public JsonInsertAllClient(HttpTransport transport, HttpRequestInitializer initializer, TableId tableId, boolean withInsertIds,
+                               int connectTimeoutMs, int readTimeoutMs) {
+        this.requestFactory = transport.createRequestFactory(initializer);
+        this.url = new GenericUrl(String.format(INSERT_ALL_URL, tableId.getProject(), tableId.getDataset(), tableId.getTable()));
+        this.withInsertIds = withInsertIds;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * @return insert errors of the records, keyed by their index in records
+     */
+    public Map<Long, List<BigQueryError>> insertAll(List<Record> records) {
+        RequestBuffer buffer = buffers.get();
+        buffer.reset();
+        try {
+            writeRows(records, buffer);
+            HttpRequest request = requestFactory.buildPostRequest(url, new ByteArrayContent(JSON_TYPE, buffer.bytes(), 0, buffer.size()));
+            if (connectTimeoutMs >= 0) {
+                request.setConnectTimeout(connectTimeoutMs);
+            }
+            if (readTimeoutMs >= 0) {
+                request.setReadTimeout(readTimeoutMs);
+            }
+            request.setThrowExceptionOnExecuteError(false);
+            HttpResponse response = request.execute();
+            try {
+                return parseResponse(response);
+            } finally {
+                response.disconnect();
+            }
+        } catch (IOException e) {
+            throw new BigQueryException(e);
+        } finally {
+            if (buffer.bytes().length > MAX_RETAINED_BUFFER_BYTES) {
+                buffers.remove();
+            }
+        }
+    }
+
+    void writeRows(List<Record> records, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("rows");
+            for (Record record : records) {
+                generator.writeStartObject();
+                if (withInsertIds) {
+                    generator.writeStringField("insertId", record.getId());
+                }
+                generator.writeFieldName("json");
+                JsonColumnWriter.writeValue(generator, record.getColumns() == null ? Collections.emptyMap() : record.getColumns());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private Map<Long, List<BigQueryError>> parseResponse(HttpResponse response) throws IOException {
+        InputStream content = response.getContent();
+        JsonNode body = content == null ? null : MAPPER.readTree(content);
+        if (body == null) {
+            body = MissingNode.getInstance();
+        }
+        if (!response.isSuccessStatusCode()) {
+            JsonNode error = body.path("error");
+            String message = error.path("message").asText(response.getStatusMessage());
+            JsonNode firstError = error.path("errors").path(0);
+            throw firstError.isMissingNode()
+                    ? new BigQueryException(response.getStatusCode(), message)
+                    : new BigQueryException(response.getStatusCode(), message, toError(firstError));
+        }
+        JsonNode insertErrors = body.path("insertErrors");
+        if (insertErrors.size() == 0) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<BigQueryError>> errors = new HashMap<>();
+        for (JsonNode insertError : insertErrors) {
+            List<BigQueryError> rowErrors = new ArrayList<>();
+            insertError.path("errors").forEach(error -> rowErrors.add(toError(error)));
+            errors.put(insertError.path("index").asLong(), rowErrors);
+        }
+        return errors;
+    }
+
+    private BigQueryError toError(JsonNode error) {
+        return new BigQueryError(text(error, "reason"), text(error, "location"), text(error, "message"), text(error, "debugInfo"));
+    }
+
+    private String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static final class RequestBuffer extends ByteArrayOutputStream {
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.stats.Stats;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.cloud.http.HttpTransportOptions;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands every BQ client the same keep-alive HTTP transport, so that the connections of its pool are reused
+ * across the sinks instead of every client setting up connections of its own.
+ */
+public class PooledHttpTransportFactory implements HttpTransportOptions.HttpTransportFactory {
+    private final Stats statsClient = Stats.client();
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final HttpTransport transport;
+
+    public PooledHttpTransportFactory(int maxConnections, int maxConnectionsPerRoute, long keepAliveMs) {
+        this(maxConnections, maxConnectionsPerRoute, keepAliveMs, Collections.emptyList());
+    }
+
+    /**
+     * The request interceptors run ahead of those of the HTTP client, in the given order.
+     */
+    public PooledHttpTransportFactory(int maxConnections, int maxConnectionsPerRoute, long keepAliveMs, List<HttpRequestInterceptor> requestInterceptors) {
+        connectionManager = new TimedConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        // redirects and retries are left to the google client, as with its default transport
+        HttpClientBuilder clientBuilder = HttpClientBuilder.create();
+        for (int i = requestInterceptors.size() - 1; i >= 0; i--) {
+            clientBuilder.addInterceptorFirst(requestInterceptors.get(i));
+        }
+        transport = new ApacheHttpTransport(clientBuilder
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> keepAliveMs)
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .setRoutePlanner(new SystemDefaultRoutePlanner(ProxySelector.getDefault()))
+                .setRequestExecutor(new ReuseCountingRequestExecutor())
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build());
+    }
+
+    @Override
+    public HttpTransport create() {
+        return transport;
+    }
+
+    private final class TimedConnectionManager extends PoolingHttpClientConnectionManager {
+        @Override
+        public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+            Instant start = Instant.now();
+            super.connect(managedConn, route, connectTimeout, context);
+            statsClient.timeIt("bq.http.connection.setup.time", start);
+            statsClient.increment("bq.http.connections.created");
+        }
+    }
+
+    private final class ReuseCountingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+            // requests sent before this one on the connection
+            boolean reused = conn.getMetrics().getRequestCount() > 0;
+            statsClient.increment("bq.http.requests,connection=" + (reused ? "reused" : "new"));
+            PoolStats poolStats = connectionManager.getTotalStats();
+            statsClient.gauge("bq.http.pool.leased", poolStats.getLeased());
+            statsClient.gauge("bq.http.pool.available", poolStats.getAvailable());
+            return super.execute(request, conn, context);
+        }
+    }
+}
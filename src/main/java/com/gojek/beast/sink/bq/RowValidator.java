@@ -0,0 +1,116 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.sink.dlq.RecordsErrorType;
+import com.google.api.client.util.DateTime;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Finds the rows BQ would reject, so that they're handed to the error writer instead of failing the insert of their batch:
+ * rows with a partition key outside the partitions BQ takes inserts into, rows missing values of REQUIRED fields, and rows too large to insert.
+ */
+public class RowValidator {
+    private final Supplier<List<Field>> schema;
+    private final String partitionKey;
+    private final long maxPastMs;
+    private final long maxFutureMs;
+    private final long maxRowBytes;
+    private final Clock clock;
+    private volatile List<Field> checkedSchema;
+    private volatile boolean requiredFields;
+
+    /**
+     * @param schema       the current BQ schema of the table
+     * @param partitionKey the timestamp column the table is partitioned on, none when null
+     */
+    public RowValidator(Supplier<List<Field>> schema, String partitionKey, long maxPastDays, long maxFutureDays, long maxRowBytes, Clock clock) {
+        this.schema = schema;
+        this.partitionKey = partitionKey;
+        this.maxPastMs = TimeUnit.DAYS.toMillis(maxPastDays);
+        this.maxFutureMs = TimeUnit.DAYS.toMillis(maxFutureDays);
+        this.maxRowBytes = maxRowBytes;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the valid records, the others being added to invalidRecords by their error type
+     */
+    public List<Record> validate(List<Record> records, Map<RecordsErrorType, List<Record>> invalidRecords) {
+        List<Record> validRecords = new ArrayList<>(records.size());
+        long now = clock.currentEpochMillis();
+        for (Record record : records) {
+            RecordsErrorType errorType = validate(record, now);
+            if (errorType == null) {
+                validRecords.add(record);
+            } else {
+                invalidRecords.computeIfAbsent(errorType, type -> new ArrayList<>()).add(record);
+            }
+        }
+        return validRecords;
+    }
+
+    /**
+     * @return the error type of the record, null when valid
+     */
+    public RecordsErrorType validate(Record record, long now) {
+        Map<String, Object> columns = record.getColumns();
+        if (partitionKey != null && columns.get(partitionKey) instanceof DateTime) {
+            long partitionTime = ((DateTime) columns.get(partitionKey)).getValue();
+            if (partitionTime < now - maxPastMs || partitionTime > now + maxFutureMs) {
+                return RecordsErrorType.OOB;
+            }
+        }
+        List<Field> fields = schema.get();
+        if (fields != checkedSchema) {
+            requiredFields = hasRequiredFields(fields);
+            checkedSchema = fields;
+        }
+        if (requiredFields && !hasRequiredValues(fields, columns)) {
+            return RecordsErrorType.INVALID;
+        }
+        if (record.getJsonSize() > maxRowBytes) {
+            return RecordsErrorType.OVERSIZED;
+        }
+        return null;
+    }
+
+    private static boolean hasRequiredFields(Collection<Field> fields) {
+        for (Field field : fields) {
+            if (field.getMode() == Field.Mode.REQUIRED || (field.getSubFields() != null && hasRequiredFields(field.getSubFields()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasRequiredValues(Collection<Field> fields, Map<?, ?> columns) {
+        for (Field field : fields) {
+            Object value = columns.get(field.getName());
+            if (value == null) {
+                if (field.getMode() == Field.Mode.REQUIRED) {
+                    return false;
+                }
+                continue;
+            }
+            if (LegacySQLTypeName.RECORD.equals(field.getType()) && field.getSubFields() != null) {
+                Collection<?> nested = value instanceof Collection ? (Collection<?>) value : Collections.singletonList(value);
+                for (Object element : nested) {
+                    if (element instanceof Map && !hasRequiredValues(field.getSubFields(), (Map<?, ?>) element)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -15,12 +15,8 @@ import java.util.stream.Collectors;
 
 public class BQResponseParser {
 
-    private Map<Record, Set<BQRecordsErrorType>> parseErrors(final List<Record> records, final InsertAllResponse bqResponse) {
-        if (!bqResponse.hasErrors()) {
-            return Collections.emptyMap();
-        }
+    private Map<Record, Set<BQRecordsErrorType>> parseErrors(final List<Record> records, final Map<Long, List<BigQueryError>> insertErrorsMap) {
         Map<Record, Set<BQRecordsErrorType>> parsedRecords = new HashMap<>();
-        Map<Long, List<BigQueryError>> insertErrorsMap = bqResponse.getInsertErrors();
         for (final Map.Entry<Long, List<BigQueryError>> errorEntry : insertErrorsMap.entrySet()) {
             final Record message = records.get(errorEntry.getKey().intValue());
             parsedRecords.put(message, errorTypeList(errorEntry.getValue()));
@@ -44,7 +40,18 @@ public class BQResponseParser {
      * @return {@link BQFilteredResponse} - groups of records that should be handled together
      */
     public BQFilteredResponse parseResponse(final List<Record> records, final InsertAllResponse bqResponse) {
-        Map<Record, Set<BQRecordsErrorType>> filtered = parseErrors(records, bqResponse);
+        return parseInsertErrors(records, bqResponse.hasErrors() ? bqResponse.getInsertErrors() : Collections.emptyMap());
+    }
+
+    /**
+     * Same as {@link #parseResponse(List, InsertAllResponse)}, for the insert errors of the records split over several requests.
+     *
+     * @param records - list of records that were tried with BQ insertion
+     * @param insertErrors - errors of the records that failed, keyed by their index in records
+     * @return {@link BQFilteredResponse} - groups of records that should be handled together
+     */
+    public BQFilteredResponse parseInsertErrors(final List<Record> records, final Map<Long, List<BigQueryError>> insertErrors) {
+        Map<Record, Set<BQRecordsErrorType>> filtered = parseErrors(records, insertErrors);
         final List<Record> retryableRecords = new ArrayList<>();
         final List<Record> unhandledRecords = new ArrayList<>();
         final List<Record> oobRecords = new ArrayList<>();
@@ -52,15 +59,10 @@ public class BQResponseParser {
             final Set<BQRecordsErrorType> errorTypes = recordSet.getValue();
             if (errorTypes.contains(BQRecordsErrorType.INVALID) || errorTypes.contains(BQRecordsErrorType.UNKNOWN)) {
                 unhandledRecords.add(recordSet.getKey());
-                break;
-            }
-            if (errorTypes.contains(BQRecordsErrorType.OOB)) {
+            } else if (errorTypes.contains(BQRecordsErrorType.OOB)) {
                 oobRecords.add(recordSet.getKey());
-                break;
-            }
-            if (errorTypes.contains(BQRecordsErrorType.VALID)) {
+            } else if (errorTypes.contains(BQRecordsErrorType.VALID)) {
                 retryableRecords.add(recordSet.getKey());
-                break;
             }
         }
         return new BQFilteredResponse(retryableRecords, unhandledRecords, oobRecords);
@@ -15,7 +15,8 @@ public class ErrorTypeFactory {
         List<ErrorDescriptor> errDescList = Arrays.asList(
                 new InvalidSchemaError(reasonText, msgText),
                 new OOBError(reasonText, msgText),
-                new StoppedError(reasonText));
+                new StoppedError(reasonText),
+                new TransientError(reasonText));
 
         ErrorDescriptor errorDescriptor = errDescList
                 .stream()
@@ -0,0 +1,30 @@
+package com.gojek.beast.sink.bq.handler.error;
+
+import com.gojek.beast.sink.bq.handler.BQRecordsErrorType;
+import lombok.AllArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+
+@AllArgsConstructor
+/**
+ * Rows failing on the BQ side rather than on their data, due to backend errors, rate limits or timeouts,
+ * can be sent as is again.
+ *
+ * https://cloud.google.com/bigquery/docs/error-messages
+ * */
+public class TransientError implements ErrorDescriptor {
+    private static final List<String> TRANSIENT_REASONS = Arrays.asList("backendError", "internalError", "rateLimitExceeded", "timeout");
+
+    private final String reason;
+
+    @Override
+    public BQRecordsErrorType getType() {
+        return BQRecordsErrorType.VALID;
+    }
+
+    @Override
+    public boolean matches() {
+        return TRANSIENT_REASONS.contains(reason);
+    }
+}
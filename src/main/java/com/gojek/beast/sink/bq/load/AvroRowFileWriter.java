@@ -0,0 +1,151 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.gojek.beast.exception.UnsupportedColumnValueException;
+import com.google.api.client.util.DateTime;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.common.io.CountingOutputStream;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes rows to an Avro container file, with the schema derived from the BQ schema of the table.
+ * Timestamps are written as timestamp-micros, which load jobs take as TIMESTAMP with logical types enabled.
+ */
+public class AvroRowFileWriter implements RowFileWriter {
+    private static final String ROW_RECORD_NAME = "BeastRow";
+    private static final int DEFLATE_LEVEL = 1;
+    private final CountingOutputStream out;
+    private final DataFileWriter<GenericRecord> writer;
+    private final Schema schema;
+
+    public AvroRowFileWriter(File file, List<Field> fields) throws IOException {
+        this.schema = toSchema(ROW_RECORD_NAME, fields);
+        this.out = new CountingOutputStream(new FileOutputStream(file));
+        this.writer = new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(schema))
+                .setCodec(CodecFactory.deflateCodec(DEFLATE_LEVEL))
+                .create(schema, out);
+    }
+
+    @Override
+    public void write(Map<String, Object> columns) throws IOException {
+        writer.append(toRecord(schema, columns));
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return out.getCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Columns are nullable, except for repeated ones which BQ takes as empty arrays instead.
+     */
+    static Schema toSchema(String recordName, List<Field> fields) {
+        List<Schema.Field> avroFields = new ArrayList<>(fields.size());
+        for (Field field : fields) {
+            Schema type = toSchema(recordName, field);
+            if (field.getMode() == Field.Mode.REPEATED) {
+                avroFields.add(new Schema.Field(field.getName(), Schema.createArray(type), null, Collections.emptyList()));
+            } else {
+                avroFields.add(new Schema.Field(field.getName(), Schema.createUnion(Schema.create(Schema.Type.NULL), type), null, JsonProperties.NULL_VALUE));
+            }
+        }
+        return Schema.createRecord(recordName, null, null, false, avroFields);
+    }
+
+    private static Schema toSchema(String recordName, Field field) {
+        LegacySQLTypeName type = field.getType();
+        if (LegacySQLTypeName.RECORD.equals(type)) {
+            // record names have to be unique within the schema
+            return toSchema(recordName + "_" + field.getName(), field.getSubFields());
+        }
+        if (LegacySQLTypeName.INTEGER.equals(type)) {
+            return Schema.create(Schema.Type.LONG);
+        }
+        if (LegacySQLTypeName.FLOAT.equals(type)) {
+            return Schema.create(Schema.Type.DOUBLE);
+        }
+        if (LegacySQLTypeName.BOOLEAN.equals(type)) {
+            return Schema.create(Schema.Type.BOOLEAN);
+        }
+        if (LegacySQLTypeName.BYTES.equals(type)) {
+            return Schema.create(Schema.Type.BYTES);
+        }
+        if (LegacySQLTypeName.TIMESTAMP.equals(type)) {
+            return LogicalTypes.timestampMicros().addToSchema(Schema.create(Schema.Type.LONG));
+        }
+        return Schema.create(Schema.Type.STRING);
+    }
+
+    static GenericRecord toRecord(Schema schema, Map<?, ?> columns) {
+        GenericData.Record record = new GenericData.Record(schema);
+        for (Schema.Field field : schema.getFields()) {
+            record.put(field.pos(), toValue(field.schema(), columns.get(field.name())));
+        }
+        return record;
+    }
+
+    private static Object toValue(Schema schema, Object value) {
+        if (schema.getType() == Schema.Type.ARRAY) {
+            if (value == null) {
+                return Collections.emptyList();
+            }
+            List<Object> elements = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                elements.add(toValue(schema.getElementType(), element));
+            }
+            return elements;
+        }
+        if (value == null) {
+            return null;
+        }
+        Schema type = schema.getType() == Schema.Type.UNION ? schema.getTypes().get(1) : schema;
+        switch (type.getType()) {
+            case RECORD:
+                return toRecord(type, (Map<?, ?>) value);
+            case LONG:
+                if (value instanceof DateTime) {
+                    return TimeUnit.MILLISECONDS.toMicros(((DateTime) value).getValue());
+                }
+                return ((Number) value).longValue();
+            case DOUBLE:
+                return ((Number) value).doubleValue();
+            case BOOLEAN:
+                return value;
+            case BYTES:
+                // the converters give bytes as base64, the way insertAll takes them
+                return ByteBuffer.wrap(Base64.getDecoder().decode((String) value));
+            case STRING:
+                return value instanceof Map || value instanceof Collection ? unsupported(value) : value.toString();
+            default:
+                return unsupported(value);
+        }
+    }
+
+    private static Object unsupported(Object value) {
+        throw new UnsupportedColumnValueException(value.getClass());
+    }
+}
@@ -0,0 +1,16 @@
+package com.gojek.beast.sink.bq.load;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Copies sealed files to where load jobs read them from.
+ */
+public interface FileStager {
+    /**
+     * @return uri of the staged copy of the file, as given to the load job
+     */
+    String stage(File file) throws IOException;
+
+    void delete(String uri);
+}
@@ -0,0 +1,38 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.common.io.ByteStreams;
+import lombok.AllArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+@AllArgsConstructor
+public class GcsFileStager implements FileStager {
+    private static final String GCS_URI = "gs://%s/%s";
+    private final Storage storage;
+    private final String bucket;
+    private final String pathPrefix;
+
+    @Override
+    public String stage(File file) throws IOException {
+        String path = pathPrefix.isEmpty() ? file.getName() : pathPrefix + "/" + file.getName();
+        // streamed in chunks, sealed files are too big to be read into memory at once
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             WriteChannel out = storage.writer(BlobInfo.newBuilder(BlobId.of(bucket, path)).build())) {
+            ByteStreams.copy(in, out);
+        }
+        return String.format(GCS_URI, bucket, path);
+    }
+
+    @Override
+    public void delete(String uri) {
+        String path = uri.substring(String.format(GCS_URI, bucket, "").length());
+        storage.delete(BlobId.of(bucket, path));
+    }
+}
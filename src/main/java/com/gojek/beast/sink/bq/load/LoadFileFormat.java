@@ -0,0 +1,50 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FormatOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public enum LoadFileFormat {
+    AVRO("avro") {
+        @Override
+        public RowFileWriter open(File file, List<Field> fields) throws IOException {
+            return new AvroRowFileWriter(file, fields);
+        }
+
+        @Override
+        public FormatOptions getFormatOptions() {
+            return FormatOptions.avro();
+        }
+    },
+    NDJSON("json") {
+        @Override
+        public RowFileWriter open(File file, List<Field> fields) throws IOException {
+            return new NdjsonRowFileWriter(file);
+        }
+
+        @Override
+        public FormatOptions getFormatOptions() {
+            return FormatOptions.json();
+        }
+    };
+
+    private final String extension;
+
+    LoadFileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param fields BQ schema of the table, along with the metadata columns
+     */
+    public abstract RowFileWriter open(File file, List<Field> fields) throws IOException;
+
+    public abstract FormatOptions getFormatOptions();
+}
@@ -0,0 +1,296 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.config.LoadFileConfig;
+import com.gojek.beast.exception.BQLoadJobFailure;
+import com.gojek.beast.models.DeferredStatus;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.models.SuccessStatus;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.RowValidator;
+import com.gojek.beast.sink.dlq.DefaultLogWriter;
+import com.gojek.beast.sink.dlq.ErrorWriter;
+import com.gojek.beast.sink.dlq.RecordsErrorType;
+import com.gojek.beast.stats.Stats;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatistics;
+import com.google.cloud.bigquery.LoadJobConfiguration;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Appends the rows of the records to a local rolling file, sealed once big or old enough, then staged and loaded into the table
+ * with a load job. Pushes return a {@link DeferredStatus} completing with the outcome of the load job of the file their rows went to,
+ * so that their offsets are only acknowledged once the rows are in the table.
+ * A failure to write to the file fails the file as a whole, along with the pushes whose rows went to it.
+ * As one row BQ rejects fails the load job of its file, rows the row validator finds invalid are handed to the error writer instead.
+ * Files are also sealed early once the offsets waiting on their load fill the commit queue, as long as no file is loading.
+ */
+@Slf4j
+public class LoadJobSink implements Sink {
+    private static final long MAX_AGE_CHECK_INTERVAL_MS = 1000;
+    private static final double SEAL_COMMIT_OCCUPANCY = 0.5;
+    private final Stats statsClient = Stats.client();
+    private final BigQuery bigquery;
+    private final TableId tableId;
+    private final Supplier<List<Field>> schema;
+    private final LoadFileConfig fileConfig;
+    private final FileStager stager;
+    private final Clock clock;
+    private final ErrorWriter errorWriter;
+    // rows are loaded without being validated when not set
+    @Setter
+    private RowValidator rowValidator;
+    // files are loaded one after another, in the order they were sealed
+    private final ExecutorService loader;
+    private final ScheduledExecutorService sealer;
+    private final AtomicInteger loading = new AtomicInteger();
+    private volatile DoubleSupplier commitOccupancy = () -> 0;
+    private RollingFile current;
+
+    public LoadJobSink(BigQuery bigquery, TableId tableId, Supplier<List<Field>> schema, LoadFileConfig fileConfig, FileStager stager, Clock clock) {
+        this(bigquery, tableId, schema, fileConfig, stager, clock, new DefaultLogWriter());
+    }
+
+    public LoadJobSink(BigQuery bigquery, TableId tableId, Supplier<List<Field>> schema, LoadFileConfig fileConfig, FileStager stager, Clock clock,
+                       ErrorWriter errorWriter) {
+        this.bigquery = bigquery;
+        this.tableId = tableId;
+        this.schema = schema;
+        this.fileConfig = fileConfig;
+        this.stager = stager;
+        this.clock = clock;
+        this.errorWriter = errorWriter;
+        this.loader = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("bq-load-%d").setDaemon(true).build());
+        this.sealer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("bq-load-sealer-%d").setDaemon(true).build());
+        long checkIntervalMs = Math.max(1, Math.min(MAX_AGE_CHECK_INTERVAL_MS, fileConfig.getMaxAgeMs()));
+        this.sealer.scheduleWithFixedDelay(this::sealIfDue, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized Status push(Records records) {
+        List<Record> rows = records.getRecords();
+        if (rowValidator != null) {
+            Map<RecordsErrorType, List<Record>> errorRecords = new EnumMap<>(RecordsErrorType.class);
+            rows = rowValidator.validate(rows, errorRecords);
+            if (!errorRecords.isEmpty()) {
+                errorRecords.forEach((type, typeRecords) -> statsClient.count("kafka.error.records.count,type=" + type.name().toLowerCase() + "," + statsClient.getBqTags(), typeRecords.size()));
+                Status dlqStatus = errorWriter.writeRecords(errorRecords);
+                if (!dlqStatus.isSuccess()) {
+                    log.error("Batch with records size: {} contains DLQ sinkable records but failed to sink", errorRecords.values().stream().mapToInt(List::size).sum());
+                    return dlqStatus;
+                }
+            }
+            if (rows.isEmpty()) {
+                return new SuccessStatus();
+            }
+        }
+        List<Field> fields = schema.get();
+        if (current != null && !current.fields.equals(fields)) {
+            // rows of the new schema go to a file of their own
+            seal();
+        }
+        try {
+            if (current == null) {
+                current = open(fields);
+            }
+            for (Record record : rows) {
+                current.writer.write(record.getColumns());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write batch with records size: {} to {}: {}", rows.size(), current == null ? "new file" : current.file, e.getMessage());
+            statsClient.increment("bq.load.file.write.failures");
+            if (current != null) {
+                abandon(current, e);
+            }
+            return new FailureStatus(e);
+        }
+        current.rows += rows.size();
+        statsClient.count("bq.load.file.rows", rows.size());
+        DeferredStatus status = new DeferredStatus(current.loaded);
+        if (current.writer.getBytesWritten() >= fileConfig.getMaxBytes()) {
+            seal();
+        }
+        return status;
+    }
+
+    /**
+     * @param commitOccupancy fraction of the commit queue taken, by offsets waiting on files to load among others
+     */
+    public void setCommitOccupancy(DoubleSupplier commitOccupancy) {
+        this.commitOccupancy = commitOccupancy;
+    }
+
+    /**
+     * Seals the open file, for its rows to be loaded without waiting for it to get big or old enough.
+     */
+    public synchronized void flush() {
+        if (current != null) {
+            seal();
+        }
+    }
+
+    /**
+     * The rows of the open file were never acknowledged, so they are consumed again rather than loaded.
+     * Files already sealed are left to finish loading.
+     */
+    @Override
+    public synchronized void close(String reason) {
+        log.info("Closing load job sink of {}: {}", tableId, reason);
+        sealer.shutdownNow();
+        if (current != null) {
+            abandon(current, new IllegalStateException("load job sink closed: " + reason));
+        }
+        loader.shutdown();
+    }
+
+    private RollingFile open(List<Field> fields) throws IOException {
+        File file = new File(fileConfig.getDirectory(), String.format("%s-%s.%s", tableId.getTable(), UUID.randomUUID(), fileConfig.getFormat().getExtension()));
+        return new RollingFile(file, fileConfig.getFormat().open(file, fields), fields, clock.currentEpochMillis());
+    }
+
+    private synchronized void sealIfDue() {
+        if (current == null) {
+            return;
+        }
+        if (clock.currentEpochMillis() - current.openedAt >= fileConfig.getMaxAgeMs()) {
+            seal();
+        } else if (loading.get() == 0 && commitOccupancy.getAsDouble() >= SEAL_COMMIT_OCCUPANCY) {
+            // the consumers would pause on a full commit queue until the file ages out
+            statsClient.increment("bq.load.files.sealed.early");
+            seal();
+        }
+    }
+
+    private void seal() {
+        RollingFile sealed = current;
+        current = null;
+        try {
+            sealed.writer.close();
+        } catch (IOException e) {
+            log.error("Failed to seal {}: {}", sealed.file, e.getMessage());
+            fail(sealed, e);
+            return;
+        }
+        statsClient.increment("bq.load.files.sealed");
+        statsClient.gauge("bq.load.file.size", sealed.file.length());
+        loading.incrementAndGet();
+        loader.execute(() -> load(sealed));
+    }
+
+    private void load(RollingFile sealed) {
+        Instant start = Instant.now();
+        String uri = null;
+        try {
+            uri = stager.stage(sealed.file);
+            statsClient.timeIt("bq.load.stage.time", start);
+            Job job = bigquery.create(JobInfo.of(LoadJobConfiguration.newBuilder(tableId, uri, fileConfig.getFormat().getFormatOptions())
+                    .setCreateDisposition(JobInfo.CreateDisposition.CREATE_NEVER)
+                    .setWriteDisposition(JobInfo.WriteDisposition.WRITE_APPEND)
+                    .setUseAvroLogicalTypes(true)
+                    .build()));
+            job = job.waitFor();
+            if (job == null) {
+                fail(sealed, new BQLoadJobFailure("Load job of " + uri + " no longer exists", null));
+                return;
+            }
+            BigQueryError error = job.getStatus().getError();
+            if (error != null) {
+                statsClient.increment("bq.load.jobs,status=failed");
+                fail(sealed, new BQLoadJobFailure(String.format("Load job %s of %s failed: %s", job.getJobId(), uri, error), null));
+                return;
+            }
+            JobStatistics.LoadStatistics statistics = job.getStatistics();
+            log.info("Loaded {} rows of {} into {} with job {}", sealed.rows, uri, tableId, job.getJobId());
+            statsClient.increment("bq.load.jobs,status=succeeded");
+            if (statistics != null && statistics.getOutputRows() != null) {
+                statsClient.count("bq.load.rows", statistics.getOutputRows());
+            }
+            statsClient.timeIt("bq.load.time", start);
+            sealed.loaded.complete(new SuccessStatus());
+            deleteStaged(uri);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(sealed, e);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load {} into {}: {}", uri == null ? sealed.file : uri, tableId, e.getMessage());
+            fail(sealed, e);
+        } finally {
+            delete(sealed.file);
+            loading.decrementAndGet();
+        }
+    }
+
+    private void deleteStaged(String uri) {
+        try {
+            stager.delete(uri);
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete loaded {}: {}", uri, e.getMessage());
+        }
+    }
+
+    private void abandon(RollingFile file, Exception cause) {
+        if (current == file) {
+            current = null;
+        }
+        try {
+            file.writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {}: {}", file.file, e.getMessage());
+        }
+        fail(file, cause);
+        delete(file.file);
+    }
+
+    private void fail(RollingFile file, Exception cause) {
+        statsClient.increment("bq.load.files.failed");
+        file.loaded.complete(new FailureStatus(cause));
+    }
+
+    private void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Failed to delete {}", file);
+        }
+    }
+
+    private static final class RollingFile {
+        private final File file;
+        private final RowFileWriter writer;
+        private final List<Field> fields;
+        private final long openedAt;
+        private final CompletableFuture<Status> loaded = new CompletableFuture<>();
+        private long rows;
+
+        private RollingFile(File file, RowFileWriter writer, List<Field> fields, long openedAt) {
+            this.file = file;
+            this.writer = writer;
+            this.fields = fields;
+            this.openedAt = openedAt;
+        }
+    }
+}
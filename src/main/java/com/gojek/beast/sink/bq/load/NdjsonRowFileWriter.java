@@ -0,0 +1,43 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.gojek.beast.sink.bq.JsonColumnWriter;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes rows as newline delimited JSON, with the values written as they are for insertAll requests.
+ */
+public class NdjsonRowFileWriter implements RowFileWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private final CountingOutputStream out;
+    private final JsonGenerator generator;
+
+    public NdjsonRowFileWriter(File file) throws IOException {
+        this.out = new CountingOutputStream(new FileOutputStream(file));
+        this.generator = JSON_FACTORY.createGenerator(out);
+        this.generator.setRootValueSeparator(new SerializedString("\n"));
+    }
+
+    @Override
+    public void write(Map<String, Object> columns) throws IOException {
+        JsonColumnWriter.writeValue(generator, columns);
+    }
+
+    @Override
+    public long getBytesWritten() {
+        // the generator buffers what it writes, so what's still in its buffer counts too
+        return out.getCount() + Math.max(0, generator.getOutputBuffered());
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.gojek.beast.sink.bq.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Appends the columns of rows to a file a load job can read.
+ */
+public interface RowFileWriter extends Closeable {
+    void write(Map<String, Object> columns) throws IOException;
+
+    /**
+     * @return bytes written to the file so far; may fall short by what the writer still buffers
+     */
+    long getBytesWritten();
+}
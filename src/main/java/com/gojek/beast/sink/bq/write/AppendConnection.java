@@ -0,0 +1,103 @@
+package com.gojek.beast.sink.bq.write;
+
+import com.google.api.gax.rpc.ClientStream;
+import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.StreamController;
+import com.google.cloud.bigquery.storage.v1.AppendRowsRequest;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.ProtoRows;
+import com.google.cloud.bigquery.storage.v1.ProtoSchema;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.Int64Value;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bidirectional appendRows call to a write stream. Responses come back in the order of the appends,
+ * and the stream and the schema of the rows are only sent with the first append of the call.
+ */
+@Slf4j
+class AppendConnection implements ResponseObserver<AppendRowsResponse> {
+    private final Deque<CompletableFuture<AppendRowsResponse>> inflight = new ArrayDeque<>();
+    private final ClientStream<AppendRowsRequest> requests;
+    private final String streamName;
+    private final DescriptorProto writerSchema;
+    private boolean schemaSent;
+    private Throwable closedWith;
+
+    AppendConnection(BigQueryWriteClient client, String streamName, DescriptorProto writerSchema) {
+        this.streamName = streamName;
+        this.writerSchema = writerSchema;
+        this.requests = client.appendRowsCallable().splitCall(this);
+    }
+
+    /**
+     * Appends the rows at the given offset of the stream, which BQ refuses unless the stream ends right there.
+     */
+    synchronized CompletableFuture<AppendRowsResponse> append(List<ByteString> rows, long offset) {
+        CompletableFuture<AppendRowsResponse> response = new CompletableFuture<>();
+        if (closedWith != null) {
+            response.completeExceptionally(closedWith);
+            return response;
+        }
+        AppendRowsRequest.ProtoData.Builder data = AppendRowsRequest.ProtoData.newBuilder()
+                .setRows(ProtoRows.newBuilder().addAllSerializedRows(rows));
+        AppendRowsRequest.Builder request = AppendRowsRequest.newBuilder()
+                .setOffset(Int64Value.newBuilder().setValue(offset));
+        if (!schemaSent) {
+            request.setWriteStream(streamName);
+            data.setWriterSchema(ProtoSchema.newBuilder().setProtoDescriptor(writerSchema));
+            schemaSent = true;
+        }
+        inflight.add(response);
+        requests.send(request.setProtoRows(data).build());
+        return response;
+    }
+
+    void close() {
+        fail(Status.CANCELLED.withDescription("append connection closed").asRuntimeException());
+        try {
+            requests.closeSend();
+        } catch (RuntimeException e) {
+            log.debug("append connection to {} was already closed: {}", streamName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onStart(StreamController controller) {
+    }
+
+    @Override
+    public synchronized void onResponse(AppendRowsResponse response) {
+        CompletableFuture<AppendRowsResponse> append = inflight.poll();
+        if (append != null) {
+            append.complete(response);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        fail(t);
+    }
+
+    @Override
+    public void onComplete() {
+        fail(Status.UNAVAILABLE.withDescription("append connection closed by server").asRuntimeException());
+    }
+
+    private synchronized void fail(Throwable t) {
+        if (closedWith == null) {
+            closedWith = t;
+        }
+        while (!inflight.isEmpty()) {
+            inflight.poll().completeExceptionally(t);
+        }
+    }
+}
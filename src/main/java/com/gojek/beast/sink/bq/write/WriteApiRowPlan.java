@@ -0,0 +1,270 @@
+package com.gojek.beast.sink.bq.write;
+
+import com.gojek.beast.config.Constants;
+import com.gojek.beast.converter.MappingPlan;
+import com.gojek.beast.converter.MappingPlan.FieldMapping;
+import com.gojek.beast.models.ConfigurationException;
+import com.gojek.beast.models.OffsetInfo;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.WireFormat;
+import com.google.protobuf.util.JsonFormat;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns the proto bytes of kafka messages into rows of the Storage Write API, without decoding them into columns.
+ * <p>
+ * The rows are described by a descriptor of the mapped fields, named after their columns and keeping their field numbers,
+ * so that the bytes of most fields are copied as they are. Only fields which BQ takes in another shape are rewritten:
+ * timestamps into epoch micros, structs into their JSON and enums into their names. Unmapped fields are dropped.
+ * Messages with nothing to rewrite or drop are copied whole. The metadata columns are appended to the bytes
+ * with field numbers out of the way of those of the message.
+ */
+public final class WriteApiRowPlan {
+    static final String ROW_TYPE_NAME = "BeastRow";
+    private static final int METADATA_FIELD_NUMBER = 536870900;
+    private static final String NESTED_TYPE_SEPARATOR = "__";
+    private static final JsonFormat.Printer STRUCT_PRINTER = JsonFormat.printer().omittingInsignificantWhitespace();
+
+    private final DescriptorProto descriptorProto;
+    private final Map<Integer, FieldPlan> fields = new HashMap<>();
+    private final boolean copiedWhole;
+    private final String metadataNamespace;
+
+    private enum Kind { COPY, TIMESTAMP, STRUCT, ENUM, NESTED }
+
+    private WriteApiRowPlan(MappingPlan mappingPlan, String typeName, DescriptorProto.Builder root, String metadataNamespace) {
+        this.metadataNamespace = metadataNamespace;
+        DescriptorProto.Builder descriptor = DescriptorProto.newBuilder().setName(typeName);
+        DescriptorProto.Builder rootDescriptor = root == null ? descriptor : root;
+        boolean allCopied = true;
+        for (FieldMapping fieldMapping : mappingPlan.getFields()) {
+            FieldPlan fieldPlan = new FieldPlan(fieldMapping, typeName, rootDescriptor);
+            fields.put(fieldMapping.getDescriptor().getNumber(), fieldPlan);
+            descriptor.addField(fieldPlan.toProto());
+            allCopied = allCopied && fieldPlan.kind == Kind.COPY;
+        }
+        this.copiedWhole = allCopied && mappingPlan.getFields().size() == mappingPlan.getDescriptor().getFields().size();
+        if (root == null) {
+            addMetadataFields(descriptor);
+            this.descriptorProto = descriptor.build();
+        } else {
+            root.addNestedType(descriptor.build());
+            this.descriptorProto = null;
+        }
+    }
+
+    /**
+     * @param metadataNamespace column holding the metadata columns, which are top level columns when empty
+     */
+    public static WriteApiRowPlan compile(MappingPlan mappingPlan, String metadataNamespace) {
+        return new WriteApiRowPlan(mappingPlan, ROW_TYPE_NAME, null, metadataNamespace);
+    }
+
+    public DescriptorProto getDescriptorProto() {
+        return descriptorProto;
+    }
+
+    public ByteString toRow(byte[] message, OffsetInfo offsetInfo, long loadTimeMillis) throws IOException {
+        ByteString.Output row = ByteString.newOutput(message.length);
+        CodedOutputStream output = CodedOutputStream.newInstance(row);
+        if (copiedWhole) {
+            output.writeRawBytes(message);
+        } else {
+            transcode(CodedInputStream.newInstance(message), output);
+        }
+        if (metadataNamespace.isEmpty()) {
+            writeMetadata(output, METADATA_FIELD_NUMBER, offsetInfo, loadTimeMillis);
+        } else {
+            ByteString.Output metadata = ByteString.newOutput();
+            CodedOutputStream metadataOutput = CodedOutputStream.newInstance(metadata);
+            writeMetadata(metadataOutput, 1, offsetInfo, loadTimeMillis);
+            metadataOutput.flush();
+            output.writeBytes(METADATA_FIELD_NUMBER, metadata.toByteString());
+        }
+        output.flush();
+        return row.toByteString();
+    }
+
+    private void transcode(CodedInputStream input, CodedOutputStream output) throws IOException {
+        int tag = input.readTag();
+        while (tag != 0) {
+            FieldPlan fieldPlan = fields.get(WireFormat.getTagFieldNumber(tag));
+            if (fieldPlan == null) {
+                input.skipField(tag);
+            } else {
+                fieldPlan.transcode(tag, input, output);
+            }
+            tag = input.readTag();
+        }
+    }
+
+    private void addMetadataFields(DescriptorProto.Builder descriptor) {
+        if (metadataNamespace.isEmpty()) {
+            addMetadataFields(descriptor, METADATA_FIELD_NUMBER);
+            return;
+        }
+        String metadataTypeName = ROW_TYPE_NAME + NESTED_TYPE_SEPARATOR + metadataNamespace;
+        DescriptorProto.Builder metadata = DescriptorProto.newBuilder().setName(metadataTypeName);
+        addMetadataFields(metadata, 1);
+        descriptor.addNestedType(metadata.build());
+        descriptor.addField(field(metadataNamespace, METADATA_FIELD_NUMBER, FieldDescriptorProto.Type.TYPE_MESSAGE, false).setTypeName(metadataTypeName));
+    }
+
+    // in the order of the values written by writeMetadata
+    private void addMetadataFields(DescriptorProto.Builder descriptor, int firstNumber) {
+        int number = firstNumber;
+        descriptor.addField(field(Constants.OFFSET_COLUMN_NAME, number++, FieldDescriptorProto.Type.TYPE_INT64, false));
+        descriptor.addField(field(Constants.TOPIC_COLUMN_NAME, number++, FieldDescriptorProto.Type.TYPE_STRING, false));
+        descriptor.addField(field(Constants.PARTITION_COLUMN_NAME, number++, FieldDescriptorProto.Type.TYPE_INT64, false));
+        descriptor.addField(field(Constants.TIMESTAMP_COLUMN_NAME, number++, FieldDescriptorProto.Type.TYPE_INT64, false));
+        descriptor.addField(field(Constants.LOAD_TIME_COLUMN_NAME, number, FieldDescriptorProto.Type.TYPE_INT64, false));
+    }
+
+    private static void writeMetadata(CodedOutputStream output, int firstNumber, OffsetInfo offsetInfo, long loadTimeMillis) throws IOException {
+        int number = firstNumber;
+        output.writeInt64(number++, offsetInfo.getOffset());
+        output.writeString(number++, offsetInfo.getTopic());
+        output.writeInt64(number++, offsetInfo.getPartition());
+        output.writeInt64(number++, TimeUnit.MILLISECONDS.toMicros(offsetInfo.getTimestamp()));
+        output.writeInt64(number, TimeUnit.MILLISECONDS.toMicros(loadTimeMillis));
+    }
+
+    private static FieldDescriptorProto.Builder field(String name, int number, FieldDescriptorProto.Type type, boolean repeated) {
+        return FieldDescriptorProto.newBuilder()
+                .setName(name)
+                .setNumber(number)
+                .setType(type)
+                .setLabel(repeated ? FieldDescriptorProto.Label.LABEL_REPEATED : FieldDescriptorProto.Label.LABEL_OPTIONAL);
+    }
+
+    private static final class FieldPlan {
+        private final Descriptors.FieldDescriptor descriptor;
+        private final Kind kind;
+        private final String columnName;
+        private final String nestedTypeName;
+        private final WriteApiRowPlan nestedPlan;
+
+        private FieldPlan(FieldMapping fieldMapping, String typeName, DescriptorProto.Builder root) {
+            this.descriptor = fieldMapping.getDescriptor();
+            this.kind = kindOf(fieldMapping);
+            if (kind == Kind.NESTED) {
+                this.columnName = fieldMapping.getNestedColumnName();
+                this.nestedTypeName = typeName + NESTED_TYPE_SEPARATOR + columnName;
+                this.nestedPlan = new WriteApiRowPlan(fieldMapping.getNestedPlan(), nestedTypeName, root, "");
+            } else {
+                this.columnName = fieldMapping.getColumnName();
+                this.nestedTypeName = null;
+                this.nestedPlan = null;
+            }
+        }
+
+        private static Kind kindOf(FieldMapping fieldMapping) {
+            Descriptors.FieldDescriptor descriptor = fieldMapping.getDescriptor();
+            switch (descriptor.getType()) {
+                case GROUP:
+                    throw new ConfigurationException(String.format("Group field %s can't be written with the Storage Write API", descriptor.getFullName()));
+                case ENUM:
+                    return Kind.ENUM;
+                case MESSAGE:
+                    String messageName = descriptor.getMessageType().getFullName();
+                    if (messageName.equals(Timestamp.getDescriptor().getFullName())) {
+                        return Kind.TIMESTAMP;
+                    }
+                    if (messageName.equals(Struct.getDescriptor().getFullName())) {
+                        return Kind.STRUCT;
+                    }
+                    if (fieldMapping.isNestedMessage()) {
+                        return Kind.NESTED;
+                    }
+                    throw new ConfigurationException(String.format("Message field %s can't be written with the Storage Write API", descriptor.getFullName()));
+                default:
+                    return Kind.COPY;
+            }
+        }
+
+        private FieldDescriptorProto toProto() {
+            FieldDescriptorProto.Builder field = field(columnName, descriptor.getNumber(), FieldDescriptorProto.Type.TYPE_INT64, descriptor.isRepeated());
+            switch (kind) {
+                case TIMESTAMP:
+                    return field.build();
+                case STRUCT:
+                case ENUM:
+                    return field.setType(FieldDescriptorProto.Type.TYPE_STRING).build();
+                case NESTED:
+                    return field.setType(FieldDescriptorProto.Type.TYPE_MESSAGE).setTypeName(nestedTypeName).build();
+                default:
+                    return field.setType(descriptor.toProto().getType()).build();
+            }
+        }
+
+        /**
+         * Values on the wire which don't fit the field are dropped, as a message parser would have kept them as unknown fields.
+         */
+        private void transcode(int tag, CodedInputStream input, CodedOutputStream output) throws IOException {
+            int wireType = WireFormat.getTagWireType(tag);
+            boolean packed = descriptor.isPackable() && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+            if (!packed && wireType != descriptor.getLiteType().getWireType()) {
+                input.skipField(tag);
+                return;
+            }
+            switch (kind) {
+                case TIMESTAMP:
+                    output.writeInt64(descriptor.getNumber(), toMicros(Timestamp.parseFrom(input.readBytes())));
+                    return;
+                case STRUCT:
+                    output.writeString(descriptor.getNumber(), STRUCT_PRINTER.print(Struct.parseFrom(input.readBytes())));
+                    return;
+                case ENUM:
+                    transcodeEnum(packed, input, output);
+                    return;
+                case NESTED:
+                    if (nestedPlan.copiedWhole) {
+                        input.skipField(tag, output);
+                        return;
+                    }
+                    ByteString.Output nested = ByteString.newOutput();
+                    CodedOutputStream nestedOutput = CodedOutputStream.newInstance(nested);
+                    nestedPlan.transcode(input.readBytes().newCodedInput(), nestedOutput);
+                    nestedOutput.flush();
+                    output.writeBytes(descriptor.getNumber(), nested.toByteString());
+                    return;
+                default:
+                    input.skipField(tag, output);
+            }
+        }
+
+        private void transcodeEnum(boolean packed, CodedInputStream input, CodedOutputStream output) throws IOException {
+            if (!packed) {
+                writeEnum(input.readEnum(), output);
+                return;
+            }
+            int limit = input.pushLimit(input.readRawVarint32());
+            while (input.getBytesUntilLimit() > 0) {
+                writeEnum(input.readEnum(), output);
+            }
+            input.popLimit(limit);
+        }
+
+        private void writeEnum(int number, CodedOutputStream output) throws IOException {
+            Descriptors.EnumValueDescriptor value = descriptor.getEnumType().findValueByNumber(number);
+            if (value != null) {
+                output.writeString(descriptor.getNumber(), value.getName());
+            }
+        }
+
+        private static long toMicros(Timestamp timestamp) {
+            return TimeUnit.SECONDS.toMicros(timestamp.getSeconds()) + TimeUnit.NANOSECONDS.toMicros(timestamp.getNanos());
+        }
+    }
+}
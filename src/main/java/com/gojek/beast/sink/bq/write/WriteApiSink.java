@@ -0,0 +1,257 @@
+package com.gojek.beast.sink.bq.write;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.converter.MappingPlan;
+import com.gojek.beast.exception.BQAppendFailure;
+import com.gojek.beast.models.ConfigurationException;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.models.SuccessStatus;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.stats.Stats;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.CreateWriteStreamRequest;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.WriteStream;
+import com.google.protobuf.ByteString;
+import io.grpc.Status.Code;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Appends the records to a committed write stream of the Storage Write API, rows serialized from the proto bytes of the messages.
+ * <p>
+ * Every append names the offset of the stream it goes to, which is where the rows of the previous append end.
+ * An append of unknown outcome, timed out or cut off, is resent at the same offset when the same kafka offsets are pushed again,
+ * so that BQ either writes it or, having written it the first time, answers ALREADY_EXISTS. Rows get written once that way
+ * for as long as the stream lives. A different batch pushed instead gets a new stream, leaving the rows of the unknown append
+ * to the at-least-once delivery of the pipeline.
+ */
+@Slf4j
+public class WriteApiSink implements Sink {
+    private final Stats statsClient = Stats.client();
+    private final BigQueryWriteClient client;
+    private final TableName tableName;
+    private final Supplier<MappingPlan> mappingPlan;
+    private final String metadataNamespace;
+    private final Clock clock;
+    private final long appendTimeoutMs;
+    private MappingPlan compiledPlan;
+    private WriteApiRowPlan rowPlan;
+    private String streamName;
+    private AppendConnection connection;
+    private long streamEnd;
+    private PendingAppend pending;
+
+    public WriteApiSink(BigQueryWriteClient client, TableName tableName, Supplier<MappingPlan> mappingPlan, String metadataNamespace,
+                        Clock clock, long appendTimeoutMs) {
+        this.client = client;
+        this.tableName = tableName;
+        this.mappingPlan = mappingPlan;
+        this.metadataNamespace = metadataNamespace;
+        this.clock = clock;
+        this.appendTimeoutMs = appendTimeoutMs;
+    }
+
+    @Override
+    public synchronized Status push(Records records) {
+        Instant start = Instant.now();
+        List<ByteString> rows;
+        try {
+            rows = toRows(records);
+        } catch (IOException | ConfigurationException e) {
+            log.error("Failed to serialize batch with records size: {} for the BQ write stream: {}", records.size(), e.getMessage());
+            statsClient.increment("bq.write.serialize.failures");
+            return new FailureStatus(e);
+        }
+        if (rows.isEmpty()) {
+            return new SuccessStatus();
+        }
+        Map<TopicPartition, Long> kafkaOffsets = new HashMap<>();
+        records.getPartitionsCommitOffset().forEach((partition, offset) -> kafkaOffsets.put(partition, offset.offset()));
+        Batch batch = new Batch(kafkaOffsets, rows.size());
+        if (pending != null && !pending.batch.equals(batch)) {
+            log.warn("Appending {} to a new stream, the append of unknown outcome to stream {} was not retried", batch, streamName);
+            statsClient.increment("bq.write.pending.abandoned");
+            abandonStream();
+        }
+        try {
+            ensureStream();
+        } catch (RuntimeException e) {
+            log.error("Failed to create BQ write stream for {}: {}", tableName, e.getMessage());
+            statsClient.increment("bq.write.stream.failures");
+            return new FailureStatus(e);
+        }
+
+        long offset = pending == null ? streamEnd : pending.offset;
+        Outcome outcome = append(rows, offset);
+        statsClient.increment("bq.write.appends,code=" + outcome.code);
+        statsClient.timeIt("bq.write.append.time", start);
+        switch (outcome.code) {
+            case OK:
+                return written(batch, offset);
+            case ALREADY_EXISTS:
+                if (pending != null) {
+                    // the earlier attempt went through
+                    log.info("Rows of {} were already appended to stream {} at offset {}", batch, streamName, offset);
+                    statsClient.increment("bq.write.deduplicated");
+                    return written(batch, offset);
+                }
+                return abandoned(outcome, batch, offset);
+            case OUT_OF_RANGE:
+            case NOT_FOUND:
+            case FAILED_PRECONDITION:
+                return abandoned(outcome, batch, offset);
+            case INVALID_ARGUMENT:
+                // the rows are refused as a whole, nothing was written
+                pending = null;
+                closeConnection();
+                statsClient.gauge("record.processing.failure,type=invalid," + statsClient.getBqTags(), records.size());
+                return failed(outcome, batch, offset);
+            default:
+                pending = new PendingAppend(batch, offset);
+                closeConnection();
+                return failed(outcome, batch, offset);
+        }
+    }
+
+    @Override
+    public synchronized void close(String reason) {
+        log.info("Closing BQ write stream {}: {}", streamName, reason);
+        closeConnection();
+        if (streamName != null) {
+            try {
+                client.finalizeWriteStream(streamName);
+            } catch (RuntimeException e) {
+                log.warn("Failed to finalize BQ write stream {}: {}", streamName, e.getMessage());
+            }
+            streamName = null;
+        }
+    }
+
+    private List<ByteString> toRows(Records records) throws IOException {
+        MappingPlan plan = mappingPlan.get();
+        if (plan != compiledPlan) {
+            // the rows change shape, the schema goes along with the first append of a new connection
+            rowPlan = WriteApiRowPlan.compile(plan, metadataNamespace);
+            compiledPlan = plan;
+            closeConnection();
+        }
+        long loadTime = clock.currentEpochMillis();
+        List<ByteString> rows = new ArrayList<>(records.size());
+        for (Record record : records) {
+            rows.add(rowPlan.toRow(record.getValue(), record.getOffsetInfo(), loadTime));
+        }
+        return rows;
+    }
+
+    private void ensureStream() {
+        if (streamName == null) {
+            WriteStream stream = client.createWriteStream(CreateWriteStreamRequest.newBuilder()
+                    .setParent(tableName.toString())
+                    .setWriteStream(WriteStream.newBuilder().setType(WriteStream.Type.COMMITTED))
+                    .build());
+            streamName = stream.getName();
+            streamEnd = 0;
+            log.info("Created BQ write stream {}", streamName);
+            statsClient.increment("bq.write.streams.created");
+        }
+        if (connection == null) {
+            connection = new AppendConnection(client, streamName, rowPlan.getDescriptorProto());
+        }
+    }
+
+    private Outcome append(List<ByteString> rows, long offset) {
+        try {
+            AppendRowsResponse response = connection.append(rows, offset).get(appendTimeoutMs, TimeUnit.MILLISECONDS);
+            if (response.hasError()) {
+                return new Outcome(io.grpc.Status.fromCodeValue(response.getError().getCode()).getCode(),
+                        new BQAppendFailure(response.getError().getMessage(), null));
+            }
+            return new Outcome(Code.OK, null);
+        } catch (ExecutionException e) {
+            return new Outcome(io.grpc.Status.fromThrowable(e.getCause()).getCode(), e.getCause());
+        } catch (TimeoutException e) {
+            return new Outcome(Code.DEADLINE_EXCEEDED, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Outcome(Code.CANCELLED, e);
+        }
+    }
+
+    private Status written(Batch batch, long offset) {
+        streamEnd = offset + batch.rows;
+        pending = null;
+        statsClient.count("bq.write.rows", batch.rows);
+        return new SuccessStatus();
+    }
+
+    private Status abandoned(Outcome outcome, Batch batch, long offset) {
+        // the stream doesn't end where the sink expects it to, it's only safe to carry on in a new one
+        log.error("Abandoning BQ write stream {} after {} at offset {}", streamName, outcome.code, offset);
+        statsClient.increment("bq.write.streams.abandoned");
+        Status failure = failed(outcome, batch, offset);
+        abandonStream();
+        return failure;
+    }
+
+    private Status failed(Outcome outcome, Batch batch, long offset) {
+        String message = String.format("Append of %s to BQ write stream %s at offset %d failed with %s", batch, streamName, offset, outcome.code);
+        log.error("{}: {}", message, outcome.cause == null ? "" : outcome.cause.getMessage());
+        return new FailureStatus(new BQAppendFailure(message, outcome.cause));
+    }
+
+    private void abandonStream() {
+        closeConnection();
+        streamName = null;
+        pending = null;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Outcome {
+        private final Code code;
+        private final Throwable cause;
+    }
+
+    // identified by the kafka offsets the batch commits, which stay the same when it's pushed again
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Batch {
+        private final Map<TopicPartition, Long> kafkaOffsets;
+        private final int rows;
+
+        @Override
+        public String toString() {
+            return "batch of " + rows + " rows up to kafka offsets " + kafkaOffsets;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class PendingAppend {
+        private final Batch batch;
+        private final long offset;
+    }
+}
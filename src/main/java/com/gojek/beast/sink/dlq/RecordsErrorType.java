@@ -15,4 +15,14 @@ public enum RecordsErrorType {
      * BQ failures due to Out of Bounds errors on partition keys.
      */
     OOB,
+
+    /**
+     * Rows missing values of REQUIRED fields of the BQ schema, rejected before being inserted.
+     */
+    INVALID,
+
+    /**
+     * Rows larger than BQ takes in one insert, rejected before being inserted.
+     */
+    OVERSIZED,
 }
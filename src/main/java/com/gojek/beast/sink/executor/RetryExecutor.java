@@ -5,6 +5,7 @@ import com.gojek.beast.models.FailureStatus;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
 import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.BqInsertErrors;
 import com.gojek.beast.stats.Stats;
 
 public class RetryExecutor implements Executor {
@@ -13,16 +14,24 @@ public class RetryExecutor implements Executor {
     private Records records;
     private int maxAttempts;
     private BackOffProvider backOffProvider;
-    private final Stats statsClient = Stats.client(); // metrics client
+    private final Stats statsClient; // metrics client
 
     private Status status;
     private int attemptCount = 0;
 
     public RetryExecutor(Sink sink, Records records, int maxAttempts, BackOffProvider backOffProvider) {
+        this(sink, records, maxAttempts, backOffProvider, Stats.client());
+    }
+
+    /**
+     * @param statsClient client of the pipeline of the sink, as executors are created on the threads pushing to it
+     */
+    public RetryExecutor(Sink sink, Records records, int maxAttempts, BackOffProvider backOffProvider, Stats statsClient) {
         this.sink = sink;
         this.records = records;
         this.maxAttempts = maxAttempts;
         this.backOffProvider = backOffProvider;
+        this.statsClient = statsClient;
     }
 
     @Override
@@ -31,21 +40,27 @@ public class RetryExecutor implements Executor {
         return status;
     }
 
+    // rows failing an insert are retried by the sink itself, the batch is only pushed again when the push as a whole failed
     private boolean shouldExecute() {
-        return ((attemptCount < maxAttempts) && (!status.isSuccess()));
+        return ((attemptCount < maxAttempts) && (!status.isSuccess()) && !status.getException().filter(BqInsertErrors.class::isInstance).isPresent());
     }
 
     @Override
     public Executor ifFailure() {
-        if (shouldExecute()) {
+        while (shouldExecute()) {
             backOffProvider.backOff(attemptCount);
-            execute();
+            attempt();
         }
         return this;
     }
 
     @Override
     public Executor execute() {
+        attempt();
+        return ifFailure();
+    }
+
+    private void attempt() {
         attemptCount++;
         try {
             status = sink.push(records);
@@ -53,7 +68,5 @@ public class RetryExecutor implements Executor {
             statsClient.increment("retrysink.exec.failure.count," + statsClient.getBqTags());
             status = new FailureStatus(e);
         }
-        ifFailure();
-        return this;
     }
 }
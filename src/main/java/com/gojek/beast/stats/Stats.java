@@ -11,10 +11,12 @@ import org.apache.commons.lang3.StringUtils;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public final class Stats {
     private static final Stats STATS_CLIENT = new Stats();
+    private static final ThreadLocal<Stats> PIPELINE_CLIENT = new ThreadLocal<>();
 
     private StatsDClient statsDClient;
     private AppConfig appConfig;
@@ -27,11 +29,31 @@ public final class Stats {
         this.statsDClient = appConfig.isStatsdEnabled()
                 ? new NonBlockingStatsDClient(appConfig.getStatsdPrefix(), appConfig.getStatsdHost(), appConfig.getStatsdPort())
                 : new NoOpStatsDClient();
-        defaultTags = getDefaultTags();
+        defaultTags = getDefaultTags(System.getenv("KAFKA_CONSUMER_GROUP_ID"), null);
+    }
+
+    private Stats(StatsDClient statsDClient, String pipeline, Map<String, String> properties) {
+        this.statsDClient = statsDClient;
+        this.appConfig = ConfigFactory.create(AppConfig.class, properties);
+        this.bqConfig = ConfigFactory.create(BQConfig.class, properties);
+        defaultTags = getDefaultTags(properties.get("KAFKA_CONSUMER_GROUP_ID"), pipeline);
     }
 
     public static Stats client() {
-        return STATS_CLIENT;
+        Stats pipelineClient = PIPELINE_CLIENT.get();
+        return pipelineClient != null ? pipelineClient : STATS_CLIENT;
+    }
+
+    /**
+     * Until {@link #exitPipeline()}, clients taken on the calling thread tag metrics with the pipeline and its consumer group,
+     * over the statsd client of the process. Components take their client when built, so those of a pipeline are built in between.
+     */
+    public static void enterPipeline(String pipeline, Map<String, String> properties) {
+        PIPELINE_CLIENT.set(new Stats(STATS_CLIENT.statsDClient, pipeline, properties));
+    }
+
+    public static void exitPipeline() {
+        PIPELINE_CLIENT.remove();
     }
 
     public static void stop() {
@@ -56,16 +78,16 @@ public final class Stats {
         this.statsDClient.gauge(metric + defaultTags, delta);
     }
 
-    private String getDefaultTags() {
+    private static String getDefaultTags(String consumerGroup, String pipeline) {
         HashMap<String, String> desiredTags = new HashMap<>();
-        desiredTags.put("NODE_NAME", "node");
-        desiredTags.put("POD_NAME", "pod");
-        desiredTags.put("KAFKA_CONSUMER_GROUP_ID", "consumer");
+        desiredTags.put("node", System.getenv("NODE_NAME"));
+        desiredTags.put("pod", System.getenv("POD_NAME"));
+        desiredTags.put("consumer", consumerGroup);
+        desiredTags.put("pipeline", pipeline);
 
         List<String> tags = desiredTags.entrySet().stream().map((entry) -> {
-            String envVar = System.getenv(entry.getKey());
-            if (envVar != null) {
-                return String.format("%s=%s", entry.getValue(), envVar);
+            if (entry.getValue() != null) {
+                return String.format("%s=%s", entry.getKey(), entry.getValue());
             }
             return "";
         }).filter(s -> !s.isEmpty()).collect(Collectors.toList());
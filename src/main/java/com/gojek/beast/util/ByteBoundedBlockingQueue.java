@@ -0,0 +1,318 @@
+package com.gojek.beast.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Blocking queue bounded by the number of elements as well as their total weight in bytes.
+ * An element heavier than the byte capacity is still accepted by an empty queue, so that it can't block producers forever.
+ */
+public class ByteBoundedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    private final ArrayDeque<E> elements = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final int capacity;
+    private final long capacityBytes;
+    private final ToLongFunction<? super E> weigher;
+    private long bytes;
+
+    public ByteBoundedBlockingQueue(int capacity, long capacityBytes, ToLongFunction<? super E> weigher) {
+        if (capacity <= 0 || capacityBytes <= 0) {
+            throw new IllegalArgumentException("Queue capacity should be positive, capacity: " + capacity + " bytes: " + capacityBytes);
+        }
+        this.capacity = capacity;
+        this.capacityBytes = capacityBytes;
+        this.weigher = weigher;
+    }
+
+    public long getBytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Fraction of the capacity in use, by element count or by bytes whichever is higher.
+     */
+    public double getOccupancy() {
+        lock.lock();
+        try {
+            return Math.max((double) elements.size() / capacity, (double) bytes / capacityBytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long weight = weigher.applyAsLong(e);
+        lock.lock();
+        try {
+            if (!hasRoomFor(weight)) {
+                return false;
+            }
+            enqueue(e, weight);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        checkNotNull(e);
+        long weight = weigher.applyAsLong(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoomFor(weight)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(e, weight);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        long weight = weigher.applyAsLong(e);
+        lock.lockInterruptibly();
+        try {
+            while (!hasRoomFor(weight)) {
+                notFull.await();
+            }
+            enqueue(e, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return elements.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (elements.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (elements.isEmpty()) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            return elements.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeIf(e -> e.equals(o), true);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        return removeIf(filter, false);
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            elements.clear();
+            bytes = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        checkNotNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException("Can't drain a queue to itself");
+        }
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && !elements.isEmpty()) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the queue, removal through the iterator removes the element from the queue.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(elements);
+        } finally {
+            lock.unlock();
+        }
+        Iterator<E> iterator = snapshot.iterator();
+        return new Iterator<E>() {
+            private E last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                E removed = last;
+                last = null;
+                removeIf(e -> e == removed, true);
+            }
+        };
+    }
+
+    private boolean removeIf(Predicate<? super E> filter, boolean firstOnly) {
+        lock.lock();
+        try {
+            boolean removed = false;
+            Iterator<E> iterator = elements.iterator();
+            while (iterator.hasNext()) {
+                E e = iterator.next();
+                if (filter.test(e)) {
+                    iterator.remove();
+                    bytes -= weigher.applyAsLong(e);
+                    removed = true;
+                    if (firstOnly) {
+                        break;
+                    }
+                }
+            }
+            if (removed) {
+                notFull.signalAll();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasRoomFor(long weight) {
+        return elements.size() < capacity && (elements.isEmpty() || bytes + weight <= capacityBytes);
+    }
+
+    private void enqueue(E e, long weight) {
+        elements.addLast(e);
+        bytes += weight;
+        notEmpty.signal();
+    }
+
+    private E dequeue() {
+        E e = elements.removeFirst();
+        bytes -= weigher.applyAsLong(e);
+        // elements differ in weight, the freed bytes may fit any of the waiting producers
+        notFull.signalAll();
+        return e;
+    }
+
+    private static void checkNotNull(Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+    }
+}
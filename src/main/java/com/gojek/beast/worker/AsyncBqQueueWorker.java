@@ -0,0 +1,103 @@
+package com.gojek.beast.worker;
+
+import com.gojek.beast.commiter.Acknowledger;
+import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.stats.Stats;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+
+/**
+ * Keeps up to maxInFlightRequests pushes to the sink in flight, acknowledging each batch as its push completes.
+ * A failed batch is put back on the queue and stops the worker on its next job, as it would the synchronous worker.
+ */
+@Slf4j
+public class AsyncBqQueueWorker extends BqQueueWorker {
+    private final QueueConfig config;
+    private final BlockingQueue<Records> queue;
+    private final int maxInFlightRequests;
+    private final Semaphore inFlightRequests;
+    private final ExecutorService executor;
+    private final AtomicReference<Status> failure = new AtomicReference<>();
+    private final Stats statsClient = Stats.client();
+
+    public AsyncBqQueueWorker(String name, Sink sink, QueueConfig config, Acknowledger acknowledger, BlockingQueue<Records> queue, WorkerState workerState, int maxInFlightRequests) {
+        super(name, sink, config, acknowledger, queue, workerState);
+        this.config = config;
+        this.queue = queue;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        // the BQ client blocks on insertAll, every in-flight push holds a thread of the worker's pool
+        this.executor = Executors.newFixedThreadPool(maxInFlightRequests,
+                new ThreadFactoryBuilder().setNameFormat(name + "-push-%d").setDaemon(true).build());
+    }
+
+    @Override
+    public Status job() {
+        if (getDeferredFailure() != null) {
+            return getDeferredFailure();
+        }
+        try {
+            if (!inFlightRequests.tryAcquire(config.getTimeout(), config.getTimeoutUnit())) {
+                return failure.get() != null ? failure.get() : SUCCESS_STATUS;
+            }
+            if (failure.get() != null) {
+                inFlightRequests.release();
+                return failure.get();
+            }
+            List<Records> batches = pollBatches();
+            if (batches.isEmpty()) {
+                inFlightRequests.release();
+                return SUCCESS_STATUS;
+            }
+            statsClient.gauge("worker.queue.bq.inflight", maxInFlightRequests - inFlightRequests.availablePermits());
+            CompletableFuture.supplyAsync(() -> push(batches), executor).thenAccept(status -> complete(batches, status));
+        } catch (InterruptedException | RuntimeException e) {
+            statsClient.increment("worker.queue.bq.errors");
+            log.debug("Exception::Failed to poll records from read queue: " + e.getMessage());
+            return new FailureStatus(e);
+        }
+        return SUCCESS_STATUS;
+    }
+
+    private Status push(List<Records> batches) {
+        try {
+            return pushToSink(batches);
+        } catch (RuntimeException e) {
+            statsClient.increment("worker.queue.bq.errors");
+            return new FailureStatus(e);
+        }
+    }
+
+    private void complete(List<Records> batches, Status status) {
+        boolean retrying = retryLater(batches, status);
+        if (!status.isSuccess() && !retrying) {
+            for (Records records : batches) {
+                if (!queue.offer(records)) {
+                    log.error("Failed to put back batch of {} records on the queue", records.size());
+                }
+            }
+            failure.compareAndSet(null, status);
+        }
+        inFlightRequests.release();
+    }
+
+    @Override
+    public void stop(String reason) {
+        super.stop(reason);
+        executor.shutdown();
+    }
+}
@@ -1,18 +1,27 @@
 package com.gojek.beast.worker;
 
 import com.gojek.beast.commiter.Acknowledger;
+import com.gojek.beast.config.CoalesceConfig;
 import com.gojek.beast.config.QueueConfig;
 import com.gojek.beast.exception.ErrorWriterFailedException;
+import com.gojek.beast.models.DeferredStatus;
 import com.gojek.beast.models.FailureStatus;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
 import com.gojek.beast.sink.Sink;
 import com.gojek.beast.stats.Stats;
 import com.google.cloud.bigquery.BigQueryException;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 
@@ -24,6 +33,16 @@ public class BqQueueWorker extends Worker {
     private final BlockingQueue<Records> queue;
     private final Acknowledger acknowledger;
     private final Stats statsClient = Stats.client();
+    // batches are pushed one at a time, unless coalescing limits are set
+    @Setter
+    private CoalesceConfig coalesceConfig;
+    // batch polled while coalescing that didn't fit within the limits, pushed first by the next job
+    private Records carriedOver;
+    // without a retry scheduler, a failed push stops the worker
+    @Setter
+    private RetryScheduler retryScheduler;
+    // failed write of batches pushed with a deferred status, stops the worker on its next job
+    private final AtomicReference<Status> deferredFailure = new AtomicReference<>();
 
     public BqQueueWorker(String name, Sink sink, QueueConfig config, Acknowledger acknowledger, BlockingQueue<Records> queue, WorkerState workerState) {
         super(name, workerState);
@@ -36,12 +55,18 @@ public class BqQueueWorker extends Worker {
     @Override
     public Status job() {
         Instant start = Instant.now();
+        if (getDeferredFailure() != null) {
+            return getDeferredFailure();
+        }
         try {
-            Records poll = queue.poll(config.getTimeout(), config.getTimeoutUnit());
-            if (poll == null || poll.isEmpty()) return SUCCESS_STATUS;
-            Status status = pushToSink(poll);
-            if (!status.isSuccess()) {
-                queue.offer(poll, config.getTimeout(), config.getTimeoutUnit());
+            List<Records> batches = pollBatches();
+            if (batches.isEmpty()) return SUCCESS_STATUS;
+            Status status = pushToSink(batches);
+            boolean retrying = retryLater(batches, status);
+            if (!status.isSuccess() && !retrying) {
+                for (Records batch : batches) {
+                    queue.offer(batch, config.getTimeout(), config.getTimeoutUnit());
+                }
                 return status;
             }
         } catch (InterruptedException | RuntimeException e) {
@@ -53,7 +78,59 @@ public class BqQueueWorker extends Worker {
         return SUCCESS_STATUS;
     }
 
-    private Status pushToSink(Records poll) {
+    /**
+     * Polls a batch, merging the batches that follow it into the same push as long as they fit within the coalescing limits.
+     */
+    protected List<Records> pollBatches() throws InterruptedException {
+        Records first = carriedOver != null ? carriedOver : queue.poll(config.getTimeout(), config.getTimeoutUnit());
+        carriedOver = null;
+        if (first == null || first.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Records> batches = new ArrayList<>();
+        batches.add(first);
+        if (coalesceConfig == null) {
+            return batches;
+        }
+        long rows = first.size();
+        long bytes = first.getEstimatedSize();
+        long lingerDeadline = System.nanoTime() + coalesceConfig.getLingerUnit().toNanos(coalesceConfig.getLinger());
+        while (rows < coalesceConfig.getMaxRows() && bytes < coalesceConfig.getMaxBytes()) {
+            Records next = queue.poll(Math.max(0, lingerDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            if (next.isEmpty()) {
+                continue;
+            }
+            if (rows + next.size() > coalesceConfig.getMaxRows() || bytes + next.getEstimatedSize() > coalesceConfig.getMaxBytes()) {
+                carriedOver = next;
+                break;
+            }
+            batches.add(next);
+            rows += next.size();
+            bytes += next.getEstimatedSize();
+        }
+        statsClient.gauge("worker.queue.bq.coalesced.batches", batches.size());
+        return batches;
+    }
+
+    /**
+     * Records the outcome of the push with the retry scheduler, if any.
+     *
+     * @return whether the batches of a failed push are scheduled to be retried
+     */
+    protected boolean retryLater(List<Records> batches, Status status) {
+        if (retryScheduler == null) {
+            return false;
+        }
+        retryScheduler.pushed(batches, status.isSuccess());
+        return !status.isSuccess() && retryScheduler.schedule(batches, queue);
+    }
+
+    protected Status pushToSink(List<Records> batches) {
+        Records poll = batches.size() == 1 ? batches.get(0)
+                : new Records(batches.stream().flatMap(batch -> batch.getRecords().stream()).collect(Collectors.toList()), batches.get(0).getPolledTime());
         Status status;
         try {
             status = sink.push(poll);
@@ -68,12 +145,23 @@ public class BqQueueWorker extends Worker {
             log.error("Exception::Could not process the errors with handler sink: {}", bqhe.getMessage());
             return new FailureStatus(bqhe);
         }
+        if (status instanceof DeferredStatus) {
+            // acknowledged once the sink has written the records, the committer waiting on them meanwhile
+            batches.forEach(batch -> acknowledger.defer(batch.getPartitionsCommitOffset()));
+            ((DeferredStatus) status).getCompletion().whenComplete((written, e) -> {
+                if (e == null && written.isSuccess()) {
+                    acknowledge(batches);
+                    return;
+                }
+                Status failure = e == null ? written : new FailureStatus(e instanceof Exception ? (Exception) e : new RuntimeException(e));
+                statsClient.increment("worker.queue.bq.deferred_failure");
+                log.error("Failed to write records pushed to sink {}", failure);
+                deferredFailure.compareAndSet(null, failure);
+            });
+            return SUCCESS_STATUS;
+        }
         if (status.isSuccess()) {
-            boolean ackStatus = acknowledger.acknowledge(poll.getPartitionsCommitOffset());
-            statsClient.timeIt("batch.processing.latency.time," + statsClient.getBqTags(), poll.getPolledTime());
-            if (!ackStatus) {
-                statsClient.increment("batch.partition.offsets.reprocessed");
-            }
+            acknowledge(batches);
             return SUCCESS_STATUS;
         } else {
             statsClient.increment("worker.queue.bq.push_failure");
@@ -82,6 +170,24 @@ public class BqQueueWorker extends Worker {
         }
     }
 
+    /**
+     * @return failure of a deferred write, null unless one failed
+     */
+    protected Status getDeferredFailure() {
+        return deferredFailure.get();
+    }
+
+    // acknowledged per polled batch, as they were registered for committing
+    private void acknowledge(List<Records> batches) {
+        for (Records batch : batches) {
+            boolean ackStatus = acknowledger.acknowledge(batch.getPartitionsCommitOffset());
+            statsClient.timeIt("batch.processing.latency.time," + statsClient.getBqTags(), batch.getPolledTime());
+            if (!ackStatus) {
+                statsClient.increment("batch.partition.offsets.reprocessed");
+            }
+        }
+    }
+
     @Override
     public void stop(String reason) {
         log.info("Stopping BqWorker: {}", reason);
@@ -0,0 +1,82 @@
+package com.gojek.beast.worker;
+
+import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.consumer.ParallelConverter;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.QueueFullStatus;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.stats.Stats;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+
+/**
+ * Waits for converted batches in poll order and pushes them to the sink.
+ * A batch turned down by a full queue is pushed again, holding back the ones after it, while the consumer pauses on the converted queue filling up.
+ */
+@Slf4j
+public class ConverterQueueWorker extends Worker {
+    private final Sink sink;
+    private final QueueConfig config;
+    private final BlockingQueue<Future<Records>> queue;
+    private final ParallelConverter converter;
+    private final Stats statsClient = Stats.client();
+    private Records pending;
+
+    public ConverterQueueWorker(String name, Sink sink, QueueConfig config, BlockingQueue<Future<Records>> queue, ParallelConverter converter, WorkerState workerState) {
+        super(name, workerState);
+        this.sink = sink;
+        this.config = config;
+        this.queue = queue;
+        this.converter = converter;
+    }
+
+    @Override
+    protected Status job() {
+        if (pending != null) {
+            return push(pending);
+        }
+        Records records;
+        try {
+            Future<Records> converted = queue.poll(config.getTimeout(), config.getTimeoutUnit());
+            if (converted == null) {
+                return SUCCESS_STATUS;
+            }
+            records = converted.get();
+        } catch (ExecutionException e) {
+            Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            Status failure = new FailureStatus(cause);
+            statsClient.increment("kafka.protobuf.deserialize.errors");
+            log.error("Error while converting messages: {}", failure.toString());
+            return failure;
+        } catch (InterruptedException e) {
+            log.error("Exception::Interrupted while waiting for converted messages: {}", e.getMessage());
+            return new FailureStatus(e);
+        }
+        return push(records);
+    }
+
+    private Status push(Records records) {
+        Status status = sink.push(records);
+        if (status instanceof QueueFullStatus) {
+            pending = records;
+            statsClient.increment("converterQueueWorker.push.retries");
+            return SUCCESS_STATUS;
+        }
+        pending = null;
+        return status;
+    }
+
+    @Override
+    public void stop(String reason) {
+        log.info("Stopping converter queue worker with reason {}", reason);
+        converter.close();
+        queue.clear();
+    }
+}
@@ -3,44 +3,51 @@ package com.gojek.beast.worker;
 import com.gojek.beast.Clock;
 import com.gojek.beast.commiter.KafkaCommitter;
 import com.gojek.beast.commiter.OffsetState;
+import com.gojek.beast.commiter.OffsetTracker;
 import com.gojek.beast.config.QueueConfig;
 import com.gojek.beast.models.FailureStatus;
 import com.gojek.beast.models.Status;
-import com.gojek.beast.models.OffsetMetadata;
 import com.gojek.beast.stats.Stats;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RetriableException;
 
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 
 @Slf4j
 public class OffsetCommitWorker extends Worker {
-    private static final int DEFAULT_SLEEP_MS = 100;
     private final Stats statsClient = Stats.client();
-    private final BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue;
+    private final OffsetTracker offsetTracker;
     private final QueueConfig queueConfig;
     private final KafkaCommitter kafkaCommitter;
+    private final Map<TopicPartition, OffsetAndMetadata> failedCommits;
+    // non-retriable failure of an async commit, stops the committer on its next job as a failed sync commit would
+    private final AtomicReference<Status> commitFailure = new AtomicReference<>();
     @Setter
-    private long defaultSleepMs;
+    private boolean asyncCommitEnabled;
     private boolean stopped;
     private OffsetState offsetState;
     private Clock clock;
 
-    public OffsetCommitWorker(String name, QueueConfig queueConfig, KafkaCommitter kafkaCommitter, OffsetState offsetState, BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue, WorkerState workerState, Clock clock) {
+    /**
+     * The committer waits on acknowledgements to the offset tracker for up to the queue config timeout at a time.
+     * It fails once no batch is acknowledged for the acknowledgement timeout, unless it waits only on batches deferred by the sink.
+     */
+    public OffsetCommitWorker(String name, QueueConfig queueConfig, KafkaCommitter kafkaCommitter, OffsetState offsetState, OffsetTracker offsetTracker, WorkerState workerState, Clock clock) {
         super(name, workerState);
         this.clock = clock;
         this.queueConfig = queueConfig;
-        this.commitQueue = commitQueue;
+        this.offsetTracker = offsetTracker;
         this.kafkaCommitter = kafkaCommitter;
-        this.defaultSleepMs = DEFAULT_SLEEP_MS;
         this.offsetState = offsetState;
+        this.failedCommits = new ConcurrentHashMap<>();
         this.stopped = false;
     }
 
@@ -53,55 +60,33 @@ public class OffsetCommitWorker extends Worker {
 
     @Override
     public Status job() {
+        Status failure = commitFailure.get();
+        if (failure != null) {
+            return failure;
+        }
         offsetState.startTimer();
         try {
             Instant startTime = Instant.now();
             long start = clock.currentEpochMillis();
-            Map<TopicPartition, OffsetAndMetadata> partitionsCommitOffset = new HashMap<>();
-
             int offsetClubbedBatches = 0;
-            while (true) {
-                Map<TopicPartition, OffsetAndMetadata> currentOffset = commitQueue.poll(queueConfig.getTimeout(), queueConfig.getTimeoutUnit());
-                if (stopped || clock.currentEpochMillis() - start > offsetState.getOffsetBatchDuration()) {
-                    break;
-                }
-
-                if (currentOffset == null) {
+            while (!stopped && clock.currentEpochMillis() - start <= offsetState.getOffsetBatchDuration()) {
+                int advancedBatches = offsetTracker.advance();
+                if (advancedBatches > 0 || !offsetTracker.hasUnacknowledged() || offsetTracker.isWaitingOnDeferred()) {
+                    offsetClubbedBatches += advancedBatches;
                     offsetState.resetOffset();
-                    continue;
+                } else if (offsetState.shouldCloseConsumer()) {
+                    statsClient.increment("committer.ack.timeout");
+                    return new FailureStatus(new RuntimeException("Acknowledgement Timeout exceeded: " + offsetState.getAcknowledgeTimeoutMs()));
                 }
-
-                Instant commitQueuePollStartTime = Instant.now();
-                while (true) {
-                    if (offsetState.removeFromOffsetAck(currentOffset)) {
-                        currentOffset.keySet().forEach(topicPartition -> {
-                            OffsetAndMetadata offsetAndMetadata = currentOffset.get(topicPartition);
-                            OffsetMetadata previousOffset = (OffsetMetadata) partitionsCommitOffset.getOrDefault(topicPartition, new OffsetMetadata(Integer.MIN_VALUE));
-                            OffsetMetadata newOffset = new OffsetMetadata(offsetAndMetadata.offset());
-                            if (previousOffset.compareTo(newOffset) < 0) {
-                                partitionsCommitOffset.put(topicPartition, newOffset);
-                            }
-                        });
-                        offsetState.resetOffset();
-                        offsetClubbedBatches++;
-                        break;
-                    } else {
-                        if (offsetState.shouldCloseConsumer(partitionsCommitOffset)) {
-                            statsClient.increment("committer.ack.timeout");
-                            return new FailureStatus(new RuntimeException("Acknowledgement Timeout exceeded: " + offsetState.getAcknowledgeTimeoutMs()));
-                        }
-
-                        log.debug("waiting for {} acknowledgement for offset {}, {}, {}", defaultSleepMs, currentOffset, offsetState.partitionOffsetAckSize(), currentOffset);
-                        sleep(defaultSleepMs);
-                    }
-                }
-                statsClient.timeIt("committer.queue.wait.ms", commitQueuePollStartTime);
+                log.debug("waiting for acknowledgement of {} batches", offsetTracker.size());
+                offsetTracker.awaitAcknowledgement(queueConfig.getTimeout(), queueConfig.getTimeoutUnit());
             }
-            commit(partitionsCommitOffset);
+            commit(offsetTracker.takeCommittableOffsets());
 
             statsClient.gauge("committer.clubbed.offsets", offsetClubbedBatches);
+            statsClient.gauge("committer.pending.batches", offsetTracker.size());
             statsClient.timeIt("committer.processing.time", startTime);
-        } catch (InterruptedException | RuntimeException e) {
+        } catch (RuntimeException e) {
             log.info("Received {} exception: {}, resetting committer", e.getClass(), e.getMessage());
             e.printStackTrace();
             return new FailureStatus(new RuntimeException("Exception in offset committer: " + e.getMessage()));
@@ -110,9 +95,42 @@ public class OffsetCommitWorker extends Worker {
     }
 
     private void commit(Map<TopicPartition, OffsetAndMetadata> partitionsCommitOffset) {
-        if (partitionsCommitOffset.size() != 0) {
+        if (asyncCommitEnabled) {
+            addFailedCommits(partitionsCommitOffset);
+            if (partitionsCommitOffset.size() != 0) {
+                commitAsync(partitionsCommitOffset);
+            }
+        } else if (partitionsCommitOffset.size() != 0) {
             kafkaCommitter.commitSync(partitionsCommitOffset);
         }
         log.info("committed offsets partition {} size {}", partitionsCommitOffset.toString(), partitionsCommitOffset.size());
     }
+
+    private void commitAsync(Map<TopicPartition, OffsetAndMetadata> partitionsCommitOffset) {
+        Instant commitStartTime = Instant.now();
+        kafkaCommitter.commitAsync(partitionsCommitOffset, (offsets, exception) -> {
+            if (exception == null) {
+                statsClient.timeIt("committer.commit.latency", commitStartTime);
+                return;
+            }
+            log.error("Failed to commit offsets {}: {}", offsets, exception.getMessage());
+            statsClient.increment("committer.commit.failures,exception=" + exception.getClass().getName());
+            if (exception instanceof RetriableException) {
+                offsets.forEach((topicPartition, offset) -> failedCommits.merge(topicPartition, offset, (failed, current) -> failed.offset() >= current.offset() ? failed : current));
+            } else {
+                commitFailure.compareAndSet(null, new FailureStatus(exception));
+            }
+        });
+    }
+
+    // retriable commit failures are retried with the next commit, unless it commits further offsets for the partition
+    private void addFailedCommits(Map<TopicPartition, OffsetAndMetadata> partitionsCommitOffset) {
+        for (TopicPartition topicPartition : failedCommits.keySet()) {
+            OffsetAndMetadata failedOffset = failedCommits.remove(topicPartition);
+            OffsetAndMetadata offset = partitionsCommitOffset.get(topicPartition);
+            if (failedOffset != null && (offset == null || offset.offset() < failedOffset.offset())) {
+                partitionsCommitOffset.put(topicPartition, failedOffset);
+            }
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.gojek.beast.worker;
+
+import com.gojek.beast.backoff.DecorrelatedJitterBackOff;
+import com.gojek.beast.backoff.RetryBudget;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.stats.Stats;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Puts batches that failed to push back on their queue after a backoff, on a timer thread,
+ * so that BQ workers go on with other batches rather than sleeping through the backoff.
+ * Shared by the workers of the process, along with its retry budget.
+ * Batches waiting for their retry are dropped once their partitions are revoked, see {@link #purge}.
+ */
+@Slf4j
+public class RetryScheduler {
+    private static final long REQUEUE_DELAY_MS = 100;
+    private final Stats statsClient = Stats.client();
+    private final DecorrelatedJitterBackOff backOff;
+    private final RetryBudget retryBudget;
+    private final int maxAttempts;
+    private final ScheduledExecutorService timer;
+    // retry state of the batches being retried, by identity
+    private final Map<Records, RetryState> retries = Collections.synchronizedMap(new IdentityHashMap<>());
+    // batches waiting on the timer to be put back on their queue, by identity
+    private final Set<Records> scheduled = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public RetryScheduler(DecorrelatedJitterBackOff backOff, RetryBudget retryBudget, int maxAttempts) {
+        this.backOff = backOff;
+        this.retryBudget = retryBudget;
+        this.maxAttempts = maxAttempts;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("retry-scheduler-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Records the outcome of pushing the batches, to be called after every push.
+     */
+    public void pushed(List<Records> batches, boolean success) {
+        int firstPushes = 0;
+        for (Records batch : batches) {
+            RetryState state = success ? retries.remove(batch) : retries.get(batch);
+            if (state == null) {
+                firstPushes++;
+            }
+        }
+        retryBudget.deposit(firstPushes);
+    }
+
+    /**
+     * Schedules the failed batches to be put back on the queue.
+     *
+     * @return false, scheduling none, when a batch ran out of attempts or the retry budget ran out
+     */
+    public boolean schedule(List<Records> batches, BlockingQueue<Records> queue) {
+        for (Records batch : batches) {
+            RetryState state = retries.get(batch);
+            if ((state == null ? 1 : state.attempts) >= maxAttempts) {
+                statsClient.increment("retry.attempts.exhausted");
+                batches.forEach(retries::remove);
+                return false;
+            }
+        }
+        if (!retryBudget.tryWithdraw(batches.size())) {
+            batches.forEach(retries::remove);
+            return false;
+        }
+        for (Records batch : batches) {
+            RetryState state = retries.computeIfAbsent(batch, b -> new RetryState());
+            state.attempts++;
+            state.delayMs = backOff.nextDelayMs(state.delayMs);
+            log.info("Retrying batch of {} records in {} ms, attempt {}", batch.size(), state.delayMs, state.attempts);
+            scheduled.add(batch);
+            timer.schedule(() -> requeue(batch, queue), state.delayMs, TimeUnit.MILLISECONDS);
+        }
+        statsClient.count("retry.scheduled.batches", batches.size());
+        statsClient.gauge("retry.pending.batches", retries.size());
+        return true;
+    }
+
+    /**
+     * Drops the batches waiting for their retry that match the filter, such as the ones of revoked partitions.
+     *
+     * @return the dropped batches
+     */
+    public List<Records> purge(Predicate<Records> filter) {
+        List<Records> purged = new ArrayList<>();
+        scheduled.removeIf(batch -> filter.test(batch) && purged.add(batch));
+        purged.forEach(retries::remove);
+        statsClient.count("retry.purged.batches", purged.size());
+        return purged;
+    }
+
+    // never blocks, the timer thread puts back the batches of all workers
+    private void requeue(Records batch, BlockingQueue<Records> queue) {
+        synchronized (scheduled) {
+            if (!scheduled.contains(batch)) {
+                return;
+            }
+            if (queue.offer(batch)) {
+                scheduled.remove(batch);
+                return;
+            }
+        }
+        statsClient.increment("retry.requeue.delays");
+        timer.schedule(() -> requeue(batch, queue), REQUEUE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // pushes of the batch so far, and the delay before the last one
+    private static class RetryState {
+        private int attempts = 1;
+        private long delayMs;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gojek.beast.backoff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class DecorrelatedJitterBackOffTest {
+    private final DecorrelatedJitterBackOff backOff = new DecorrelatedJitterBackOff(10, 1000);
+
+    @Test
+    public void shouldDrawDelayBetweenBaseAndThriceThePreviousDelay() {
+        for (int i = 0; i < 100; i++) {
+            long delay = backOff.nextDelayMs(100);
+            assertTrue(delay >= 10 && delay <= 300);
+        }
+    }
+
+    @Test
+    public void shouldStartFromBaseDelayAndCapAtMaximumDelay() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(backOff.nextDelayMs(0) == 10);
+            assertTrue(backOff.nextDelayMs(10000) <= 1000);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.gojek.beast.backoff;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RetryBudgetTest {
+
+    @Test
+    public void shouldAllowMinRetriesWithoutTraffic() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+
+        assertTrue(retryBudget.tryWithdraw(1));
+        assertTrue(retryBudget.tryWithdraw(1));
+        assertFalse(retryBudget.tryWithdraw(1));
+    }
+
+    @Test
+    public void shouldRefillByRatioOfPushes() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+        retryBudget.tryWithdraw(2);
+
+        retryBudget.deposit(9);
+        assertFalse(retryBudget.tryWithdraw(1));
+        retryBudget.deposit(1);
+        assertTrue(retryBudget.tryWithdraw(1));
+    }
+
+    @Test
+    public void shouldNotWithdrawPartOfRetries() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 2);
+
+        assertFalse(retryBudget.tryWithdraw(3));
+        assertTrue(retryBudget.tryWithdraw(2));
+    }
+}
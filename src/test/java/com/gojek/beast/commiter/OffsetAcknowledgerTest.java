@@ -1,42 +1,51 @@
 package com.gojek.beast.commiter;
 
+import com.gojek.beast.models.OffsetMetadata;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.Before;
 import org.junit.Test;
-import org.mockito.Mock;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.Mockito.mock;
 
 public class OffsetAcknowledgerTest {
     private Acknowledger offsetAcknowledger;
-    private Set<Map<TopicPartition, OffsetAndMetadata>> acknowledgements;
-    @Mock
-    private Map<TopicPartition, OffsetAndMetadata> commitPartitionsOffset;
+    private OffsetTracker firstTracker;
+    private OffsetTracker secondTracker;
 
     @Before
-    public void setUp() throws Exception {
-        acknowledgements = Collections.synchronizedSet(new CopyOnWriteArraySet<>());
-        offsetAcknowledger = new OffsetAcknowledger(acknowledgements);
+    public void setUp() {
+        firstTracker = new OffsetTracker(4);
+        secondTracker = new OffsetTracker(4);
+        offsetAcknowledger = new OffsetAcknowledger(Arrays.asList(firstTracker, secondTracker));
     }
 
     @Test
-    public void shouldPushAcknowledgementsToSet() {
-        Map<TopicPartition, OffsetAndMetadata> partition1Offset = mock(Map.class);
+    public void shouldAcknowledgeOnTrackerTheBatchIsRegisteredWith() {
+        Map<TopicPartition, OffsetAndMetadata> first = Collections.singletonMap(new TopicPartition("topic", 0), new OffsetMetadata(10));
+        Map<TopicPartition, OffsetAndMetadata> second = Collections.singletonMap(new TopicPartition("topic", 1), new OffsetMetadata(20));
+        firstTracker.register(first);
+        secondTracker.register(second);
+
+        assertTrue(offsetAcknowledger.acknowledge(first));
+        assertTrue(offsetAcknowledger.acknowledge(second));
+
+        firstTracker.advance();
+        secondTracker.advance();
+        assertEquals(10, firstTracker.takeCommittableOffsets().get(new TopicPartition("topic", 0)).offset());
+        assertEquals(20, secondTracker.takeCommittableOffsets().get(new TopicPartition("topic", 1)).offset());
+    }
 
-        offsetAcknowledger.acknowledge(commitPartitionsOffset);
-        offsetAcknowledger.acknowledge(partition1Offset);
+    @Test
+    public void shouldNotAcknowledgeUnregisteredBatch() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(new TopicPartition("topic", 0), new OffsetMetadata(10));
 
-        assertEquals(2, acknowledgements.size());
-        assertTrue(acknowledgements.contains(commitPartitionsOffset));
-        assertTrue(acknowledgements.contains(partition1Offset));
+        assertFalse(offsetAcknowledger.acknowledge(offsets));
     }
-
 }
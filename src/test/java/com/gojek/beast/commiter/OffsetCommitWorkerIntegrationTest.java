@@ -1,15 +1,33 @@
 package com.gojek.beast.commiter;
 
 import com.gojek.beast.Clock;
+import com.gojek.beast.config.LoadFileConfig;
 import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.consumer.BacklogWatermark;
 import com.gojek.beast.consumer.KafkaConsumer;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.HybridSink;
+import com.gojek.beast.sink.bq.load.FileStager;
+import com.gojek.beast.sink.bq.load.LoadFileFormat;
+import com.gojek.beast.sink.bq.load.LoadJobSink;
 import com.gojek.beast.util.RecordsUtil;
+import com.gojek.beast.worker.BqQueueWorker;
 import com.gojek.beast.worker.OffsetCommitWorker;
 import com.gojek.beast.worker.WorkerState;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.TableId;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
@@ -23,32 +41,36 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class OffsetCommitWorkerIntegrationTest {
-    private Set<Map<TopicPartition, OffsetAndMetadata>> acknowledgements;
-
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
     @Mock
     private KafkaConsumer kafkaConsumer;
     @Captor
     private ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> commitPartitionsOffsetCaptor;
     private int acknowledgeTimeoutMs;
-    private LinkedBlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue;
+    private OffsetTracker offsetTracker;
     private RecordsUtil recordsUtil;
     private OffsetCommitWorker committer;
     private OffsetState offsetState;
@@ -58,16 +80,14 @@ public class OffsetCommitWorkerIntegrationTest {
 
     @Before
     public void setUp() {
-        commitQueue = new LinkedBlockingQueue<>();
+        offsetTracker = new OffsetTracker(16);
         clock = new Clock();
-        CopyOnWriteArraySet<Map<TopicPartition, OffsetAndMetadata>> ackSet = new CopyOnWriteArraySet<>();
-        acknowledgements = Collections.synchronizedSet(ackSet);
         acknowledgeTimeoutMs = 2000;
         recordsUtil = new RecordsUtil();
-        offsetState = new OffsetState(acknowledgements, acknowledgeTimeoutMs, 1000);
-        offsetAcknowledger = new OffsetAcknowledger(acknowledgements);
+        offsetState = new OffsetState(acknowledgeTimeoutMs, 1000);
+        offsetAcknowledger = new OffsetAcknowledger(Collections.singletonList(offsetTracker));
         workerState = new WorkerState();
-        committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaConsumer, offsetState, commitQueue, workerState, clock);
+        committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaConsumer, offsetState, offsetTracker, workerState, clock);
     }
 
     @Test
@@ -76,8 +96,7 @@ public class OffsetCommitWorkerIntegrationTest {
         Map<TopicPartition, OffsetAndMetadata> offsetMap2 = recordsUtil.createRecords("customer-", 3).getPartitionsCommitOffset();
         Map<TopicPartition, OffsetAndMetadata> offsetMap3 = recordsUtil.createRecords("merchant-", 3).getPartitionsCommitOffset();
         List<Map<TopicPartition, OffsetAndMetadata>> recordsList = Arrays.asList(offsetMap1, offsetMap2, offsetMap3);
-        commitQueue.addAll(recordsList);
-        committer.setDefaultSleepMs(10);
+        recordsList.forEach(offsetTracker::register);
 
         Thread committerThread = new Thread(committer);
         committerThread.start();
@@ -90,7 +109,7 @@ public class OffsetCommitWorkerIntegrationTest {
             });
         }).start();
 
-        await().atMost(30, TimeUnit.SECONDS).until(() -> commitQueue.isEmpty() && acknowledgements.isEmpty());
+        await().atMost(30, TimeUnit.SECONDS).until(() -> !offsetTracker.hasUnacknowledged());
         workerState.closeWorker();
         committerThread.join();
 
@@ -111,7 +130,7 @@ public class OffsetCommitWorkerIntegrationTest {
         assertEquals(0, offset3.getKey().partition());
         assertEquals(9, offset3.getValue().offset());
         inOrder.verify(kafkaConsumer, atLeastOnce()).wakeup(anyString());
-        assertTrue(acknowledgements.isEmpty());
+        assertEquals(0, offsetTracker.size());
     }
 
     @Test
@@ -120,8 +139,7 @@ public class OffsetCommitWorkerIntegrationTest {
         Map<TopicPartition, OffsetAndMetadata> offsetMap2 = recordsUtil.createRecords("customer-", 3).getPartitionsCommitOffset();
         Map<TopicPartition, OffsetAndMetadata> offsetMap3 = recordsUtil.createRecords("merchant-", 3).getPartitionsCommitOffset();
         List<Map<TopicPartition, OffsetAndMetadata>> recordsList = Arrays.asList(offsetMap1, offsetMap2, offsetMap3);
-        commitQueue.addAll(recordsList);
-        committer.setDefaultSleepMs(10);
+        recordsList.forEach(offsetTracker::register);
         List<Map<TopicPartition, OffsetAndMetadata>> ackRecordsList = Arrays.asList(offsetMap1, offsetMap3);
         Thread committerThread = new Thread(committer);
         committerThread.start();
@@ -139,12 +157,14 @@ public class OffsetCommitWorkerIntegrationTest {
         committerThread.join();
 
         InOrder inOrder = inOrder(kafkaConsumer);
-        inOrder.verify(kafkaConsumer, never()).commitSync(anyMap());
-        assertEquals(1, commitQueue.size());
-        assertEquals(offsetMap3, commitQueue.take());
+        inOrder.verify(kafkaConsumer).commitSync(commitPartitionsOffsetCaptor.capture());
+        Map<TopicPartition, OffsetAndMetadata> committedOffsets = commitPartitionsOffsetCaptor.getValue();
+        assertEquals(2, committedOffsets.size());
+        assertEquals(3, committedOffsets.get(new TopicPartition("topic_driver-", 0)).offset());
+        assertEquals(9, committedOffsets.get(new TopicPartition("topic_merchant-", 0)).offset());
         inOrder.verify(kafkaConsumer, atLeastOnce()).wakeup(anyString());
-        assertEquals(1, acknowledgements.size());
-        assertEquals(offsetMap3, acknowledgements.stream().findFirst().get());
+        assertEquals(1, offsetTracker.size());
+        assertTrue(offsetTracker.acknowledge(offsetMap2));
     }
 
     @Test
@@ -153,8 +173,7 @@ public class OffsetCommitWorkerIntegrationTest {
         Map<TopicPartition, OffsetAndMetadata> offsetMap2 = recordsUtil.createRecords("customer-", 3).getPartitionsCommitOffset();
         Map<TopicPartition, OffsetAndMetadata> offsetMap3 = recordsUtil.createRecords("merchant-", 3).getPartitionsCommitOffset();
         List<Map<TopicPartition, OffsetAndMetadata>> recordsList = Arrays.asList(offsetMap1, offsetMap2, offsetMap3);
-        commitQueue.addAll(recordsList);
-        committer.setDefaultSleepMs(10);
+        recordsList.forEach(offsetTracker::register);
         Thread committerThread = new Thread(committer);
         committerThread.start();
 
@@ -162,8 +181,101 @@ public class OffsetCommitWorkerIntegrationTest {
 
         InOrder inOrder = inOrder(kafkaConsumer);
         inOrder.verify(kafkaConsumer, never()).commitSync(anyMap());
-        assertEquals(2, commitQueue.size());
+        assertEquals(3, offsetTracker.size());
         inOrder.verify(kafkaConsumer, atLeastOnce()).wakeup(anyString());
-        assertTrue(acknowledgements.isEmpty());
+    }
+
+    @Test
+    public void shouldWaitOnBatchesDeferredToLoadJobsPastAckTimeout() throws Exception {
+        useDefaultTimeoutsOnFastClock();
+        LoadJobSink sink = loadJobSink();
+        Records records = recordsUtil.createRecords("driver-", 3);
+        offsetTracker.register(records.getPartitionsCommitOffset());
+        BqQueueWorker bqWorker = new BqQueueWorker("bq-worker", sink, new QueueConfig(200), offsetAcknowledger,
+                new LinkedBlockingQueue<>(Collections.singletonList(records)), workerState);
+        assertTrue(bqWorker.job().isSuccess());
+
+        Thread committerThread = new Thread(committer);
+        committerThread.start();
+        // well past the ack timeout on the committer's clock, the file still open
+        Thread.sleep(1000);
+
+        assertTrue(committerThread.isAlive());
+        verify(kafkaConsumer, never()).commitSync(anyMap());
+
+        sink.flush();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> !offsetTracker.hasUnacknowledged());
+        workerState.closeWorker();
+        committerThread.join();
+        sink.close("test");
+
+        verify(kafkaConsumer).commitSync(commitPartitionsOffsetCaptor.capture());
+        assertEquals(3, commitPartitionsOffsetCaptor.getValue().get(new TopicPartition("topic_driver-", 0)).offset());
+    }
+
+    @Test
+    public void shouldWaitOnBatchesOfHybridSinkLoadingBacklogPastAckTimeout() throws Exception {
+        useDefaultTimeoutsOnFastClock();
+        LoadJobSink loadJobSink = loadJobSink();
+        Sink streamingSink = mock(Sink.class);
+        AtomicLong lag = new AtomicLong(1000);
+        BacklogWatermark backlog = new BacklogWatermark().add("records_lag", lag::get, 1000, 100);
+        HybridSink sink = new HybridSink(streamingSink, loadJobSink, backlog, 10, new Clock());
+        Records loaded = recordsUtil.createRecords("driver-", 3);
+        Records streamed = recordsUtil.createRecords("driver-", 3);
+        when(streamingSink.push(streamed)).thenReturn(SUCCESS_STATUS);
+        BlockingQueue<Records> queue = new LinkedBlockingQueue<>();
+        BqQueueWorker bqWorker = new BqQueueWorker("bq-worker", sink, new QueueConfig(200), offsetAcknowledger, queue, workerState);
+        offsetTracker.register(loaded.getPartitionsCommitOffset());
+        queue.offer(loaded);
+        assertTrue(bqWorker.job().isSuccess());
+
+        Thread committerThread = new Thread(committer);
+        committerThread.start();
+        // well past the ack timeout on the committer's clock, the backlog still high
+        Thread.sleep(1000);
+
+        assertTrue(committerThread.isAlive());
+        verify(kafkaConsumer, never()).commitSync(anyMap());
+
+        // switching back to streaming loads the open file
+        lag.set(0);
+        offsetTracker.register(streamed.getPartitionsCommitOffset());
+        queue.offer(streamed);
+        assertTrue(bqWorker.job().isSuccess());
+        await().atMost(10, TimeUnit.SECONDS).until(() -> !offsetTracker.hasUnacknowledged());
+        workerState.closeWorker();
+        committerThread.join();
+        sink.close("test");
+
+        verify(kafkaConsumer, atLeastOnce()).commitSync(commitPartitionsOffsetCaptor.capture());
+        assertEquals(6, commitPartitionsOffsetCaptor.getValue().get(new TopicPartition("topic_driver-", 0)).offset());
+    }
+
+    // default ack timeout and batch duration, on a clock running a hundred times faster
+    private void useDefaultTimeoutsOnFastClock() {
+        Clock fastClock = new Clock() {
+            @Override
+            public long currentEpochMillis() {
+                return super.currentEpochMillis() * 100;
+            }
+        };
+        offsetState = new OffsetState(15000, 2000, fastClock);
+        committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaConsumer, offsetState, offsetTracker, workerState, fastClock);
+    }
+
+    // files sealed on the default max age, loaded right away once sealed
+    private LoadJobSink loadJobSink() throws Exception {
+        BigQuery bigquery = mock(BigQuery.class);
+        Job job = mock(Job.class);
+        JobStatus jobStatus = mock(JobStatus.class);
+        when(bigquery.create(any(JobInfo.class))).thenReturn(job);
+        when(job.waitFor()).thenReturn(job);
+        when(job.getStatus()).thenReturn(jobStatus);
+        FileStager stager = mock(FileStager.class);
+        when(stager.stage(any())).thenReturn("gs://bucket/file");
+        List<Field> schema = Arrays.asList(Field.of("name", LegacySQLTypeName.STRING), Field.of("age", LegacySQLTypeName.INTEGER));
+        return new LoadJobSink(bigquery, TableId.of("dataset", "table"), () -> schema,
+                new LoadFileConfig(folder.newFolder(), LoadFileFormat.NDJSON, Long.MAX_VALUE, 300000), stager, new Clock());
     }
 }
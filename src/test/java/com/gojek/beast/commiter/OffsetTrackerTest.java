@@ -0,0 +1,168 @@
+package com.gojek.beast.commiter;
+
+import com.gojek.beast.models.OffsetMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffsetTrackerTest {
+    private final TopicPartition partition0 = new TopicPartition("topic", 0);
+    private final TopicPartition partition1 = new TopicPartition("topic", 1);
+    private OffsetTracker offsetTracker;
+
+    @Before
+    public void setUp() {
+        offsetTracker = new OffsetTracker(4);
+    }
+
+    private Map<TopicPartition, OffsetAndMetadata> register(TopicPartition topicPartition, long offset) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(topicPartition, new OffsetMetadata(offset));
+        assertTrue(offsetTracker.register(offsets));
+        return offsets;
+    }
+
+    @Test
+    public void shouldAdvanceOverOutOfOrderAcknowledgements() {
+        Map<TopicPartition, OffsetAndMetadata> first = register(partition0, 10);
+        Map<TopicPartition, OffsetAndMetadata> second = register(partition0, 20);
+        Map<TopicPartition, OffsetAndMetadata> third = register(partition0, 30);
+
+        assertTrue(offsetTracker.acknowledge(third));
+        assertTrue(offsetTracker.acknowledge(second));
+        assertEquals(0, offsetTracker.advance());
+        assertTrue(offsetTracker.takeCommittableOffsets().isEmpty());
+
+        assertTrue(offsetTracker.acknowledge(first));
+        assertEquals(3, offsetTracker.advance());
+        assertEquals(30, offsetTracker.takeCommittableOffsets().get(partition0).offset());
+        assertTrue(offsetTracker.takeCommittableOffsets().isEmpty());
+        assertFalse(offsetTracker.hasUnacknowledged());
+    }
+
+    @Test
+    public void shouldAdvancePartitionsIndependently() {
+        register(partition0, 10);
+        Map<TopicPartition, OffsetAndMetadata> other = register(partition1, 5);
+
+        offsetTracker.acknowledge(other);
+        offsetTracker.advance();
+
+        Map<TopicPartition, OffsetAndMetadata> committable = offsetTracker.takeCommittableOffsets();
+        assertEquals(1, committable.size());
+        assertEquals(5, committable.get(partition1).offset());
+        assertTrue(offsetTracker.hasUnacknowledged());
+    }
+
+    @Test
+    public void shouldAcknowledgeBatchOnlyOnce() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = register(partition0, 10);
+
+        assertTrue(offsetTracker.acknowledge(offsets));
+        assertFalse(offsetTracker.acknowledge(offsets));
+        assertFalse(offsetTracker.acknowledge(Collections.singletonMap(partition0, new OffsetMetadata(10))));
+    }
+
+    @Test
+    public void shouldNotRegisterBatchWhenAnyPartitionIsFull() {
+        for (long offset = 1; offset <= 4; offset++) {
+            register(partition0, offset);
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        offsets.put(partition0, new OffsetMetadata(5));
+        offsets.put(partition1, new OffsetMetadata(5));
+
+        assertFalse(offsetTracker.register(offsets));
+        assertEquals(4, offsetTracker.size());
+        assertEquals(1.0, offsetTracker.getOccupancy(), 0);
+    }
+
+    @Test
+    public void shouldReuseSlotsOnceCommittable() {
+        for (long offset = 1; offset <= 8; offset++) {
+            offsetTracker.acknowledge(register(partition0, offset));
+            offsetTracker.advance();
+        }
+
+        assertEquals(8, offsetTracker.takeCommittableOffsets().get(partition0).offset());
+        assertEquals(0, offsetTracker.size());
+    }
+
+    @Test
+    public void shouldRevokeOffsetsCommittingAcknowledgedOnesUpToFirstUnacknowledged() {
+        Map<TopicPartition, OffsetAndMetadata> first = register(partition0, 10);
+        register(partition0, 20);
+        Map<TopicPartition, OffsetAndMetadata> third = register(partition0, 30);
+        Map<TopicPartition, OffsetAndMetadata> retained = register(partition1, 5);
+        offsetTracker.acknowledge(first);
+        offsetTracker.acknowledge(third);
+
+        Map<TopicPartition, OffsetAndMetadata> revoked = offsetTracker.revoke(Collections.singletonList(partition0), Collections.emptySet());
+
+        assertEquals(1, revoked.size());
+        assertEquals(10, revoked.get(partition0).offset());
+        assertEquals(1, offsetTracker.size());
+        assertFalse(offsetTracker.acknowledge(third));
+        assertTrue(offsetTracker.acknowledge(retained));
+    }
+
+    @Test
+    public void shouldNotWaitOnOrCommitPastExcludedBatches() {
+        Map<TopicPartition, OffsetAndMetadata> first = register(partition0, 10);
+        Map<TopicPartition, OffsetAndMetadata> purged = register(partition0, 20);
+        offsetTracker.acknowledge(first);
+
+        assertFalse(offsetTracker.isAcknowledged(Collections.singletonList(partition0), Collections.emptySet()));
+        assertTrue(offsetTracker.isAcknowledged(Collections.singletonList(partition0), Collections.singleton(purged)));
+        Map<TopicPartition, OffsetAndMetadata> revoked = offsetTracker.revoke(Arrays.asList(partition0, partition1), Collections.singleton(purged));
+        assertEquals(10, revoked.get(partition0).offset());
+    }
+
+    @Test
+    public void shouldTakeBackLastRegisteredBatch() {
+        Map<TopicPartition, OffsetAndMetadata> first = register(partition0, 10);
+        Map<TopicPartition, OffsetAndMetadata> second = register(partition0, 20);
+
+        offsetTracker.unregister(second);
+        offsetTracker.acknowledge(first);
+
+        assertFalse(offsetTracker.acknowledge(second));
+        assertEquals(1, offsetTracker.advance());
+        assertFalse(offsetTracker.hasUnacknowledged());
+        assertTrue(offsetTracker.register(second));
+        assertTrue(offsetTracker.acknowledge(second));
+        assertEquals(1, offsetTracker.advance());
+        assertEquals(20, offsetTracker.takeCommittableOffsets().get(partition0).offset());
+    }
+
+    @Test
+    public void shouldWaitOnDeferredBatchesOnlyWhenEveryPartitionStopsAtOne() {
+        Map<TopicPartition, OffsetAndMetadata> first = register(partition0, 10);
+        Map<TopicPartition, OffsetAndMetadata> other = register(partition1, 5);
+        assertFalse(offsetTracker.isWaitingOnDeferred());
+
+        offsetTracker.defer(first);
+        assertFalse(offsetTracker.isWaitingOnDeferred());
+
+        offsetTracker.defer(other);
+        assertTrue(offsetTracker.isWaitingOnDeferred());
+
+        offsetTracker.acknowledge(first);
+        offsetTracker.advance();
+        Map<TopicPartition, OffsetAndMetadata> second = register(partition0, 20);
+        assertFalse(offsetTracker.isWaitingOnDeferred());
+
+        offsetTracker.acknowledge(second);
+        offsetTracker.advance();
+        assertTrue(offsetTracker.isWaitingOnDeferred());
+    }
+}
@@ -0,0 +1,55 @@
+package com.gojek.beast.config;
+
+import org.aeonbits.owner.ConfigFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class KafkaConfigTest {
+    private Map<String, String> properties;
+
+    @Before
+    public void setUp() {
+        properties = new HashMap<>();
+        properties.put("KAFKA_CONSUMER_GROUP_ID", "beast-booking");
+        properties.put("KAFKA_CONSUMER_MAX_POLL_RECORDS", "500");
+        properties.put("KAFKA_CONSUMER_COUNT", "3");
+        properties.put("KAFKA_CONSUMER_CONFIG_PREFIX", "KAFKA_CONSUMER");
+        properties.put("KAFKA_TOPIC", "booking-log");
+        properties.put("BQ_TABLE_NAME", "booking_log");
+    }
+
+    @Test
+    public void shouldPassOnlyConsumerConfigsOfPrefixAsKafkaKeys() {
+        Map<String, Object> consumerConfig = new KafkaConfig("KAFKA_CONSUMER", properties).get(appConfig());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("group.id", "beast-booking");
+        expected.put("max.poll.records", "500");
+        expected.put("enable.auto.commit", false);
+        assertEquals(expected, consumerConfig);
+    }
+
+    @Test
+    public void shouldSuffixClientIdOfConsumer() {
+        properties.put("KAFKA_CONSUMER_CLIENT_ID", "beast");
+        KafkaConfig kafkaConfig = new KafkaConfig("KAFKA_CONSUMER", properties);
+
+        assertEquals("beast-booking-1", kafkaConfig.get(appConfig(), "-booking-1").get("client.id"));
+        assertEquals("beast-booking-2", kafkaConfig.get(appConfig(), "-booking-2").get("client.id"));
+    }
+
+    @Test
+    public void shouldNotAddClientIdWhenNotConfigured() {
+        assertFalse(new KafkaConfig("KAFKA_CONSUMER", properties).get(appConfig(), "-1").containsKey("client.id"));
+    }
+
+    private AppConfig appConfig() {
+        return ConfigFactory.create(AppConfig.class, properties);
+    }
+}
@@ -0,0 +1,78 @@
+package com.gojek.beast.config;
+
+import com.gojek.beast.models.ConfigurationException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+public class PipelineConfigTest {
+    private Map<String, String> env;
+    private Properties file;
+
+    @Before
+    public void setUp() {
+        env = new HashMap<>();
+        env.put("BQ_PROJECT_NAME", "env-project");
+        env.put("BQ_DATASET_NAME", "env-dataset");
+        file = new Properties();
+        file.setProperty("PIPELINES", "booking, payment");
+        file.setProperty("booking.KAFKA_CONSUMER_GROUP_ID", "beast-booking");
+        file.setProperty("payment.KAFKA_CONSUMER_GROUP_ID", "beast-payment");
+    }
+
+    @Test
+    public void shouldOverrideEnvironmentWithSharedKeysAndSharedKeysWithThoseOfPipeline() {
+        file.setProperty("BQ_DATASET_NAME", "shared-dataset");
+        file.setProperty("BQ_TABLE_NAME", "shared-table");
+        file.setProperty("booking.BQ_TABLE_NAME", "booking_log");
+
+        List<PipelineConfig> pipelines = PipelineConfig.load(file, env);
+
+        assertEquals(2, pipelines.size());
+        PipelineConfig booking = pipelines.get(0);
+        assertEquals("booking", booking.getName());
+        assertEquals("env-project", booking.getBqConfig().getGCPProject());
+        assertEquals("shared-dataset", booking.getBqConfig().getDataset());
+        assertEquals("booking_log", booking.getBqConfig().getTable());
+        assertEquals("beast-booking", booking.getConsumerGroupId());
+        PipelineConfig payment = pipelines.get(1);
+        assertEquals("payment", payment.getName());
+        assertEquals("shared-table", payment.getBqConfig().getTable());
+        assertEquals("beast-payment", payment.getConsumerGroupId());
+    }
+
+    @Test
+    public void shouldRunTheOnePipelineOfTheEnvironmentWithoutPipelinesFile() throws Exception {
+        List<PipelineConfig> pipelines = PipelineConfig.load(env);
+
+        assertEquals(1, pipelines.size());
+        assertEquals("", pipelines.get(0).getName());
+        assertEquals("env-dataset", pipelines.get(0).getBqConfig().getDataset());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void shouldNotLoadFileWithoutPipelines() {
+        PipelineConfig.load(new Properties(), Collections.emptyMap());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void shouldNotLoadKeysOfPipelinesNotListed() {
+        file.setProperty("bookings.BQ_TABLE_NAME", "booking_log");
+
+        PipelineConfig.load(file, env);
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void shouldNotLoadPipelinesSharingConsumerGroup() {
+        file.setProperty("payment.KAFKA_CONSUMER_GROUP_ID", "beast-booking");
+
+        PipelineConfig.load(file, env);
+    }
+}
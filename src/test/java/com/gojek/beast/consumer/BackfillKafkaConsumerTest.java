@@ -0,0 +1,146 @@
+package com.gojek.beast.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BackfillKafkaConsumerTest {
+    private final TopicPartition first = new TopicPartition("topic", 0);
+    private final TopicPartition second = new TopicPartition("topic", 1);
+    private final List<TopicPartition> partitions = Arrays.asList(first, second);
+    @Mock
+    private KafkaConsumer<byte[], byte[]> consumer;
+    @Mock
+    private OffsetCommitCallback callback;
+    private Map<TopicPartition, Long> startOffsets;
+    private Map<TopicPartition, Long> endOffsets;
+    private boolean completed;
+
+    @Before
+    public void setUp() {
+        startOffsets = new HashMap<>();
+        startOffsets.put(first, 0L);
+        startOffsets.put(second, 5L);
+        endOffsets = new HashMap<>();
+        endOffsets.put(first, 3L);
+        endOffsets.put(second, 10L);
+        when(consumer.assignment()).thenReturn(new HashSet<>(partitions));
+        when(consumer.position(first)).thenReturn(0L);
+        when(consumer.position(second)).thenReturn(5L);
+    }
+
+    @Test
+    public void shouldSeekAssignedPartitionsToTheirStartOffsets() {
+        backfillConsumer();
+
+        verify(consumer).assign(partitions);
+        verify(consumer).seek(first, 0L);
+        verify(consumer).seek(second, 5L);
+        verify(consumer, never()).subscribe(any(Pattern.class), any());
+    }
+
+    @Test
+    public void shouldDropRecordsPastEndOffsetAndPausePartitionReadToIt() {
+        BackfillKafkaConsumer backfillConsumer = backfillConsumer();
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> polled = new HashMap<>();
+        polled.put(first, records(first, 0, 5));
+        polled.put(second, records(second, 5, 7));
+        when(consumer.poll(100L)).thenReturn(new ConsumerRecords<>(polled));
+        when(consumer.position(first)).thenReturn(5L);
+        when(consumer.position(second)).thenReturn(7L);
+
+        ConsumerRecords<byte[], byte[]> records = backfillConsumer.poll(100L);
+
+        assertEquals(Arrays.asList(0L, 1L, 2L), offsets(records.records(first)));
+        assertEquals(Arrays.asList(5L, 6L), offsets(records.records(second)));
+        verify(consumer).pause(Collections.singleton(first));
+    }
+
+    @Test
+    public void shouldReportOffsetsInsteadOfCommittingThemAndCompleteOnceAllAreWritten() {
+        BackfillKafkaConsumer backfillConsumer = backfillConsumer();
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        offsets.put(first, new OffsetAndMetadata(3));
+        offsets.put(second, new OffsetAndMetadata(9));
+
+        backfillConsumer.commitAsync(offsets, callback);
+        assertFalse(completed);
+        backfillConsumer.commitSync(Collections.singletonMap(second, new OffsetAndMetadata(10)));
+
+        assertTrue(completed);
+        verify(callback).onComplete(offsets, null);
+        verify(consumer, never()).commitSync(anyMap());
+        verify(consumer, never()).commitAsync(anyMap(), any());
+    }
+
+    @Test
+    public void shouldCompletePartitionReadToEndBeforeItsEndOffsetOnceWrittenUpToItsLastRecord() {
+        BackfillKafkaConsumer backfillConsumer = backfillConsumer();
+        // the last offsets of the partition hold no records, as with transaction markers
+        when(consumer.poll(100L)).thenReturn(new ConsumerRecords<>(Collections.singletonMap(second, records(second, 5, 8))));
+        when(consumer.position(second)).thenReturn(10L);
+        backfillConsumer.poll(100L);
+        backfillConsumer.commitSync(Collections.singletonMap(first, new OffsetAndMetadata(3)));
+        assertFalse(completed);
+
+        backfillConsumer.commitSync(Collections.singletonMap(second, new OffsetAndMetadata(8)));
+
+        assertTrue(completed);
+    }
+
+    @Test
+    public void shouldCompleteRightAwayWhenThereIsNothingToBackfill() {
+        startOffsets.put(first, 3L);
+        startOffsets.put(second, 10L);
+        when(consumer.position(first)).thenReturn(3L);
+        when(consumer.position(second)).thenReturn(10L);
+
+        backfillConsumer();
+
+        assertTrue(completed);
+        verify(consumer).pause(new HashSet<>(partitions));
+    }
+
+    private BackfillKafkaConsumer backfillConsumer() {
+        BackfillPlan plan = new BackfillPlan(partitions, startOffsets, endOffsets);
+        return new BackfillKafkaConsumer(consumer, partitions, plan, new BackfillProgress(plan, () -> completed = true));
+    }
+
+    private List<ConsumerRecord<byte[], byte[]>> records(TopicPartition partition, long fromOffset, long toOffset) {
+        return LongStream.range(fromOffset, toOffset)
+                .mapToObj(offset -> new ConsumerRecord<>(partition.topic(), partition.partition(), offset, new byte[0], new byte[0]))
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> offsets(List<ConsumerRecord<byte[], byte[]>> records) {
+        return records.stream().map(ConsumerRecord::offset).collect(Collectors.toList());
+    }
+}
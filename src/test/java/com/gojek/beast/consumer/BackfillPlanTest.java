@@ -0,0 +1,95 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.models.ConfigurationException;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BackfillPlanTest {
+    private final TopicPartition first = new TopicPartition("booking-log", 0);
+    private final TopicPartition second = new TopicPartition("booking-log", 1);
+    private final TopicPartition other = new TopicPartition("other-log", 0);
+    @Mock
+    private Consumer<byte[], byte[]> consumer;
+
+    @Before
+    public void setUp() {
+        Map<String, List<PartitionInfo>> topics = new HashMap<>();
+        topics.put("booking-log", Arrays.asList(partitionInfo(second), partitionInfo(first)));
+        topics.put("other-log", Collections.singletonList(partitionInfo(other)));
+        when(consumer.listTopics()).thenReturn(topics);
+        List<TopicPartition> partitions = Arrays.asList(first, second);
+        when(consumer.beginningOffsets(partitions)).thenReturn(offsets(10L, 20L));
+        when(consumer.endOffsets(partitions)).thenReturn(offsets(100L, 200L));
+    }
+
+    @Test
+    public void shouldReadPartitionsOfMatchingTopicsFromTheirFirstOffsetsToTheirEndOffsets() {
+        BackfillPlan plan = BackfillPlan.create(consumer, Pattern.compile("booking-.*"), -1, Collections.emptyMap());
+
+        assertEquals(Arrays.asList(first, second), plan.getPartitions());
+        assertEquals(offsets(10L, 20L), plan.getStartOffsets());
+        assertEquals(offsets(100L, 200L), plan.getEndOffsets());
+    }
+
+    @Test
+    public void shouldStartAtOffsetsOfTimestampOrAtEndWithoutMessagesSinceIt() {
+        Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes = new HashMap<>();
+        offsetsForTimes.put(first, new OffsetAndTimestamp(50L, 1000L));
+        offsetsForTimes.put(second, null);
+        when(consumer.offsetsForTimes(anyMap())).thenReturn(offsetsForTimes);
+
+        BackfillPlan plan = BackfillPlan.create(consumer, Pattern.compile("booking-log"), 1000L, Collections.emptyMap());
+
+        assertEquals(offsets(50L, 200L), plan.getStartOffsets());
+    }
+
+    @Test
+    public void shouldStartPartitionsAtOffsetsGivenForThem() {
+        BackfillPlan plan = BackfillPlan.create(consumer, Pattern.compile("booking-log"), -1, Collections.singletonMap("booking-log-1", "42"));
+
+        assertEquals(offsets(10L, 42L), plan.getStartOffsets());
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void shouldNotPlanStartOffsetOfPartitionNotBackfilled() {
+        BackfillPlan.create(consumer, Pattern.compile("booking-log"), -1, Collections.singletonMap("other-log-0", "42"));
+    }
+
+    @Test
+    public void shouldSpreadPartitionsOverConsumers() {
+        BackfillPlan plan = new BackfillPlan(Arrays.asList(first, second, other), Collections.emptyMap(), Collections.emptyMap());
+
+        assertEquals(Arrays.asList(first, other), plan.partitionsOf(0, 2));
+        assertEquals(Collections.singletonList(second), plan.partitionsOf(1, 2));
+    }
+
+    private Map<TopicPartition, Long> offsets(long firstOffset, long secondOffset) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        offsets.put(first, firstOffset);
+        offsets.put(second, secondOffset);
+        return offsets;
+    }
+
+    private PartitionInfo partitionInfo(TopicPartition partition) {
+        return new PartitionInfo(partition.topic(), partition.partition(), null, null, null);
+    }
+}
@@ -0,0 +1,128 @@
+package com.gojek.beast.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class KafkaConsumerTest {
+    private final TopicPartition assigned = new TopicPartition("topic", 0);
+    private final TopicPartition revoked = new TopicPartition("topic", 1);
+    private final ConsumerRecords<byte[], byte[]> records = new ConsumerRecords<>(Collections.emptyMap());
+    @Mock
+    private org.apache.kafka.clients.consumer.KafkaConsumer<byte[], byte[]> consumer;
+    @Mock
+    private OffsetCommitCallback callback;
+    private Map<TopicPartition, OffsetAndMetadata> offsets;
+    private KafkaConsumer kafkaConsumer;
+
+    @Before
+    public void setUp() {
+        offsets = Collections.singletonMap(assigned, new OffsetAndMetadata(10));
+        when(consumer.assignment()).thenReturn(new HashSet<>(Collections.singletonList(assigned)));
+        kafkaConsumer = new KafkaConsumer(consumer);
+    }
+
+    @Test
+    public void shouldCommitPendingOffsetsAndResumePollWokenUpForThem() {
+        when(consumer.poll(100L)).thenThrow(new WakeupException()).thenReturn(records);
+
+        kafkaConsumer.commitAsync(offsets, callback);
+        ConsumerRecords<byte[], byte[]> polled = kafkaConsumer.poll(100L);
+
+        assertSame(records, polled);
+        verify(consumer).wakeup();
+        InOrder inOrder = inOrder(consumer);
+        inOrder.verify(consumer).commitAsync(offsets, callback);
+        inOrder.verify(consumer, times(2)).poll(100L);
+    }
+
+    @Test(expected = WakeupException.class)
+    public void shouldRethrowWakeupToStop() {
+        when(consumer.poll(100L)).thenThrow(new WakeupException()).thenReturn(records);
+
+        kafkaConsumer.wakeup("stop");
+        kafkaConsumer.poll(100L);
+    }
+
+    @Test(expected = WakeupException.class)
+    public void shouldRethrowWakeupToStopEvenWithCommitsPending() {
+        when(consumer.poll(100L)).thenThrow(new WakeupException()).thenReturn(records);
+
+        kafkaConsumer.commitAsync(offsets, callback);
+        kafkaConsumer.wakeup("stop");
+        kafkaConsumer.poll(100L);
+    }
+
+    @Test
+    public void shouldSkipPendingOffsetsOfUnassignedPartitions() {
+        Map<TopicPartition, OffsetAndMetadata> pending = new HashMap<>(offsets);
+        pending.put(revoked, new OffsetAndMetadata(20));
+        when(consumer.poll(100L)).thenReturn(records);
+
+        kafkaConsumer.commitAsync(pending, callback);
+        kafkaConsumer.poll(100L);
+
+        verify(consumer).commitAsync(offsets, callback);
+    }
+
+    @Test
+    public void shouldCommitPendingOffsetsSynchronouslyOnCloseDespiteWakeupOfClose() {
+        doThrow(new WakeupException()).doNothing().when(consumer).commitSync(offsets);
+
+        kafkaConsumer.commitAsync(offsets, callback);
+        kafkaConsumer.close();
+
+        assertTrue(kafkaConsumer.isClosed());
+        verify(consumer, times(2)).commitSync(offsets);
+        verify(callback).onComplete(offsets, null);
+        verify(consumer, never()).commitAsync(anyMap(), any());
+        verify(consumer).close();
+    }
+
+    @Test
+    public void shouldHandFailedCommitOnCloseToCallback() {
+        RuntimeException failure = new RuntimeException("commit failed");
+        doThrow(failure).when(consumer).commitSync(offsets);
+
+        kafkaConsumer.commitAsync(offsets, callback);
+        kafkaConsumer.close();
+
+        verify(callback).onComplete(offsets, failure);
+        verify(consumer).close();
+    }
+
+    @Test
+    public void shouldCommitSynchronously() {
+        doNothing().when(consumer).commitSync(offsets);
+
+        kafkaConsumer.commitSync(offsets);
+
+        verify(consumer).commitSync(offsets);
+    }
+}
@@ -1,13 +1,16 @@
 package com.gojek.beast.consumer;
 
 import com.gojek.beast.converter.ConsumerRecordConverter;
+import com.gojek.beast.models.QueueFullStatus;
 import com.gojek.beast.models.Record;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
 import com.gojek.beast.protomapping.ProtoUpdateListener;
 import com.gojek.beast.sink.Sink;
 import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,15 +21,22 @@ import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -86,4 +96,89 @@ public class MessageConsumerTest {
 
         consumer.consume();
     }
+
+    @Test
+    public void shouldResumePollWokenUpForPendingCommitsAndPushItsRecords() throws InvalidProtocolBufferException {
+        KafkaConsumer committingConsumer = new KafkaConsumer(kafkaConsumer);
+        consumer = new MessageConsumer(committingConsumer, sink, protoUpdateListener, timeout);
+        when(kafkaConsumer.poll(timeout)).thenThrow(new WakeupException()).thenReturn(messages);
+        when(protoUpdateListener.getProtoParser()).thenReturn(converter);
+        when(converter.convert(messages)).thenReturn(records);
+        when(sink.push(any())).thenReturn(success);
+
+        committingConsumer.commitAsync(Collections.emptyMap(), (offsets, exception) -> { });
+        Status status = consumer.consume();
+
+        assertTrue(status.isSuccess());
+        verify(sink).push(recordsCaptor.capture());
+        assertEquals(records, recordsCaptor.getValue().getRecords());
+    }
+
+    @Test
+    public void shouldPauseAssignedPartitionsWhenQueueIsAboveHighWatermark() {
+        BlockingQueue<Records> readQueue = new LinkedBlockingQueue<>(2);
+        readQueue.add(new Records(records));
+        readQueue.add(new Records(records));
+        Set<TopicPartition> assignment = Collections.singleton(new TopicPartition("topic", 0));
+        when(kafkaConsumer.assignment()).thenReturn(assignment);
+        when(messages.isEmpty()).thenReturn(true);
+        consumer = new MessageConsumer(new KafkaConsumer(kafkaConsumer), sink, protoUpdateListener, timeout, null,
+                new QueueWatermark(Collections.singletonList(() -> QueueWatermark.occupancy(readQueue)), 0.8, 0.5), timeout);
+
+        Status status = consumer.consume();
+
+        assertTrue(status.isSuccess());
+        verify(kafkaConsumer, atLeastOnce()).pause(assignment);
+        verify(kafkaConsumer).poll(timeout);
+    }
+
+    @Test
+    public void shouldResumePausedPartitionsWhenQueueDrainsBelowLowWatermark() {
+        BlockingQueue<Records> readQueue = new LinkedBlockingQueue<>(2);
+        readQueue.add(new Records(records));
+        readQueue.add(new Records(records));
+        Set<TopicPartition> partitions = Collections.singleton(new TopicPartition("topic", 0));
+        when(kafkaConsumer.assignment()).thenReturn(partitions);
+        when(kafkaConsumer.paused()).thenReturn(partitions);
+        when(messages.isEmpty()).thenReturn(true);
+        KafkaConsumer pausingConsumer = new KafkaConsumer(kafkaConsumer);
+        consumer = new MessageConsumer(pausingConsumer, sink, protoUpdateListener, timeout, null,
+                new QueueWatermark(Collections.singletonList(() -> QueueWatermark.occupancy(readQueue)), 0.8, 0.5), timeout);
+
+        consumer.consume();
+        assertTrue(pausingConsumer.isPaused());
+        readQueue.clear();
+        consumer.consume();
+
+        assertFalse(pausingConsumer.isPaused());
+        verify(kafkaConsumer).resume(partitions);
+    }
+
+    @Test
+    public void shouldPauseAndPollBatchAgainWhenQueueIsFull() throws InvalidProtocolBufferException {
+        TopicPartition partition = new TopicPartition("topic", 0);
+        ConsumerRecords<byte[], byte[]> polled = new ConsumerRecords<>(Collections.singletonMap(partition, Arrays.asList(
+                new ConsumerRecord<>("topic", 0, 10, new byte[0], new byte[0]), new ConsumerRecord<>("topic", 0, 11, new byte[0], new byte[0]))));
+        Set<TopicPartition> assignment = Collections.singleton(partition);
+        when(kafkaConsumer.poll(timeout)).thenReturn(polled);
+        when(kafkaConsumer.assignment()).thenReturn(assignment);
+        when(kafkaConsumer.paused()).thenReturn(assignment);
+        when(protoUpdateListener.getProtoParser()).thenReturn(converter);
+        when(converter.convert(polled)).thenReturn(records);
+        when(sink.push(any())).thenReturn(new QueueFullStatus("read queue is full")).thenReturn(success);
+        KafkaConsumer pausingConsumer = new KafkaConsumer(kafkaConsumer);
+        consumer = new MessageConsumer(pausingConsumer, sink, protoUpdateListener, timeout);
+
+        Status status = consumer.consume();
+
+        assertTrue(status.isSuccess());
+        assertTrue(pausingConsumer.isPaused());
+        InOrder inOrder = inOrder(kafkaConsumer);
+        inOrder.verify(kafkaConsumer).seek(partition, 10L);
+        inOrder.verify(kafkaConsumer).pause(assignment);
+
+        assertTrue(consumer.consume().isSuccess());
+        assertFalse(pausingConsumer.isPaused());
+        verify(kafkaConsumer).resume(assignment);
+    }
 }
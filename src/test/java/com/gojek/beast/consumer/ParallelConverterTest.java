@@ -0,0 +1,119 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.converter.ConsumerRecordConverter;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.protomapping.ProtoUpdateListener;
+import com.gojek.beast.util.KafkaConsumerUtil;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ParallelConverterTest {
+    @Mock
+    private ProtoUpdateListener protoUpdateListener;
+    @Mock
+    private ConsumerRecordConverter recordConverter;
+    private BlockingQueue<Future<Records>> convertedQueue;
+    private ParallelConverter parallelConverter;
+
+    @Before
+    public void setUp() {
+        convertedQueue = new LinkedBlockingQueue<>(1);
+        parallelConverter = new ParallelConverter(protoUpdateListener, Executors.newFixedThreadPool(2), convertedQueue, new QueueConfig(10, "converted"));
+        when(protoUpdateListener.getProtoParser()).thenReturn(recordConverter);
+    }
+
+    @After
+    public void tearDown() {
+        parallelConverter.close();
+    }
+
+    @Test
+    public void shouldConvertBatchIntoRecordsWithSameCommitOffsets() throws InterruptedException, ExecutionException, InvalidProtocolBufferException {
+        when(recordConverter.convert(any())).thenAnswer(invocation -> {
+            List<Record> records = new ArrayList<>();
+            for (ConsumerRecord<byte[], byte[]> message : (Iterable<ConsumerRecord<byte[], byte[]>>) invocation.getArgument(0)) {
+                OffsetInfo offsetInfo = new OffsetInfo(message.topic(), message.partition(), message.offset(), message.timestamp());
+                records.add(new Record(offsetInfo, new HashMap<>(), message.key(), message.value()));
+            }
+            return records;
+        });
+        KafkaConsumerUtil partitionOne = new KafkaConsumerUtil().withPartition(1).withOffset(10);
+        KafkaConsumerUtil partitionTwo = new KafkaConsumerUtil().withPartition(2).withOffset(20);
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> messages = new HashMap<>();
+        messages.put(new TopicPartition("default-topic", 1), Arrays.asList(partitionOne.createConsumerRecord("1", "url", "details"), partitionOne.createConsumerRecord("2", "url", "details")));
+        messages.put(new TopicPartition("default-topic", 2), Arrays.asList(partitionTwo.createConsumerRecord("3", "url", "details")));
+        Instant polledTime = Instant.now();
+
+        Status status = parallelConverter.submit(new ConsumerRecords<>(messages), polledTime);
+
+        assertTrue(status.isSuccess());
+        Records records = convertedQueue.take().get();
+        Map<TopicPartition, OffsetAndMetadata> commitOffsets = records.getPartitionsCommitOffset();
+        assertEquals(3, records.size());
+        assertEquals(polledTime, records.getPolledTime());
+        assertEquals(12, commitOffsets.get(new TopicPartition("default-topic", 1)).offset());
+        assertEquals(21, commitOffsets.get(new TopicPartition("default-topic", 2)).offset());
+    }
+
+    @Test
+    public void shouldFailConvertedBatchWhenConversionFails() throws InterruptedException, InvalidProtocolBufferException {
+        when(recordConverter.convert(any())).thenThrow(new InvalidProtocolBufferException("invalid"));
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> messages = new HashMap<>();
+        messages.put(new TopicPartition("default-topic", 1), Arrays.asList(new KafkaConsumerUtil().createConsumerRecord("1", "url", "details")));
+
+        Status status = parallelConverter.submit(new ConsumerRecords<>(messages), Instant.now());
+
+        assertTrue(status.isSuccess());
+        try {
+            convertedQueue.take().get();
+            fail("conversion failure should fail the converted batch");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InvalidProtocolBufferException);
+        }
+    }
+
+    @Test
+    public void shouldReturnFailureWhenClosedWhileConvertedQueueIsFull() {
+        Map<TopicPartition, List<ConsumerRecord<byte[], byte[]>>> messages = new HashMap<>();
+        messages.put(new TopicPartition("default-topic", 1), Arrays.asList(new KafkaConsumerUtil().createConsumerRecord("1", "url", "details")));
+        parallelConverter.submit(new ConsumerRecords<>(messages), Instant.now());
+        new Thread(() -> parallelConverter.close()).start();
+
+        Status status = parallelConverter.submit(new ConsumerRecords<>(messages), Instant.now());
+
+        assertFalse(status.isSuccess());
+    }
+}
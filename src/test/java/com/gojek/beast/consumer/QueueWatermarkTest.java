@@ -0,0 +1,37 @@
+package com.gojek.beast.consumer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueueWatermarkTest {
+
+    @Test
+    public void shouldReserveRoomForBatchOfEachProducer() {
+        BlockingQueue<Integer> queue = new LinkedBlockingQueue<>(10);
+        queue.addAll(Arrays.asList(1, 2, 3, 4, 5));
+
+        assertEquals(0.5, QueueWatermark.occupancy(queue), 0.001);
+        assertEquals(0.8, QueueWatermark.occupancy(queue, 3), 0.001);
+        assertEquals(1, QueueWatermark.occupancy(queue, 8), 0.001);
+    }
+
+    @Test
+    public void shouldBeHighAtFullestQueue() {
+        BlockingQueue<Integer> readQueue = new LinkedBlockingQueue<>(10);
+        BlockingQueue<Integer> convertedQueue = new LinkedBlockingQueue<>(2);
+        readQueue.add(1);
+        QueueWatermark queueWatermark = new QueueWatermark(Arrays.asList(() -> QueueWatermark.occupancy(readQueue, 3), () -> QueueWatermark.occupancy(convertedQueue, 1)), 0.8, 0.5);
+
+        assertFalse(queueWatermark.isHigh());
+        convertedQueue.add(1);
+        assertTrue(queueWatermark.isHigh());
+        assertEquals(1, queueWatermark.getOccupancy(), 0.001);
+    }
+}
@@ -0,0 +1,121 @@
+package com.gojek.beast.consumer;
+
+import com.gojek.beast.commiter.OffsetTracker;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.backoff.DecorrelatedJitterBackOff;
+import com.gojek.beast.backoff.RetryBudget;
+import com.gojek.beast.util.RecordsUtil;
+import com.gojek.beast.worker.RetryScheduler;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.errors.WakeupException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RebalanceListenerTest {
+    @Mock
+    private Consumer<byte[], byte[]> consumer;
+    private BlockingQueue<Records> readQueue;
+    private OffsetTracker offsetTracker;
+    private RebalanceListener listener;
+    private RecordsUtil recordsUtil;
+
+    @Before
+    public void setUp() {
+        readQueue = new LinkedBlockingQueue<>();
+        offsetTracker = new OffsetTracker(8);
+        listener = new RebalanceListener(consumer, readQueue, offsetTracker, 100);
+        recordsUtil = new RecordsUtil();
+    }
+
+    @Test
+    public void shouldCommitAcknowledgedOffsetsAndDropQueuedBatchesOfRevokedPartitions() {
+        Records inserted = recordsUtil.createRecords("driver-", 3);
+        Records queued = recordsUtil.createRecords("driver-", 3);
+        Records retained = recordsUtil.createRecords("customer-", 3);
+        offsetTracker.register(inserted.getPartitionsCommitOffset());
+        offsetTracker.register(queued.getPartitionsCommitOffset());
+        offsetTracker.register(retained.getPartitionsCommitOffset());
+        offsetTracker.acknowledge(inserted.getPartitionsCommitOffset());
+        readQueue.add(queued);
+        readQueue.add(retained);
+
+        listener.onPartitionsRevoked(inserted.getPartitionsCommitOffset().keySet());
+
+        verify(consumer).commitSync(inserted.getPartitionsCommitOffset());
+        assertEquals(1, readQueue.size());
+        assertTrue(readQueue.contains(retained));
+        assertEquals(1, offsetTracker.size());
+        assertFalse(offsetTracker.acknowledge(queued.getPartitionsCommitOffset()));
+    }
+
+    @Test
+    public void shouldNotCommitWhenInFlightBatchIsNotAcknowledgedInTime() {
+        Records inFlight = recordsUtil.createRecords("driver-", 3);
+        offsetTracker.register(inFlight.getPartitionsCommitOffset());
+
+        listener.onPartitionsRevoked(inFlight.getPartitionsCommitOffset().keySet());
+
+        verify(consumer, never()).commitSync(anyMap());
+        assertEquals(0, offsetTracker.size());
+    }
+
+    @Test
+    public void shouldCommitAgainAfterPendingWakeup() {
+        Records inserted = recordsUtil.createRecords("driver-", 3);
+        offsetTracker.register(inserted.getPartitionsCommitOffset());
+        offsetTracker.acknowledge(inserted.getPartitionsCommitOffset());
+        doThrow(new WakeupException()).doNothing().when(consumer).commitSync(inserted.getPartitionsCommitOffset());
+
+        listener.onPartitionsRevoked(inserted.getPartitionsCommitOffset().keySet());
+
+        verify(consumer, times(2)).commitSync(inserted.getPartitionsCommitOffset());
+    }
+
+    @Test
+    public void shouldCommitOffsetsAlreadyTakenByCommitter() {
+        Records inserted = recordsUtil.createRecords("driver-", 3);
+        offsetTracker.register(inserted.getPartitionsCommitOffset());
+        offsetTracker.acknowledge(inserted.getPartitionsCommitOffset());
+        offsetTracker.advance();
+        assertEquals(inserted.getPartitionsCommitOffset(), offsetTracker.takeCommittableOffsets());
+
+        listener.onPartitionsRevoked(inserted.getPartitionsCommitOffset().keySet());
+
+        verify(consumer).commitSync(inserted.getPartitionsCommitOffset());
+    }
+
+    @Test
+    public void shouldDropBatchesOfRevokedPartitionsWaitingForRetry() throws InterruptedException {
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(200, 200), new RetryBudget(0.1, 10), 3);
+        listener = new RebalanceListener(consumer, readQueue, offsetTracker, 100, retryScheduler);
+        Records inserted = recordsUtil.createRecords("driver-", 3);
+        Records retried = recordsUtil.createRecords("driver-", 3);
+        offsetTracker.register(inserted.getPartitionsCommitOffset());
+        offsetTracker.register(retried.getPartitionsCommitOffset());
+        offsetTracker.acknowledge(inserted.getPartitionsCommitOffset());
+        retryScheduler.schedule(Collections.singletonList(retried), readQueue);
+
+        listener.onPartitionsRevoked(inserted.getPartitionsCommitOffset().keySet());
+
+        verify(consumer).commitSync(inserted.getPartitionsCommitOffset());
+        Thread.sleep(400);
+        assertTrue(readQueue.isEmpty());
+    }
+}
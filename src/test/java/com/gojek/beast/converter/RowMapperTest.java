@@ -309,6 +309,25 @@ public class RowMapperTest {
         return nestedMappings;
     }
 
+    @Test
+    public void shouldRecompileMappingPlanWhenMessageDescriptorChanges() throws InvalidProtocolBufferException {
+        ColumnMapping fieldMappings = new ColumnMapping();
+        fieldMappings.put("1", "order_number_field");
+        fieldMappings.put("7", "success_field");
+        fieldMappings.put("8", "price_field");
+        RowMapper rowMapper = new RowMapper(fieldMappings);
+        byte[] data = TestMessage.newBuilder().setOrderNumber("order-1").setSuccess(true).setPrice(10.5f).build().toByteArray();
+
+        Map<String, Object> fields = rowMapper.map(new ProtoParser(StencilClientFactory.getClient(), TestMessage.class.getName()).parse(data));
+        Map<String, Object> childFields = rowMapper.map(new ProtoParser(StencilClientFactory.getClient(), TestMessageChild.class.getName()).parse(data));
+
+        assertEquals(3, fields.size());
+        assertEquals(10.5f, fields.get("price_field"));
+        assertEquals(2, childFields.size());
+        assertEquals("order-1", childFields.get("order_number_field"));
+        assertEquals(true, childFields.get("success_field"));
+    }
+
     @Test()
     public void shouldReturnNullWhenIndexNotPresent() {
         ColumnMapping fieldMappings = new ColumnMapping();
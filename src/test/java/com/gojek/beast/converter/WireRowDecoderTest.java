@@ -0,0 +1,226 @@
+package com.gojek.beast.converter;
+
+import com.gojek.beast.Status;
+import com.gojek.beast.TestMessage;
+import com.gojek.beast.TestMessageChild;
+import com.gojek.beast.TestNestedMessage;
+import com.gojek.beast.TestNestedRepeatedMessage;
+import com.gojek.beast.config.ColumnMapping;
+import com.gojek.beast.exception.UnknownProtoFieldFoundException;
+import com.gojek.beast.util.ProtoUtil;
+import com.gojek.de.stencil.StencilClientFactory;
+import com.gojek.de.stencil.parser.Parser;
+import com.gojek.de.stencil.parser.ProtoParser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.Value;
+import com.google.type.Date;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WireRowDecoderTest {
+
+    private Instant now;
+    private ColumnMapping testMessageMapping;
+
+    @Before
+    public void setUp() {
+        now = Instant.now();
+        testMessageMapping = new ColumnMapping();
+        testMessageMapping.put("1", "order_number");
+        testMessageMapping.put("2", "order_url");
+        testMessageMapping.put("3", "order_details");
+        testMessageMapping.put("4", "created_at");
+        testMessageMapping.put("5", "status");
+        testMessageMapping.put("6", "discount");
+        testMessageMapping.put("7", "success");
+        testMessageMapping.put("8", "price");
+        ColumnMapping currentStateMapping = new ColumnMapping();
+        currentStateMapping.put("record_name", "current_state");
+        currentStateMapping.put("1", "key");
+        currentStateMapping.put("2", "value");
+        testMessageMapping.put("9", currentStateMapping);
+        testMessageMapping.put("10", "user_token");
+        ColumnMapping durationMapping = new ColumnMapping();
+        durationMapping.put("record_name", "trip_duration");
+        durationMapping.put("1", "seconds");
+        durationMapping.put("2", "nanos");
+        testMessageMapping.put("11", durationMapping);
+        testMessageMapping.put("12", "aliases");
+        testMessageMapping.put("13", "properties");
+        ColumnMapping dateMapping = new ColumnMapping();
+        dateMapping.put("record_name", "order_date");
+        dateMapping.put("1", "year");
+        dateMapping.put("2", "month");
+        dateMapping.put("3", "day");
+        testMessageMapping.put("14", dateMapping);
+        testMessageMapping.put("15", "updated_at");
+        testMessageMapping.put("16", "attributes");
+    }
+
+    @Test
+    public void shouldDecodeSameRowAsDynamicMessageDecoder() throws Exception {
+        Timestamp createdAt = Timestamp.newBuilder().setSeconds(now.getEpochSecond()).setNanos(now.getNano()).build();
+        Struct struct = Struct.newBuilder().putFields("name", Value.newBuilder().setStringValue("John").build()).build();
+        TestMessage message = ProtoUtil.generateTestMessage(now).toBuilder()
+                .setStatus(Status.CANCELLED)
+                .setDiscount(10)
+                .setPrice(12.5f)
+                .putCurrentState("payment", "cash")
+                .putCurrentState("state", "done")
+                .setUserToken(ByteString.copyFromUtf8("token"))
+                .addAliases("alias1").addAliases("alias2")
+                .setProperties(struct)
+                .setOrderDate(Date.newBuilder().setYear(1996).setMonth(11).setDay(21))
+                .addUpdatedAt(createdAt)
+                .addAttributes(struct).addAttributes(struct)
+                .build();
+
+        assertSameRow(testMessageMapping, TestMessage.class.getName(), message.toByteArray());
+    }
+
+    @Test
+    public void shouldDecodeDefaultValuesOfAbsentFieldsLikeDynamicMessageDecoder() throws Exception {
+        assertSameRow(testMessageMapping, TestMessage.class.getName(), TestMessage.newBuilder().build().toByteArray());
+        assertSameRow(testMessageMapping, TestMessage.class.getName(), TestMessage.newBuilder().setOrderNumber("order-1").build().toByteArray());
+    }
+
+    @Test
+    public void shouldDecodeNestedAndRepeatedNestedMessages() throws Exception {
+        ColumnMapping nestedMapping = (ColumnMapping) testMessageMapping.clone();
+        nestedMapping.put("record_name", "msg");
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", nestedMapping);
+        mapping.put("2", nestedMapping);
+        mapping.put("3", "number_field");
+        mapping.put("4", "repeated_number_field");
+        TestNestedRepeatedMessage message = TestNestedRepeatedMessage.newBuilder()
+                .setSingleMessage(ProtoUtil.generateTestMessage(now))
+                .addRepeatedMessage(ProtoUtil.generateTestMessage(now))
+                .addRepeatedMessage(ProtoUtil.generateTestMessage(now))
+                .setNumberField(10)
+                .addRepeatedNumberField(1).addRepeatedNumberField(2)
+                .build();
+
+        assertSameRow(mapping, TestNestedRepeatedMessage.class.getName(), message.toByteArray());
+    }
+
+    @Test
+    public void shouldMergeRepeatedOccurrencesOfSingularMessage() throws Exception {
+        ColumnMapping nestedMapping = (ColumnMapping) testMessageMapping.clone();
+        nestedMapping.put("record_name", "msg");
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "nested_id");
+        mapping.put("2", nestedMapping);
+        byte[] first = TestNestedMessage.newBuilder().setNestedId("first").setSingleMessage(TestMessage.newBuilder().setOrderNumber("order-1")).build().toByteArray();
+        byte[] second = TestNestedMessage.newBuilder().setNestedId("second").setSingleMessage(TestMessage.newBuilder().setOrderUrl("url-1")).build().toByteArray();
+        byte[] merged = ByteString.copyFrom(first).concat(ByteString.copyFrom(second)).toByteArray();
+
+        Map<String, Object> row = assertSameRow(mapping, TestNestedMessage.class.getName(), merged);
+
+        assertEquals("second", row.get("nested_id"));
+        assertEquals("order-1", ((Map) row.get("msg")).get("order_number"));
+        assertEquals("url-1", ((Map) row.get("msg")).get("order_url"));
+    }
+
+    @Test
+    public void shouldKeepLastOccurrenceOfSingularBytesField() throws Exception {
+        byte[] first = TestMessage.newBuilder().setUserToken(ByteString.copyFromUtf8("first")).build().toByteArray();
+        byte[] second = TestMessage.newBuilder().setUserToken(ByteString.copyFromUtf8("second")).build().toByteArray();
+        byte[] duplicated = ByteString.copyFrom(first).concat(ByteString.copyFrom(second)).toByteArray();
+
+        Map<String, Object> row = assertSameRow(testMessageMapping, TestMessage.class.getName(), duplicated);
+
+        assertEquals(Base64.getEncoder().encodeToString("second".getBytes(StandardCharsets.UTF_8)), row.get("user_token"));
+    }
+
+    @Test
+    public void shouldSkipUnmappedFields() throws Exception {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("3", "order_details");
+        byte[] message = ProtoUtil.generateTestMessage(now).toByteArray();
+
+        Map<String, Object> row = assertSameRow(mapping, TestMessage.class.getName(), message);
+
+        assertEquals(1, row.size());
+        assertTrue(row.get("order_details").toString().startsWith("order-details-"));
+    }
+
+    @Test(expected = UnknownProtoFieldFoundException.class)
+    public void shouldThrowExceptionIfUnknownFieldsArePresent() throws Exception {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        byte[] message = TestMessage.newBuilder().setOrderNumber("22").setPrice(33).setSuccess(true).build().toByteArray();
+        ProtoParser protoParser = new ProtoParser(StencilClientFactory.getClient(), TestMessageChild.class.getName());
+
+        new WireRowDecoder(new RowMapper(mapping, true), protoParser).decode(message);
+    }
+
+    @Test
+    public void shouldIgnoreUnknownFieldsWhenNotFailingOnThem() throws Exception {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        mapping.put("7", "success");
+        byte[] message = TestMessage.newBuilder().setOrderNumber("22").setPrice(33).setSuccess(true).build().toByteArray();
+
+        Map<String, Object> row = assertSameRow(mapping, TestMessageChild.class.getName(), message);
+
+        assertEquals("22", row.get("order_number"));
+        assertEquals(true, row.get("success"));
+    }
+
+    @Test
+    public void shouldResolveDescriptorOnceForAllMessages() throws Exception {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        ProtoParser protoParser = new ProtoParser(StencilClientFactory.getClient(), TestMessage.class.getName());
+        Parser parser = mock(Parser.class);
+        when(parser.parse(any())).thenAnswer(invocation -> protoParser.parse(invocation.getArgument(0)));
+        WireRowDecoder decoder = new WireRowDecoder(new RowMapper(mapping), parser);
+
+        decoder.decode(TestMessage.newBuilder().setOrderNumber("21").build().toByteArray());
+        Map<String, Object> row = decoder.decode(TestMessage.newBuilder().setOrderNumber("22").build().toByteArray());
+
+        assertEquals("22", row.get("order_number"));
+        verify(parser, times(1)).parse(any());
+    }
+
+    @Test
+    public void shouldResolveDescriptorAgainWhenMessageHasFieldsUnknownToIt() throws Exception {
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        byte[] message = TestMessage.newBuilder().setOrderNumber("22").setPrice(33).setSuccess(true).build().toByteArray();
+        ProtoParser stale = new ProtoParser(StencilClientFactory.getClient(), TestMessageChild.class.getName());
+        ProtoParser refreshed = new ProtoParser(StencilClientFactory.getClient(), TestMessage.class.getName());
+        Parser parser = mock(Parser.class);
+        when(parser.parse(any()))
+                .thenAnswer(invocation -> stale.parse(invocation.getArgument(0)))
+                .thenAnswer(invocation -> refreshed.parse(invocation.getArgument(0)));
+
+        Map<String, Object> row = new WireRowDecoder(new RowMapper(mapping, true), parser).decode(message);
+
+        assertEquals("22", row.get("order_number"));
+    }
+
+    private Map<String, Object> assertSameRow(ColumnMapping mapping, String protoClassName, byte[] message) throws Exception {
+        ProtoParser protoParser = new ProtoParser(StencilClientFactory.getClient(), protoClassName);
+        Map<String, Object> expected = new DynamicMessageRowDecoder(new RowMapper(mapping), protoParser).decode(message);
+        Map<String, Object> actual = new WireRowDecoder(new RowMapper(mapping), protoParser).decode(message);
+        assertEquals(expected, actual);
+        return actual;
+    }
+}
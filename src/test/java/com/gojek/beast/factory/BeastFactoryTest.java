@@ -0,0 +1,112 @@
+package com.gojek.beast.factory;
+
+import com.gojek.beast.TestMessage;
+import com.gojek.beast.config.PipelineConfig;
+import com.gojek.beast.sink.bq.PooledHttpTransportFactory;
+import com.gojek.beast.worker.AsyncBqQueueWorker;
+import com.gojek.beast.worker.Worker;
+import com.gojek.beast.worker.WorkerState;
+import com.gojek.de.stencil.StencilClientFactory;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class BeastFactoryTest {
+    @Mock
+    private SharedResources sharedResources;
+    private Map<String, String> properties;
+    private BeastFactory beastFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        properties = new HashMap<>();
+        properties.put("KAFKA_TOPIC", "booking-log");
+        properties.put("KAFKA_CONSUMER_GROUP_ID", "beast-booking");
+        properties.put("KAFKA_CONSUMER_CLIENT_ID", "beast");
+        properties.put("KAFKA_CONSUMER_BOOTSTRAP_SERVERS", "localhost:9092");
+        properties.put("KAFKA_CONSUMER_KEY_DESERIALIZER", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        properties.put("KAFKA_CONSUMER_VALUE_DESERIALIZER", "org.apache.kafka.common.serialization.ByteArrayDeserializer");
+        properties.put("KAFKA_CONSUMER_COUNT", "3");
+        properties.put("PROTO_SCHEMA", TestMessage.class.getName());
+        properties.put("STENCIL_URL", "http://localhost/stencil");
+        properties.put("GOOGLE_CREDENTIALS", "credentials.json");
+        properties.put("BQ_PROJECT_NAME", "bq-project");
+        properties.put("BQ_DATASET_NAME", "bq-dataset");
+        properties.put("BQ_TABLE_NAME", "bq-table");
+        properties.put("GCS_WRITER_PROJECT_NAME", "gcs-project");
+        when(sharedResources.getStencilClient(anyString())).thenReturn(StencilClientFactory.getClient());
+        when(sharedResources.getCredentials(anyString())).thenReturn(GoogleCredentials.create(new AccessToken("token", null)));
+        when(sharedResources.getHttpTransportFactory()).thenReturn(new PooledHttpTransportFactory(1, 1, 1000));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (beastFactory != null) {
+            beastFactory.close();
+        }
+    }
+
+    @Test
+    public void shouldCreateConsumerAndCommitterOfEachConsumerOfPipeline() throws Exception {
+        beastFactory = new BeastFactory(PipelineConfig.create("", properties), new WorkerState(), sharedResources);
+
+        assertEquals(Arrays.asList("consumer-0", "consumer-1", "consumer-2"), names(beastFactory.createConsumerWorkers()));
+        assertEquals(Arrays.asList("committer-0", "committer-1", "committer-2"), names(beastFactory.createOffsetCommitters()));
+    }
+
+    @Test
+    public void shouldNameSingleConsumerWithoutSuffix() throws Exception {
+        properties.put("KAFKA_CONSUMER_COUNT", "1");
+        beastFactory = new BeastFactory(PipelineConfig.create("", properties), new WorkerState(), sharedResources);
+
+        assertEquals(Arrays.asList("consumer"), names(beastFactory.createConsumerWorkers()));
+    }
+
+    @Test
+    public void shouldPrefixWorkersOfNamedPipeline() throws Exception {
+        properties.put("BQ_WORKER_POOL_SIZE", "2");
+        beastFactory = new BeastFactory(PipelineConfig.create("booking", properties), new WorkerState(), sharedResources);
+
+        assertEquals(Arrays.asList("booking-consumer-0", "booking-consumer-1", "booking-consumer-2"), names(beastFactory.createConsumerWorkers()));
+        assertEquals(Arrays.asList("booking-bq-worker-0", "booking-bq-worker-1"), names(beastFactory.createBqWorkers()));
+    }
+
+    @Test
+    public void shouldKeepSeveralRequestsInFlightForStreamingInserts() throws Exception {
+        properties.put("BQ_MAX_INFLIGHT_REQUESTS", "4");
+        beastFactory = new BeastFactory(PipelineConfig.create("", properties), new WorkerState(), sharedResources);
+
+        assertTrue(beastFactory.createBqWorkers().stream().allMatch(worker -> worker instanceof AsyncBqQueueWorker));
+    }
+
+    @Test
+    public void shouldKeepOneRequestInFlightForWriteStreams() throws Exception {
+        properties.put("BQ_MAX_INFLIGHT_REQUESTS", "4");
+        properties.put("ENABLE_BQ_STORAGE_WRITE_API", "true");
+        beastFactory = new BeastFactory(PipelineConfig.create("", properties), new WorkerState(), sharedResources);
+
+        assertFalse(beastFactory.createBqWorkers().stream().anyMatch(worker -> worker instanceof AsyncBqQueueWorker));
+    }
+
+    private List<String> names(List<Worker> workers) {
+        return workers.stream().map(Worker::getName).collect(Collectors.toList());
+    }
+}
@@ -1,31 +1,39 @@
 package com.gojek.beast.sink;
 
+import com.gojek.beast.exception.UnsupportedColumnValueException;
 import com.gojek.beast.models.OffsetInfo;
 import com.gojek.beast.models.Record;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.bq.AdaptiveInsertLimiter;
 import com.gojek.beast.sink.bq.BQRowWithInsertId;
 import com.gojek.beast.sink.bq.BaseBQTest;
 import com.gojek.beast.sink.bq.BqInsertErrors;
 import com.gojek.beast.sink.bq.BqSink;
+import com.gojek.beast.sink.bq.JsonInsertAllClient;
+import com.gojek.beast.sink.bq.RowValidator;
 import com.gojek.beast.sink.bq.handler.BQFilteredResponse;
 import com.gojek.beast.sink.bq.handler.BQResponseParser;
 import com.gojek.beast.sink.bq.handler.BQRow;
 import com.gojek.beast.sink.dlq.ErrorWriter;
+import com.gojek.beast.sink.dlq.RecordsErrorType;
 import com.gojek.beast.sink.dlq.WriteStatus;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.InsertAllRequest;
 import com.google.cloud.bigquery.InsertAllResponse;
 import com.google.cloud.bigquery.TableId;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,7 +42,16 @@ import java.util.Optional;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -117,6 +134,145 @@ public class BqSinkTest extends BaseBQTest {
         assertEquals(insertErrors, ((BqInsertErrors) status.getException().get()).getErrors());
     }
 
+    @Test
+    public void shouldSplitBatchIntoRequestsOfMaxRows() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("bob"), null, null);
+        Record user3 = new Record(offsetInfo, createUser("mary"), null, null);
+        Records records = new Records(Arrays.asList(user1, user2, user3));
+        InsertAllRequest firstRequest = builder
+                .addRow(user1.getId(), user1.getColumns())
+                .addRow(user2.getId(), user2.getColumns())
+                .build();
+        InsertAllRequest secondRequest = InsertAllRequest.newBuilder(tableId)
+                .addRow(user3.getId(), user3.getColumns())
+                .build();
+        Sink splittingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter, 2, Long.MAX_VALUE);
+
+        Status status = splittingSink.push(records);
+
+        verify(bigquery).insertAll(firstRequest);
+        verify(bigquery).insertAll(secondRequest);
+        assertTrue(status.isSuccess());
+    }
+
+    @Test
+    public void shouldSplitBatchIntoRequestsOfMaxBytes() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("bob"), null, null);
+        Records records = new Records(Arrays.asList(user1, user2));
+        Sink splittingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter, Integer.MAX_VALUE, user1.getJsonSize());
+
+        Status status = splittingSink.push(records);
+
+        verify(bigquery).insertAll(InsertAllRequest.newBuilder(tableId).addRow(user1.getId(), user1.getColumns()).build());
+        verify(bigquery).insertAll(InsertAllRequest.newBuilder(tableId).addRow(user2.getId(), user2.getColumns()).build());
+        assertTrue(status.isSuccess());
+    }
+
+    @Test
+    public void shouldLeaveRawKeyAndValueOutOfRequestBytes() {
+        byte[] value = new byte[1000];
+        Record user1 = new Record(offsetInfo, createUser("alice"), value, value);
+        Record user2 = new Record(offsetInfo, createUser("bob"), value, value);
+        Records records = new Records(Arrays.asList(user1, user2));
+        InsertAllRequest request = builder
+                .addRow(user1.getId(), user1.getColumns())
+                .addRow(user2.getId(), user2.getColumns())
+                .build();
+        Sink splittingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter, Integer.MAX_VALUE, user1.getJsonSize() + user2.getJsonSize());
+
+        Status status = splittingSink.push(records);
+
+        verify(bigquery).insertAll(request);
+        assertTrue(status.isSuccess());
+    }
+
+    @Test
+    public void shouldFailBatchWithErrorIndicesOfOriginalRecordsWhenAnyRequestFails() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("bob"), null, null);
+        Record user3 = new Record(offsetInfo, createUser("mary"), null, null);
+        Records records = new Records(Arrays.asList(user1, user2, user3));
+        InsertAllRequest secondRequest = InsertAllRequest.newBuilder(tableId)
+                .addRow(user3.getId(), user3.getColumns())
+                .build();
+        when(bigquery.insertAll(secondRequest)).thenReturn(failureResponse);
+        Sink splittingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter, 2, Long.MAX_VALUE);
+
+        Status status = splittingSink.push(records);
+
+        assertFalse(status.isSuccess());
+        Map<Long, List<BigQueryError>> errors = ((BqInsertErrors) status.getException().get()).getErrors();
+        assertEquals(1, errors.size());
+        assertEquals(insertErrors.get(0L), errors.get(2L));
+    }
+
+    @Test
+    public void shouldResendOnlyRetryableRowsUntilTheyAreInserted() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("bob"), null, null);
+        Record user3 = new Record(offsetInfo, createUser("mary"), null, null);
+        Records records = new Records(Arrays.asList(user1, user2, user3));
+        InsertAllRequest request = builder
+                .addRow(user1.getId(), user1.getColumns())
+                .addRow(user2.getId(), user2.getColumns())
+                .addRow(user3.getId(), user3.getColumns())
+                .build();
+        InsertAllRequest retryRequest = InsertAllRequest.newBuilder(tableId)
+                .addRow(user2.getId(), user2.getColumns())
+                .build();
+        InsertAllResponse stoppedResponse = mock(InsertAllResponse.class);
+        when(stoppedResponse.hasErrors()).thenReturn(true);
+        when(stoppedResponse.getInsertErrors()).thenReturn(Collections.singletonMap(1L, Arrays.asList(new BigQueryError("stopped", "", ""))));
+        InsertAllResponse backendErrorResponse = mock(InsertAllResponse.class);
+        when(backendErrorResponse.hasErrors()).thenReturn(true);
+        when(backendErrorResponse.getInsertErrors()).thenReturn(Collections.singletonMap(0L, Arrays.asList(new BigQueryError("backendError", "", ""))));
+        when(bigquery.insertAll(request)).thenReturn(stoppedResponse);
+        when(bigquery.insertAll(retryRequest)).thenReturn(backendErrorResponse, successfulResponse);
+        BqSink retryingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        retryingSink.setMaxRowRetryAttempts(2);
+
+        Status status = retryingSink.push(records);
+
+        assertTrue(status.isSuccess());
+        verify(bigquery).insertAll(request);
+        verify(bigquery, times(2)).insertAll(retryRequest);
+    }
+
+    @Test
+    public void shouldFailBatchWithErrorIndicesOfOriginalRecordsWhenRetriesRunOut() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("bob"), null, null);
+        Record user3 = new Record(offsetInfo, createUser("mary"), null, null);
+        Records records = new Records(Arrays.asList(user1, user2, user3));
+        InsertAllRequest request = builder
+                .addRow(user1.getId(), user1.getColumns())
+                .addRow(user2.getId(), user2.getColumns())
+                .addRow(user3.getId(), user3.getColumns())
+                .build();
+        InsertAllRequest retryRequest = InsertAllRequest.newBuilder(tableId)
+                .addRow(user3.getId(), user3.getColumns())
+                .build();
+        List<BigQueryError> backendErrors = Arrays.asList(new BigQueryError("backendError", "", ""));
+        InsertAllResponse firstResponse = mock(InsertAllResponse.class);
+        when(firstResponse.hasErrors()).thenReturn(true);
+        when(firstResponse.getInsertErrors()).thenReturn(Collections.singletonMap(2L, backendErrors));
+        InsertAllResponse retryResponse = mock(InsertAllResponse.class);
+        when(retryResponse.hasErrors()).thenReturn(true);
+        when(retryResponse.getInsertErrors()).thenReturn(Collections.singletonMap(0L, backendErrors));
+        when(bigquery.insertAll(request)).thenReturn(firstResponse);
+        when(bigquery.insertAll(retryRequest)).thenReturn(retryResponse);
+        BqSink retryingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        retryingSink.setMaxRowRetryAttempts(1);
+
+        Status status = retryingSink.push(records);
+
+        assertFalse(status.isSuccess());
+        verify(bigquery).insertAll(retryRequest);
+        assertEquals(Collections.singletonMap(2L, backendErrors), ((BqInsertErrors) status.getException().get()).getErrors());
+    }
+
     private Map<String, Object> createUser(String name) {
         HashMap<String, Object> user = new HashMap<>();
         user.put("name", name);
@@ -139,7 +295,7 @@ public class BqSinkTest extends BaseBQTest {
 
         BQFilteredResponse filteredResponse = new BQFilteredResponse(Arrays.asList(), Arrays.asList(user2),
                 Arrays.asList(user1));
-        when(responseParser.parseResponse(any(), any())).thenReturn(filteredResponse);
+        when(responseParser.parseInsertErrors(any(), any())).thenReturn(filteredResponse);
 
         when(bigquery.insertAll(request)).thenReturn(failureResponse);
 
@@ -165,7 +321,7 @@ public class BqSinkTest extends BaseBQTest {
 
         BQFilteredResponse filteredResponse = new BQFilteredResponse(Arrays.asList(user1), Arrays.asList(user2),
                 Arrays.asList());
-        when(responseParser.parseResponse(any(), any())).thenReturn(filteredResponse);
+        when(responseParser.parseInsertErrors(any(), any())).thenReturn(filteredResponse);
 
         when(bigquery.insertAll(request)).thenReturn(failureResponse);
         Sink localSink = new BqSink(bigquery, tableId, responseParser, bqRow, errorWriter);
@@ -190,7 +346,7 @@ public class BqSinkTest extends BaseBQTest {
 
         BQFilteredResponse filteredResponse = new BQFilteredResponse(Arrays.asList(user2), Arrays.asList(),
                 Arrays.asList(user1));
-        when(responseParser.parseResponse(any(), any())).thenReturn(filteredResponse);
+        when(responseParser.parseInsertErrors(any(), any())).thenReturn(filteredResponse);
         when(bigquery.insertAll(request)).thenReturn(failureResponse);
 
         Sink localSink = new BqSink(bigquery, tableId, responseParser, bqRow, errorWriter);
@@ -221,7 +377,7 @@ public class BqSinkTest extends BaseBQTest {
 
         BQFilteredResponse filteredResponse = new BQFilteredResponse(Arrays.asList(user2), Arrays.asList(),
                 Arrays.asList(user1));
-        when(responseParser.parseResponse(any(), any())).thenReturn(filteredResponse);
+        when(responseParser.parseInsertErrors(any(), any())).thenReturn(filteredResponse);
         when(bigquery.insertAll(request)).thenReturn(failureResponse);
         when(bigquery.insertAll(retryRequest)).thenReturn(failureResponse);
 
@@ -231,4 +387,123 @@ public class BqSinkTest extends BaseBQTest {
 
         assertFalse(status.isSuccess());
     }
+
+    @Test
+    public void shouldReleaseLimiterAsOverloadedWhenBigQueryAnswersWithQuotaErrors() {
+        AdaptiveInsertLimiter limiter = mock(AdaptiveInsertLimiter.class);
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        InsertAllRequest request = builder.addRow(user1.getId(), user1.getColumns()).build();
+        insertErrors.put(0L, Arrays.asList(new BigQueryError("quotaExceeded", "", "quota exceeded")));
+        when(bigquery.insertAll(request)).thenReturn(failureResponse);
+        BqSink limitedSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        limitedSink.setInsertLimiter(limiter);
+
+        limitedSink.push(new Records(Arrays.asList(user1)));
+
+        InOrder callOrder = inOrder(limiter, bigquery);
+        callOrder.verify(limiter).acquire(1);
+        callOrder.verify(bigquery).insertAll(request);
+        callOrder.verify(limiter).release(anyLong(), eq(true));
+    }
+
+    @Test
+    public void shouldReleaseLimiterWhenBigQueryInsertThrows() {
+        AdaptiveInsertLimiter limiter = mock(AdaptiveInsertLimiter.class);
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        when(bigquery.insertAll(any())).thenThrow(new BigQueryException(500, "backend error"));
+        BqSink limitedSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        limitedSink.setInsertLimiter(limiter);
+
+        try {
+            limitedSink.push(new Records(Arrays.asList(user1)));
+        } catch (BigQueryException e) {
+            verify(limiter).acquire(1);
+            verify(limiter).release(anyLong(), eq(true));
+            return;
+        }
+        fail("insert exception should be propagated");
+    }
+
+    @Test
+    public void shouldReleaseLimiterAsNotOverloadedOnSuccessfulInsert() {
+        AdaptiveInsertLimiter limiter = mock(AdaptiveInsertLimiter.class);
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        BqSink limitedSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        limitedSink.setInsertLimiter(limiter);
+
+        Status status = limitedSink.push(new Records(Arrays.asList(user1)));
+
+        assertTrue(status.isSuccess());
+        verify(limiter).release(anyLong(), eq(false));
+    }
+
+    @Test
+    public void shouldInsertWithJsonInsertAllClientWhenSet() {
+        JsonInsertAllClient jsonClient = mock(JsonInsertAllClient.class);
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        List<Record> rows = Arrays.asList(user1);
+        when(jsonClient.insertAll(rows)).thenReturn(Collections.emptyMap());
+        BqSink jsonSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        jsonSink.setJsonInsertAllClient(jsonClient);
+
+        Status status = jsonSink.push(new Records(rows));
+
+        assertTrue(status.isSuccess());
+        verify(jsonClient).insertAll(rows);
+        verify(bigquery, never()).insertAll(any());
+    }
+
+    @Test
+    public void shouldFallBackToBigQueryClientForColumnValuesJsonInsertAllClientCantWrite() {
+        JsonInsertAllClient jsonClient = mock(JsonInsertAllClient.class);
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        InsertAllRequest request = builder.addRow(user1.getId(), user1.getColumns()).build();
+        when(jsonClient.insertAll(any())).thenThrow(new UnsupportedColumnValueException(Object.class));
+        BqSink jsonSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        jsonSink.setJsonInsertAllClient(jsonClient);
+
+        Status status = jsonSink.push(new Records(Arrays.asList(user1)));
+
+        assertTrue(status.isSuccess());
+        verify(bigquery).insertAll(request);
+    }
+
+    @Test
+    public void shouldInsertOnlyValidRowsAndWriteInvalidOnesToErrorWriter() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        Record user2 = new Record(offsetInfo, createUser("mary"), null, null);
+        RowValidator rowValidator = mock(RowValidator.class);
+        when(rowValidator.validate(anyList(), anyMap())).thenAnswer(invocation -> {
+            Map<RecordsErrorType, List<Record>> invalidRecords = invocation.getArgument(1);
+            invalidRecords.put(RecordsErrorType.INVALID, Collections.singletonList(user2));
+            return Collections.singletonList(user1);
+        });
+        BqSink validatingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        validatingSink.setRowValidator(rowValidator);
+
+        Status status = validatingSink.push(new Records(Arrays.asList(user1, user2)));
+
+        assertTrue(status.isSuccess());
+        verify(bigquery).insertAll(builder.addRow(user1.getId(), user1.getColumns()).build());
+        verify(errorWriter).writeRecords(Collections.singletonMap(RecordsErrorType.INVALID, Collections.singletonList(user2)));
+    }
+
+    @Test
+    public void shouldNotInsertWhenAllRowsAreInvalid() {
+        Record user1 = new Record(offsetInfo, createUser("alice"), null, null);
+        RowValidator rowValidator = mock(RowValidator.class);
+        when(rowValidator.validate(anyList(), anyMap())).thenAnswer(invocation -> {
+            Map<RecordsErrorType, List<Record>> invalidRecords = invocation.getArgument(1);
+            invalidRecords.put(RecordsErrorType.OVERSIZED, Collections.singletonList(user1));
+            return Collections.emptyList();
+        });
+        BqSink validatingSink = new BqSink(bigquery, tableId, new BQResponseParser(), bqRow, errorWriter);
+        validatingSink.setRowValidator(rowValidator);
+
+        Status status = validatingSink.push(new Records(Collections.singletonList(user1)));
+
+        assertTrue(status.isSuccess());
+        verify(bigquery, never()).insertAll(any());
+        verify(errorWriter).writeRecords(Collections.singletonMap(RecordsErrorType.OVERSIZED, Collections.singletonList(user1)));
+    }
 }
@@ -0,0 +1,93 @@
+package com.gojek.beast.sink;
+
+import com.gojek.beast.commiter.OffsetTracker;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.QueueFullStatus;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OffsetTrackerSinkTest {
+    @Mock
+    private Sink sink;
+    private OffsetTracker offsetTracker;
+    private Sink offsetTrackerSink;
+
+    @Before
+    public void setUp() {
+        offsetTracker = new OffsetTracker(1);
+        offsetTrackerSink = new OffsetTrackerSink(offsetTracker, sink);
+    }
+
+    private Records createRecords(long offset) {
+        OffsetInfo offsetInfo = new OffsetInfo("default-topic", 0, offset, Instant.now().toEpochMilli());
+        return new Records(Collections.singletonList(new Record(offsetInfo, new HashMap<>())));
+    }
+
+    @Test
+    public void shouldRegisterOffsetsBeforePushingToSink() {
+        Records records = createRecords(0);
+        when(sink.push(records)).thenReturn(SUCCESS_STATUS);
+
+        Status status = offsetTrackerSink.push(records);
+
+        assertTrue(status.isSuccess());
+        verify(sink).push(records);
+        assertEquals(1, offsetTracker.size());
+        assertTrue(offsetTracker.acknowledge(records.getPartitionsCommitOffset()));
+    }
+
+    @Test
+    public void shouldFailWithoutPushingWhenTrackerIsFull() {
+        Records first = createRecords(0);
+        Records second = createRecords(1);
+        when(sink.push(first)).thenReturn(SUCCESS_STATUS);
+        offsetTrackerSink.push(first);
+
+        Status status = offsetTrackerSink.push(second);
+
+        assertFalse(status.isSuccess());
+        assertTrue(status instanceof QueueFullStatus);
+        verify(sink, never()).push(second);
+        assertEquals(1, offsetTracker.size());
+    }
+
+    @Test
+    public void shouldUnregisterOffsetsOfBatchTurnedDownByFullQueue() {
+        Records records = createRecords(0);
+        when(sink.push(records)).thenReturn(new QueueFullStatus("read queue is full")).thenReturn(SUCCESS_STATUS);
+
+        Status status = offsetTrackerSink.push(records);
+
+        assertTrue(status instanceof QueueFullStatus);
+        assertEquals(0, offsetTracker.size());
+        assertTrue(offsetTrackerSink.push(records).isSuccess());
+        assertEquals(1, offsetTracker.size());
+        assertTrue(offsetTracker.acknowledge(records.getPartitionsCommitOffset()));
+    }
+
+    @Test
+    public void shouldCloseWrappedSink() {
+        offsetTrackerSink.close("test");
+
+        verify(sink).close("test");
+    }
+}
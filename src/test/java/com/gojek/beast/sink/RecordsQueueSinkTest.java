@@ -2,6 +2,7 @@ package com.gojek.beast.sink;
 
 import com.gojek.beast.config.QueueConfig;
 import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.QueueFullStatus;
 import com.gojek.beast.models.Record;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
@@ -80,5 +81,6 @@ public class RecordsQueueSinkTest {
         Status status = queueSink.push(messages);
 
         assertFalse(status.isSuccess());
+        assertTrue(status instanceof QueueFullStatus);
     }
 }
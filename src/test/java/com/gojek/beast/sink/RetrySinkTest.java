@@ -5,12 +5,15 @@ import com.gojek.beast.backoff.ExponentialBackOffProvider;
 import com.gojek.beast.models.FailureStatus;
 import com.gojek.beast.models.Records;
 import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.bq.InsertStatus;
 import com.google.cloud.bigquery.BigQueryException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collections;
+
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 import static junit.framework.TestCase.assertTrue;
 import static org.gradle.internal.impldep.org.testng.AssertJUnit.assertFalse;
@@ -97,4 +100,16 @@ public class RetrySinkTest {
         assertTrue(status.isSuccess());
         verify(failureSink, times(4)).push(records);
     }
+
+    @Test
+    public void shouldNotPushBatchAgainWhenRowsFailedToInsert() {
+        backOffProvider = new ExponentialBackOffProvider(10, 10000, 2, new BackOff());
+        when(failureSink.push(records)).thenReturn(new InsertStatus(false, Collections.emptyMap()));
+        retrySink = new RetrySink(failureSink, backOffProvider, 5);
+
+        Status status = retrySink.push(records);
+
+        assertFalse(status.isSuccess());
+        verify(failureSink, times(1)).push(records);
+    }
 }
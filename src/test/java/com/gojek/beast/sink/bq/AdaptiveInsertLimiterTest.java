@@ -0,0 +1,110 @@
+package com.gojek.beast.sink.bq;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveInsertLimiterTest {
+    private final long targetLatencyMs = 1000;
+
+    @Test
+    public void shouldStartAtMaxLimit() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 4, 0.5, targetLatencyMs, 0);
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldCutLimitOnOverload() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 4, 0.5, targetLatencyMs, 0);
+
+        limiter.acquire(10);
+        limiter.release(10, true);
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldCutLimitWhenLatencyIsAboveTarget() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 4, 0.5, targetLatencyMs, 0);
+
+        limiter.acquire(10);
+        limiter.release(targetLatencyMs + 1, false);
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldCutLimitOnceForOverloadsOfTheSameRound() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 4, 0.5, targetLatencyMs, 0);
+
+        limiter.acquire(10);
+        limiter.acquire(10);
+        limiter.release(10, true);
+        limiter.release(10, true);
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldNotCutLimitBelowMin() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(3, 4, 0.5, targetLatencyMs, 0);
+
+        limiter.acquire(10);
+        limiter.release(10, true);
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldGrowLimitByAboutOnePerRoundOfSuccessfulRequests() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 4, 0.5, targetLatencyMs, 0);
+        limiter.acquire(10);
+        limiter.release(10, true);
+
+        limiter.acquire(10);
+        limiter.release(10, false);
+        limiter.acquire(10);
+        limiter.release(10, false);
+        assertEquals(2, limiter.getLimit());
+        limiter.acquire(10);
+        limiter.release(10, false);
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldNotGrowLimitBeyondMax() {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 2, 0.5, targetLatencyMs, 0);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(10);
+            limiter.release(10, false);
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void shouldBlockAcquireUntilRequestInFlightIsReleased() throws InterruptedException {
+        AdaptiveInsertLimiter limiter = new AdaptiveInsertLimiter(1, 1, 0.5, targetLatencyMs, 0);
+        limiter.acquire(10);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread requester = new Thread(() -> {
+            limiter.acquire(10);
+            acquired.countDown();
+        });
+
+        requester.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.release(10, false);
+
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        requester.join();
+    }
+}
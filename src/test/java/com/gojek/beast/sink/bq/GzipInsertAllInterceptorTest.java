@@ -0,0 +1,156 @@
+package com.gojek.beast.sink.bq;
+
+import com.google.cloud.NoCredentials;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryOptions;
+import com.google.cloud.bigquery.InsertAllRequest;
+import com.google.cloud.bigquery.TableId;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GzipInsertAllInterceptorTest {
+    private static final String INSERT_ALL_URI = "https://bigquery.googleapis.com/bigquery/v2/projects/p/datasets/d/tables/t/insertAll?prettyPrint=false";
+    private final GzipInsertAllInterceptor interceptor = new GzipInsertAllInterceptor(100);
+
+    @Test
+    public void shouldGzipInsertAllBodyOfAtLeastMinBytes() throws IOException {
+        String body = rows(50);
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", INSERT_ALL_URI);
+        request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+
+        interceptor.process(request, new BasicHttpContext());
+
+        HttpEntity entity = request.getEntity();
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        assertEquals(ContentType.APPLICATION_JSON.toString(), entity.getContentType().getValue());
+        assertTrue(entity.getContentLength() < body.length());
+        assertEquals(body, gunzip(EntityUtils.toByteArray(entity)));
+    }
+
+    @Test
+    public void shouldSendInsertAllBodyBelowMinBytesAsItIs() throws IOException {
+        StringEntity entity = new StringEntity("{\"rows\":[]}", ContentType.APPLICATION_JSON);
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", INSERT_ALL_URI);
+        request.setEntity(entity);
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertSame(entity, request.getEntity());
+    }
+
+    @Test
+    public void shouldNotGzipOtherRequests() throws IOException {
+        StringEntity entity = new StringEntity(rows(50), ContentType.APPLICATION_JSON);
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", "https://bigquery.googleapis.com/bigquery/v2/projects/p/datasets/d/tables");
+        request.setEntity(entity);
+
+        interceptor.process(request, new BasicHttpContext());
+
+        assertSame(entity, request.getEntity());
+        assertNull(request.getEntity().getContentEncoding());
+    }
+
+    @Test
+    public void shouldGzipOnlyInsertAllBodiesOfAtLeastMinBytesSentByBigQueryClient() throws IOException {
+        List<String> encodings = Collections.synchronizedList(new ArrayList<>());
+        List<byte[]> bodies = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = exchange.getRequestBody()) {
+                copy(in, body);
+            }
+            bodies.add(body.toByteArray());
+            byte[] response = "{\"kind\":\"bigquery#tableDataInsertAllResponse\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        try {
+            PooledHttpTransportFactory transportFactory = new PooledHttpTransportFactory(1, 1, 1000,
+                    Collections.singletonList(new GzipInsertAllInterceptor(1000)));
+            BigQuery bigquery = BigQueryOptions.newBuilder()
+                    .setTransportOptions(new GzipInsertAllTransportOptions(BigQueryOptions.getDefaultHttpTransportOptions().toBuilder()
+                            .setHttpTransportFactory(transportFactory)))
+                    .setHost("http://localhost:" + server.getAddress().getPort())
+                    .setCredentials(NoCredentials.getInstance())
+                    .setProjectId("p")
+                    .build().getService();
+
+            bigquery.insertAll(insertAllRequest(1));
+            bigquery.insertAll(insertAllRequest(100));
+        } finally {
+            server.stop(0);
+        }
+
+        assertEquals(2, encodings.size());
+        assertNull(encodings.get(0));
+        assertTrue(bodies.get(0).length < 1000);
+        assertTrue(new String(bodies.get(0), StandardCharsets.UTF_8).contains("\"name\":\"alice-0\""));
+        assertEquals("gzip", encodings.get(1));
+        String body = gunzip(bodies.get(1));
+        assertTrue(body.length() >= 1000);
+        assertTrue(body.contains("\"name\":\"alice-99\""));
+        assertFalse(body.contains("\"name\":\"alice-100\""));
+    }
+
+    private InsertAllRequest insertAllRequest(int count) {
+        InsertAllRequest.Builder request = InsertAllRequest.newBuilder(TableId.of("p", "d", "t"));
+        for (int i = 0; i < count; i++) {
+            request.addRow(Collections.singletonMap("name", "alice-" + i));
+        }
+        return request.build();
+    }
+
+    private String rows(int count) {
+        StringBuilder rows = new StringBuilder("{\"rows\":[");
+        for (int i = 0; i < count; i++) {
+            rows.append(i == 0 ? "" : ",").append("{\"insertId\":\"topic_0_").append(i).append("\",\"json\":{\"name\":\"alice\"}}");
+        }
+        return rows.append("]}").toString();
+    }
+
+    private String gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            copy(gzip, body);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
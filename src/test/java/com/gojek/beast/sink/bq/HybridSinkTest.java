@@ -0,0 +1,94 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.consumer.BacklogWatermark;
+import com.gojek.beast.models.DeferredStatus;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.Sink;
+import com.gojek.beast.sink.bq.load.LoadJobSink;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class HybridSinkTest {
+    @Mock
+    private Sink streamingSink;
+    @Mock
+    private LoadJobSink loadJobSink;
+    @Mock
+    private Clock clock;
+    private final Records records = new Records(Collections.emptyList());
+    private final Status deferred = new DeferredStatus(new CompletableFuture<>());
+    private double lag;
+    private HybridSink sink;
+
+    @Before
+    public void setUp() {
+        when(streamingSink.push(records)).thenReturn(SUCCESS_STATUS);
+        when(loadJobSink.push(records)).thenReturn(deferred);
+        BacklogWatermark backlog = new BacklogWatermark().add("records_lag", () -> lag, 1000, 100);
+        sink = new HybridSink(streamingSink, loadJobSink, backlog, 10, clock);
+    }
+
+    @Test
+    public void shouldStreamBatchesWhilePipelineKeepsUp() {
+        lag = 999;
+        when(clock.currentEpochMillis()).thenReturn(100L);
+
+        assertSame(SUCCESS_STATUS, sink.push(records));
+
+        verify(loadJobSink, never()).push(records);
+    }
+
+    @Test
+    public void shouldLoadBatchesOnceBacklogIsHighUntilItIsLow() {
+        lag = 1000;
+        when(clock.currentEpochMillis()).thenReturn(100L);
+        assertSame(deferred, sink.push(records));
+
+        lag = 500;
+        when(clock.currentEpochMillis()).thenReturn(200L);
+        assertSame(deferred, sink.push(records));
+        verify(loadJobSink, never()).flush();
+
+        lag = 100;
+        when(clock.currentEpochMillis()).thenReturn(300L);
+        assertSame(SUCCESS_STATUS, sink.push(records));
+        verify(loadJobSink).flush();
+    }
+
+    @Test
+    public void shouldCheckBacklogOnlyOncePerInterval() {
+        lag = 1000;
+        when(clock.currentEpochMillis()).thenReturn(100L);
+        sink.push(records);
+
+        lag = 0;
+        when(clock.currentEpochMillis()).thenReturn(109L);
+        assertSame(deferred, sink.push(records));
+
+        when(clock.currentEpochMillis()).thenReturn(110L);
+        assertSame(SUCCESS_STATUS, sink.push(records));
+    }
+
+    @Test
+    public void shouldCloseBothSinks() {
+        sink.close("test");
+
+        verify(streamingSink).close("test");
+        verify(loadJobSink).close("test");
+    }
+}
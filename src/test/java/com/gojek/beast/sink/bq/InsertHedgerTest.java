@@ -0,0 +1,127 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.backoff.RetryBudget;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.InsertAllResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class InsertHedgerTest {
+    private final long minDelayMs = 20;
+    private final InsertAllResponse slowResponse = mock(InsertAllResponse.class);
+    private final InsertAllResponse fastResponse = mock(InsertAllResponse.class);
+    private final AtomicInteger requests = new AtomicInteger();
+    private ExecutorService executor;
+    private RetryBudget budget;
+    private InsertHedger hedger;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        budget = new RetryBudget("test", 0.1, 1);
+        hedger = new InsertHedger(executor, 0.9, minDelayMs, budget);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotHedgeUntilThereAreEnoughRecentLatencies() {
+        InsertAllResponse response = hedger.insertAll(firstSlow(minDelayMs * 5));
+
+        assertSame(slowResponse, response);
+        assertEquals(1, requests.get());
+        assertEquals(-1, hedger.hedgeDelayMs());
+    }
+
+    @Test
+    public void shouldHedgeAfterPercentileLatencyAtLeastMinDelay() {
+        warmUp();
+
+        assertEquals(minDelayMs, hedger.hedgeDelayMs());
+    }
+
+    @Test
+    public void shouldTakeResponseOfHedgedRequestWhenItFinishesFirst() {
+        warmUp();
+
+        InsertAllResponse response = hedger.insertAll(firstSlow(minDelayMs * 50));
+
+        assertSame(fastResponse, response);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void shouldWaitForSlowRequestWhenHedgeBudgetIsExhausted() {
+        warmUp();
+        budget.tryWithdraw(1);
+
+        InsertAllResponse response = hedger.insertAll(firstSlow(minDelayMs * 5));
+
+        assertSame(slowResponse, response);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void shouldTakeResponseOfHedgedRequestWhenFirstRequestFails() {
+        warmUp();
+
+        InsertAllResponse response = hedger.insertAll(() -> {
+            if (requests.getAndIncrement() == 0) {
+                sleep(minDelayMs * 2);
+                throw new BigQueryException(500, "backend error");
+            }
+            sleep(minDelayMs * 5);
+            return fastResponse;
+        });
+
+        assertSame(fastResponse, response);
+    }
+
+    @Test(expected = BigQueryException.class)
+    public void shouldThrowWhenBothRequestsFail() {
+        warmUp();
+
+        hedger.insertAll(() -> {
+            requests.incrementAndGet();
+            sleep(minDelayMs * 2);
+            throw new BigQueryException(500, "backend error");
+        });
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 100; i++) {
+            hedger.insertAll(() -> fastResponse);
+        }
+    }
+
+    private Supplier<InsertAllResponse> firstSlow(long delayMs) {
+        return () -> {
+            if (requests.getAndIncrement() == 0) {
+                sleep(delayMs);
+                return slowResponse;
+            }
+            return fastResponse;
+        };
+    }
+
+    private void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gojek.beast.sink.bq;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gojek.beast.exception.UnsupportedColumnValueException;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.client.util.DateTime;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.TableId;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonInsertAllClientTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TableId tableId = TableId.of("project", "dataset", "table");
+    private MockLowLevelHttpResponse response;
+    private MockLowLevelHttpRequest request;
+    private JsonInsertAllClient client;
+    private Record user;
+
+    @Before
+    public void setUp() {
+        response = new MockLowLevelHttpResponse().setContentType("application/json").setContent("{\"kind\":\"bigquery#tableDataInsertAllResponse\"}");
+        request = new MockLowLevelHttpRequest().setResponse(response);
+        client = new JsonInsertAllClient(new MockHttpTransport.Builder().setLowLevelHttpRequest(request).build(), httpRequest -> { },
+                tableId, true, -1, -1);
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("name", "alice");
+        columns.put("age", 21L);
+        columns.put("score", 4.5);
+        columns.put("active", true);
+        columns.put("created_at", new DateTime(0L));
+        columns.put("tags", Arrays.asList("a", "b"));
+        columns.put("address", Collections.singletonMap("city", "jakarta"));
+        columns.put("nickname", null);
+        user = new Record(new OffsetInfo("topic", 0, 1, 0L), columns);
+    }
+
+    @Test
+    public void shouldPostRowsWithInsertIdsToInsertAllOfTable() throws IOException {
+        Map<Long, List<BigQueryError>> errors = client.insertAll(Collections.singletonList(user));
+
+        assertTrue(errors.isEmpty());
+        assertEquals("https://bigquery.googleapis.com/bigquery/v2/projects/project/datasets/dataset/tables/table/insertAll", request.getUrl());
+        JsonNode row = mapper.readTree(request.getContentAsString()).path("rows").path(0);
+        assertEquals("topic_0_1", row.path("insertId").asText());
+        JsonNode json = row.path("json");
+        assertEquals("alice", json.path("name").asText());
+        assertEquals(21L, json.path("age").asLong());
+        assertEquals(4.5, json.path("score").asDouble(), 0);
+        assertTrue(json.path("active").asBoolean());
+        assertEquals(new DateTime(0L).toStringRfc3339(), json.path("created_at").asText());
+        assertEquals("b", json.path("tags").path(1).asText());
+        assertEquals("jakarta", json.path("address").path("city").asText());
+        assertFalse(json.has("nickname"));
+    }
+
+    @Test
+    public void shouldLeaveOutInsertIdsWhenDisabled() throws IOException {
+        client = new JsonInsertAllClient(new MockHttpTransport.Builder().setLowLevelHttpRequest(request).build(), httpRequest -> { },
+                tableId, false, -1, -1);
+
+        client.insertAll(Collections.singletonList(user));
+
+        assertFalse(mapper.readTree(request.getContentAsString()).path("rows").path(0).has("insertId"));
+    }
+
+    @Test
+    public void shouldReturnInsertErrorsByIndexOfRecord() {
+        response.setContent("{\"insertErrors\":[{\"index\":1,\"errors\":[{\"reason\":\"invalid\",\"location\":\"age\",\"message\":\"not an integer\"}]}]}");
+
+        Map<Long, List<BigQueryError>> errors = client.insertAll(Arrays.asList(user, user));
+
+        assertEquals(Collections.singletonMap(1L, Collections.singletonList(new BigQueryError("invalid", "age", "not an integer"))), errors);
+    }
+
+    @Test
+    public void shouldThrowBigQueryExceptionOnErrorResponse() {
+        response.setStatusCode(403).setContent("{\"error\":{\"code\":403,\"message\":\"Quota exceeded\",\"errors\":[{\"reason\":\"quotaExceeded\",\"message\":\"Quota exceeded\"}]}}");
+
+        try {
+            client.insertAll(Collections.singletonList(user));
+            fail("error response should be thrown");
+        } catch (BigQueryException e) {
+            assertEquals(403, e.getCode());
+            assertEquals("quotaExceeded", e.getReason());
+        }
+    }
+
+    @Test(expected = UnsupportedColumnValueException.class)
+    public void shouldNotSendRequestWithColumnValueItCantWrite() {
+        client = new JsonInsertAllClient(new MockHttpTransport() {
+            @Override
+            public LowLevelHttpRequest buildRequest(String method, String url) {
+                throw new AssertionError("request should not be sent");
+            }
+        }, httpRequest -> { }, tableId, true, -1, -1);
+        user.getColumns().put("unsupported", new Object());
+
+        client.insertAll(Collections.singletonList(user));
+    }
+}
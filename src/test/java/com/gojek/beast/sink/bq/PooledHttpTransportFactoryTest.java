@@ -0,0 +1,21 @@
+package com.gojek.beast.sink.bq;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PooledHttpTransportFactoryTest {
+
+    @Test
+    public void shouldHandEveryClientTheSameTransport() {
+        PooledHttpTransportFactory transportFactory = new PooledHttpTransportFactory(10, 5, 1000);
+
+        HttpTransport transport = transportFactory.create();
+
+        assertTrue(transport instanceof ApacheHttpTransport);
+        assertSame(transport, transportFactory.create());
+    }
+}
@@ -0,0 +1,103 @@
+package com.gojek.beast.sink.bq;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.sink.dlq.RecordsErrorType;
+import com.google.api.client.util.DateTime;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RowValidatorTest {
+    private static final long NOW = 1600000000000L;
+    private final OffsetInfo offsetInfo = new OffsetInfo("default-topic", 0, 0, NOW);
+    private RowValidator rowValidator;
+
+    @Before
+    public void setUp() {
+        List<Field> schema = Arrays.asList(
+                Field.newBuilder("order_number", LegacySQLTypeName.STRING).setMode(Field.Mode.REQUIRED).build(),
+                Field.newBuilder("created_at", LegacySQLTypeName.TIMESTAMP).setMode(Field.Mode.NULLABLE).build(),
+                Field.newBuilder("driver", LegacySQLTypeName.RECORD,
+                        Field.newBuilder("id", LegacySQLTypeName.STRING).setMode(Field.Mode.REQUIRED).build()).setMode(Field.Mode.NULLABLE).build(),
+                Field.newBuilder("note", LegacySQLTypeName.STRING).setMode(Field.Mode.NULLABLE).build());
+        Clock clock = mock(Clock.class);
+        when(clock.currentEpochMillis()).thenReturn(NOW);
+        rowValidator = new RowValidator(() -> schema, "created_at", 1825, 366, 1000, clock);
+    }
+
+    @Test
+    public void shouldPassRowsWithPartitionInBoundsAndRequiredValues() {
+        assertNull(rowValidator.validate(record(columns(NOW - TimeUnit.DAYS.toMillis(1000))), NOW));
+    }
+
+    @Test
+    public void shouldRejectRowsWithPartitionOutOfBounds() {
+        assertEquals(RecordsErrorType.OOB, rowValidator.validate(record(columns(NOW - TimeUnit.DAYS.toMillis(1826))), NOW));
+        assertEquals(RecordsErrorType.OOB, rowValidator.validate(record(columns(NOW + TimeUnit.DAYS.toMillis(367))), NOW));
+    }
+
+    @Test
+    public void shouldRejectRowsMissingRequiredValues() {
+        Map<String, Object> columns = columns(NOW);
+        columns.remove("order_number");
+
+        assertEquals(RecordsErrorType.INVALID, rowValidator.validate(record(columns), NOW));
+    }
+
+    @Test
+    public void shouldRejectRowsMissingRequiredValuesOfNestedRecords() {
+        Map<String, Object> columns = columns(NOW);
+        columns.put("driver", Collections.singletonMap("name", "alice"));
+
+        assertEquals(RecordsErrorType.INVALID, rowValidator.validate(record(columns), NOW));
+    }
+
+    @Test
+    public void shouldRejectOversizedRows() {
+        Map<String, Object> columns = columns(NOW);
+        columns.put("note", StringUtils.repeat('x', 1000));
+
+        assertEquals(RecordsErrorType.OVERSIZED, rowValidator.validate(record(columns), NOW));
+    }
+
+    @Test
+    public void shouldSplitValidRowsFromInvalidOnesByErrorType() {
+        Record valid = record(columns(NOW));
+        Record outOfBounds = record(columns(NOW + TimeUnit.DAYS.toMillis(400)));
+        Map<RecordsErrorType, List<Record>> invalidRecords = new EnumMap<>(RecordsErrorType.class);
+
+        List<Record> validRecords = rowValidator.validate(Arrays.asList(valid, outOfBounds), invalidRecords);
+
+        assertEquals(Collections.singletonList(valid), validRecords);
+        assertEquals(Collections.singletonMap(RecordsErrorType.OOB, Collections.singletonList(outOfBounds)), invalidRecords);
+    }
+
+    private Map<String, Object> columns(long createdAt) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("order_number", "order-1");
+        columns.put("created_at", new DateTime(createdAt));
+        columns.put("driver", Collections.singletonMap("id", "driver-1"));
+        return columns;
+    }
+
+    private Record record(Map<String, Object> columns) {
+        return new Record(offsetInfo, columns);
+    }
+}
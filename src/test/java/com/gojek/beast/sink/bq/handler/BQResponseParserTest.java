@@ -0,0 +1,43 @@
+package com.gojek.beast.sink.bq.handler;
+
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.google.cloud.bigquery.BigQueryError;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BQResponseParserTest {
+    private final BQResponseParser responseParser = new BQResponseParser();
+
+    private Record createRecord(long offset) {
+        return new Record(new OffsetInfo("topic", 0, offset, Instant.now().toEpochMilli()), new HashMap<>(), null, null);
+    }
+
+    @Test
+    public void shouldClassifyEveryFailedRecord() {
+        List<Record> records = Arrays.asList(createRecord(0), createRecord(1), createRecord(2), createRecord(3), createRecord(4), createRecord(5));
+        Map<Long, List<BigQueryError>> insertErrors = new HashMap<>();
+        insertErrors.put(0L, Collections.singletonList(new BigQueryError("stopped", "", "")));
+        insertErrors.put(1L, Collections.singletonList(new BigQueryError("invalid", "ts", "out of range")));
+        insertErrors.put(2L, Collections.singletonList(new BigQueryError("invalid", "name", "no such field")));
+        insertErrors.put(3L, Collections.singletonList(new BigQueryError("backendError", "", "")));
+        insertErrors.put(5L, Collections.singletonList(new BigQueryError("invalid", "ts", "out of range")));
+
+        BQFilteredResponse filteredResponse = responseParser.parseInsertErrors(records, insertErrors);
+
+        assertEquals(2, filteredResponse.getRetryableRecords().size());
+        assertTrue(filteredResponse.getRetryableRecords().containsAll(Arrays.asList(records.get(0), records.get(3))));
+        assertEquals(2, filteredResponse.getOobRecords().size());
+        assertTrue(filteredResponse.getOobRecords().containsAll(Arrays.asList(records.get(1), records.get(5))));
+        assertEquals(Collections.singletonList(records.get(2)), filteredResponse.getUnhandledRecords());
+    }
+}
@@ -19,6 +19,8 @@ public class ErrorTypeFactoryTest {
     public void testErrorTypeIsValid() {
         assertEquals(BQRecordsErrorType.VALID, ErrorTypeFactory.getErrorType("stopped", ""));
         assertEquals(BQRecordsErrorType.VALID, ErrorTypeFactory.getErrorType("stopped", "Any Message"));
+        assertEquals(BQRecordsErrorType.VALID, ErrorTypeFactory.getErrorType("backendError", "Any Message"));
+        assertEquals(BQRecordsErrorType.VALID, ErrorTypeFactory.getErrorType("rateLimitExceeded", ""));
     }
 
     @Test
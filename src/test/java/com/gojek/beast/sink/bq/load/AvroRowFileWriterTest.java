@@ -0,0 +1,110 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.gojek.beast.exception.UnsupportedColumnValueException;
+import com.google.api.client.util.DateTime;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AvroRowFileWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private List<Field> fields;
+
+    @Before
+    public void setUp() {
+        fields = Arrays.asList(
+                Field.of("order_number", LegacySQLTypeName.STRING),
+                Field.of("discount", LegacySQLTypeName.INTEGER),
+                Field.of("price", LegacySQLTypeName.FLOAT),
+                Field.of("success", LegacySQLTypeName.BOOLEAN),
+                Field.of("user_token", LegacySQLTypeName.BYTES),
+                Field.of("created_at", LegacySQLTypeName.TIMESTAMP),
+                Field.newBuilder("aliases", LegacySQLTypeName.STRING).setMode(Field.Mode.REPEATED).build(),
+                Field.of("driver", LegacySQLTypeName.RECORD, Field.of("name", LegacySQLTypeName.STRING)));
+    }
+
+    @Test
+    public void shouldWriteColumnsAsTypesOfTheirFields() throws Exception {
+        Map<String, Object> driver = new HashMap<>();
+        driver.put("name", "John");
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("order_number", "order-1");
+        columns.put("discount", 10);
+        columns.put("price", 12.5f);
+        columns.put("success", true);
+        columns.put("user_token", Base64.getEncoder().encodeToString("token".getBytes(StandardCharsets.UTF_8)));
+        columns.put("created_at", new DateTime(1000L));
+        columns.put("aliases", Arrays.asList("a", "b"));
+        columns.put("driver", driver);
+
+        GenericRecord row = writeAndReadBack(columns);
+
+        assertEquals("order-1", row.get("order_number").toString());
+        assertEquals(10L, row.get("discount"));
+        assertEquals(12.5, row.get("price"));
+        assertEquals(true, row.get("success"));
+        assertEquals(ByteBuffer.wrap("token".getBytes(StandardCharsets.UTF_8)), row.get("user_token"));
+        assertEquals(1000000L, row.get("created_at"));
+        assertEquals(Arrays.asList("a", "b"), ((List<?>) row.get("aliases")).stream().map(Object::toString).collect(Collectors.toList()));
+        assertEquals("John", ((GenericRecord) row.get("driver")).get("name").toString());
+    }
+
+    @Test
+    public void shouldWriteMissingColumnsAsNullsAndEmptyArrays() throws Exception {
+        GenericRecord row = writeAndReadBack(Collections.singletonMap("order_number", "order-1"));
+
+        assertNull(row.get("discount"));
+        assertNull(row.get("driver"));
+        assertEquals(Collections.emptyList(), row.get("aliases"));
+    }
+
+    @Test
+    public void shouldTypeTimestampsAsMicrosAndNameRecordsAfterTheirParents() {
+        Schema schema = AvroRowFileWriter.toSchema("row", fields);
+
+        Schema createdAt = schema.getField("created_at").schema().getTypes().get(1);
+        assertEquals(LogicalTypes.timestampMicros(), createdAt.getLogicalType());
+        assertEquals("row_driver", schema.getField("driver").schema().getTypes().get(1).getName());
+        assertEquals(Schema.Type.ARRAY, schema.getField("aliases").schema().getType());
+    }
+
+    @Test(expected = UnsupportedColumnValueException.class)
+    public void shouldNotWriteNestedValueToStringColumn() {
+        AvroRowFileWriter.toRecord(AvroRowFileWriter.toSchema("row", fields), Collections.singletonMap("order_number", Collections.emptyMap()));
+    }
+
+    private GenericRecord writeAndReadBack(Map<String, Object> columns) throws Exception {
+        File file = folder.newFile("rows.avro");
+        try (AvroRowFileWriter writer = new AvroRowFileWriter(file, fields)) {
+            writer.write(columns);
+        }
+        try (DataFileReader<GenericRecord> reader = new DataFileReader<>(file, new GenericDatumReader<>())) {
+            assertTrue(reader.hasNext());
+            return reader.next();
+        }
+    }
+}
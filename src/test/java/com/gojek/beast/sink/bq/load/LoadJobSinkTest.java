@@ -0,0 +1,228 @@
+package com.gojek.beast.sink.bq.load;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.config.LoadFileConfig;
+import com.gojek.beast.models.DeferredStatus;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.gojek.beast.sink.bq.RowValidator;
+import com.gojek.beast.sink.dlq.ErrorWriter;
+import com.gojek.beast.sink.dlq.RecordsErrorType;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryError;
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FormatOptions;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.LoadJobConfiguration;
+import com.google.cloud.bigquery.TableId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class LoadJobSinkTest {
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    @Mock
+    private BigQuery bigquery;
+    @Mock
+    private Job job;
+    @Mock
+    private JobStatus jobStatus;
+    @Mock
+    private ErrorWriter errorWriter;
+    private final TableId tableId = TableId.of("dataset", "table");
+    private final List<Field> schema = Arrays.asList(Field.of("name", LegacySQLTypeName.STRING), Field.of("age", LegacySQLTypeName.INTEGER));
+    private final LocalFileStager stager = new LocalFileStager();
+    private File directory;
+    private LoadJobSink sink;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("files");
+        when(bigquery.create(any(JobInfo.class))).thenReturn(job);
+        when(job.waitFor()).thenReturn(job);
+        when(job.getStatus()).thenReturn(jobStatus);
+    }
+
+    @After
+    public void tearDown() {
+        if (sink != null) {
+            sink.close("test");
+        }
+    }
+
+    @Test
+    public void shouldLoadFileOnceItReachesMaxBytesAndCompleteStatusAfterward() throws Exception {
+        sink = sink(LoadFileFormat.NDJSON, 1, HOUR_MS);
+
+        CompletableFuture<Status> loaded = deferred(sink.push(records(0, 2)));
+
+        await().atMost(5, TimeUnit.SECONDS).until(loaded::isDone);
+        assertTrue(loaded.get().isSuccess());
+        ArgumentCaptor<JobInfo> jobInfo = ArgumentCaptor.forClass(JobInfo.class);
+        verify(bigquery).create(jobInfo.capture());
+        LoadJobConfiguration configuration = jobInfo.getValue().getConfiguration();
+        assertEquals(tableId, configuration.getDestinationTable());
+        assertEquals(FormatOptions.json().getType(), configuration.getFormat());
+        assertEquals(Collections.singletonList(stager.uris.get(0)), configuration.getSourceUris());
+        assertEquals("{\"name\":\"name-0\",\"age\":0}\n{\"name\":\"name-1\",\"age\":1}", stager.contents.get(0));
+        assertEquals(0, directory.list().length);
+        assertEquals(stager.uris, stager.deleted);
+    }
+
+    @Test
+    public void shouldAppendBatchesToSameFileUntilItIsSealed() throws Exception {
+        sink = sink(LoadFileFormat.AVRO, Long.MAX_VALUE, HOUR_MS);
+
+        CompletableFuture<Status> first = deferred(sink.push(records(0, 2)));
+        CompletableFuture<Status> second = deferred(sink.push(records(2, 4)));
+
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertEquals(1, directory.list().length);
+        verify(bigquery, never()).create(any(JobInfo.class));
+    }
+
+    @Test
+    public void shouldLoadFileOnceItReachesMaxAge() throws Exception {
+        sink = sink(LoadFileFormat.AVRO, Long.MAX_VALUE, 50);
+
+        CompletableFuture<Status> loaded = deferred(sink.push(records(0, 2)));
+
+        await().atMost(5, TimeUnit.SECONDS).until(loaded::isDone);
+        assertTrue(loaded.get().isSuccess());
+        verify(bigquery).create(any(JobInfo.class));
+    }
+
+    @Test
+    public void shouldLoadFileEarlyOnceCommitQueueFillsUp() throws Exception {
+        sink = sink(LoadFileFormat.NDJSON, Long.MAX_VALUE, HOUR_MS);
+        sink.setCommitOccupancy(() -> 0.5);
+
+        CompletableFuture<Status> loaded = deferred(sink.push(records(0, 2)));
+
+        await().atMost(5, TimeUnit.SECONDS).until(loaded::isDone);
+        assertTrue(loaded.get().isSuccess());
+        verify(bigquery).create(any(JobInfo.class));
+    }
+
+    @Test
+    public void shouldHandRowsBQWouldRejectToErrorWriterAndLoadTheOthers() throws Exception {
+        when(errorWriter.writeRecords(any())).thenReturn(SUCCESS_STATUS);
+        sink = new LoadJobSink(bigquery, tableId, () -> schema, new LoadFileConfig(directory, LoadFileFormat.NDJSON, Long.MAX_VALUE, HOUR_MS), stager, new Clock(), errorWriter);
+        List<Field> requiredName = Arrays.asList(Field.newBuilder("name", LegacySQLTypeName.STRING).setMode(Field.Mode.REQUIRED).build(), Field.of("age", LegacySQLTypeName.INTEGER));
+        sink.setRowValidator(new RowValidator(() -> requiredName, null, 1825, 366, Long.MAX_VALUE, new Clock()));
+        Record rejected = new Record(new OffsetInfo("topic", 0, 2, 0L), Collections.singletonMap("age", 2L));
+        List<Record> rows = new ArrayList<>(records(0, 2).getRecords());
+        rows.add(rejected);
+
+        CompletableFuture<Status> loaded = deferred(sink.push(new Records(rows)));
+        sink.flush();
+
+        await().atMost(5, TimeUnit.SECONDS).until(loaded::isDone);
+        assertTrue(loaded.get().isSuccess());
+        verify(errorWriter).writeRecords(Collections.singletonMap(RecordsErrorType.INVALID, Collections.singletonList(rejected)));
+        assertEquals("{\"name\":\"name-0\",\"age\":0}\n{\"name\":\"name-1\",\"age\":1}", stager.contents.get(0));
+    }
+
+    @Test
+    public void shouldFailStatusWhenLoadJobFails() throws Exception {
+        when(jobStatus.getError()).thenReturn(new BigQueryError("invalid", "age", "not an integer"));
+        sink = sink(LoadFileFormat.NDJSON, 1, HOUR_MS);
+
+        CompletableFuture<Status> loaded = deferred(sink.push(records(0, 1)));
+
+        await().atMost(5, TimeUnit.SECONDS).until(loaded::isDone);
+        assertFalse(loaded.get().isSuccess());
+        assertTrue(stager.deleted.isEmpty());
+    }
+
+    @Test
+    public void shouldFailStatusOfOpenFileOnCloseWithoutLoadingIt() throws Exception {
+        sink = sink(LoadFileFormat.NDJSON, Long.MAX_VALUE, HOUR_MS);
+        CompletableFuture<Status> loaded = deferred(sink.push(records(0, 1)));
+
+        sink.close("test");
+
+        assertFalse(loaded.get().isSuccess());
+        assertEquals(0, directory.list().length);
+        verify(bigquery, never()).create(any(JobInfo.class));
+    }
+
+    private LoadJobSink sink(LoadFileFormat format, long maxBytes, long maxAgeMs) {
+        return new LoadJobSink(bigquery, tableId, () -> schema, new LoadFileConfig(directory, format, maxBytes, maxAgeMs), stager, new Clock());
+    }
+
+    private CompletableFuture<Status> deferred(Status status) {
+        assertTrue(status instanceof DeferredStatus);
+        return ((DeferredStatus) status).getCompletion();
+    }
+
+    private Records records(int from, int to) {
+        return new Records(IntStream.range(from, to).mapToObj(i -> {
+            Map<String, Object> columns = new LinkedHashMap<>();
+            columns.put("name", "name-" + i);
+            columns.put("age", (long) i);
+            return new Record(new OffsetInfo("topic", 0, i, 0L), columns);
+        }).collect(Collectors.toList()));
+    }
+
+    // stands in for GCS, keeping what was staged
+    private static class LocalFileStager implements FileStager {
+        private final List<String> uris = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> contents = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String stage(File file) throws IOException {
+            contents.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            String uri = "file://" + file.getAbsolutePath();
+            uris.add(uri);
+            return uri;
+        }
+
+        @Override
+        public void delete(String uri) {
+            deleted.add(uri);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.gojek.beast.sink.bq.write;
+
+import com.gojek.beast.Status;
+import com.gojek.beast.TestMessage;
+import com.gojek.beast.TestMessageChild;
+import com.gojek.beast.config.ColumnMapping;
+import com.gojek.beast.converter.MappingPlan;
+import com.gojek.beast.models.ConfigurationException;
+import com.gojek.beast.models.OffsetInfo;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Duration;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteApiRowPlanTest {
+    private final OffsetInfo offsetInfo = new OffsetInfo("topic", 2, 42, 1000L);
+    private ColumnMapping mapping;
+
+    @Before
+    public void setUp() {
+        mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        mapping.put("4", "created_at");
+        mapping.put("5", "status");
+        mapping.put("6", "discount");
+        mapping.put("10", "user_token");
+        ColumnMapping durationMapping = new ColumnMapping();
+        durationMapping.put("record_name", "trip_duration");
+        durationMapping.put("1", "seconds");
+        mapping.put("11", durationMapping);
+        mapping.put("12", "aliases");
+        mapping.put("13", "properties");
+        mapping.put("15", "updated_at");
+    }
+
+    @Test
+    public void shouldWriteRowOfMappedColumnsInShapeOfBQ() throws Exception {
+        Timestamp createdAt = Timestamp.newBuilder().setSeconds(1).setNanos(2000).build();
+        TestMessage message = TestMessage.newBuilder()
+                .setOrderNumber("order-1")
+                .setOrderUrl("unmapped")
+                .setCreatedAt(createdAt)
+                .setStatus(Status.CANCELLED)
+                .setDiscount(10)
+                .setUserToken(ByteString.copyFromUtf8("token"))
+                .setTripDuration(Duration.newBuilder().setSeconds(60).setNanos(5))
+                .addAliases("a").addAliases("b")
+                .setProperties(Struct.newBuilder().putFields("name", Value.newBuilder().setStringValue("John").build()))
+                .addUpdatedAt(createdAt).addUpdatedAt(createdAt)
+                .build();
+        WriteApiRowPlan plan = WriteApiRowPlan.compile(MappingPlan.compile(mapping, TestMessage.getDescriptor()), "");
+
+        DynamicMessage row = parse(plan, plan.toRow(message.toByteArray(), offsetInfo, 3000L));
+
+        assertEquals("order-1", field(row, "order_number"));
+        assertEquals(1000002L, field(row, "created_at"));
+        assertEquals("CANCELLED", field(row, "status"));
+        assertEquals(10L, field(row, "discount"));
+        assertEquals(ByteString.copyFromUtf8("token"), field(row, "user_token"));
+        DynamicMessage tripDuration = (DynamicMessage) field(row, "trip_duration");
+        assertEquals(60L, field(tripDuration, "seconds"));
+        assertEquals(1, tripDuration.getAllFields().size());
+        assertEquals(Arrays.asList("a", "b"), field(row, "aliases"));
+        assertEquals("{\"name\":\"John\"}", field(row, "properties"));
+        assertEquals(Arrays.asList(1000002L, 1000002L), field(row, "updated_at"));
+        assertFalse(row.getAllFields().keySet().stream().anyMatch(f -> f.getName().equals("order_url")));
+        assertEquals(42L, field(row, "message_offset"));
+        assertEquals("topic", field(row, "message_topic"));
+        assertEquals(2L, field(row, "message_partition"));
+        assertEquals(1000000L, field(row, "message_timestamp"));
+        assertEquals(3000000L, field(row, "load_time"));
+    }
+
+    @Test
+    public void shouldWriteMetadataUnderNamespace() throws Exception {
+        WriteApiRowPlan plan = WriteApiRowPlan.compile(MappingPlan.compile(mapping, TestMessage.getDescriptor()), "metadata");
+
+        DynamicMessage row = parse(plan, plan.toRow(TestMessage.newBuilder().setOrderNumber("order-1").build().toByteArray(), offsetInfo, 3000L));
+
+        DynamicMessage metadata = (DynamicMessage) field(row, "metadata");
+        assertEquals(42L, field(metadata, "message_offset"));
+        assertEquals("topic", field(metadata, "message_topic"));
+        assertEquals(3000000L, field(metadata, "load_time"));
+        assertEquals("order-1", field(row, "order_number"));
+    }
+
+    @Test
+    public void shouldCopyMessageWholeWhenAllFieldsAreMappedAsTheyAre() throws Exception {
+        ColumnMapping childMapping = new ColumnMapping();
+        childMapping.put("1", "order_number");
+        childMapping.put("7", "success");
+        byte[] message = TestMessageChild.newBuilder().setOrderNumber("order-1").setSuccess(true).build().toByteArray();
+        WriteApiRowPlan plan = WriteApiRowPlan.compile(MappingPlan.compile(childMapping, TestMessageChild.getDescriptor()), "");
+
+        ByteString row = plan.toRow(message, offsetInfo, 3000L);
+
+        assertTrue(row.startsWith(ByteString.copyFrom(message)));
+        assertEquals(true, field(parse(plan, row), "success"));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void shouldNotCompileMessageFieldMappedToColumn() {
+        mapping.put("14", "order_date");
+
+        WriteApiRowPlan.compile(MappingPlan.compile(mapping, TestMessage.getDescriptor()), "");
+    }
+
+    private DynamicMessage parse(WriteApiRowPlan plan, ByteString row) throws Exception {
+        Descriptors.FileDescriptor file = Descriptors.FileDescriptor.buildFrom(FileDescriptorProto.newBuilder()
+                .setName("row.proto")
+                .addMessageType(plan.getDescriptorProto())
+                .build(), new Descriptors.FileDescriptor[0]);
+        return DynamicMessage.parseFrom(file.findMessageTypeByName(WriteApiRowPlan.ROW_TYPE_NAME), row);
+    }
+
+    private Object field(DynamicMessage message, String name) {
+        Object value = message.getField(message.getDescriptorForType().findFieldByName(name));
+        return value instanceof List ? Arrays.asList(((List<?>) value).toArray()) : value;
+    }
+}
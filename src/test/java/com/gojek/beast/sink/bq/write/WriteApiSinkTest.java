@@ -0,0 +1,224 @@
+package com.gojek.beast.sink.bq.write;
+
+import com.gojek.beast.Clock;
+import com.gojek.beast.TestMessage;
+import com.gojek.beast.config.ColumnMapping;
+import com.gojek.beast.converter.MappingPlan;
+import com.gojek.beast.models.OffsetInfo;
+import com.gojek.beast.models.Record;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.cloud.bigquery.storage.v1.AppendRowsRequest;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteGrpc;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteSettings;
+import com.google.cloud.bigquery.storage.v1.CreateWriteStreamRequest;
+import com.google.cloud.bigquery.storage.v1.FinalizeWriteStreamRequest;
+import com.google.cloud.bigquery.storage.v1.FinalizeWriteStreamResponse;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.WriteStream;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Int64Value;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteApiSinkTest {
+    private final TableName tableName = TableName.of("project", "dataset", "table");
+    private final FakeBigQueryWrite fakeBigQueryWrite = new FakeBigQueryWrite();
+    private Server server;
+    private ManagedChannel channel;
+    private BigQueryWriteClient client;
+    private WriteApiSink sink;
+
+    @Before
+    public void setUp() throws IOException {
+        String serverName = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(serverName).directExecutor().addService(fakeBigQueryWrite).build().start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        client = BigQueryWriteClient.create(BigQueryWriteSettings.newBuilder()
+                .setTransportChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(channel)))
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
+        ColumnMapping mapping = new ColumnMapping();
+        mapping.put("1", "order_number");
+        MappingPlan mappingPlan = MappingPlan.compile(mapping, TestMessage.getDescriptor());
+        sink = new WriteApiSink(client, tableName, () -> mappingPlan, "", new Clock(), 200);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    public void shouldAppendBatchesOneAfterAnotherToCommittedStream() {
+        assertTrue(sink.push(records(0, 2)).isSuccess());
+        assertTrue(sink.push(records(2, 3)).isSuccess());
+
+        assertEquals(1, fakeBigQueryWrite.streams.size());
+        assertEquals(3, fakeBigQueryWrite.rowsOfOnlyStream().size());
+        assertEquals(Collections.singletonList(WriteApiRowPlan.ROW_TYPE_NAME), fakeBigQueryWrite.schemaNames);
+    }
+
+    @Test
+    public void shouldWriteRowsOnceWhenRetryFollowsAppendWithLostResponse() {
+        assertTrue(sink.push(records(0, 2)).isSuccess());
+        fakeBigQueryWrite.dropNextResponse = true;
+
+        assertFalse(sink.push(records(2, 4)).isSuccess());
+        assertTrue(sink.push(records(2, 4)).isSuccess());
+
+        assertEquals(4, fakeBigQueryWrite.rowsOfOnlyStream().size());
+        assertTrue(sink.push(records(4, 5)).isSuccess());
+        assertEquals(5, fakeBigQueryWrite.rowsOfOnlyStream().size());
+    }
+
+    @Test
+    public void shouldWriteRowsWhenRetryFollowsAppendCutOffBeforeWriting() {
+        fakeBigQueryWrite.failNextAppend = true;
+
+        assertFalse(sink.push(records(0, 2)).isSuccess());
+        assertTrue(sink.push(records(0, 2)).isSuccess());
+
+        assertEquals(2, fakeBigQueryWrite.rowsOfOnlyStream().size());
+    }
+
+    @Test
+    public void shouldMoveToNewStreamWhenAnotherBatchFollowsAppendOfUnknownOutcome() {
+        fakeBigQueryWrite.dropNextResponse = true;
+
+        assertFalse(sink.push(records(0, 2)).isSuccess());
+        assertTrue(sink.push(records(2, 3)).isSuccess());
+
+        assertEquals(2, fakeBigQueryWrite.streams.size());
+    }
+
+    @Test
+    public void shouldFinalizeStreamOnClose() {
+        sink.push(records(0, 1));
+
+        sink.close("test");
+
+        assertEquals(new ArrayList<>(fakeBigQueryWrite.streams.keySet()), fakeBigQueryWrite.finalized);
+    }
+
+    @Test
+    public void shouldFailBatchOfMessagesItCantRead() {
+        Record record = new Record(new OffsetInfo("topic", 0, 0, 0L), Collections.emptyMap(), null, new byte[]{(byte) 0xFF});
+
+        Status status = sink.push(new Records(Collections.singletonList(record)));
+
+        assertFalse(status.isSuccess());
+        assertTrue(fakeBigQueryWrite.streams.isEmpty());
+    }
+
+    private Records records(long fromOffset, long toOffset) {
+        return new Records(LongStream.range(fromOffset, toOffset).mapToObj(offset -> new Record(new OffsetInfo("topic", 0, offset, 0L),
+                Collections.emptyMap(), null, TestMessage.newBuilder().setOrderNumber("order-" + offset).build().toByteArray()))
+                .collect(Collectors.toList()));
+    }
+
+    private static class FakeBigQueryWrite extends BigQueryWriteGrpc.BigQueryWriteImplBase {
+        private final Map<String, List<ByteString>> streams = Collections.synchronizedMap(new LinkedHashMap<>());
+        private final List<String> schemaNames = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> finalized = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean dropNextResponse;
+        private volatile boolean failNextAppend;
+
+        List<ByteString> rowsOfOnlyStream() {
+            assertEquals(1, streams.size());
+            return streams.values().iterator().next();
+        }
+
+        @Override
+        public void createWriteStream(CreateWriteStreamRequest request, StreamObserver<WriteStream> responseObserver) {
+            String name = request.getParent() + "/streams/" + streams.size();
+            streams.put(name, Collections.synchronizedList(new ArrayList<>()));
+            responseObserver.onNext(request.getWriteStream().toBuilder().setName(name).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void finalizeWriteStream(FinalizeWriteStreamRequest request, StreamObserver<FinalizeWriteStreamResponse> responseObserver) {
+            finalized.add(request.getName());
+            responseObserver.onNext(FinalizeWriteStreamResponse.newBuilder().setRowCount(streams.get(request.getName()).size()).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public StreamObserver<AppendRowsRequest> appendRows(StreamObserver<AppendRowsResponse> responseObserver) {
+            return new StreamObserver<AppendRowsRequest>() {
+                private String streamName;
+
+                @Override
+                public void onNext(AppendRowsRequest request) {
+                    if (failNextAppend) {
+                        failNextAppend = false;
+                        responseObserver.onError(io.grpc.Status.UNAVAILABLE.asRuntimeException());
+                        return;
+                    }
+                    if (request.getProtoRows().hasWriterSchema()) {
+                        streamName = request.getWriteStream();
+                        schemaNames.add(request.getProtoRows().getWriterSchema().getProtoDescriptor().getName());
+                    }
+                    List<ByteString> rows = streams.get(streamName);
+                    long offset = request.getOffset().getValue();
+                    AppendRowsResponse response;
+                    if (offset < rows.size()) {
+                        response = error(io.grpc.Status.Code.ALREADY_EXISTS);
+                    } else if (offset > rows.size()) {
+                        response = error(io.grpc.Status.Code.OUT_OF_RANGE);
+                    } else {
+                        rows.addAll(request.getProtoRows().getRows().getSerializedRowsList());
+                        response = AppendRowsResponse.newBuilder()
+                                .setAppendResult(AppendRowsResponse.AppendResult.newBuilder().setOffset(Int64Value.newBuilder().setValue(offset)))
+                                .build();
+                    }
+                    if (dropNextResponse) {
+                        dropNextResponse = false;
+                        return;
+                    }
+                    responseObserver.onNext(response);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onCompleted();
+                }
+            };
+        }
+
+        private AppendRowsResponse error(io.grpc.Status.Code code) {
+            return AppendRowsResponse.newBuilder().setError(com.google.rpc.Status.newBuilder().setCode(code.value()).setMessage(code.name())).build();
+        }
+    }
+}
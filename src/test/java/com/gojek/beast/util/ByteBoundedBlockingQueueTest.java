@@ -0,0 +1,84 @@
+package com.gojek.beast.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteBoundedBlockingQueueTest {
+
+    private ByteBoundedBlockingQueue<String> queue = new ByteBoundedBlockingQueue<>(10, 10, String::length);
+
+    @Test
+    public void shouldRejectElementsBeyondByteCapacity() throws InterruptedException {
+        assertTrue(queue.offer("123456"));
+        assertFalse(queue.offer("12345", 10, TimeUnit.MILLISECONDS));
+        assertTrue(queue.offer("1234"));
+
+        assertEquals(10, queue.getBytes());
+        assertEquals(1.0, queue.getOccupancy(), 0);
+        assertEquals(8, queue.remainingCapacity());
+    }
+
+    @Test
+    public void shouldRejectElementsBeyondElementCapacity() {
+        BlockingQueue<String> smallQueue = new ByteBoundedBlockingQueue<>(1, 10, String::length);
+
+        assertTrue(smallQueue.offer("1"));
+        assertFalse(smallQueue.offer("2"));
+    }
+
+    @Test
+    public void shouldAcceptElementHeavierThanCapacityWhenEmpty() {
+        assertTrue(queue.offer("12345678901"));
+        assertFalse(queue.offer("1"));
+
+        assertEquals("12345678901", queue.poll());
+        assertEquals(0, queue.getBytes());
+    }
+
+    @Test
+    public void shouldReleaseBlockedProducerWhenBytesAreFreed() throws InterruptedException {
+        queue.put("1234567890");
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put("12345");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        assertEquals("1234567890", queue.take());
+        producer.join(1000);
+
+        await().until(() -> queue.size() == 1);
+        assertEquals(5, queue.getBytes());
+    }
+
+    @Test
+    public void shouldKeepBytesInSyncOnRemoval() {
+        queue.offer("12");
+        queue.offer("345");
+        queue.offer("6789");
+
+        queue.removeIf(e -> e.length() == 3);
+        assertEquals(6, queue.getBytes());
+        queue.remove("12");
+        assertEquals(4, queue.getBytes());
+        List<String> drained = new ArrayList<>();
+        queue.drainTo(drained);
+
+        assertEquals(1, drained.size());
+        assertEquals(0, queue.getBytes());
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,101 @@
+package com.gojek.beast.worker;
+
+import com.gojek.beast.commiter.Acknowledger;
+import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.models.FailureStatus;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.sink.Sink;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncBqQueueWorkerTest {
+    @Mock
+    private Sink sink;
+    @Mock
+    private Acknowledger acknowledger;
+    @Mock
+    private Map<TopicPartition, OffsetAndMetadata> offsetInfos;
+    private QueueConfig queueConfig;
+    private BlockingQueue<Records> queue;
+    private WorkerState workerState;
+
+    @Before
+    public void setUp() {
+        queueConfig = new QueueConfig(50);
+        queue = new LinkedBlockingQueue<>();
+        workerState = new WorkerState();
+    }
+
+    private Records createRecords() {
+        Records records = mock(Records.class);
+        when(records.getPartitionsCommitOffset()).thenReturn(offsetInfos);
+        when(records.getPolledTime()).thenReturn(Instant.now());
+        return records;
+    }
+
+    @Test
+    public void shouldKeepPushesInFlightAndAckEachOnCompletion() throws InterruptedException {
+        CountDownLatch insertsBlocked = new CountDownLatch(1);
+        when(sink.push(any())).thenAnswer(invocation -> {
+            insertsBlocked.await();
+            return SUCCESS_STATUS;
+        });
+        queue.put(createRecords());
+        queue.put(createRecords());
+        queue.put(createRecords());
+        AsyncBqQueueWorker worker = new AsyncBqQueueWorker("bq-worker", sink, queueConfig, acknowledger, queue, workerState, 3);
+        Thread workerThread = new Thread(worker);
+        workerThread.start();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> mockingDetails(sink).getInvocations().size() == 3);
+        verify(acknowledger, never()).acknowledge(any());
+        insertsBlocked.countDown();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> mockingDetails(acknowledger).getInvocations().size() == 3);
+        workerState.closeWorker();
+        workerThread.join();
+        verify(acknowledger, times(3)).acknowledge(offsetInfos);
+    }
+
+    @Test
+    public void shouldPutBackFailedBatchAndStop() throws InterruptedException {
+        Records records = createRecords();
+        when(sink.push(records)).thenReturn(new FailureStatus(new Exception()));
+        queue.put(records);
+        AsyncBqQueueWorker worker = new AsyncBqQueueWorker("bq-worker", sink, queueConfig, acknowledger, queue, workerState, 1);
+        Thread workerThread = new Thread(worker);
+
+        workerThread.start();
+        workerThread.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertTrue(workerState.isStopped());
+        verify(acknowledger, never()).acknowledge(any());
+        assertEquals(1, queue.size());
+        verify(sink).close(any());
+    }
+}
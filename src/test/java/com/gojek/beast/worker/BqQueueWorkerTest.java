@@ -1,10 +1,16 @@
 package com.gojek.beast.worker;
 
+import com.gojek.beast.backoff.DecorrelatedJitterBackOff;
+import com.gojek.beast.backoff.RetryBudget;
 import com.gojek.beast.commiter.Acknowledger;
+import com.gojek.beast.config.CoalesceConfig;
 import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.models.DeferredStatus;
 import com.gojek.beast.models.FailureStatus;
 import com.gojek.beast.models.Records;
+import com.gojek.beast.models.Status;
 import com.gojek.beast.sink.Sink;
+import com.gojek.beast.util.RecordsUtil;
 import com.gojek.beast.util.WorkerUtil;
 import com.google.cloud.bigquery.BigQueryException;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
@@ -12,17 +18,23 @@ import org.apache.kafka.common.TopicPartition;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static com.gojek.beast.config.Constants.SUCCESS_STATUS;
 import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -148,4 +160,89 @@ public class BqQueueWorkerTest {
         workerThread.join();
         //TODO: change Worker run to callable and verify return value
     }
+
+    @Test
+    public void shouldCoalesceQueuedBatchesIntoOnePushAndAckEachBatch() throws InterruptedException {
+        RecordsUtil recordsUtil = new RecordsUtil();
+        Records first = recordsUtil.createRecords("driver-", 2);
+        Records second = recordsUtil.createRecords("driver-", 2);
+        Records third = recordsUtil.createRecords("customer-", 2);
+        BlockingQueue<Records> queue = new LinkedBlockingQueue<>(Arrays.asList(first, second, third));
+        BqQueueWorker worker = new BqQueueWorker("bq-worker", successfulSink, queueConfig, committer, queue, workerState);
+        worker.setCoalesceConfig(new CoalesceConfig(100, Long.MAX_VALUE, 0));
+
+        Status status = worker.job();
+
+        assertTrue(status.isSuccess());
+        ArgumentCaptor<Records> pushed = ArgumentCaptor.forClass(Records.class);
+        verify(successfulSink).push(pushed.capture());
+        assertEquals(6, pushed.getValue().size());
+        verify(committer).acknowledge(first.getPartitionsCommitOffset());
+        verify(committer).acknowledge(second.getPartitionsCommitOffset());
+        verify(committer).acknowledge(third.getPartitionsCommitOffset());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void shouldCarryOverBatchNotFittingCoalescingLimitsToNextPush() throws InterruptedException {
+        RecordsUtil recordsUtil = new RecordsUtil();
+        Records first = recordsUtil.createRecords("driver-", 2);
+        Records second = recordsUtil.createRecords("driver-", 2);
+        BlockingQueue<Records> queue = new LinkedBlockingQueue<>(Arrays.asList(first, second));
+        BqQueueWorker worker = new BqQueueWorker("bq-worker", successfulSink, queueConfig, committer, queue, workerState);
+        worker.setCoalesceConfig(new CoalesceConfig(3, Long.MAX_VALUE, 0));
+
+        worker.job();
+        worker.job();
+
+        verify(successfulSink).push(first);
+        verify(successfulSink).push(second);
+        verify(committer).acknowledge(first.getPartitionsCommitOffset());
+        verify(committer).acknowledge(second.getPartitionsCommitOffset());
+    }
+
+    @Test
+    public void shouldGoOnWithOtherBatchesWhileFailedBatchAwaitsRetry() throws InterruptedException {
+        Records retried = mock(Records.class);
+        BlockingQueue<Records> queue = new LinkedBlockingQueue<>(Arrays.asList(retried, messages));
+        when(failureSink.push(retried)).thenReturn(new FailureStatus(new Exception()));
+        when(failureSink.push(messages)).thenReturn(SUCCESS_STATUS);
+        BqQueueWorker worker = new BqQueueWorker("bq-worker", failureSink, queueConfig, committer, queue, workerState);
+        worker.setRetryScheduler(new RetryScheduler(new DecorrelatedJitterBackOff(100, 100), new RetryBudget(0.1, 10), 3));
+
+        assertTrue(worker.job().isSuccess());
+        assertTrue(worker.job().isSuccess());
+
+        verify(committer).acknowledge(any());
+        verify(committer).acknowledge(offsetInfos);
+        assertSame(retried, queue.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldAckBatchPushedWithDeferredStatusOnceItIsWritten() {
+        CompletableFuture<Status> written = new CompletableFuture<>();
+        when(failureSink.push(messages)).thenReturn(new DeferredStatus(written));
+        BqQueueWorker worker = new BqQueueWorker("bq-worker", failureSink, queueConfig, committer, new LinkedBlockingQueue<>(Arrays.asList(messages)), workerState);
+
+        assertTrue(worker.job().isSuccess());
+        verify(committer).defer(offsetInfos);
+        verify(committer, never()).acknowledge(any());
+
+        written.complete(SUCCESS_STATUS);
+        verify(committer).acknowledge(offsetInfos);
+    }
+
+    @Test
+    public void shouldStopOnNextJobWhenDeferredWriteFails() {
+        CompletableFuture<Status> written = new CompletableFuture<>();
+        when(failureSink.push(messages)).thenReturn(new DeferredStatus(written));
+        BqQueueWorker worker = new BqQueueWorker("bq-worker", failureSink, queueConfig, committer, new LinkedBlockingQueue<>(Arrays.asList(messages)), workerState);
+        assertTrue(worker.job().isSuccess());
+        FailureStatus failure = new FailureStatus(new Exception());
+
+        written.complete(failure);
+
+        assertSame(failure, worker.job());
+        verify(committer, never()).acknowledge(any());
+    }
 }
@@ -5,10 +5,15 @@ import com.gojek.beast.commiter.Acknowledger;
 import com.gojek.beast.commiter.KafkaCommitter;
 import com.gojek.beast.commiter.OffsetAcknowledger;
 import com.gojek.beast.commiter.OffsetState;
+import com.gojek.beast.commiter.OffsetTracker;
 import com.gojek.beast.config.QueueConfig;
+import com.gojek.beast.models.OffsetMetadata;
+import com.gojek.beast.models.Status;
+import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.clients.consumer.RetriableCommitFailedException;
 import org.apache.kafka.common.TopicPartition;
-import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -20,25 +25,22 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,13 +49,12 @@ public class OffsetCommitWorkerTest {
 
     @Captor
     private ArgumentCaptor<Map<TopicPartition, OffsetAndMetadata>> commitPartitionsOffsetCaptor;
-    @Mock
-    private Map<TopicPartition, OffsetAndMetadata> commitPartitionsOffset;
+    @Captor
+    private ArgumentCaptor<OffsetCommitCallback> commitCallbackCaptor;
     @Mock
     private KafkaCommitter kafkaCommitter;
-    private QueueConfig queueConfig;
-    private int pollTimeout;
-    private Set<Map<TopicPartition, OffsetAndMetadata>> acknowledgements;
+    private TopicPartition topicPartition;
+    private OffsetTracker offsetTracker;
     private OffsetState offsetState;
     private Acknowledger offsetAcknowledger;
     private WorkerState workerState;
@@ -61,46 +62,34 @@ public class OffsetCommitWorkerTest {
     private long ackTimeoutTime;
     @Mock
     private Clock clock;
+    private OffsetCommitWorker committer;
 
     @Before
     public void setUp() {
-        pollTimeout = 200;
         offsetBatchDuration = 1000;
         ackTimeoutTime = 2000;
-        queueConfig = new QueueConfig(pollTimeout);
-        commitPartitionsOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(1));
-        }};
-        CopyOnWriteArraySet<Map<TopicPartition, OffsetAndMetadata>> ackSet = new CopyOnWriteArraySet<>();
-        acknowledgements = Collections.synchronizedSet(ackSet);
-        offsetState = new OffsetState(acknowledgements, ackTimeoutTime, offsetBatchDuration);
+        topicPartition = new TopicPartition("topic", 0);
+        offsetTracker = new OffsetTracker(16);
+        offsetState = new OffsetState(ackTimeoutTime, offsetBatchDuration);
         workerState = new WorkerState();
-        offsetAcknowledger = new OffsetAcknowledger(acknowledgements);
+        offsetAcknowledger = new OffsetAcknowledger(Collections.singletonList(offsetTracker));
+        committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaCommitter, offsetState, offsetTracker, workerState, clock);
     }
 
-    @After
-    public void tearDown() {
-        acknowledgements.clear();
+    private Map<TopicPartition, OffsetAndMetadata> register(long offset) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = Collections.singletonMap(topicPartition, new OffsetMetadata(offset));
+        assertTrue(offsetTracker.register(offsets));
+        return offsets;
     }
 
-
     @Test
-    public void shouldCommitFirstOffsetWhenAcknowledged() throws InterruptedException {
-        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 0L, 1001L);
-        BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue = spy(new LinkedBlockingQueue<>());
-        OffsetCommitWorker committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaCommitter, offsetState, commitQueue, workerState, clock);
-        committer.setDefaultSleepMs(10);
-        commitQueue.put(commitPartitionsOffset);
-        offsetAcknowledger.acknowledge(commitPartitionsOffset);
-
-        Thread commitThread = new Thread(committer);
-        commitThread.start();
-
-        await().until(commitQueue::isEmpty);
-        workerState.closeWorker();
-        commitThread.join();
-
-        verify(commitQueue, atLeast(1)).poll(queueConfig.getTimeout(), queueConfig.getTimeoutUnit());
+    public void shouldCommitFirstOffsetWhenAcknowledged() {
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L);
+        offsetAcknowledger.acknowledge(register(1));
+
+        Status status = committer.job();
+
+        assertTrue(status.isSuccess());
         verify(kafkaCommitter).commitSync(commitPartitionsOffsetCaptor.capture());
         Map<TopicPartition, OffsetAndMetadata> committedOffsets = commitPartitionsOffsetCaptor.getValue();
         assertEquals(1, committedOffsets.size());
@@ -108,70 +97,53 @@ public class OffsetCommitWorkerTest {
         assertEquals(offset.getKey().topic(), "topic");
         assertEquals(offset.getKey().partition(), 0);
         assertEquals(offset.getValue().offset(), 1);
-        assertTrue(commitQueue.isEmpty());
+        assertFalse(offsetTracker.hasUnacknowledged());
     }
 
     @Test
-    public void shouldBatchCommitOffsets() throws InterruptedException {
-        Map<TopicPartition, OffsetAndMetadata> record1CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(1));
-        }};
-        Map<TopicPartition, OffsetAndMetadata> record2CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(2));
-        }};
-        Map<TopicPartition, OffsetAndMetadata> record3CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(3));
-        }};
-        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 1001L);
-        BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue = spy(new LinkedBlockingQueue<>());
-        OffsetCommitWorker committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaCommitter, offsetState, commitQueue, workerState, clock);
-
-        for (Map<TopicPartition, OffsetAndMetadata> rs : Arrays.asList(record1CommitOffset, record2CommitOffset, record3CommitOffset)) {
-            commitQueue.offer(rs, 1, TimeUnit.SECONDS);
-        }
+    public void shouldBatchCommitOffsets() {
+        Map<TopicPartition, OffsetAndMetadata> record1CommitOffset = register(1);
+        Map<TopicPartition, OffsetAndMetadata> record2CommitOffset = register(2);
+        Map<TopicPartition, OffsetAndMetadata> record3CommitOffset = register(3);
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L);
         offsetAcknowledger.acknowledge(record3CommitOffset);
         offsetAcknowledger.acknowledge(record1CommitOffset);
         offsetAcknowledger.acknowledge(record2CommitOffset);
-        Thread committerThread = new Thread(committer, "commiter");
 
-        committerThread.start();
-        await().until(() -> acknowledgements.isEmpty());
-        workerState.closeWorker();
-        committerThread.join();
+        committer.job();
 
-        verify(commitQueue, atLeast(3)).poll(queueConfig.getTimeout(), queueConfig.getTimeoutUnit());
         verify(kafkaCommitter).commitSync(commitPartitionsOffsetCaptor.capture());
         Map<TopicPartition, OffsetAndMetadata> committedOffsets = commitPartitionsOffsetCaptor.getValue();
         assertEquals(1, committedOffsets.size());
-        Map.Entry<TopicPartition, OffsetAndMetadata> offset = committedOffsets.entrySet().iterator().next();
-        assertEquals(offset.getKey().topic(), "topic");
-        assertEquals(offset.getKey().partition(), 0);
-        assertEquals(offset.getValue().offset(), 3);
-        assertTrue(commitQueue.isEmpty());
+        assertEquals(3, committedOffsets.get(topicPartition).offset());
+        assertEquals(0, offsetTracker.size());
+    }
+
+    @Test
+    public void shouldCommitUpToFirstUnacknowledgedOffset() {
+        Map<TopicPartition, OffsetAndMetadata> record1CommitOffset = register(1);
+        register(2);
+        Map<TopicPartition, OffsetAndMetadata> record3CommitOffset = register(3);
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L);
+        offsetAcknowledger.acknowledge(record3CommitOffset);
+        offsetAcknowledger.acknowledge(record1CommitOffset);
+
+        committer.job();
+
+        verify(kafkaCommitter).commitSync(commitPartitionsOffsetCaptor.capture());
+        assertEquals(1, commitPartitionsOffsetCaptor.getValue().get(topicPartition).offset());
+        assertEquals(2, offsetTracker.size());
     }
 
     @Test
     public void shouldCommitInSequenceWithParallelAcknowledgements() throws InterruptedException {
-        Map<TopicPartition, OffsetAndMetadata> record1CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(1));
-        }};
-        Map<TopicPartition, OffsetAndMetadata> record2CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(2));
-        }};
-        Map<TopicPartition, OffsetAndMetadata> record3CommitOffset = new HashMap<TopicPartition, OffsetAndMetadata>() {{
-            put(new TopicPartition("topic", 0), new OffsetAndMetadata(3));
-        }};
+        Map<TopicPartition, OffsetAndMetadata> record1CommitOffset = register(1);
+        Map<TopicPartition, OffsetAndMetadata> record2CommitOffset = register(2);
+        Map<TopicPartition, OffsetAndMetadata> record3CommitOffset = register(3);
         int ackDelayRandomMs = 100;
-        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 1001L);
-        BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue = spy(new LinkedBlockingQueue<>());
-        OffsetCommitWorker committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaCommitter, offsetState, commitQueue, workerState, clock);
-        committer.setDefaultSleepMs(50);
-        List<Map<TopicPartition, OffsetAndMetadata>> incomingRecords = Arrays.asList(record1CommitOffset, record2CommitOffset, record3CommitOffset);
-        for (Map<TopicPartition, OffsetAndMetadata> incomingRecord : incomingRecords) {
-            commitQueue.offer(incomingRecord, 1, TimeUnit.SECONDS);
-        }
+        when(clock.currentEpochMillis()).thenReturn(0L);
 
-        Thread commiterThread = new Thread(committer);
+        Thread commiterThread = new Thread(committer::job);
         commiterThread.start();
 
         AcknowledgeHelper acknowledger1 = new AcknowledgeHelper(record2CommitOffset, offsetAcknowledger, new Random().nextInt(ackDelayRandomMs));
@@ -180,8 +152,8 @@ public class OffsetCommitWorkerTest {
         List<AcknowledgeHelper> acknowledgers = Arrays.asList(acknowledger1, acknowledger2, acknowledger3);
         acknowledgers.forEach(Thread::start);
 
-        await().until(commitQueue::isEmpty);
-        workerState.closeWorker();
+        await().until(() -> !offsetTracker.hasUnacknowledged());
+        committer.stop("test");
         commiterThread.join();
         verify(kafkaCommitter).commitSync(commitPartitionsOffsetCaptor.capture());
         Map<TopicPartition, OffsetAndMetadata> committedOffsets = commitPartitionsOffsetCaptor.getValue();
@@ -195,11 +167,8 @@ public class OffsetCommitWorkerTest {
     @Test
     public void shouldStopProcessWhenCommitterGetException() throws InterruptedException {
         doThrow(ConcurrentModificationException.class).when(kafkaCommitter).commitSync(anyMap());
-        offsetAcknowledger.acknowledge(commitPartitionsOffset);
-        BlockingQueue<Map<TopicPartition, OffsetAndMetadata>> commitQueue = spy(new LinkedBlockingQueue<>());
-        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 0L, 1001L);
-        OffsetCommitWorker committer = new OffsetCommitWorker("committer", new QueueConfig(200), kafkaCommitter, offsetState, commitQueue, workerState, clock);
-        commitQueue.put(commitPartitionsOffset);
+        offsetAcknowledger.acknowledge(register(1));
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L);
 
         Thread commiterThread = new Thread(committer);
         commiterThread.start();
@@ -209,6 +178,41 @@ public class OffsetCommitWorkerTest {
         verify(kafkaCommitter).commitSync(anyMap());
         verify(kafkaCommitter, atLeastOnce()).wakeup(anyString());
     }
+
+    @Test
+    public void shouldRetryRetriableAsyncCommitFailureWithNextCommit() {
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L, 0L, 1001L);
+        committer.setAsyncCommitEnabled(true);
+        offsetAcknowledger.acknowledge(register(1));
+
+        committer.job();
+        verify(kafkaCommitter).commitAsync(commitPartitionsOffsetCaptor.capture(), commitCallbackCaptor.capture());
+        commitCallbackCaptor.getValue().onComplete(commitPartitionsOffsetCaptor.getValue(), new RetriableCommitFailedException("coordinator moved"));
+        committer.job();
+
+        verify(kafkaCommitter, times(2)).commitAsync(commitPartitionsOffsetCaptor.capture(), any(OffsetCommitCallback.class));
+        Map<TopicPartition, OffsetAndMetadata> retriedOffsets = commitPartitionsOffsetCaptor.getValue();
+        assertEquals(1, retriedOffsets.size());
+        assertEquals(1, retriedOffsets.get(topicPartition).offset());
+        verify(kafkaCommitter, never()).commitSync(anyMap());
+    }
+
+    @Test
+    public void shouldFailNextJobOnNonRetriableAsyncCommitFailure() {
+        when(clock.currentEpochMillis()).thenReturn(0L, 0L, 1001L);
+        committer.setAsyncCommitEnabled(true);
+        offsetAcknowledger.acknowledge(register(1));
+
+        assertTrue(committer.job().isSuccess());
+        verify(kafkaCommitter).commitAsync(commitPartitionsOffsetCaptor.capture(), commitCallbackCaptor.capture());
+        CommitFailedException failure = new CommitFailedException();
+        commitCallbackCaptor.getValue().onComplete(commitPartitionsOffsetCaptor.getValue(), failure);
+        Status status = committer.job();
+
+        assertFalse(status.isSuccess());
+        assertSame(failure, status.getException().get());
+        verify(kafkaCommitter).commitAsync(anyMap(), any(OffsetCommitCallback.class));
+    }
 }
 
 class AcknowledgeHelper extends Thread {
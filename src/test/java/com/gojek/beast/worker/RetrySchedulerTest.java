@@ -0,0 +1,90 @@
+package com.gojek.beast.worker;
+
+import com.gojek.beast.backoff.DecorrelatedJitterBackOff;
+import com.gojek.beast.backoff.RetryBudget;
+import com.gojek.beast.models.Records;
+import com.gojek.beast.util.RecordsUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RetrySchedulerTest {
+    private BlockingQueue<Records> queue;
+    private List<Records> batches;
+
+    @Before
+    public void setUp() {
+        queue = new LinkedBlockingQueue<>();
+        batches = Collections.singletonList(new RecordsUtil().createRecords("driver-", 2));
+    }
+
+    @Test
+    public void shouldPutFailedBatchBackOnQueueAfterBackoff() throws InterruptedException {
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(100, 100), new RetryBudget(0.1, 10), 3);
+
+        retryScheduler.pushed(batches, false);
+        assertTrue(retryScheduler.schedule(batches, queue));
+
+        assertTrue(queue.isEmpty());
+        assertSame(batches.get(0), queue.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldNotScheduleBatchOutOfAttempts() throws InterruptedException {
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(0, 0), new RetryBudget(0.1, 10), 2);
+
+        retryScheduler.pushed(batches, false);
+        assertTrue(retryScheduler.schedule(batches, queue));
+        queue.poll(1, TimeUnit.SECONDS);
+        retryScheduler.pushed(batches, false);
+
+        assertFalse(retryScheduler.schedule(batches, queue));
+    }
+
+    @Test
+    public void shouldNotScheduleWhenRetryBudgetIsExhausted() {
+        RetryBudget retryBudget = new RetryBudget(0.1, 1);
+        retryBudget.tryWithdraw(1);
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(0, 0), retryBudget, 3);
+
+        assertFalse(retryScheduler.schedule(batches, queue));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void shouldPutBackBatchOnceFullQueueHasRoom() throws InterruptedException {
+        BlockingQueue<Records> fullQueue = new LinkedBlockingQueue<>(1);
+        Records queued = new RecordsUtil().createRecords("customer-", 1);
+        fullQueue.add(queued);
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(0, 0), new RetryBudget(0.1, 10), 3);
+
+        assertTrue(retryScheduler.schedule(batches, fullQueue));
+        Thread.sleep(50);
+        assertSame(queued, fullQueue.poll());
+
+        assertSame(batches.get(0), fullQueue.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldDropPurgedBatchesWaitingForRetry() throws InterruptedException {
+        RetryScheduler retryScheduler = new RetryScheduler(new DecorrelatedJitterBackOff(200, 200), new RetryBudget(0.1, 10), 3);
+
+        assertTrue(retryScheduler.schedule(batches, queue));
+        List<Records> purged = retryScheduler.purge(batch -> true);
+
+        assertEquals(batches, purged);
+        assertTrue(retryScheduler.purge(batch -> true).isEmpty());
+        Thread.sleep(400);
+        assertTrue(queue.isEmpty());
+    }
+}